@@ -0,0 +1,121 @@
+package com.mealplanner.benchmarks;
+
+import com.mealplanner.entity.Recipe;
+import com.mealplanner.entity.UserPreferences;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic in-memory inputs for the service benchmarks (no database), plus access to the
+ * private methods being measured.
+ */
+public final class BenchmarkFixtures {
+
+    private static final String[] INGREDIENTS = {
+        "basmati rice", "chicken thigh", "paneer", "spinach", "tomato", "onion", "garlic", "ginger",
+        "cumin seeds", "garam masala", "turmeric", "greek yogurt", "chickpeas", "red lentils", "coconut milk",
+        "olive oil", "ghee", "cashews", "peanuts", "wheat flour", "eggs", "salmon", "tofu", "bell pepper",
+        "broccoli", "mushrooms", "potato", "cauliflower", "green peas", "coriander", "lemon", "honey"
+    };
+    private static final String[] CUISINES = {"Indian", "Italian", "Mexican", "Chinese", "Mediterranean", "Thai"};
+    private static final String[] DIETS = {"VEG", "NON_VEG", "VEGAN", "KETO", "MIXED"};
+    private static final String[] DIFFICULTIES = {"EASY", "MEDIUM", "HARD"};
+    private static final String[] CATEGORIES = {"BREAKFAST", "LUNCH", "DINNER", "SNACK"};
+
+    private BenchmarkFixtures() {
+    }
+
+    public static List<Recipe> recipes(int count) {
+        Random random = new Random(42);
+        List<Recipe> recipes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Recipe recipe = new Recipe();
+            recipe.setId((long) i + 1);
+            recipe.setExternalId("recipe_" + Long.toHexString(random.nextLong()));
+            recipe.setSource("edamam");
+            recipe.setName(pick(random, CUISINES) + " " + pick(random, INGREDIENTS) + " bowl " + i);
+            recipe.setDescription("Serious Eats");
+            recipe.setImageUrl("https://edamam-product-images.s3.amazonaws.com/web-img/" + i + ".jpg");
+            recipe.setExternalUrl("https://www.seriouseats.com/recipes/" + i);
+            recipe.setCategory(pick(random, CATEGORIES));
+            recipe.setCuisineType(pick(random, CUISINES));
+            recipe.setDietType(pick(random, DIETS));
+            recipe.setType(recipe.getDietType());
+            recipe.setDifficultyLevel(pick(random, DIFFICULTIES));
+            recipe.setPrepTime(5 + random.nextInt(40));
+            recipe.setCookTime(10 + random.nextInt(60));
+            recipe.setServings(1 + random.nextInt(6));
+            recipe.setCalories(150 + random.nextInt(700));
+            recipe.setProtein(random.nextDouble() * 40);
+            recipe.setCarbs(random.nextDouble() * 90);
+            recipe.setFat(random.nextDouble() * 35);
+            recipe.setFiber(random.nextDouble() * 12);
+            recipe.setSugar(random.nextDouble() * 25);
+            recipe.setSodium(random.nextDouble() * 900);
+
+            List<String> ingredients = new ArrayList<>();
+            int ingredientCount = 8 + random.nextInt(8);
+            for (int j = 0; j < ingredientCount; j++) {
+                ingredients.add((1 + random.nextInt(3)) + " cups " + pick(random, INGREDIENTS));
+            }
+            recipe.setIngredients(ingredients);
+
+            List<String> instructions = new ArrayList<>();
+            for (int j = 0; j < 6; j++) {
+                instructions.add("Step " + (j + 1) + ": combine the " + pick(random, INGREDIENTS)
+                    + " and cook for " + (2 + random.nextInt(15)) + " minutes, stirring occasionally.");
+            }
+            recipe.setInstructions(instructions);
+            recipes.add(recipe);
+        }
+        return recipes;
+    }
+
+    /**
+     * A user with allergies, dislikes, cuisines and a calorie target, so every filter does real work
+     */
+    public static UserPreferences preferences() {
+        UserPreferences preferences = new UserPreferences();
+        preferences.setDietType("VEG");
+        preferences.setDailyCalorieTarget(2200);
+        preferences.setAllergies(List.of("peanuts", "cashews"));
+        preferences.setDislikes(List.of("mushrooms", "tofu", "cauliflower"));
+        preferences.setPreferredCuisines(List.of("Indian", "Mediterranean"));
+        preferences.setCookingSkillLevel("INTERMEDIATE");
+        return preferences;
+    }
+
+    public static byte[] payload(String name) {
+        try (InputStream in = BenchmarkFixtures.class.getResourceAsStream("/payloads/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing payload: " + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Set a field-injected dependency on a service built outside Spring
+     */
+    public static void inject(Object target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot set " + target.getClass().getSimpleName() + "." + fieldName, e);
+        }
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
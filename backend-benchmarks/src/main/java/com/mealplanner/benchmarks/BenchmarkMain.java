@@ -0,0 +1,35 @@
+package com.mealplanner.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point for benchmarks.jar: plain JMH, but with the GC profiler on and results written to
+ * jmh-result.json unless the command line says otherwise, so every run reports allocation per op.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        boolean informational = arguments.stream().anyMatch(arg -> arg.equals("-h") || arg.equals("-l")
+            || arg.equals("-lp") || arg.equals("-lprof") || arg.equals("-lrf"));
+        if (!informational) {
+            if (!arguments.contains("-prof")) {
+                arguments.addAll(List.of("-prof", "gc"));
+            }
+            if (!arguments.contains("-rf")) {
+                arguments.addAll(List.of("-rf", "json"));
+            }
+            if (!arguments.contains("-rff")) {
+                arguments.addAll(List.of("-rff", "jmh-result.json"));
+            }
+        }
+        Main.main(arguments.toArray(new String[0]));
+    }
+}
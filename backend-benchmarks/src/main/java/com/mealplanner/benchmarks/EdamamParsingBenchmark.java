@@ -0,0 +1,73 @@
+package com.mealplanner.benchmarks;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mealplanner.dto.EdamamRecipeResponseDto;
+import com.mealplanner.dto.MealDto;
+import com.mealplanner.util.EdamamRecipeParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full DTO binding (the previous EdamamRecipeService path) versus the streaming
+ * {@link EdamamRecipeParser}. Run with {@code -prof gc} to compare bytes allocated per op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EdamamParsingBenchmark {
+
+    @Param({"20", "100"})
+    public int hits;
+
+    private byte[] payload;
+    private ObjectMapper objectMapper;
+    private EdamamRecipeParser streamingParser;
+
+    @Setup
+    public void setUp() {
+        payload = EdamamPayloads.searchResponse(hits);
+        objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        streamingParser = new EdamamRecipeParser(objectMapper.getFactory());
+    }
+
+    @Benchmark
+    public List<MealDto> dtoBinding() throws IOException {
+        EdamamRecipeResponseDto response = objectMapper.readValue(payload, EdamamRecipeResponseDto.class);
+        List<MealDto> meals = new ArrayList<>();
+        for (EdamamRecipeResponseDto.Hit hit : response.getHits()) {
+            EdamamRecipeResponseDto.Recipe recipe = hit.getRecipe();
+            MealDto meal = new MealDto();
+            meal.setName(recipe.getLabel());
+            meal.setDescription(recipe.getSource());
+            meal.setImageUrl(recipe.getImage());
+            meal.setExternalId(recipe.getUri());
+            meal.setCalories(recipe.getCalories() != null ? recipe.getCalories().intValue() : null);
+            meal.setIngredients(recipe.getIngredientLines());
+            meals.add(meal);
+        }
+        return meals;
+    }
+
+    @Benchmark
+    public List<MealDto> streamingParser() throws IOException {
+        return streamingParser.parse(payload);
+    }
+}
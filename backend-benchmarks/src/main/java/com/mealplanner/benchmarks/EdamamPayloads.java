@@ -0,0 +1,110 @@
+package com.mealplanner.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Builds Edamam recipe-search responses shaped like the real API (links, images map,
+ * health labels, digest and ~30 totalNutrients entries per hit), so parsing benchmarks
+ * see realistic payload sizes without calling the API.
+ */
+public final class EdamamPayloads {
+
+    private static final String[] NUTRIENTS = {
+        "ENERC_KCAL", "FAT", "FASAT", "FATRN", "FAMS", "FAPU", "CHOCDF", "CHOCDF.net", "FIBTG", "SUGAR",
+        "PROCNT", "CHOLE", "NA", "CA", "MG", "K", "FE", "ZN", "P", "VITA_RAE", "VITC", "THIA", "RIBF",
+        "NIA", "VITB6A", "FOLDFE", "FOLFD", "VITB12", "VITD", "TOCPHA", "VITK1", "WATER"
+    };
+
+    private EdamamPayloads() {
+    }
+
+    public static byte[] searchResponse(int hits) {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder(hits * 6000);
+        json.append("{\"from\":1,\"to\":").append(hits).append(",\"count\":10000,")
+            .append("\"_links\":{\"next\":{\"href\":\"https://api.edamam.com/api/recipes/v2?page=2\",\"title\":\"Next page\"}},")
+            .append("\"hits\":[");
+        for (int i = 0; i < hits; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendHit(json, i, random);
+        }
+        json.append("]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendHit(StringBuilder json, int i, Random random) {
+        String id = "b79327d05b8e5b838ad6cfd9576b30b" + i;
+        json.append("{\"recipe\":{")
+            .append("\"uri\":\"http://www.edamam.com/ontologies/edamam.owl#recipe_").append(id).append("\",")
+            .append("\"label\":\"Chicken Vesuvio ").append(i).append("\",")
+            .append("\"image\":\"https://edamam-product-images.s3.amazonaws.com/web-img/e42/").append(id).append(".jpg\",")
+            .append("\"images\":{");
+        String[] sizes = {"THUMBNAIL", "SMALL", "REGULAR", "LARGE"};
+        for (int s = 0; s < sizes.length; s++) {
+            if (s > 0) {
+                json.append(',');
+            }
+            json.append('"').append(sizes[s]).append("\":{\"url\":\"https://edamam-product-images.s3.amazonaws.com/")
+                .append(sizes[s].toLowerCase()).append('/').append(id).append(".jpg\",\"width\":").append(100 * (s + 1))
+                .append(",\"height\":").append(100 * (s + 1)).append('}');
+        }
+        json.append("},")
+            .append("\"source\":\"Serious Eats\",")
+            .append("\"url\":\"http://www.seriouseats.com/recipes/2011/12/chicken-vesuvio-recipe.html\",")
+            .append("\"shareAs\":\"http://www.edamam.com/recipe/chicken-vesuvio/").append(id).append("\",")
+            .append("\"yield\":4.0,")
+            .append("\"dietLabels\":[\"Low-Carb\"],")
+            .append("\"healthLabels\":[\"Mediterranean\",\"Dairy-Free\",\"Gluten-Free\",\"Wheat-Free\",\"Egg-Free\",\"Peanut-Free\",\"Tree-Nut-Free\",\"Soy-Free\",\"Fish-Free\",\"Shellfish-Free\",\"Pork-Free\",\"Red-Meat-Free\",\"Crustacean-Free\",\"Celery-Free\",\"Mustard-Free\",\"Sesame-Free\",\"Lupine-Free\",\"Mollusk-Free\",\"Kosher\"],")
+            .append("\"cautions\":[\"Sulfites\"],")
+            .append("\"ingredientLines\":[\"1/2 cup olive oil\",\"5 cloves garlic, peeled\",\"2 large russet potatoes, peeled and cut into chunks\",\"1 3-4 pound chicken, cut into 8 pieces\",\"3/4 cup white wine\",\"3/4 cup chicken stock\",\"3 tablespoons chopped parsley\",\"1 tablespoon dried oregano\",\"Salt and pepper\",\"1 cup frozen peas, thawed\"],")
+            .append("\"ingredients\":[");
+        for (int k = 0; k < 10; k++) {
+            if (k > 0) {
+                json.append(',');
+            }
+            json.append("{\"text\":\"ingredient line ").append(k).append("\",\"quantity\":").append(k + 0.5)
+                .append(",\"measure\":\"cup\",\"food\":\"food ").append(k).append("\",\"weight\":")
+                .append(100 + random.nextInt(400)).append(".25,\"foodCategory\":\"Condiments and sauces\",")
+                .append("\"foodId\":\"food_b1d1icuad3iktrbqby0hiagafaz").append(k).append("\",\"image\":\"https://www.edamam.com/food-img/").append(k).append(".jpg\"}");
+        }
+        json.append("],")
+            .append("\"calories\":").append(2000 + random.nextInt(3000)).append(".1234,")
+            .append("\"totalCO2Emissions\":12345.67,\"co2EmissionsClass\":\"G\",")
+            .append("\"totalWeight\":2976.8664549004047,")
+            .append("\"totalTime\":60.0,")
+            .append("\"cuisineType\":[\"italian\"],")
+            .append("\"mealType\":[\"lunch/dinner\"],")
+            .append("\"dishType\":[\"main course\"],")
+            .append("\"totalNutrients\":");
+        appendNutrients(json, random);
+        json.append(",\"totalDaily\":");
+        appendNutrients(json, random);
+        json.append(",\"digest\":[");
+        for (int d = 0; d < 8; d++) {
+            if (d > 0) {
+                json.append(',');
+            }
+            json.append("{\"label\":\"Digest ").append(d).append("\",\"tag\":\"TAG").append(d)
+                .append("\",\"schemaOrgTag\":null,\"total\":").append(random.nextDouble() * 100)
+                .append(",\"hasRDI\":true,\"daily\":").append(random.nextDouble() * 50)
+                .append(",\"unit\":\"g\",\"sub\":[{\"label\":\"Sub\",\"tag\":\"SUB\",\"total\":1.5,\"hasRDI\":false,\"daily\":0.0,\"unit\":\"g\"}]}");
+        }
+        json.append("]},\"_links\":{\"self\":{\"title\":\"Self\",\"href\":\"https://api.edamam.com/api/recipes/v2/")
+            .append(id).append("\"}}}");
+    }
+
+    private static void appendNutrients(StringBuilder json, Random random) {
+        json.append('{');
+        for (int n = 0; n < NUTRIENTS.length; n++) {
+            if (n > 0) {
+                json.append(',');
+            }
+            json.append('"').append(NUTRIENTS[n]).append("\":{\"label\":\"").append(NUTRIENTS[n])
+                .append("\",\"quantity\":").append(random.nextDouble() * 200).append(",\"unit\":\"g\"}");
+        }
+        json.append('}');
+    }
+}
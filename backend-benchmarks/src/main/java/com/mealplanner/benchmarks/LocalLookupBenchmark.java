@@ -0,0 +1,72 @@
+package com.mealplanner.benchmarks;
+
+import com.mealplanner.service.ChatService;
+import com.mealplanner.service.FoodRecognitionService.FoodItem;
+import com.mealplanner.service.GroceryListService;
+import com.mealplanner.service.NutritionDictionary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request paths answered entirely from in-process data: the nutrition dictionary,
+ * the seasonal grocery list and the canned nutritionist chat.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalLookupBenchmark {
+
+    @Param({"paneer butter masala", "chicken biryani with raita"})
+    public String query;
+
+    private NutritionDictionary nutritionDictionary;
+    private GroceryListService groceryListService;
+    private ChatService chatService;
+    private int month;
+
+    @Setup
+    public void setUp() {
+        nutritionDictionary = new NutritionDictionary(new ClassPathResource("nutrition/foods.txt"), 10);
+        groceryListService = new GroceryListService();
+        chatService = new ChatService();
+    }
+
+    @Benchmark
+    public List<FoodItem> searchNutritionDictionary() {
+        return nutritionDictionary.search(query);
+    }
+
+    @Benchmark
+    public FoodItem lookupNutritionDictionary() {
+        return nutritionDictionary.lookup(query);
+    }
+
+    @Benchmark
+    public Map<String, Object> monthlyGroceryList() {
+        // Walk the months so every seasonal branch is measured
+        month = month % 12 + 1;
+        return groceryListService.getMonthlyGroceryList("benchmark", 2025, month);
+    }
+
+    @Benchmark
+    public String nutritionistResponse() {
+        return chatService.getNutritionistResponse("How much protein is in " + query + "?");
+    }
+}
@@ -0,0 +1,66 @@
+package com.mealplanner.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mealplanner.dto.MealDto;
+import com.mealplanner.entity.Recipe;
+import com.mealplanner.entity.UserPreferences;
+import com.mealplanner.util.MealMapper;
+import com.mealplanner.util.RecipePreferenceFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meal suggestion hot path on local recipes: preference filtering (as EnhancedMealService runs it),
+ * then entity -> DTO mapping. Both are built outside Spring; neither touches a repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MealServiceBenchmark {
+
+    @Param({"50", "500"})
+    public int recipes;
+
+    private List<Recipe> recipeList;
+    private UserPreferences preferences;
+    private RecipePreferenceFilter recipePreferenceFilter;
+    private MealMapper mealMapper;
+
+    @Setup
+    public void setUp() {
+        recipeList = BenchmarkFixtures.recipes(recipes);
+        preferences = BenchmarkFixtures.preferences();
+        recipePreferenceFilter = new RecipePreferenceFilter();
+        mealMapper = new MealMapper();
+        BenchmarkFixtures.inject(mealMapper, "objectMapper", new ObjectMapper());
+    }
+
+    @Benchmark
+    public List<Recipe> filterRecipesByPreferences() {
+        return recipePreferenceFilter.filter(recipeList, preferences);
+    }
+
+    @Benchmark
+    public void toMealDto(Blackhole blackhole) {
+        for (Recipe recipe : recipeList) {
+            MealDto meal = mealMapper.toMealDto(recipe);
+            blackhole.consume(meal);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.mealplanner.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mealplanner.service.FoodRecognitionService.FoodItem;
+import com.mealplanner.util.NutritionixParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response parsing for the food providers on recorded payloads (src/main/resources/payloads):
+ * the Nutritionix natural and instant endpoints through the NutritionixParser NutritionBatchResolver
+ * uses, and the OpenAI chat completion as Gpt4oVisionFoodRecognitionService reads it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProviderParsingBenchmark {
+
+    private static final List<String> LABELS = List.of("biryani", "naan", "dal makhani", "french fries", "salad", "lassi");
+
+    private String naturalBody;
+    private String instantBody;
+    private String completionBody;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final NutritionixParser nutritionixParser = new NutritionixParser();
+
+    @Setup
+    public void setUp() {
+        naturalBody = new String(BenchmarkFixtures.payload("nutritionix-natural.json"), StandardCharsets.UTF_8);
+        instantBody = new String(BenchmarkFixtures.payload("nutritionix-instant.json"), StandardCharsets.UTF_8);
+        completionBody = new String(BenchmarkFixtures.payload("openai-chat-completion.json"), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Map<String, FoodItem> nutritionixNatural() throws Exception {
+        return nutritionixParser.matchNaturalFoods(LABELS, naturalBody);
+    }
+
+    @Benchmark
+    public void nutritionixInstant(Blackhole blackhole) throws Exception {
+        JsonNode root = objectMapper.readTree(instantBody);
+        for (String section : List.of("common", "branded")) {
+            for (JsonNode item : root.path(section)) {
+                blackhole.consume(nutritionixParser.parseInstantItem(item, "branded".equals(section)));
+            }
+        }
+    }
+
+    /**
+     * Same extraction as Gpt4oVisionFoodRecognitionService: message content, then the JSON object inside it
+     */
+    @Benchmark
+    public FoodItem openAiCompletion() throws Exception {
+        JsonNode root = objectMapper.readTree(completionBody);
+        String contentText = root.path("choices").get(0).path("message").path("content").asText();
+        String json = contentText.substring(contentText.indexOf("{"), contentText.lastIndexOf("}") + 1);
+        JsonNode foodNode = objectMapper.readTree(json);
+        return new FoodItem(
+            foodNode.path("name").asText(),
+            foodNode.path("estimated_calories").asInt(),
+            foodNode.path("protein_g").asDouble(),
+            foodNode.path("carbs_g").asDouble(),
+            foodNode.path("fat_g").asDouble(),
+            0.95
+        );
+    }
+}
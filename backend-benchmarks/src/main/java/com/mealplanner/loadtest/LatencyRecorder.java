@@ -0,0 +1,74 @@
+package com.mealplanner.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latencies of one scenario, kept exactly (load-test volumes fit in memory) so percentiles are not approximated.
+ */
+public class LatencyRecorder {
+
+    private final String name;
+    private long[] latenciesMicros = new long[1024];
+    private int count;
+    private long errors;
+
+    public LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    public synchronized void record(long latencyMicros, boolean success) {
+        if (count == latenciesMicros.length) {
+            latenciesMicros = Arrays.copyOf(latenciesMicros, count * 2);
+        }
+        latenciesMicros[count++] = latencyMicros;
+        if (!success) {
+            errors++;
+        }
+    }
+
+    public synchronized void merge(LatencyRecorder other) {
+        for (int i = 0; i < other.count; i++) {
+            record(other.latenciesMicros[i], true);
+        }
+        errors += other.errors;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * count, errors, throughput and latency percentiles (ms) over the measured window
+     */
+    public synchronized Map<String, Object> summarize(double windowSeconds) {
+        long[] sorted = Arrays.copyOf(latenciesMicros, count);
+        Arrays.sort(sorted);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", count);
+        summary.put("errors", errors);
+        summary.put("throughputPerSec", round(count / windowSeconds));
+        summary.put("meanMs", count == 0 ? 0.0 : round(Arrays.stream(sorted).average().orElse(0) / 1000.0));
+        summary.put("p50Ms", percentile(sorted, 50));
+        summary.put("p90Ms", percentile(sorted, 90));
+        summary.put("p95Ms", percentile(sorted, 95));
+        summary.put("p99Ms", percentile(sorted, 99));
+        summary.put("maxMs", count == 0 ? 0.0 : round(sorted[count - 1] / 1000.0));
+        return summary;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        // Nearest-rank
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return round(sorted[Math.max(0, rank - 1)] / 1000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
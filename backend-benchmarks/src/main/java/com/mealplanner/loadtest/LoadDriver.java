@@ -0,0 +1,103 @@
+package com.mealplanner.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Closed-loop traffic: each virtual user sends one request, waits for the answer, optionally thinks,
+ * and repeats, picking the scenario at random by weight. Requests started after the warmup are measured,
+ * including those still running when the measured window ends.
+ */
+public class LoadDriver {
+
+    private final String baseUrl;
+    private final Map<LoadScenario, Integer> mix;
+    private final int users;
+    private final byte[] image;
+    private final HttpClient httpClient;
+    private final Map<LoadScenario, LatencyRecorder> recorders = new EnumMap<>(LoadScenario.class);
+    private final int totalWeight;
+
+    public LoadDriver(String baseUrl, Map<LoadScenario, Integer> mix, int users, byte[] image) {
+        this.baseUrl = baseUrl;
+        this.mix = mix;
+        this.users = users;
+        this.image = image;
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        mix.keySet().forEach(scenario -> recorders.put(scenario, new LatencyRecorder(scenario.getKey())));
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Drive traffic for warmup + duration; returns the measured latencies per scenario
+     */
+    public Map<LoadScenario, LatencyRecorder> run(int virtualUsers, Duration warmup, Duration duration, long thinkTimeMs)
+            throws InterruptedException {
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long stopAt = measureFrom + duration.toNanos();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < virtualUsers; i++) {
+            Thread thread = new Thread(() -> virtualUser(measureFrom, stopAt, thinkTimeMs), "virtual-user-" + (i + 1));
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return recorders;
+    }
+
+    private void virtualUser(long measureFrom, long stopAt, long thinkTimeMs) {
+        while (System.nanoTime() < stopAt) {
+            LoadScenario scenario = pickScenario();
+            HttpRequest request = scenario.newRequest(baseUrl, users, image);
+            long start = System.nanoTime();
+            boolean success;
+            try {
+                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                success = scenario.isSuccess(response);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                success = false;
+            }
+            long end = System.nanoTime();
+            if (start >= measureFrom) {
+                recorders.get(scenario).record((end - start) / 1000, success);
+            }
+
+            if (thinkTimeMs > 0) {
+                try {
+                    Thread.sleep(thinkTimeMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private LoadScenario pickScenario() {
+        int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<LoadScenario, Integer> entry : mix.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty traffic mix");
+    }
+}
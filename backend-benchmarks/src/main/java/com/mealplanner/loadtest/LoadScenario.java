@@ -0,0 +1,124 @@
+package com.mealplanner.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The request types the load test mixes, each as the frontend sends it.
+ */
+public enum LoadScenario {
+
+    /** Day view: all four meal types for a date */
+    DAY("day", "GET /api/meal-plan/day"),
+    /** Recipe search by name */
+    SEARCH("search", "GET /api/meal-plan/search/{userId}"),
+    /** Chatbot message in the user's session */
+    CHAT("chat", "POST /api/v2/chatbot/chat/{userId}"),
+    /** Food photo recognition */
+    ANALYZE("analyze", "POST /api/food/analyze");
+
+    private static final List<String> SEARCH_TERMS = List.of(
+        "paneer", "chicken", "rice", "lentils", "spinach", "salmon", "tofu", "chickpeas", "bowl", "curry");
+    private static final List<String> CHAT_MESSAGES = List.of(
+        "How much protein should I eat per day?",
+        "Suggest a high protein vegetarian breakfast",
+        "Is rice bad for weight loss?",
+        "What can I cook with paneer and spinach?",
+        "How many calories are in a plate of biryani?",
+        "Give me a healthy snack for the evening");
+    private static final String BOUNDARY = "----loadtest-boundary-7MA4YWxkTrZu0gW";
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    private final String key;
+    private final String description;
+
+    LoadScenario(String key, String description) {
+        this.key = key;
+        this.description = description;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public static LoadScenario fromKey(String key) {
+        for (LoadScenario scenario : values()) {
+            if (scenario.key.equalsIgnoreCase(key)) {
+                return scenario;
+            }
+        }
+        throw new IllegalArgumentException("Unknown scenario '" + key + "', expected day, search, chat or analyze");
+    }
+
+    /**
+     * Build one request for a random user in [1, users]
+     */
+    public HttpRequest newRequest(String baseUrl, int users, byte[] image) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long userId = 1 + random.nextInt(users);
+        switch (this) {
+            case DAY: {
+                LocalDate date = LocalDate.of(2025, 1, 1).plusDays(random.nextInt(365));
+                return get(baseUrl + "/api/meal-plan/day?date=" + date);
+            }
+            case SEARCH: {
+                String query = SEARCH_TERMS.get(random.nextInt(SEARCH_TERMS.size()));
+                return get(baseUrl + "/api/meal-plan/search/" + userId + "?query="
+                    + URLEncoder.encode(query, StandardCharsets.UTF_8));
+            }
+            case CHAT: {
+                String message = CHAT_MESSAGES.get(random.nextInt(CHAT_MESSAGES.size()));
+                String json = "{\"message\":\"" + message + "\",\"sessionId\":\"loadtest-" + userId + "\"}";
+                return HttpRequest.newBuilder(URI.create(baseUrl + "/api/v2/chatbot/chat/" + userId))
+                    .timeout(TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(json))
+                    .build();
+            }
+            case ANALYZE:
+                return HttpRequest.newBuilder(URI.create(baseUrl + "/api/food/analyze"))
+                    .timeout(TIMEOUT)
+                    .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(multipartImage(image)))
+                    .build();
+            default:
+                throw new IllegalStateException(name());
+        }
+    }
+
+    /**
+     * 2xx, and for the day view no error reported in the body (the endpoint answers 200 with an error field)
+     */
+    public boolean isSuccess(HttpResponse<String> response) {
+        if (response.statusCode() / 100 != 2) {
+            return false;
+        }
+        return this != DAY || !response.body().contains("\"error\":\"");
+    }
+
+    private static HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(TIMEOUT).GET().build();
+    }
+
+    private static byte[] multipartImage(byte[] image) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(image.length + 256);
+        body.writeBytes(("--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"image\"; filename=\"plate.jpg\"\r\n"
+            + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(image);
+        body.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+}
@@ -0,0 +1,74 @@
+package com.mealplanner.loadtest;
+
+import com.mealplanner.benchmarks.BenchmarkFixtures;
+import com.mealplanner.entity.Recipe;
+import com.mealplanner.entity.User;
+import com.mealplanner.entity.UserPreferences;
+import com.mealplanner.repository.RecipeRepository;
+import com.mealplanner.repository.UserPreferencesRepository;
+import com.mealplanner.repository.UserRepository;
+import org.springframework.context.ApplicationContext;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeds the empty load-test database through the application's own repositories.
+ */
+public final class LoadTestData {
+
+    private LoadTestData() {
+    }
+
+    /**
+     * Recipes across every category/diet/cuisine, and users 1..users; every other user has preferences
+     */
+    public static void seed(ApplicationContext context, int recipes, int users) {
+        List<Recipe> recipeList = BenchmarkFixtures.recipes(recipes);
+        recipeList.forEach(recipe -> recipe.setId(null));
+        context.getBean(RecipeRepository.class).saveAll(recipeList);
+
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        UserPreferencesRepository preferencesRepository = context.getBean(UserPreferencesRepository.class);
+        List<UserPreferences> preferencesList = new ArrayList<>();
+        for (int i = 1; i <= users; i++) {
+            User user = new User();
+            user.setName("Load Test User " + i);
+            user.setEmail("loadtest-" + i + "@example.com");
+            user.setPasswordHash("not-a-real-hash");
+            user = userRepository.save(user);
+            if (i % 2 == 0) {
+                UserPreferences preferences = BenchmarkFixtures.preferences();
+                preferences.setUser(user);
+                preferencesList.add(preferences);
+            }
+        }
+        preferencesRepository.saveAll(preferencesList);
+    }
+
+    /**
+     * A 640x480 JPEG photo stand-in, noisy enough to compress like a real one
+     */
+    public static byte[] sampleImage() throws IOException {
+        Random random = new Random(7);
+        BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(235, 225, 205));
+        graphics.fillRect(0, 0, 640, 480);
+        for (int i = 0; i < 400; i++) {
+            graphics.setColor(new Color(120 + random.nextInt(130), 60 + random.nextInt(120), random.nextInt(80)));
+            graphics.fillOval(random.nextInt(640), random.nextInt(480), 8 + random.nextInt(40), 8 + random.nextInt(40));
+        }
+        graphics.dispose();
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", jpeg);
+        return jpeg.toByteArray();
+    }
+}
@@ -0,0 +1,292 @@
+package com.mealplanner.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mealplanner.MealPlannerApplication;
+import com.mealplanner.config.QueryBudgetFilter;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Self-contained load test: starts stub providers, a database and the backend in this JVM, seeds data,
+ * drives a traffic mix and reports throughput and latency percentiles per endpoint.
+ *
+ * <pre>
+ * mvn -q exec:exec@loadtest -Dloadtest.args="--duration 60s --users 32 --mix day=40,search=25,chat=25,analyze=10"
+ * </pre>
+ *
+ * Options (defaults in brackets):
+ * <ul>
+ *   <li>--duration [60s], --warmup [15s]: measured window and unmeasured ramp-up before it</li>
+ *   <li>--users [16]: concurrent virtual users; --think-ms [0]: pause between a user's requests</li>
+ *   <li>--mix [day=40,search=25,chat=25,analyze=10]: relative weight per scenario</li>
+ *   <li>--db [h2]: h2 (in-memory, PostgreSQL mode) or postgres (Testcontainers, needs Docker)</li>
+ *   <li>--recognizer [gpt4o]: food.recognition.api for /api/food/analyze, gpt4o, enhanced or ensemble</li>
+ *   <li>--latency: provider latency as provider=meanMs:jitterMs,..., e.g. gpt4o=1200:200,nutritionix=80:20</li>
+ *   <li>--recipes [2000], --accounts [50]: seeded recipes and users</li>
+ *   <li>--property key=value: extra backend property, repeatable</li>
+ *   <li>--enforce-query-budgets [false]: exit non-zero when an endpoint exceeded its query-stats budget or
+ *       repeated a SELECT (N+1); SQL statements per endpoint are reported either way</li>
+ *   <li>--report [loadtest-result.json]: JSON report file</li>
+ * </ul>
+ */
+public final class LoadTestMain {
+
+    private LoadTestMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, List<String>> options = parseOptions(args);
+        Duration duration = parseDuration(option(options, "duration", "60s"));
+        Duration warmup = parseDuration(option(options, "warmup", "15s"));
+        int virtualUsers = Integer.parseInt(option(options, "users", "16"));
+        long thinkTimeMs = Long.parseLong(option(options, "think-ms", "0"));
+        Map<LoadScenario, Integer> mix = parseMix(option(options, "mix", "day=40,search=25,chat=25,analyze=10"));
+        String db = option(options, "db", "h2");
+        String recognizer = option(options, "recognizer", "gpt4o");
+        int recipes = Integer.parseInt(option(options, "recipes", "2000"));
+        int accounts = Integer.parseInt(option(options, "accounts", "50"));
+        String reportFile = option(options, "report", "loadtest-result.json");
+        boolean enforceQueryBudgets = Boolean.parseBoolean(option(options, "enforce-query-budgets", "false"));
+
+        Map<String, long[]> latency = new HashMap<>(StubProviderServer.DEFAULT_LATENCY);
+        latency.putAll(parseLatency(option(options, "latency", "")));
+
+        StubProviderServer stubs = new StubProviderServer(latency);
+        stubs.start();
+
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create");
+        properties.put("spring.jpa.show-sql", "false");
+        // The backend's properties turn on DEBUG/TRACE logging, which would dominate the measurements
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.mealplanner", "WARN");
+        properties.put("logging.level.org.springframework.security", "WARN");
+        properties.put("logging.level.org.hibernate.SQL", "WARN");
+        properties.put("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", "WARN");
+        properties.put("logging.level.com.mealplanner.service.ClarifaiFoodRecognitionService", "WARN");
+        properties.put("partitions.enabled", "false");
+        properties.put("query-stats.enabled", "true");
+        // Every analyze request uploads the same photo; cached answers would hide the provider path
+        properties.put("recognition.cache.enabled", "false");
+        properties.put("recipes.ingestion.enabled", "false");
+        properties.put("food.recognition.api", recognizer);
+        // Google Vision has no stub
+        properties.put("food.recognition.ensemble.providers", "gpt4o,clarifai");
+        properties.put("gpt4o.api.key", "loadtest-key");
+        properties.put("clarifai.api.key", "loadtest-key");
+        properties.put("nutritionix.app.id", "loadtest");
+        properties.put("nutritionix.app.key", "loadtest-key");
+        for (String provider : StubProviderServer.PROVIDERS) {
+            properties.put("providers.base-url." + provider, stubs.baseUrl(provider));
+        }
+
+        PostgreSQLContainer<?> postgres = null;
+        if ("postgres".equalsIgnoreCase(db)) {
+            postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:15"));
+            postgres.start();
+            properties.put("spring.datasource.url", postgres.getJdbcUrl());
+            properties.put("spring.datasource.username", postgres.getUsername());
+            properties.put("spring.datasource.password", postgres.getPassword());
+        } else if ("h2".equalsIgnoreCase(db)) {
+            // JSONB columns become plain text; YEAR etc. are column names in this schema
+            properties.put("spring.datasource.url", "jdbc:h2:mem:loadtest;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+                + "DEFAULT_NULL_ORDERING=HIGH;NON_KEYWORDS=YEAR,MONTH,DAY,VALUE,KEY;"
+                + "INIT=CREATE DOMAIN IF NOT EXISTS JSONB AS VARCHAR");
+            properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+            properties.put("spring.datasource.username", "sa");
+            properties.put("spring.datasource.password", "");
+            properties.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        } else {
+            throw new IllegalArgumentException("--db must be h2 or postgres");
+        }
+
+        for (String property : options.getOrDefault("property", List.of())) {
+            int split = property.indexOf('=');
+            properties.put(property.substring(0, split), property.substring(split + 1));
+        }
+
+        // As command-line arguments so they win over the backend's application.properties
+        List<String> appArgs = new ArrayList<>();
+        properties.forEach((key, value) -> appArgs.add("--" + key + "=" + value));
+
+        int exitCode = 0;
+        ConfigurableApplicationContext context = null;
+        try {
+            System.out.println("Starting backend (" + db + ", recognizer " + recognizer + ")...");
+            context = new SpringApplicationBuilder(MealPlannerApplication.class).run(appArgs.toArray(new String[0]));
+            String baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+
+            LoadTestData.seed(context, recipes, accounts);
+            System.out.printf("Seeded %d recipes and %d users; running %d virtual users for %ss after %ss warmup%n",
+                recipes, accounts, virtualUsers, duration.toSeconds(), warmup.toSeconds());
+
+            LoadDriver driver = new LoadDriver(baseUrl, mix, accounts, LoadTestData.sampleImage());
+            Map<LoadScenario, LatencyRecorder> results = driver.run(virtualUsers, warmup, duration, thinkTimeMs);
+
+            QueryBudgetFilter queryBudgets = context.getBean(QueryBudgetFilter.class);
+            Map<String, Object> report = report(results, duration, stubs, options, db, recognizer, virtualUsers);
+            report.put("queries", queryBudgets.getRouteStats());
+            report.put("queryBudgetViolations", queryBudgets.getViolations());
+            print(report);
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(reportFile), report);
+            System.out.println("Report written to " + new File(reportFile).getAbsolutePath());
+            if (enforceQueryBudgets && !queryBudgets.getViolations().isEmpty()) {
+                System.out.println("Query budgets exceeded, failing the run");
+                exitCode = 2;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            exitCode = 1;
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            stubs.stop();
+            if (postgres != null) {
+                postgres.stop();
+            }
+        }
+        System.exit(exitCode);
+    }
+
+    private static Map<String, Object> report(Map<LoadScenario, LatencyRecorder> results, Duration duration,
+                                              StubProviderServer stubs, Map<String, List<String>> options,
+                                              String db, String recognizer, int virtualUsers) {
+        double windowSeconds = duration.toMillis() / 1000.0;
+        LatencyRecorder overall = new LatencyRecorder("total");
+        Map<String, Object> scenarios = new LinkedHashMap<>();
+        for (Map.Entry<LoadScenario, LatencyRecorder> entry : results.entrySet()) {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("endpoint", entry.getKey().getDescription());
+            summary.putAll(entry.getValue().summarize(windowSeconds));
+            scenarios.put(entry.getKey().getKey(), summary);
+            overall.merge(entry.getValue());
+        }
+        scenarios.put(overall.getName(), overall.summarize(windowSeconds));
+
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("db", db);
+        settings.put("recognizer", recognizer);
+        settings.put("virtualUsers", virtualUsers);
+        settings.put("durationSeconds", windowSeconds);
+        settings.put("options", options);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("settings", settings);
+        report.put("scenarios", scenarios);
+        report.put("providerCalls", stubs.getCallCounts());
+        return report;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(Map<String, Object> report) {
+        System.out.println();
+        System.out.printf("%-10s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+            "scenario", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p95 ms", "p99 ms", "max ms");
+        Map<String, Object> scenarios = (Map<String, Object>) report.get("scenarios");
+        scenarios.forEach((name, value) -> {
+            Map<String, Object> summary = (Map<String, Object>) value;
+            System.out.printf("%-10s %9s %7s %9s %9s %9s %9s %9s %9s%n", name,
+                summary.get("requests"), summary.get("errors"), summary.get("throughputPerSec"),
+                summary.get("p50Ms"), summary.get("p90Ms"), summary.get("p95Ms"), summary.get("p99Ms"),
+                summary.get("maxMs"));
+        });
+        System.out.println("Provider calls: " + report.get("providerCalls"));
+
+        System.out.println();
+        System.out.printf("%-45s %9s %9s %9s %7s%n", "endpoint", "requests", "mean sql", "max sql", "budget");
+        Map<String, Object> queries = (Map<String, Object>) report.get("queries");
+        queries.forEach((endpoint, value) -> {
+            Map<String, Object> stats = (Map<String, Object>) value;
+            System.out.printf("%-45s %9s %9s %9s %7s%n", endpoint, stats.get("requests"),
+                stats.get("meanStatements"), stats.get("maxStatements"), stats.get("budget"));
+        });
+        List<String> violations = (List<String>) report.get("queryBudgetViolations");
+        violations.forEach(violation -> System.out.println("QUERY BUDGET: " + violation));
+    }
+
+    private static Map<String, List<String>> parseOptions(String[] args) {
+        Map<String, List<String>> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            String name = args[i].substring(2);
+            String value;
+            int split = name.indexOf('=');
+            if (split >= 0) {
+                value = name.substring(split + 1);
+                name = name.substring(0, split);
+            } else if (i + 1 < args.length) {
+                value = args[++i];
+            } else {
+                throw new IllegalArgumentException("Missing value for --" + name);
+            }
+            options.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+        }
+        return options;
+    }
+
+    private static String option(Map<String, List<String>> options, String name, String defaultValue) {
+        List<String> values = options.get(name);
+        return values == null ? defaultValue : values.get(values.size() - 1);
+    }
+
+    /**
+     * "90s", "5m" or plain seconds
+     */
+    static Duration parseDuration(String value) {
+        String trimmed = value.trim().toLowerCase();
+        if (trimmed.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(trimmed.substring(0, trimmed.length() - 2)));
+        }
+        if (trimmed.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+        }
+        if (trimmed.endsWith("s")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        return Duration.ofSeconds(Long.parseLong(trimmed));
+    }
+
+    static Map<LoadScenario, Integer> parseMix(String value) {
+        Map<LoadScenario, Integer> mix = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] weight = part.trim().split("=");
+            int parsed = Integer.parseInt(weight[1].trim());
+            if (parsed > 0) {
+                mix.put(LoadScenario.fromKey(weight[0].trim()), parsed);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("--mix needs at least one scenario with a positive weight");
+        }
+        return mix;
+    }
+
+    static Map<String, long[]> parseLatency(String value) {
+        Map<String, long[]> latency = new HashMap<>();
+        if (value.isBlank()) {
+            return latency;
+        }
+        for (String part : value.split(",")) {
+            String[] entry = part.trim().split("=");
+            String[] timing = entry[1].split(":");
+            latency.put(entry[0].trim().toLowerCase(), new long[] {
+                Long.parseLong(timing[0].trim()), timing.length > 1 ? Long.parseLong(timing[1].trim()) : 0});
+        }
+        return latency;
+    }
+}
@@ -0,0 +1,129 @@
+package com.mealplanner.loadtest;
+
+import com.mealplanner.benchmarks.BenchmarkFixtures;
+import com.mealplanner.benchmarks.EdamamPayloads;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the external providers, replaying recorded responses after a simulated latency.
+ *
+ * Each provider is served under its own prefix, so the backend is pointed at it with
+ * {@code providers.base-url.<provider>=http://127.0.0.1:<port>/<provider>}.
+ */
+public class StubProviderServer {
+
+    public static final List<String> PROVIDERS = List.of("gpt4o", "clarifai", "nutritionix", "edamam", "youtube");
+
+    /**
+     * Default latency per provider as {mean ms, jitter ms}; roughly what the real APIs take
+     */
+    public static final Map<String, long[]> DEFAULT_LATENCY = Map.of(
+        "gpt4o", new long[] {2500, 600},
+        "clarifai", new long[] {450, 120},
+        "nutritionix", new long[] {180, 60},
+        "edamam", new long[] {350, 100},
+        "youtube", new long[] {150, 50}
+    );
+
+    private static final byte[] YOUTUBE_SEARCH = "{\"items\":[{\"id\":{\"videoId\":\"dQw4w9WgXcQ\"}}]}"
+        .getBytes(StandardCharsets.UTF_8);
+
+    private final Map<String, long[]> latency;
+    private final Map<String, AtomicLong> calls = new LinkedHashMap<>();
+    private final Map<String, byte[]> responses = new LinkedHashMap<>();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public StubProviderServer(Map<String, long[]> latency) throws IOException {
+        this.latency = latency;
+        responses.put("/gpt4o/v1/chat/completions", BenchmarkFixtures.payload("openai-chat-completion.json"));
+        responses.put("/clarifai/v2/models/food-item-recognition/outputs", BenchmarkFixtures.payload("clarifai-outputs.json"));
+        responses.put("/nutritionix/v2/natural/nutrients", BenchmarkFixtures.payload("nutritionix-natural.json"));
+        responses.put("/nutritionix/v2/search/instant", BenchmarkFixtures.payload("nutritionix-instant.json"));
+        responses.put("/edamam/api/recipes/v2", EdamamPayloads.searchResponse(20));
+        responses.put("/youtube/youtube/v3/search", YOUTUBE_SEARCH);
+        for (String provider : PROVIDERS) {
+            calls.put(provider, new AtomicLong());
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        // Threads mostly sleep out the simulated latency, so the pool is sized for concurrency, not CPU
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-provider-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 256);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String baseUrl(String provider) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/" + provider;
+    }
+
+    /**
+     * Calls served so far, per provider
+     */
+    public Map<String, Long> getCallCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        calls.forEach((provider, count) -> counts.put(provider, count.get()));
+        return counts;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try (InputStream body = exchange.getRequestBody()) {
+                body.transferTo(OutputStream.nullOutputStream());
+            }
+            String path = exchange.getRequestURI().getPath();
+            byte[] response = responses.get(path);
+            if (response == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            String provider = path.substring(1, path.indexOf('/', 1));
+            calls.get(provider).incrementAndGet();
+            long[] providerLatency = latency.getOrDefault(provider, DEFAULT_LATENCY.get(provider));
+            long delay = providerLatency[0] + (providerLatency[1] > 0
+                ? ThreadLocalRandom.current().nextLong(-providerLatency[1], providerLatency[1] + 1) : 0);
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+        }
+    }
+}
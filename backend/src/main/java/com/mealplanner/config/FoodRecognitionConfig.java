@@ -3,9 +3,22 @@ package com.mealplanner.config;
 import com.mealplanner.service.FoodRecognitionService;
 import com.mealplanner.service.NutritionixFoodRecognitionService;
 import com.mealplanner.service.GoogleVisionFoodRecognitionService;
+import com.mealplanner.service.CachingFoodRecognitionService;
 import com.mealplanner.service.ClarifaiFoodRecognitionService;
 import com.mealplanner.service.EnhancedFoodRecognitionService;
+import com.mealplanner.service.EnsembleFoodRecognitionService;
+import com.mealplanner.service.Gpt4oDetailPolicy;
+import com.mealplanner.service.Gpt4oUsageRecorder;
 import com.mealplanner.service.Gpt4oVisionFoodRecognitionService;
+import com.mealplanner.service.ImagePreprocessor;
+import com.mealplanner.service.PreprocessingFoodRecognitionService;
+import com.mealplanner.service.RecognitionResultCache;
+import com.mealplanner.service.RoutingFoodRecognitionService;
+import com.mealplanner.service.NutritionBatchResolver;
+import com.mealplanner.service.NutritionDictionary;
+import com.mealplanner.util.ProviderGuards;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
@@ -14,6 +27,14 @@ import org.springframework.context.annotation.Primary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Configuration
 public class FoodRecognitionConfig {
     
@@ -34,39 +55,171 @@ public class FoodRecognitionConfig {
     @Value("${gpt4o.api.key:}")
     private String gpt4oApiKey;
     
+    @Value("${food.recognition.ensemble.providers:gpt4o,clarifai,google-vision}")
+    private String ensembleProviders;
+    
+    @Value("${food.recognition.ensemble.deadline-ms:8000}")
+    private long ensembleDeadlineMs;
+    
+    @Value("${food.recognition.ensemble.confidence-threshold:0.97}")
+    private double ensembleConfidenceThreshold;
+    
+    @Value("${food.recognition.ensemble.pool-size:12}")
+    private int ensemblePoolSize;
+    
+    @Value("${food.recognition.routing.chain:gpt4o,enhanced,google-vision}")
+    private String routingChain;
+    
+    @Value("${food.recognition.routing.window-size:50}")
+    private int routingWindowSize;
+    
+    @Value("${food.recognition.routing.window-ms:300000}")
+    private long routingWindowMs;
+    
+    @Value("${food.recognition.routing.latency-target-ms:3000}")
+    private long routingLatencyTargetMs;
+    
+    @Value("${food.recognition.routing.score-margin:0.1}")
+    private double routingScoreMargin;
+    
+    @Autowired
+    private ProviderGuards providerGuards;
+    
+    @Autowired
+    private NutritionBatchResolver nutritionBatchResolver;
+    
+    @Autowired
+    private NutritionDictionary nutritionDictionary;
+    
+    @Autowired
+    private ImagePreprocessor imagePreprocessor;
+    
+    @Autowired
+    private RecognitionResultCache recognitionResultCache;
+    
+    @Autowired
+    private Gpt4oDetailPolicy gpt4oDetailPolicy;
+    
+    @Autowired
+    private Gpt4oUsageRecorder gpt4oUsageRecorder;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
     @Bean
     @Primary
     @ConditionalOnProperty(name = "food.recognition.api", havingValue = "gpt4o")
     public FoodRecognitionService gpt4oVisionFoodRecognitionService() {
         logger.info("Creating GPT-4o Vision food recognition service with API key");
-        return new Gpt4oVisionFoodRecognitionService(gpt4oApiKey);
+        return preprocessed(gpt4oRecognizer());
     }
     
     @Bean
     @ConditionalOnProperty(name = "food.recognition.api", havingValue = "enhanced", matchIfMissing = true)
     public FoodRecognitionService enhancedFoodRecognitionService() {
-        logger.info("Creating Enhanced food recognition service with Indian food database");
-        return new EnhancedFoodRecognitionService(clarifaiApiKey, nutritionixAppId, nutritionixAppKey);
+        logger.info("Creating Enhanced food recognition service with the local nutrition dictionary");
+        return preprocessed(new EnhancedFoodRecognitionService(clarifaiApiKey, nutritionixAppId, nutritionixAppKey, providerGuards, nutritionBatchResolver, nutritionDictionary));
     }
     
     @Bean
     @ConditionalOnProperty(name = "food.recognition.api", havingValue = "clarifai")
     public FoodRecognitionService clarifaiFoodRecognitionService() {
         logger.info("Creating Clarifai food recognition service");
-        return new ClarifaiFoodRecognitionService(clarifaiApiKey, nutritionixAppId, nutritionixAppKey);
+        return preprocessed(new ClarifaiFoodRecognitionService(clarifaiApiKey, nutritionixAppId, nutritionixAppKey, providerGuards, nutritionBatchResolver, nutritionDictionary));
     }
     
     @Bean
     @ConditionalOnProperty(name = "food.recognition.api", havingValue = "nutritionix")
     public FoodRecognitionService nutritionixFoodRecognitionService() {
         logger.info("Creating Nutritionix food recognition service");
-        return new NutritionixFoodRecognitionService(nutritionixAppId, nutritionixAppKey);
+        // Sends no image (text search only), so nothing to preprocess
+        return new NutritionixFoodRecognitionService(nutritionixAppId, nutritionixAppKey, providerGuards, nutritionDictionary);
     }
     
     @Bean
     @ConditionalOnProperty(name = "food.recognition.api", havingValue = "google-vision")
     public FoodRecognitionService googleVisionFoodRecognitionService() {
         logger.info("Creating Google Vision food recognition service");
-        return new GoogleVisionFoodRecognitionService(googleVisionApiKey);
+        return preprocessed(new GoogleVisionFoodRecognitionService(googleVisionApiKey, providerGuards, nutritionDictionary));
+    }
+    
+    @Bean
+    @ConditionalOnProperty(name = "food.recognition.api", havingValue = "ensemble")
+    public FoodRecognitionService ensembleFoodRecognitionService() {
+        Map<String, FoodRecognitionService> members = new LinkedHashMap<>();
+        for (String provider : ensembleProviders.split(",")) {
+            String name = provider.trim().toLowerCase();
+            if (!name.isEmpty()) {
+                members.put(name, imageRecognizer(name));
+            }
+        }
+        logger.info("Creating ensemble food recognition service over {}", members.keySet());
+        // Preprocessed and cached once for the whole ensemble rather than per member
+        return preprocessed(new EnsembleFoodRecognitionService(members, recognitionEnsembleExecutor(),
+            ensembleDeadlineMs, ensembleConfidenceThreshold, meterRegistry));
+    }
+    
+    /**
+     * Runs ensemble members; stragglers are cancelled at the deadline, so the pool only bounds bursts
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    @ConditionalOnProperty(name = "food.recognition.api", havingValue = "ensemble")
+    public ExecutorService recognitionEnsembleExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(ensemblePoolSize, runnable -> {
+            Thread thread = new Thread(runnable, "recognition-ensemble-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @Bean
+    @ConditionalOnProperty(name = "food.recognition.api", havingValue = "routed")
+    public FoodRecognitionService routingFoodRecognitionService() {
+        // Every image recognizer is available, so the admin endpoint can route to any of them
+        Map<String, FoodRecognitionService> providers = new LinkedHashMap<>();
+        for (String name : List.of("gpt4o", "enhanced", "clarifai", "google-vision")) {
+            providers.put(name, imageRecognizer(name));
+        }
+        List<String> chain = Arrays.stream(routingChain.split(","))
+            .map(name -> name.trim().toLowerCase())
+            .filter(name -> !name.isEmpty())
+            .toList();
+        logger.info("Creating routed food recognition service with chain {}", chain);
+        return preprocessed(new RoutingFoodRecognitionService(providers, chain, routingWindowSize, routingWindowMs,
+            routingLatencyTargetMs, routingScoreMargin, meterRegistry));
+    }
+    
+    private Gpt4oVisionFoodRecognitionService gpt4oRecognizer() {
+        return new Gpt4oVisionFoodRecognitionService(gpt4oApiKey, providerGuards, nutritionDictionary, imagePreprocessor,
+            gpt4oDetailPolicy, gpt4oUsageRecorder);
+    }
+    
+    /**
+     * An undecorated recognizer that analyzes the photo itself, for use in an ensemble or routing chain
+     */
+    private FoodRecognitionService imageRecognizer(String name) {
+        switch (name) {
+            case "gpt4o":
+                return gpt4oRecognizer();
+            case "clarifai":
+                return new ClarifaiFoodRecognitionService(clarifaiApiKey, nutritionixAppId, nutritionixAppKey, providerGuards, nutritionBatchResolver, nutritionDictionary);
+            case "enhanced":
+                return new EnhancedFoodRecognitionService(clarifaiApiKey, nutritionixAppId, nutritionixAppKey, providerGuards, nutritionBatchResolver, nutritionDictionary);
+            case "google-vision":
+                return new GoogleVisionFoodRecognitionService(googleVisionApiKey, providerGuards, nutritionDictionary);
+            default:
+                throw new IllegalStateException("Unknown image recognizer '" + name
+                    + "' in food.recognition.ensemble.providers; expected gpt4o, clarifai, enhanced or google-vision");
+        }
+    }
+    
+    /**
+     * Recognizers that send the photo get a downscaled, upright one (see ImagePreprocessor), and
+     * repeat photos are answered from the perceptual-hash result cache
+     */
+    private FoodRecognitionService preprocessed(FoodRecognitionService recognizer) {
+        return new PreprocessingFoodRecognitionService(
+            new CachingFoodRecognitionService(recognizer, recognitionResultCache), imagePreprocessor);
     }
-} 
\ No newline at end of file
+}
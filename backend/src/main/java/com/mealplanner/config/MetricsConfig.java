@@ -0,0 +1,85 @@
+package com.mealplanner.config;
+
+import com.mealplanner.service.ApiUsageLogWriter;
+import com.mealplanner.service.BatchRecognitionService;
+import com.mealplanner.service.NutritionBatchResolver;
+import com.mealplanner.service.RecognitionResultCache;
+import com.mealplanner.service.ScanJobService;
+import com.mealplanner.service.YouTubeService;
+import com.mealplanner.util.PerceptualHashCache;
+import com.mealplanner.util.TtlCacheMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Registers application-specific meters: cache hit ratios, background executor queues and the
+ * usage log writer. HTTP endpoints, repositories and JVM/pool metrics come from actuator itself;
+ * provider calls are timed by {@link com.mealplanner.util.ProviderGuard}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder cacheMetrics(YouTubeService youTubeService, NutritionBatchResolver nutritionBatchResolver,
+                                    RecognitionResultCache recognitionResultCache) {
+        return registry -> {
+            new TtlCacheMetrics(youTubeService.getVideoCache(), "youtube.videos").bindTo(registry);
+            new TtlCacheMetrics(youTubeService.getNotFoundCache(), "youtube.not-found").bindTo(registry);
+            new TtlCacheMetrics(nutritionBatchResolver.getNutritionCache(), "nutrition.labels").bindTo(registry);
+            new TtlCacheMetrics(recognitionResultCache.getCache(), "food.recognition.results").bindTo(registry);
+            FunctionCounter.builder("cache.near.hits", recognitionResultCache.getCache(), PerceptualHashCache::getNearHits)
+                .description("Hits on a similar rather than identical photo")
+                .tag("cache", "food.recognition.results")
+                .register(registry);
+        };
+    }
+
+    /**
+     * executor.queued, executor.active, executor.pool.size etc. per pool
+     */
+    @Bean
+    public MeterBinder executorMetrics(YouTubeService youTubeService, NutritionBatchResolver nutritionBatchResolver,
+                                       BatchRecognitionService batchRecognitionService, ScanJobService scanJobService,
+                                       @Qualifier("providerHedgeExecutor") ExecutorService providerHedgeExecutor,
+                                       @Qualifier("recognitionEnsembleExecutor") ObjectProvider<ExecutorService> recognitionEnsembleExecutor) {
+        return registry -> {
+            bindExecutor(youTubeService.getSearchExecutor(), "youtube-search", registry);
+            bindExecutor(nutritionBatchResolver.getLookupExecutor(), "nutrition-lookup", registry);
+            bindExecutor(providerHedgeExecutor, "provider-hedge", registry);
+            bindExecutor(batchRecognitionService.getExecutor(), "recognition-batch", registry);
+            bindExecutor(scanJobService.getExecutor(), "food-scan", registry);
+            recognitionEnsembleExecutor.ifAvailable(executor -> bindExecutor(executor, "recognition-ensemble", registry));
+        };
+    }
+
+    @Bean
+    public MeterBinder usageLogWriterMetrics(ApiUsageLogWriter writer) {
+        return registry -> {
+            Gauge.builder("usage.log.buffered", writer, ApiUsageLogWriter::getBufferedCount)
+                .description("Usage log entries waiting to be written")
+                .register(registry);
+            FunctionCounter.builder("usage.log.entries", writer, ApiUsageLogWriter::getEnqueuedCount)
+                .tag("result", "enqueued").register(registry);
+            FunctionCounter.builder("usage.log.entries", writer, ApiUsageLogWriter::getDroppedCount)
+                .tag("result", "dropped").register(registry);
+            FunctionCounter.builder("usage.log.entries", writer, ApiUsageLogWriter::getWrittenCount)
+                .tag("result", "written").register(registry);
+            FunctionCounter.builder("usage.log.entries", writer, ApiUsageLogWriter::getFailedCount)
+                .tag("result", "failed").register(registry);
+        };
+    }
+
+    private static void bindExecutor(ExecutorService executor, String name, MeterRegistry registry) {
+        new ExecutorServiceMetrics(executor, name, Tags.empty()).bindTo(registry);
+    }
+}
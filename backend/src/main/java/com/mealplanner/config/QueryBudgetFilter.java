@@ -0,0 +1,192 @@
+package com.mealplanner.config;
+
+import com.mealplanner.util.QueryStats;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts the SQL statements each API request runs and flags requests that exceed their
+ * endpoint's budget or repeat the same SELECT (an N+1). Budgets are keyed by
+ * "METHOD route", e.g. {@code GET /api/meal-plan/search/{userId}=5}.
+ *
+ * Violations are logged once per endpoint and kind, and kept per endpoint for
+ * {@link #getRouteStats()}; the load-test harness fails the run on them when asked to, and
+ * integration tests assert per-endpoint limits on them (QueryCountAssertions in the test tree).
+ * Statement counts are also published as the http.server.queries distribution summary.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class QueryBudgetFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryBudgetFilter.class);
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int defaultBudget;
+    private final int nPlusOneThreshold;
+    private final Map<String, Integer> budgets;
+    private final Map<String, RouteStats> routeStats = new ConcurrentHashMap<>();
+
+    public QueryBudgetFilter(MeterRegistry meterRegistry,
+                             @Value("${query-stats.enabled:false}") boolean enabled,
+                             @Value("${query-stats.default-budget:50}") int defaultBudget,
+                             @Value("${query-stats.n-plus-one-threshold:5}") int nPlusOneThreshold,
+                             @Value("${query-stats.budgets:}") String budgets) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.defaultBudget = defaultBudget;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+        this.budgets = parseBudgets(budgets);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        QueryStats.begin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            QueryStats stats = QueryStats.end();
+            Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String endpoint = request.getMethod() + " " + (route != null ? route : "UNKNOWN");
+            check(endpoint, stats);
+        }
+    }
+
+    private void check(String endpoint, QueryStats stats) {
+        DistributionSummary.builder("http.server.queries")
+            .description("SQL statements prepared per API request")
+            .tag("endpoint", endpoint)
+            .register(meterRegistry)
+            .record(stats.getTotal());
+
+        int budget = budgets.getOrDefault(endpoint, defaultBudget);
+        Map.Entry<String, Integer> repeated = stats.repeatedSelect(nPlusOneThreshold);
+        RouteStats route = routeStats.computeIfAbsent(endpoint, key -> new RouteStats(budget));
+        boolean firstOverBudget;
+        boolean firstRepeated;
+        synchronized (route) {
+            route.requests++;
+            route.statements += stats.getTotal();
+            route.maxStatements = Math.max(route.maxStatements, stats.getTotal());
+            firstOverBudget = stats.getTotal() > budget && route.overBudget++ == 0;
+            firstRepeated = repeated != null && route.nPlusOne++ == 0;
+            if (repeated != null) {
+                route.repeatedSql = repeated.getKey();
+            }
+        }
+
+        if (firstOverBudget) {
+            logger.warn("{} ran {} SQL statements, budget is {}", endpoint, stats.getTotal(), budget);
+        }
+        if (firstRepeated) {
+            logger.warn("Possible N+1 in {}: same SELECT ran {} times: {}",
+                endpoint, repeated.getValue(), repeated.getKey());
+        }
+    }
+
+    /**
+     * Per endpoint: requests, statements (mean/max), budget, and how many requests broke it
+     */
+    public Map<String, Map<String, Object>> getRouteStats() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        routeStats.forEach((endpoint, route) -> {
+            synchronized (route) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("requests", route.requests);
+                entry.put("meanStatements", route.requests == 0 ? 0.0
+                    : Math.round(route.statements * 100.0 / route.requests) / 100.0);
+                entry.put("maxStatements", route.maxStatements);
+                entry.put("budget", route.budget);
+                entry.put("overBudget", route.overBudget);
+                entry.put("nPlusOne", route.nPlusOne);
+                if (route.repeatedSql != null) {
+                    entry.put("repeatedSql", route.repeatedSql);
+                }
+                result.put(endpoint, entry);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Endpoints with at least one over-budget or N+1 request, each with a one-line reason
+     */
+    public List<String> getViolations() {
+        List<String> violations = new ArrayList<>();
+        getRouteStats().forEach((endpoint, stats) -> {
+            if ((long) stats.get("overBudget") > 0) {
+                violations.add(endpoint + ": " + stats.get("overBudget") + " request(s) over budget "
+                    + stats.get("budget") + ", max " + stats.get("maxStatements") + " statements");
+            }
+            if ((long) stats.get("nPlusOne") > 0) {
+                violations.add(endpoint + ": " + stats.get("nPlusOne") + " request(s) repeated a SELECT "
+                    + nPlusOneThreshold + "+ times: " + stats.get("repeatedSql"));
+            }
+        });
+        return violations;
+    }
+
+    /**
+     * Forget the per-endpoint stats collected so far, e.g. between integration tests
+     */
+    public void reset() {
+        routeStats.clear();
+    }
+
+    private static Map<String, Integer> parseBudgets(String spec) {
+        Map<String, Integer> parsed = new HashMap<>();
+        for (String item : spec.split(",")) {
+            if (item.isBlank()) {
+                continue;
+            }
+            int eq = item.lastIndexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("query-stats.budgets entry '" + item.trim()
+                    + "' should be 'METHOD /route=max'");
+            }
+            parsed.put(item.substring(0, eq).trim(), Integer.parseInt(item.substring(eq + 1).trim()));
+        }
+        return parsed;
+    }
+
+    private static class RouteStats {
+        final int budget;
+        long requests;
+        long statements;
+        int maxStatements;
+        long overBudget;
+        long nPlusOne;
+        String repeatedSql;
+
+        RouteStats(int budget) {
+            this.budget = budget;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.mealplanner.config;
+
+import com.mealplanner.util.QueryStats;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Feeds every statement Hibernate prepares into {@link QueryStats}, which
+ * {@link QueryBudgetFilter} checks against per-endpoint budgets; only installed when
+ * query-stats.enabled=true. JdbcTemplate statements are not counted.
+ */
+@Configuration
+@ConditionalOnProperty(name = "query-stats.enabled", havingValue = "true")
+public class QueryStatsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer queryStatsCustomizer() {
+        StatementInspector inspector = sql -> {
+            QueryStats.record(sql);
+            return sql;
+        };
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+    }
+}
@@ -0,0 +1,44 @@
+package com.mealplanner.config;
+
+import com.mealplanner.util.ProviderGuards;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class ResilienceConfig {
+
+    @Value("${resilience.hedging.pool-size:16}")
+    private int hedgePoolSize;
+
+    /**
+     * Executor running hedged provider attempts; bounded so a slow provider cannot pile up threads
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService providerHedgeExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(
+            hedgePoolSize, hedgePoolSize, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(hedgePoolSize * 8),
+            runnable -> {
+                Thread thread = new Thread(runnable, "provider-hedge-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+    }
+
+    @Bean
+    public ProviderGuards providerGuards(Environment env, MeterRegistry meterRegistry) {
+        return new ProviderGuards(env, providerHedgeExecutor(), meterRegistry);
+    }
+}
@@ -1,7 +1,11 @@
 package com.mealplanner.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -16,15 +20,31 @@ import java.util.Arrays;
 @EnableWebSecurity
 public class SecurityConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(SecurityConfig.class);
+
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http,
+                                           @Value("${spring.security.user.password:}") String adminPassword) throws Exception {
+        boolean adminEnabled = !adminPassword.isBlank();
+        if (!adminEnabled) {
+            logger.warn("ADMIN_PASSWORD is not set; /api/admin/** and /actuator/** (except health) are disabled");
+        }
         http
             .csrf(csrf -> csrf.disable())
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
-            .authorizeHttpRequests(authz -> authz
+            .authorizeHttpRequests(authz -> {
+                // Health stays open for load balancers and uptime checks
+                authz.requestMatchers("/actuator/health", "/actuator/health/**").permitAll();
+                // Diagnostics, metrics and other admin tools: spring.security.user with the ADMIN role
+                if (adminEnabled) {
+                    authz.requestMatchers("/api/admin/**", "/actuator/**").hasRole("ADMIN");
+                } else {
+                    authz.requestMatchers("/api/admin/**", "/actuator/**").denyAll();
+                }
                 // Allow all requests for now (temporary)
-                .anyRequest().permitAll()
-            )
+                authz.anyRequest().permitAll();
+            })
+            .httpBasic(Customizer.withDefaults())
             .sessionManagement(session -> session
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
             );
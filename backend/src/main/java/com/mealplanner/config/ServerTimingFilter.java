@@ -0,0 +1,87 @@
+package com.mealplanner.config;
+
+import com.mealplanner.service.TraceSpanExporter;
+import com.mealplanner.util.RequestTrace;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Traces each API request and reports where its time went in a Server-Timing header
+ * (db, ext.&lt;provider&gt;, filter, map, serialize, total), optionally exporting the spans.
+ *
+ * The response body is buffered so the header can include serialization time; streaming
+ * responses (SSE, NDJSON, by Accept header or known streaming path), admin endpoints (diagnostics downloads can be large) and actuator
+ * endpoints are left alone.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    // Endpoints that always stream, whatever the client's Accept header says
+    private static final List<String> STREAMING_PATHS = List.of("/api/food/analyze/batch", "/api/food/scans/*/events");
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final TraceSpanExporter spanExporter;
+    private final boolean enabled;
+    private final int maxSpansPerRequest;
+
+    public ServerTimingFilter(TraceSpanExporter spanExporter,
+                              @Value("${tracing.enabled:false}") boolean enabled,
+                              @Value("${tracing.spans.max-per-request:256}") int maxSpansPerRequest) {
+        this.spanExporter = spanExporter;
+        this.enabled = enabled;
+        this.maxSpansPerRequest = maxSpansPerRequest;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled || !request.getRequestURI().startsWith("/api/") || request.getRequestURI().startsWith("/api/admin/")) {
+            return true;
+        }
+        if (STREAMING_PATHS.stream().anyMatch(pattern -> PATH_MATCHER.match(pattern, request.getRequestURI()))) {
+            return true;
+        }
+        String accept = request.getHeader("Accept");
+        return accept != null && (accept.contains("text/event-stream") || accept.contains("application/x-ndjson"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestTrace trace = RequestTrace.begin(request.getMethod() + " " + request.getRequestURI(),
+            request.getHeader("traceparent"), spanExporter.isEnabled(), maxSpansPerRequest);
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(request, wrapper);
+        } finally {
+            RequestTrace.end();
+            Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            trace.setAttribute("http.request.method", request.getMethod());
+            trace.setAttribute("url.path", request.getRequestURI());
+            if (route != null) {
+                trace.setName(request.getMethod() + " " + route);
+                trace.setAttribute("http.route", route);
+            }
+            trace.setAttribute("http.response.status_code", wrapper.getStatus());
+
+            if (!wrapper.isCommitted()) {
+                wrapper.setHeader("Server-Timing", trace.toServerTiming());
+            }
+            wrapper.copyBodyToResponse();
+            spanExporter.export(trace);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.mealplanner.config;
+
+import com.mealplanner.service.SlowQueryLog;
+import com.mealplanner.util.SlowQueryDataSource;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the DataSource so statements slower than slow-query.threshold-ms land in {@link SlowQueryLog},
+ * and marks each Spring Data repository call as the call site of the statements it runs;
+ * only installed when slow-query.enabled=true.
+ */
+@Configuration
+@ConditionalOnProperty(name = "slow-query.enabled", havingValue = "true")
+public class SlowQueryConfig {
+
+    @Bean
+    public static BeanPostProcessor slowQueryPostProcessor(ObjectProvider<SlowQueryLog> slowQueryLog) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                        (proxyFactory, repositoryInformation) -> {
+                            String repository = repositoryInformation.getRepositoryInterface().getSimpleName();
+                            proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+                                String previous = SlowQueryDataSource.enterCallSite(
+                                    repository + "." + invocation.getMethod().getName());
+                                try {
+                                    return invocation.proceed();
+                                } finally {
+                                    SlowQueryDataSource.exitCallSite(previous);
+                                }
+                            });
+                        }));
+                }
+                return bean;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof SlowQueryDataSource)) {
+                    return new SlowQueryDataSource(dataSource, slowQueryLog);
+                }
+                return bean;
+            }
+        };
+    }
+}
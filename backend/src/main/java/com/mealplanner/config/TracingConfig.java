@@ -0,0 +1,75 @@
+package com.mealplanner.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mealplanner.util.RequestTrace;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hooks that attribute request time to the "db" and "serialize" phases of {@link RequestTrace};
+ * only installed when tracing.enabled=true. Other phases are marked in the code that runs them.
+ */
+@Configuration
+@ConditionalOnProperty(name = "tracing.enabled", havingValue = "true")
+public class TracingConfig {
+
+    /**
+     * Times every Spring Data repository method invocation as "db"
+     */
+    @Bean
+    public static BeanPostProcessor repositoryTracingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addInvocationListener(
+                        invocation -> RequestTrace.record("db", invocation.getDuration(TimeUnit.NANOSECONDS))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Swaps the JSON converter for one that times response serialization as "serialize"
+     */
+    @Bean
+    public WebMvcConfigurer serializationTracingConfigurer() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+                for (int i = 0; i < converters.size(); i++) {
+                    if (converters.get(i) instanceof MappingJackson2HttpMessageConverter jsonConverter
+                            && !(jsonConverter instanceof TimedJsonConverter)) {
+                        converters.set(i, new TimedJsonConverter(jsonConverter.getObjectMapper()));
+                    }
+                }
+            }
+        };
+    }
+
+    static class TimedJsonConverter extends MappingJackson2HttpMessageConverter {
+        TimedJsonConverter(ObjectMapper objectMapper) {
+            super(objectMapper);
+        }
+
+        @Override
+        protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+            try (RequestTrace.Phase phase = RequestTrace.phase("serialize")) {
+                super.writeInternal(object, type, outputMessage);
+            }
+        }
+    }
+}
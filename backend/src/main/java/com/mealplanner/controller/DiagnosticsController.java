@@ -0,0 +1,118 @@
+package com.mealplanner.controller;
+
+import com.mealplanner.service.DiagnosticsService;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Admin-only JVM diagnostics (HTTP Basic, ADMIN role; see SecurityConfig)
+ */
+@RestController
+@RequestMapping("/api/admin/diagnostics")
+public class DiagnosticsController {
+
+    private final DiagnosticsService diagnosticsService;
+
+    public DiagnosticsController(DiagnosticsService diagnosticsService) {
+        this.diagnosticsService = diagnosticsService;
+    }
+
+    /**
+     * Start a JFR recording; profile is "default" or "profile", durationSeconds caps how long it runs
+     */
+    @PostMapping("/jfr/start")
+    public ResponseEntity<?> startRecording(@RequestParam(defaultValue = "default") String profile,
+                                            @RequestParam(defaultValue = "60") long durationSeconds) {
+        try {
+            return ResponseEntity.ok(diagnosticsService.startRecording(profile, Duration.ofSeconds(durationSeconds)));
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            return error(HttpStatus.CONFLICT, e.getMessage());
+        } catch (Exception e) {
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to start recording: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/jfr/stop")
+    public ResponseEntity<?> stopRecording() {
+        try {
+            return ResponseEntity.ok(diagnosticsService.stopRecording());
+        } catch (IllegalStateException e) {
+            return error(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    /**
+     * Current recording state and the finished .jfr files available for download
+     */
+    @GetMapping("/jfr")
+    public ResponseEntity<?> getRecordingStatus() {
+        return ResponseEntity.ok(diagnosticsService.getRecordingStatus());
+    }
+
+    @GetMapping("/jfr/{name:.+}")
+    public ResponseEntity<?> downloadRecording(@PathVariable String name) {
+        Path file = diagnosticsService.getRecordingFile(name);
+        if (file == null) {
+            return error(HttpStatus.NOT_FOUND, "No finished recording named " + name);
+        }
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+            .body(new FileSystemResource(file));
+    }
+
+    /**
+     * Top classes by shallow size; live=true only counts reachable objects and triggers a full GC
+     */
+    @GetMapping("/heap/histogram")
+    public ResponseEntity<?> classHistogram(@RequestParam(defaultValue = "50") int top,
+                                            @RequestParam(defaultValue = "false") boolean live) {
+        try {
+            return ResponseEntity.ok(diagnosticsService.classHistogram(Math.max(1, top), live));
+        } catch (Exception e) {
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to build class histogram: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Heap, memory pools and GC counts/times since startup
+     */
+    @GetMapping("/heap")
+    public ResponseEntity<?> heapSummary() {
+        return ResponseEntity.ok(diagnosticsService.heapSummary());
+    }
+
+    /**
+     * Allocation rate per thread over windowMs (at most 10 seconds)
+     */
+    @GetMapping("/threads/allocation")
+    public ResponseEntity<?> allocationRates(@RequestParam(defaultValue = "1000") long windowMs,
+                                             @RequestParam(defaultValue = "20") int top) {
+        try {
+            Duration window = Duration.ofMillis(Math.min(Math.max(windowMs, 100), 10_000));
+            return ResponseEntity.ok(diagnosticsService.allocationRates(window, Math.max(1, top)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while sampling");
+        } catch (IllegalStateException e) {
+            return error(HttpStatus.NOT_IMPLEMENTED, e.getMessage());
+        }
+    }
+
+    private static ResponseEntity<Map<String, String>> error(HttpStatus status, String message) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", message);
+        return ResponseEntity.status(status).body(error);
+    }
+}
@@ -1,13 +1,27 @@
 package com.mealplanner.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mealplanner.repository.UserRepository;
+import com.mealplanner.service.BatchRecognitionService;
 import com.mealplanner.service.FoodRecognitionService;
+import com.mealplanner.util.UsageUser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/food")
@@ -19,39 +33,160 @@ public class FoodRecognitionController {
     @Autowired
     private FoodRecognitionService foodRecognitionService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private BatchRecognitionService batchRecognitionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${food.batch.timeout-ms:120000}")
+    private long batchTimeoutMs;
+
     @GetMapping("/test")
     public ResponseEntity<String> test() {
         return ResponseEntity.ok("Food Recognition API is working!");
     }
 
+    /**
+     * Recognize one photo; provider usage (e.g. GPT-4o tokens) is billed to userId when given
+     */
     @PostMapping("/analyze")
-    public ResponseEntity<List<FoodRecognitionService.FoodItem>> analyzeFoodImage(
-            @RequestParam("image") MultipartFile imageFile) {
+    public ResponseEntity<?> analyzeFoodImage(
+            @RequestParam("image") MultipartFile imageFile,
+            @RequestParam(value = "userId", required = false) Long userId) {
         
         logger.info("Received food image analysis request");
+        if (userId != null && !userRepository.existsById(userId)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unknown user " + userId));
+        }
         
-        try {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try (UsageUser.Scope scope = UsageUser.bind(userId)) {
             List<FoodRecognitionService.FoodItem> results = foodRecognitionService.analyzeFoodImage(imageFile);
+            sample.stop(recognitionTimer("analyze", "success"));
             logger.info("Food analysis completed successfully");
             return ResponseEntity.ok(results);
         } catch (Exception e) {
+            sample.stop(recognitionTimer("analyze", "error"));
             logger.error("Error analyzing food image: {}", e.getMessage());
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    /**
+     * Analyze several photos (multipart "images") concurrently, streaming each result as soon as it is
+     * ready: one JSON object per line (NDJSON), or with Accept: text/event-stream, SSE "result" events.
+     * A final line/"done" event carries the totals; results carry their upload index since they
+     * arrive in completion order. Provider usage is billed to userId when given.
+     */
+    @PostMapping("/analyze/batch")
+    public ResponseEntity<ResponseBodyEmitter> analyzeBatch(
+            @RequestParam("images") List<MultipartFile> images,
+            @RequestParam(value = "userId", required = false) Long userId,
+            @RequestHeader(value = "Accept", required = false) String accept) {
+
+        logger.info("Received batch food image analysis request with {} images", images.size());
+        if (userId != null && !userRepository.existsById(userId)) {
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                .body(errorEmitter("Unknown user " + userId));
+        }
+
+        boolean sse = accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+        ResponseBodyEmitter emitter = sse ? new SseEmitter(batchTimeoutMs) : new ResponseBodyEmitter(batchTimeoutMs);
+        BatchRecognitionService.Batch batch;
+        try (UsageUser.Scope scope = UsageUser.bind(userId)) {
+            batch = batchRecognitionService.start(images,
+                result -> emit(emitter, sse, "result", result),
+                summary -> {
+                    emit(emitter, sse, "done", Map.of("done", true, "images", summary.images(),
+                        "failed", summary.failed(), "durationMs", summary.durationMs()));
+                    emitter.complete();
+                });
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                .body(errorEmitter(e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Rejected batch of {} images: {}", images.size(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).contentType(MediaType.APPLICATION_JSON)
+                .body(errorEmitter(e.getMessage()));
+        }
+        // Client gone or out of time: stop starting photos and interrupt those in flight
+        emitter.onTimeout(batch::cancel);
+        emitter.onError(error -> batch.cancel());
+        emitter.onCompletion(() -> {
+            if (!batch.isDone()) {
+                batch.cancel();
+            }
+        });
+
+        return ResponseEntity.ok()
+            .contentType(sse ? MediaType.TEXT_EVENT_STREAM : MediaType.APPLICATION_NDJSON)
+            .body(emitter);
+    }
+
     @GetMapping("/search")
     public ResponseEntity<List<FoodRecognitionService.FoodItem>> searchFoodByName(
             @RequestParam("query") String query) {
         
         logger.info("Received food search request for query: {}", query);
         
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
             List<FoodRecognitionService.FoodItem> results = foodRecognitionService.searchFoodByName(query);
+            sample.stop(recognitionTimer("search", "success"));
             return ResponseEntity.ok(results);
         } catch (Exception e) {
+            sample.stop(recognitionTimer("search", "error"));
             logger.error("Error searching for food: {}", e.getMessage());
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    /**
+     * Write one result; results come from several pool threads, so each line is written whole
+     */
+    private void emit(ResponseBodyEmitter emitter, boolean sse, String event, Object payload) {
+        try {
+            String json = objectMapper.writeValueAsString(payload);
+            synchronized (emitter) {
+                if (sse) {
+                    ((SseEmitter) emitter).send(SseEmitter.event().name(event).data(json, MediaType.APPLICATION_JSON));
+                } else {
+                    emitter.send(json + "\n", MediaType.APPLICATION_NDJSON);
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client disconnected or the emitter timed out; the batch is cancelled by its callbacks
+            logger.debug("Could not send batch {}: {}", event, e.getMessage());
+        }
+    }
+
+    private static ResponseBodyEmitter errorEmitter(String message) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+        try {
+            // Sent once the response is set up; the body is a plain {"error": ...} object
+            emitter.send(Map.of("error", message), MediaType.APPLICATION_JSON);
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    /**
+     * Time per recognizer implementation, so switching food.recognition.api shows up in the latency charts
+     */
+    private Timer recognitionTimer(String operation, String outcome) {
+        return Timer.builder("food.recognition")
+            .tag("implementation", FoodRecognitionService.unwrap(foodRecognitionService).getClass().getSimpleName())
+            .tag("operation", operation)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,138 @@
+package com.mealplanner.controller;
+
+import com.mealplanner.repository.UserRepository;
+import com.mealplanner.service.ScanJobService;
+import com.mealplanner.util.UsageUser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Background food scans: POST a photo and get a scan ID straight away, then poll the scan or
+ * subscribe to its SSE stream for the result instead of holding the upload request open
+ */
+@RestController
+@RequestMapping("/api/food/scans")
+@CrossOrigin(origins = "*")
+public class FoodScanController {
+
+    private static final Logger logger = LoggerFactory.getLogger(FoodScanController.class);
+
+    @Autowired
+    private ScanJobService scanJobService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${food.scan.sse-timeout-ms:120000}")
+    private long sseTimeoutMs;
+
+    /**
+     * Queue a scan of the photo (multipart "image"); 202 with the scan ID and where to follow it.
+     * Provider usage is billed to userId when given.
+     */
+    @PostMapping
+    public ResponseEntity<?> submitScan(@RequestParam("image") MultipartFile imageFile,
+                                        @RequestParam(value = "userId", required = false) Long userId) {
+        if (imageFile.isEmpty()) {
+            return error(HttpStatus.BAD_REQUEST, "No image uploaded");
+        }
+        if (userId != null && !userRepository.existsById(userId)) {
+            return error(HttpStatus.BAD_REQUEST, "Unknown user " + userId);
+        }
+        ScanJobService.ScanJob job;
+        try (UsageUser.Scope scope = UsageUser.bind(userId)) {
+            job = scanJobService.submit(imageFile);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Rejected food scan: {}", e.getMessage());
+            return error(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        } catch (IOException e) {
+            logger.error("Could not read uploaded scan image: {}", e.getMessage());
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to read image");
+        }
+
+        String statusUrl = "/api/food/scans/" + job.getId();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("scanId", job.getId());
+        response.put("status", job.getStatus());
+        response.put("statusUrl", statusUrl);
+        response.put("eventsUrl", statusUrl + "/events");
+        return ResponseEntity.accepted().location(URI.create(statusUrl)).body(response);
+    }
+
+    /**
+     * The scan's status, with its items once it is done
+     */
+    @GetMapping("/{scanId}")
+    public ResponseEntity<?> getScan(@PathVariable String scanId) {
+        ScanJobService.ScanJob job = scanJobService.getJob(scanId);
+        if (job == null) {
+            return unknownScan();
+        }
+        return ResponseEntity.ok(job.toMap());
+    }
+
+    /**
+     * SSE stream with one "result" event (the same body as polling) when the scan finishes, sent at
+     * once if it already has
+     */
+    @GetMapping("/{scanId}/events")
+    public ResponseEntity<ResponseBodyEmitter> scanEvents(@PathVariable String scanId) {
+        ScanJobService.ScanJob job = scanJobService.getJob(scanId);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).contentType(MediaType.APPLICATION_JSON)
+                .body(errorEmitter("Unknown or expired scan"));
+        }
+
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        Consumer<ScanJobService.ScanJob> listener = finished -> {
+            try {
+                emitter.send(SseEmitter.event().name("result").data(finished.toMap(), MediaType.APPLICATION_JSON));
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                // The client went away or the emitter timed out; the scan result stays pollable
+                logger.debug("Could not send scan {} result: {}", finished.getId(), e.getMessage());
+            }
+        };
+        emitter.onTimeout(() -> job.removeListener(listener));
+        emitter.onError(error -> job.removeListener(listener));
+        job.onFinished(listener);
+        return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
+    }
+
+    private static ResponseEntity<?> unknownScan() {
+        return error(HttpStatus.NOT_FOUND, "Unknown or expired scan");
+    }
+
+    private static ResponseBodyEmitter errorEmitter(String message) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+        try {
+            emitter.send(Map.of("error", message), MediaType.APPLICATION_JSON);
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    private static ResponseEntity<?> error(HttpStatus status, String message) {
+        Map<String, String> body = new HashMap<>();
+        body.put("error", message);
+        return ResponseEntity.status(status).body(body);
+    }
+}
@@ -0,0 +1,113 @@
+package com.mealplanner.controller;
+
+import com.mealplanner.service.FoodRecognitionService;
+import com.mealplanner.service.RoutingFoodRecognitionService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin-only view and live reconfiguration of recognizer routing (HTTP Basic, ADMIN role; see
+ * SecurityConfig); only available with food.recognition.api=routed
+ */
+@RestController
+@RequestMapping("/api/admin/recognition/routing")
+public class RecognitionRoutingController {
+
+    private final FoodRecognitionService foodRecognitionService;
+
+    public RecognitionRoutingController(FoodRecognitionService foodRecognitionService) {
+        this.foodRecognitionService = foodRecognitionService;
+    }
+
+    /**
+     * The configured chain, the order it would be tried in now, and each provider's health
+     */
+    @GetMapping
+    public ResponseEntity<?> getRouting() {
+        RoutingFoodRecognitionService router = router();
+        if (router == null) {
+            return notRouted();
+        }
+        return ResponseEntity.ok(describe(router));
+    }
+
+    /**
+     * Replace the chain and/or score margin, e.g. {"chain": ["enhanced", "gpt4o"], "scoreMargin": 0.1}
+     */
+    @PutMapping
+    public ResponseEntity<?> updateRouting(@RequestBody Map<String, Object> request) {
+        RoutingFoodRecognitionService router = router();
+        if (router == null) {
+            return notRouted();
+        }
+        Object chain = request.get("chain");
+        Object scoreMargin = request.get("scoreMargin");
+        if (chain == null && scoreMargin == null) {
+            return error(HttpStatus.BAD_REQUEST, "Expected chain and/or scoreMargin");
+        }
+        if (chain != null && !(chain instanceof List<?>)) {
+            return error(HttpStatus.BAD_REQUEST, "chain must be a list of recognizer names");
+        }
+        if (scoreMargin != null && !(scoreMargin instanceof Number)) {
+            return error(HttpStatus.BAD_REQUEST, "scoreMargin must be a number");
+        }
+        double margin = scoreMargin != null ? ((Number) scoreMargin).doubleValue() : router.getScoreMargin();
+        if (margin < 0 || margin > 1) {
+            return error(HttpStatus.BAD_REQUEST, "scoreMargin must be between 0 and 1");
+        }
+        if (chain != null) {
+            try {
+                router.setChain(((List<?>) chain).stream().map(name -> String.valueOf(name).trim().toLowerCase()).toList());
+            } catch (IllegalArgumentException e) {
+                return error(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        }
+        router.setScoreMargin(margin);
+        return ResponseEntity.ok(describe(router));
+    }
+
+    /**
+     * Forget recent outcomes so every provider scores as healthy again
+     */
+    @DeleteMapping("/health")
+    public ResponseEntity<?> resetHealth() {
+        RoutingFoodRecognitionService router = router();
+        if (router == null) {
+            return notRouted();
+        }
+        router.resetHealth();
+        return ResponseEntity.ok(describe(router));
+    }
+
+    private RoutingFoodRecognitionService router() {
+        return FoodRecognitionService.unwrap(foodRecognitionService) instanceof RoutingFoodRecognitionService router
+            ? router : null;
+    }
+
+    private static Map<String, Object> describe(RoutingFoodRecognitionService router) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("chain", router.getChain());
+        response.put("routeOrder", router.routeOrder());
+        response.put("available", router.getProviders());
+        response.put("scoreMargin", router.getScoreMargin());
+        response.put("latencyTargetMs", router.getLatencyTargetMs());
+        response.put("health", router.getHealth());
+        return response;
+    }
+
+    private static ResponseEntity<?> notRouted() {
+        return error(HttpStatus.NOT_FOUND, "Routing is not enabled; set food.recognition.api=routed");
+    }
+
+    private static ResponseEntity<?> error(HttpStatus status, String message) {
+        Map<String, String> body = new HashMap<>();
+        body.put("error", message);
+        return ResponseEntity.status(status).body(body);
+    }
+}
@@ -0,0 +1,48 @@
+package com.mealplanner.controller;
+
+import com.mealplanner.service.SlowQueryLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Admin-only view of the slow query ring (HTTP Basic, ADMIN role; see SecurityConfig)
+ */
+@RestController
+@RequestMapping("/api/admin/slow-queries")
+public class SlowQueryController {
+
+    private final SlowQueryLog slowQueryLog;
+    private final boolean enabled;
+
+    public SlowQueryController(SlowQueryLog slowQueryLog, @Value("${slow-query.enabled:false}") boolean enabled) {
+        this.slowQueryLog = slowQueryLog;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Captured statements, newest first, with parameters, call site and EXPLAIN output when sampled
+     */
+    @GetMapping
+    public ResponseEntity<?> getSlowQueries(@RequestParam(defaultValue = "50") int limit) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("enabled", enabled);
+        response.put("thresholdMs", slowQueryLog.getThresholdMs());
+        response.put("capacity", slowQueryLog.getCapacity());
+        response.put("explainEnabled", slowQueryLog.isExplainEnabled());
+        response.put("captured", slowQueryLog.getCapturedCount());
+        response.put("queries", slowQueryLog.getEntries(Math.max(0, limit)));
+        return ResponseEntity.ok(response);
+    }
+
+    @DeleteMapping
+    public ResponseEntity<?> clear() {
+        slowQueryLog.clear();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("cleared", true);
+        return ResponseEntity.ok(response);
+    }
+}
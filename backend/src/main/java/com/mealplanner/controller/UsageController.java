@@ -0,0 +1,71 @@
+package com.mealplanner.controller;
+
+import com.mealplanner.service.ApiUsageRollupService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/usage")
+public class UsageController {
+
+    private final ApiUsageRollupService rollupService;
+
+    public UsageController(ApiUsageRollupService rollupService) {
+        this.rollupService = rollupService;
+    }
+
+    /**
+     * Rollup rows for a time range (default: the last 24 hours, hourly buckets)
+     */
+    @GetMapping("/rollups")
+    public ResponseEntity<?> getRollups(
+            @RequestParam(defaultValue = "HOUR") String granularity,
+            @RequestParam(required = false) String apiName,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            LocalDateTime end = to != null ? to : LocalDateTime.now();
+            LocalDateTime start = from != null ? from : end.minusHours(24);
+            return ResponseEntity.ok(rollupService.getRollups(granularity, apiName, userId, start, end));
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to get usage rollups: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    /**
+     * Per-API totals (requests, errors, average and max latency, and tokens and estimated cost for
+     * token-billed APIs such as GPT4O) for a time range, e.g. one user's day with granularity=DAY;
+     * without a userId the totals are split per API and user
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<?> getSummary(
+            @RequestParam(defaultValue = "HOUR") String granularity,
+            @RequestParam(required = false) String apiName,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            LocalDateTime end = to != null ? to : LocalDateTime.now();
+            LocalDateTime start = from != null ? from : end.minusHours(24);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("granularity", granularity.toUpperCase());
+            response.put("from", start);
+            response.put("to", end);
+            response.put("apis", rollupService.summarize(granularity, apiName, userId, start, end));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to summarize API usage: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+}
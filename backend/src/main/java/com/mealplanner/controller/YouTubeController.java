@@ -1,26 +1,79 @@
 package com.mealplanner.controller;
 
+import com.mealplanner.entity.Recipe;
+import com.mealplanner.entity.UserMealPlan;
+import com.mealplanner.service.EnhancedUserService;
 import com.mealplanner.service.YouTubeService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 @RestController
 @RequestMapping("/api/youtube")
 public class YouTubeController {
 
     private final YouTubeService youTubeService;
+    private final EnhancedUserService userService;
 
-    public YouTubeController(YouTubeService youTubeService) {
+    public YouTubeController(YouTubeService youTubeService, EnhancedUserService userService) {
         this.youTubeService = youTubeService;
+        this.userService = userService;
     }
 
     @GetMapping("/search")
     public String searchRecipeVideo(@RequestParam String query) {
         return youTubeService.searchRecipeVideo(query);
     }
-    
+
+    /**
+     * Resolve videos for a list of dish names in one request (dish name -> embed URL)
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> searchRecipeVideos(@RequestBody List<String> queries) {
+        if (queries.size() > youTubeService.getMaxBatchQueries()) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "At most " + youTubeService.getMaxBatchQueries() + " dish names per batch");
+            return ResponseEntity.badRequest().body(error);
+        }
+        return ResponseEntity.ok(youTubeService.searchRecipeVideos(queries));
+    }
+
+    /**
+     * Resolve videos for every planned meal in the 7 days starting at startDate
+     */
+    @GetMapping("/week/{userId}")
+    public ResponseEntity<?> getWeekRecipeVideos(
+            @PathVariable Long userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate) {
+        try {
+            List<String> dishNames = userService.getUserMealPlan(userId, startDate, startDate.plusDays(6))
+                .stream()
+                .map(UserMealPlan::getRecipe)
+                .map(Recipe::getName)
+                .distinct()
+                .collect(Collectors.toList());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("userId", userId);
+            response.put("startDate", startDate);
+            response.put("videos", youTubeService.searchRecipeVideos(dishNames));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to resolve recipe videos: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     @GetMapping("/test")
     public String testYouTubeAPI() {
         // Test with a simple query to see what the API returns
         return youTubeService.searchRecipeVideo("smoothie");
     }
-} 
\ No newline at end of file
+}
@@ -29,7 +29,8 @@ public class AiConversation {
     @Column(name = "context", columnDefinition = "JSONB")
     private String context;
     
-    @Column(name = "created_at")
+    // Partition key: rows are routed to the monthly partition for this timestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
     // Constructors
@@ -32,7 +32,8 @@ public class ApiUsageLog {
     @Column(name = "response_time_ms")
     private Integer responseTimeMs;
     
-    @Column(name = "created_at")
+    // Partition key: rows are routed to the monthly partition for this timestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
     // Constructors
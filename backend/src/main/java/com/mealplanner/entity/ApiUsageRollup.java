@@ -0,0 +1,177 @@
+package com.mealplanner.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated API usage for one (granularity, bucket, api, user, status class); maintained by the usage log writer
+ */
+@Entity
+@Table(name = "api_usage_rollups",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"granularity", "bucket_start", "api_name", "user_id", "status_class"}),
+       indexes = @Index(name = "idx_api_usage_rollups_api_bucket", columnList = "api_name, granularity, bucket_start"))
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class ApiUsageRollup {
+    
+    public static final String MINUTE = "MINUTE";
+    public static final String HOUR = "HOUR";
+    public static final String DAY = "DAY";
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "granularity", nullable = false, length = 10)
+    private String granularity;
+    
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+    
+    @Column(name = "api_name", nullable = false)
+    private String apiName;
+    
+    // 0 for calls made without a user
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    // "2xx", "3xx", "4xx", "5xx" or "none" when no response was received
+    @Column(name = "status_class", nullable = false, length = 10)
+    private String statusClass;
+    
+    @Column(name = "request_count", nullable = false)
+    private Long requestCount;
+    
+    @Column(name = "error_count", nullable = false)
+    private Long errorCount;
+    
+    @Column(name = "latency_sum_ms", nullable = false)
+    private Long latencySumMs;
+    
+    @Column(name = "latency_max_ms", nullable = false)
+    private Integer latencyMaxMs;
+    
+    // Token-billed APIs only (e.g. GPT-4o); zero elsewhere
+    @Column(name = "prompt_tokens", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long promptTokens = 0L;
+    
+    @Column(name = "completion_tokens", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long completionTokens = 0L;
+    
+    // Estimated from the configured per-token prices, in millionths of a US dollar
+    @Column(name = "cost_micro_usd", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long costMicroUsd = 0L;
+    
+    // Constructors
+    public ApiUsageRollup() {
+    }
+    
+    public double getAverageLatencyMs() {
+        return requestCount == null || requestCount == 0 ? 0 : (double) latencySumMs / requestCount;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getGranularity() {
+        return granularity;
+    }
+    
+    public void setGranularity(String granularity) {
+        this.granularity = granularity;
+    }
+    
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+    
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+    
+    public String getApiName() {
+        return apiName;
+    }
+    
+    public void setApiName(String apiName) {
+        this.apiName = apiName;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+    
+    public String getStatusClass() {
+        return statusClass;
+    }
+    
+    public void setStatusClass(String statusClass) {
+        this.statusClass = statusClass;
+    }
+    
+    public Long getRequestCount() {
+        return requestCount;
+    }
+    
+    public void setRequestCount(Long requestCount) {
+        this.requestCount = requestCount;
+    }
+    
+    public Long getErrorCount() {
+        return errorCount;
+    }
+    
+    public void setErrorCount(Long errorCount) {
+        this.errorCount = errorCount;
+    }
+    
+    public Long getLatencySumMs() {
+        return latencySumMs;
+    }
+    
+    public void setLatencySumMs(Long latencySumMs) {
+        this.latencySumMs = latencySumMs;
+    }
+    
+    public Integer getLatencyMaxMs() {
+        return latencyMaxMs;
+    }
+    
+    public void setLatencyMaxMs(Integer latencyMaxMs) {
+        this.latencyMaxMs = latencyMaxMs;
+    }
+    
+    public Long getPromptTokens() {
+        return promptTokens;
+    }
+    
+    public void setPromptTokens(Long promptTokens) {
+        this.promptTokens = promptTokens;
+    }
+    
+    public Long getCompletionTokens() {
+        return completionTokens;
+    }
+    
+    public void setCompletionTokens(Long completionTokens) {
+        this.completionTokens = completionTokens;
+    }
+    
+    public Long getCostMicroUsd() {
+        return costMicroUsd;
+    }
+    
+    public void setCostMicroUsd(Long costMicroUsd) {
+        this.costMicroUsd = costMicroUsd;
+    }
+}
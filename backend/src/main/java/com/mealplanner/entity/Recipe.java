@@ -47,10 +47,10 @@ public class Recipe {
     @Column(name = "difficulty_level")
     private String difficultyLevel;
     
-    @Column(name = "ingredients", columnDefinition = "TEXT[]")
+    @Column(name = "ingredients", columnDefinition = "TEXT ARRAY")
     private List<String> ingredients;
     
-    @Column(name = "instructions", columnDefinition = "TEXT[]")
+    @Column(name = "instructions", columnDefinition = "TEXT ARRAY")
     private List<String> instructions;
     
     @Column(name = "calories")
@@ -0,0 +1,162 @@
+package com.mealplanner.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of background recipe ingestion for one (source, category, diet type, cuisine) segment
+ */
+@Entity
+@Table(name = "recipe_ingestion_checkpoints",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"source", "category", "diet_type", "cuisine_type"}))
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class RecipeIngestionCheckpoint {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "source", nullable = false)
+    private String source;
+    
+    @Column(name = "category", nullable = false)
+    private String category;
+    
+    @Column(name = "diet_type", nullable = false)
+    private String dietType;
+    
+    @Column(name = "cuisine_type", nullable = false)
+    private String cuisineType;
+    
+    // Edamam continuation token or Spoonacular offset; null means start from the first page
+    @Column(name = "next_page", length = 1000)
+    private String nextPage;
+    
+    @Column(name = "ingested_count", nullable = false)
+    private Integer ingestedCount = 0;
+    
+    @Column(name = "exhausted", nullable = false)
+    private Boolean exhausted = false;
+    
+    @Column(name = "last_run_at")
+    private LocalDateTime lastRunAt;
+    
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+    
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+    
+    // Constructors
+    public RecipeIngestionCheckpoint() {
+    }
+    
+    public RecipeIngestionCheckpoint(String source, String category, String dietType, String cuisineType) {
+        this.source = source;
+        this.category = category;
+        this.dietType = dietType;
+        this.cuisineType = cuisineType;
+        this.startedAt = LocalDateTime.now();
+    }
+    
+    /**
+     * Start the segment over from the first page, e.g. to pick up new recipes after the refresh interval
+     */
+    public void restart() {
+        this.nextPage = null;
+        this.ingestedCount = 0;
+        this.exhausted = false;
+        this.lastError = null;
+        this.startedAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getSource() {
+        return source;
+    }
+    
+    public void setSource(String source) {
+        this.source = source;
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public void setCategory(String category) {
+        this.category = category;
+    }
+    
+    public String getDietType() {
+        return dietType;
+    }
+    
+    public void setDietType(String dietType) {
+        this.dietType = dietType;
+    }
+    
+    public String getCuisineType() {
+        return cuisineType;
+    }
+    
+    public void setCuisineType(String cuisineType) {
+        this.cuisineType = cuisineType;
+    }
+    
+    public String getNextPage() {
+        return nextPage;
+    }
+    
+    public void setNextPage(String nextPage) {
+        this.nextPage = nextPage;
+    }
+    
+    public Integer getIngestedCount() {
+        return ingestedCount;
+    }
+    
+    public void setIngestedCount(Integer ingestedCount) {
+        this.ingestedCount = ingestedCount;
+    }
+    
+    public Boolean getExhausted() {
+        return exhausted;
+    }
+    
+    public void setExhausted(Boolean exhausted) {
+        this.exhausted = exhausted;
+    }
+    
+    public LocalDateTime getLastRunAt() {
+        return lastRunAt;
+    }
+    
+    public void setLastRunAt(LocalDateTime lastRunAt) {
+        this.lastRunAt = lastRunAt;
+    }
+    
+    public String getLastError() {
+        return lastError;
+    }
+    
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+}
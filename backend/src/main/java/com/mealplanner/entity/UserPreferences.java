@@ -25,13 +25,13 @@ public class UserPreferences {
     @Column(name = "daily_calorie_target")
     private Integer dailyCalorieTarget;
     
-    @Column(name = "allergies", columnDefinition = "TEXT[]")
+    @Column(name = "allergies", columnDefinition = "TEXT ARRAY")
     private List<String> allergies;
     
-    @Column(name = "dislikes", columnDefinition = "TEXT[]")
+    @Column(name = "dislikes", columnDefinition = "TEXT ARRAY")
     private List<String> dislikes;
     
-    @Column(name = "preferred_cuisines", columnDefinition = "TEXT[]")
+    @Column(name = "preferred_cuisines", columnDefinition = "TEXT ARRAY")
     private List<String> preferredCuisines;
     
     @Column(name = "cooking_skill_level")
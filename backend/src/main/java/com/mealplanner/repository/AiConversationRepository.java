@@ -5,6 +5,7 @@ import com.mealplanner.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -15,6 +16,12 @@ public interface AiConversationRepository extends JpaRepository<AiConversation,
      */
     List<AiConversation> findByUserAndSessionIdOrderByCreatedAtAsc(User user, String sessionId);
     
+    /**
+     * Find the latest messages of a session created after the given time, newest first
+     */
+    List<AiConversation> findTop5ByUserAndSessionIdAndCreatedAtAfterOrderByCreatedAtDesc(User user, String sessionId,
+                                                                                      LocalDateTime since);
+    
     /**
      * Find all conversations for a user
      */
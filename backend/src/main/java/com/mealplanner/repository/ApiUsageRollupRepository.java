@@ -0,0 +1,54 @@
+package com.mealplanner.repository;
+
+import com.mealplanner.entity.ApiUsageRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ApiUsageRollupRepository extends JpaRepository<ApiUsageRollup, Long> {
+    
+    /**
+     * Find rollups for an API in a time range
+     */
+    List<ApiUsageRollup> findByGranularityAndApiNameAndBucketStartBetweenOrderByBucketStart(
+            String granularity, String apiName, LocalDateTime from, LocalDateTime to);
+    
+    /**
+     * Find rollups for an API and user in a time range
+     */
+    List<ApiUsageRollup> findByGranularityAndApiNameAndUserIdAndBucketStartBetweenOrderByBucketStart(
+            String granularity, String apiName, Long userId, LocalDateTime from, LocalDateTime to);
+    
+    /**
+     * Find rollups for all APIs called by a user in a time range
+     */
+    List<ApiUsageRollup> findByGranularityAndUserIdAndBucketStartBetweenOrderByBucketStart(
+            String granularity, Long userId, LocalDateTime from, LocalDateTime to);
+    
+    /**
+     * Find rollups for all APIs in a time range
+     */
+    List<ApiUsageRollup> findByGranularityAndBucketStartBetweenOrderByBucketStart(
+            String granularity, LocalDateTime from, LocalDateTime to);
+    
+    /**
+     * Total calls to an API by a user since a bucket start
+     */
+    @Query("SELECT COALESCE(SUM(r.requestCount), 0) FROM ApiUsageRollup r WHERE r.granularity = :granularity " +
+           "AND r.apiName = :apiName AND r.userId = :userId AND r.bucketStart >= :since")
+    long sumRequestCount(@Param("granularity") String granularity, @Param("apiName") String apiName,
+                         @Param("userId") Long userId, @Param("since") LocalDateTime since);
+    
+    /**
+     * Delete rollups of one granularity older than the cutoff
+     */
+    @Modifying
+    @Query("DELETE FROM ApiUsageRollup r WHERE r.granularity = :granularity AND r.bucketStart < :cutoff")
+    int deleteOlderThan(@Param("granularity") String granularity, @Param("cutoff") LocalDateTime cutoff);
+}
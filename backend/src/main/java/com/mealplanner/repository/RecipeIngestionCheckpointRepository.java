@@ -0,0 +1,23 @@
+package com.mealplanner.repository;
+
+import com.mealplanner.entity.RecipeIngestionCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RecipeIngestionCheckpointRepository extends JpaRepository<RecipeIngestionCheckpoint, Long> {
+    
+    /**
+     * Find the checkpoint for one ingestion segment
+     */
+    Optional<RecipeIngestionCheckpoint> findBySourceAndCategoryAndDietTypeAndCuisineType(
+            String source, String category, String dietType, String cuisineType);
+    
+    /**
+     * Find checkpoints for a source
+     */
+    List<RecipeIngestionCheckpoint> findBySource(String source);
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -52,6 +53,11 @@ public interface RecipeRepository extends JpaRepository<Recipe, Long> {
      */
     Optional<Recipe> findByExternalIdAndSource(String externalId, String source);
     
+    /**
+     * Find already-cached recipes from a source, for batch upserts
+     */
+    List<Recipe> findBySourceAndExternalIdIn(String source, Collection<String> externalIds);
+    
     /**
      * Find random recipe by category
      */
@@ -3,6 +3,7 @@ package com.mealplanner.repository;
 import com.mealplanner.entity.Recipe;
 import com.mealplanner.entity.User;
 import com.mealplanner.entity.UserFavorite;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -13,8 +14,9 @@ import java.util.Optional;
 public interface UserFavoriteRepository extends JpaRepository<UserFavorite, Long> {
     
     /**
-     * Find all favorites for a user
+     * Find all favorites for a user, with their recipes
      */
+    @EntityGraph(attributePaths = "recipe")
     List<UserFavorite> findByUser(User user);
     
     /**
@@ -2,6 +2,7 @@ package com.mealplanner.repository;
 
 import com.mealplanner.entity.User;
 import com.mealplanner.entity.UserMealPlan;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -13,13 +14,15 @@ import java.util.Optional;
 public interface UserMealPlanRepository extends JpaRepository<UserMealPlan, Long> {
     
     /**
-     * Find meal plans by user and date
+     * Find meal plans by user and date, with their recipes
      */
+    @EntityGraph(attributePaths = "recipe")
     List<UserMealPlan> findByUserAndDate(User user, LocalDate date);
     
     /**
-     * Find meal plans by user and date range
+     * Find meal plans by user and date range, with their recipes
      */
+    @EntityGraph(attributePaths = "recipe")
     List<UserMealPlan> findByUserAndDateBetween(User user, LocalDate startDate, LocalDate endDate);
     
     /**
@@ -8,6 +8,7 @@ import com.mealplanner.entity.UserPreferences;
 import com.mealplanner.repository.AiConversationRepository;
 import com.mealplanner.repository.UserPreferencesRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -34,6 +35,9 @@ public class AIService {
     @Autowired
     private EnhancedUserService userService;
     
+    @Value("${ai.chat.history-window-days:30}")
+    private int chatHistoryWindowDays;
+    
     /**
      * Generate personalized meal plan for user
      */
@@ -76,9 +80,11 @@ public class AIService {
             // Log user message
             logConversation(user, sessionId, "USER", message);
             
-            // Get conversation context
-            List<AiConversation> conversationHistory = aiConversationRepository
-                .findByUserAndSessionIdOrderByCreatedAtAsc(user, sessionId);
+            // Get conversation context; bounding by time lets the query skip older monthly partitions
+            List<AiConversation> conversationHistory = new ArrayList<>(aiConversationRepository
+                .findTop5ByUserAndSessionIdAndCreatedAtAfterOrderByCreatedAtDesc(
+                    user, sessionId, LocalDateTime.now().minusDays(chatHistoryWindowDays)));
+            Collections.reverse(conversationHistory);
             
             // Get user preferences for context
             UserPreferences preferences = userPreferencesRepository.findByUser(user)
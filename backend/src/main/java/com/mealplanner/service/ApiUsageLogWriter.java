@@ -0,0 +1,307 @@
+package com.mealplanner.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mealplanner.entity.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes api_usage_logs rows off the request thread.
+ *
+ * Callers enqueue into a bounded buffer and return immediately; a single background thread drains it
+ * and inserts rows with one JDBC batch per drain, folding the same batch into the usage rollups in
+ * one transaction. A batch that fails is retried once and then written row by row, so only the
+ * rows that fail on their own are lost. When the buffer is full the configured policy decides
+ * whether to drop the new entry, drop the oldest one, or block the caller briefly. Whatever is
+ * still buffered is flushed on shutdown.
+ */
+@Service
+public class ApiUsageLogWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiUsageLogWriter.class);
+
+    private static final String INSERT_SQL =
+        "INSERT INTO api_usage_logs (api_name, endpoint, user_id, request_data, response_status, response_time_ms, created_at) " +
+        "VALUES (?, ?, ?, CAST(? AS JSONB), ?, ?, ?)";
+
+    public enum OverflowPolicy {
+        /** Discard the entry being logged */
+        DROP_NEWEST,
+        /** Discard the oldest buffered entry to make room */
+        DROP_OLDEST,
+        /** Wait up to block-timeout-ms for room, then discard the entry */
+        BLOCK
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ApiUsageRollupService rollupService;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private TransactionTemplate transactionTemplate;
+
+    private final BlockingQueue<UsageEvent> buffer;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMs;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long shutdownTimeoutMs;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public ApiUsageLogWriter(@Value("${usage-log.buffer-size:10000}") int bufferSize,
+                             @Value("${usage-log.overflow-policy:DROP_OLDEST}") OverflowPolicy overflowPolicy,
+                             @Value("${usage-log.block-timeout-ms:50}") long blockTimeoutMs,
+                             @Value("${usage-log.batch-size:500}") int batchSize,
+                             @Value("${usage-log.flush-interval-ms:1000}") long flushIntervalMs,
+                             @Value("${usage-log.shutdown-timeout-ms:5000}") long shutdownTimeoutMs) {
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        writerThread = new Thread(this::drainLoop, "usage-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        try {
+            writerThread.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!buffer.isEmpty()) {
+            logger.warn("Usage log writer stopped with {} entries unwritten", buffer.size());
+        }
+    }
+
+    /**
+     * Record one outbound API call; never blocks longer than the BLOCK policy timeout
+     *
+     * @param requestData serialized to JSON on the writer thread, so it must not be modified afterwards
+     */
+    public void record(String apiName, String endpoint, User user, Map<String, Object> requestData,
+                       Integer responseStatus, long responseTimeMs) {
+        record(apiName, endpoint, user != null ? user.getId() : null, requestData, responseStatus, responseTimeMs,
+            ApiUsageRollupService.TokenUsage.NONE);
+    }
+
+    /**
+     * Record one outbound call to a token-billed API; the tokens and cost are added to the rollups
+     *
+     * @param userId an existing user's ID, or null for calls made without a user
+     */
+    public void record(String apiName, String endpoint, Long userId, Map<String, Object> requestData,
+                       Integer responseStatus, long responseTimeMs, ApiUsageRollupService.TokenUsage tokens) {
+        UsageEvent event = new UsageEvent(apiName, endpoint, userId, requestData, responseStatus, (int) responseTimeMs,
+            tokens, LocalDateTime.now());
+        if (offer(event)) {
+            enqueued.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private boolean offer(UsageEvent event) {
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                while (!buffer.offer(event)) {
+                    if (buffer.poll() != null) {
+                        dropped.incrementAndGet();
+                    }
+                }
+                return true;
+            case BLOCK:
+                try {
+                    return buffer.offer(event, blockTimeoutMs, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            case DROP_NEWEST:
+            default:
+                return buffer.offer(event);
+        }
+    }
+
+    private void drainLoop() {
+        List<UsageEvent> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                UsageEvent first = running ? buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS) : buffer.poll();
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                writeWithRetry(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Write a drained batch, retrying it once; if it fails again, write it row by row so a bad row loses only itself
+     */
+    private void writeWithRetry(List<UsageEvent> batch) {
+        for (int attempt = 1; attempt <= 2; attempt++) {
+            try {
+                writeBatch(batch);
+                return;
+            } catch (Exception e) {
+                logger.warn("Failed to write {} usage log entries (attempt {}): {}", batch.size(), attempt, e.getMessage());
+            }
+        }
+        if (batch.size() == 1) {
+            failed.incrementAndGet();
+            return;
+        }
+
+        int lost = 0;
+        String lastError = null;
+        for (UsageEvent event : batch) {
+            try {
+                writeBatch(List.of(event));
+            } catch (Exception e) {
+                lost++;
+                lastError = e.getMessage();
+            }
+        }
+        if (lost > 0) {
+            failed.addAndGet(lost);
+            logger.error("Failed to write {} of {} usage log entries row by row: {}", lost, batch.size(), lastError);
+        }
+    }
+
+    private void writeBatch(List<UsageEvent> batch) {
+        ApiUsageRollupService.Batch rollups = rollupService.newBatch();
+        for (UsageEvent event : batch) {
+            rollups.add(event.apiName, event.userId, event.responseStatus, event.responseTimeMs, event.tokens,
+                event.createdAt);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            insertRows(batch);
+            rollupService.apply(rollups);
+        });
+        written.addAndGet(batch.size());
+    }
+
+    private void insertRows(List<UsageEvent> batch) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, event) -> {
+            ps.setString(1, event.apiName);
+            ps.setString(2, event.endpoint);
+            if (event.userId != null) {
+                ps.setLong(3, event.userId);
+            } else {
+                ps.setNull(3, Types.BIGINT);
+            }
+            ps.setString(4, toJson(event.requestData));
+            if (event.responseStatus != null) {
+                ps.setInt(5, event.responseStatus);
+            } else {
+                ps.setNull(5, Types.INTEGER);
+            }
+            ps.setInt(6, event.responseTimeMs);
+            ps.setTimestamp(7, Timestamp.valueOf(event.createdAt));
+        });
+    }
+
+    private String toJson(Map<String, Object> requestData) {
+        if (requestData == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(requestData);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public int getBufferedCount() {
+        return buffer.size();
+    }
+
+    public long getEnqueuedCount() {
+        return enqueued.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    private static class UsageEvent {
+        private final String apiName;
+        private final String endpoint;
+        private final Long userId;
+        private final Map<String, Object> requestData;
+        private final Integer responseStatus;
+        private final int responseTimeMs;
+        private final ApiUsageRollupService.TokenUsage tokens;
+        private final LocalDateTime createdAt;
+
+        private UsageEvent(String apiName, String endpoint, Long userId, Map<String, Object> requestData,
+                           Integer responseStatus, int responseTimeMs, ApiUsageRollupService.TokenUsage tokens,
+                           LocalDateTime createdAt) {
+            this.apiName = apiName;
+            this.endpoint = endpoint;
+            this.userId = userId;
+            this.requestData = requestData;
+            this.responseStatus = responseStatus;
+            this.responseTimeMs = responseTimeMs;
+            this.tokens = tokens;
+            this.createdAt = createdAt;
+        }
+    }
+}
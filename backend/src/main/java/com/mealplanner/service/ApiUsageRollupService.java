@@ -0,0 +1,286 @@
+package com.mealplanner.service;
+
+import com.mealplanner.entity.ApiUsageRollup;
+import com.mealplanner.repository.ApiUsageRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Per-minute, per-hour and per-day API usage counters keyed by (api, user, status class), with
+ * token and estimated cost totals for token-billed APIs.
+ *
+ * The usage log writer folds each batch of raw log rows into a {@link Batch} and upserts it here, so
+ * dashboards and rate-limit checks read a handful of rollup rows instead of scanning api_usage_logs.
+ */
+@Service
+public class ApiUsageRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiUsageRollupService.class);
+
+    private static final String UPSERT_SQL =
+        "INSERT INTO api_usage_rollups (granularity, bucket_start, api_name, user_id, status_class, " +
+        "request_count, error_count, latency_sum_ms, latency_max_ms, prompt_tokens, completion_tokens, cost_micro_usd) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (granularity, bucket_start, api_name, user_id, status_class) DO UPDATE SET " +
+        "request_count = api_usage_rollups.request_count + EXCLUDED.request_count, " +
+        "error_count = api_usage_rollups.error_count + EXCLUDED.error_count, " +
+        "latency_sum_ms = api_usage_rollups.latency_sum_ms + EXCLUDED.latency_sum_ms, " +
+        "latency_max_ms = GREATEST(api_usage_rollups.latency_max_ms, EXCLUDED.latency_max_ms), " +
+        "prompt_tokens = api_usage_rollups.prompt_tokens + EXCLUDED.prompt_tokens, " +
+        "completion_tokens = api_usage_rollups.completion_tokens + EXCLUDED.completion_tokens, " +
+        "cost_micro_usd = api_usage_rollups.cost_micro_usd + EXCLUDED.cost_micro_usd";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApiUsageRollupRepository rollupRepository;
+
+    @Value("${usage-rollup.minute-retention-hours:48}")
+    private long minuteRetentionHours;
+
+    @Value("${usage-rollup.hour-retention-days:90}")
+    private long hourRetentionDays;
+
+    public Batch newBatch() {
+        return new Batch();
+    }
+
+    /**
+     * Add a batch of deltas to the stored rollups; one JDBC batch for all granularities
+     */
+    public void apply(Batch batch) {
+        if (batch.deltas.isEmpty()) {
+            return;
+        }
+        List<Delta> deltas = new ArrayList<>(batch.deltas.values());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, deltas, deltas.size(), (ps, delta) -> {
+            ps.setString(1, delta.key.granularity);
+            ps.setTimestamp(2, Timestamp.valueOf(delta.key.bucketStart));
+            ps.setString(3, delta.key.apiName);
+            ps.setLong(4, delta.key.userId);
+            ps.setString(5, delta.key.statusClass);
+            ps.setLong(6, delta.requestCount);
+            ps.setLong(7, delta.errorCount);
+            ps.setLong(8, delta.latencySumMs);
+            ps.setInt(9, delta.latencyMaxMs);
+            ps.setLong(10, delta.promptTokens);
+            ps.setLong(11, delta.completionTokens);
+            ps.setLong(12, delta.costMicroUsd);
+        });
+    }
+
+    /**
+     * Rollup rows for an API (or all APIs when apiName is null), optionally for one user, in [from, to]
+     */
+    public List<ApiUsageRollup> getRollups(String granularity, String apiName, Long userId,
+                                           LocalDateTime from, LocalDateTime to) {
+        String normalized = normalizeGranularity(granularity);
+        if (apiName == null && userId == null) {
+            return rollupRepository.findByGranularityAndBucketStartBetweenOrderByBucketStart(normalized, from, to);
+        }
+        if (apiName == null) {
+            return rollupRepository.findByGranularityAndUserIdAndBucketStartBetweenOrderByBucketStart(
+                normalized, userId, from, to);
+        }
+        if (userId == null) {
+            return rollupRepository.findByGranularityAndApiNameAndBucketStartBetweenOrderByBucketStart(
+                normalized, apiName, from, to);
+        }
+        return rollupRepository.findByGranularityAndApiNameAndUserIdAndBucketStartBetweenOrderByBucketStart(
+            normalized, apiName, userId, from, to);
+    }
+
+    /**
+     * Totals in [from, to], merged across status classes and buckets: per API for one user, or keyed
+     * "API:userId" per API and user when no user is given (user 0 is calls made without one);
+     * token-billed APIs also get token counts and estimated cost
+     */
+    public Map<String, Map<String, Object>> summarize(String granularity, String apiName, Long userId,
+                                                      LocalDateTime from, LocalDateTime to) {
+        Map<String, Map<String, Object>> summary = new LinkedHashMap<>();
+        for (ApiUsageRollup rollup : getRollups(granularity, apiName, userId, from, to)) {
+            String key = userId != null ? rollup.getApiName() : rollup.getApiName() + ":" + rollup.getUserId();
+            Map<String, Object> totals = summary.computeIfAbsent(key, name -> {
+                Map<String, Object> initial = new LinkedHashMap<>();
+                if (userId == null) {
+                    initial.put("apiName", rollup.getApiName());
+                    initial.put("userId", rollup.getUserId());
+                }
+                initial.put("requestCount", 0L);
+                initial.put("errorCount", 0L);
+                initial.put("latencySumMs", 0L);
+                initial.put("latencyMaxMs", 0);
+                initial.put("promptTokens", 0L);
+                initial.put("completionTokens", 0L);
+                initial.put("costMicroUsd", 0L);
+                return initial;
+            });
+            totals.merge("requestCount", rollup.getRequestCount(), (a, b) -> (Long) a + (Long) b);
+            totals.merge("errorCount", rollup.getErrorCount(), (a, b) -> (Long) a + (Long) b);
+            totals.merge("latencySumMs", rollup.getLatencySumMs(), (a, b) -> (Long) a + (Long) b);
+            totals.merge("latencyMaxMs", rollup.getLatencyMaxMs(), (a, b) -> Math.max((Integer) a, (Integer) b));
+            totals.merge("promptTokens", rollup.getPromptTokens(), (a, b) -> (Long) a + (Long) b);
+            totals.merge("completionTokens", rollup.getCompletionTokens(), (a, b) -> (Long) a + (Long) b);
+            totals.merge("costMicroUsd", rollup.getCostMicroUsd(), (a, b) -> (Long) a + (Long) b);
+        }
+        summary.values().forEach(totals -> {
+            long count = (Long) totals.get("requestCount");
+            totals.put("averageLatencyMs", count == 0 ? 0 : (double) (Long) totals.get("latencySumMs") / count);
+            long costMicroUsd = (Long) totals.remove("costMicroUsd");
+            if ((Long) totals.get("promptTokens") == 0 && (Long) totals.get("completionTokens") == 0) {
+                totals.remove("promptTokens");
+                totals.remove("completionTokens");
+            } else {
+                totals.put("costUsd", costMicroUsd / 1_000_000.0);
+            }
+        });
+        return summary;
+    }
+
+    /**
+     * Calls to an API by a user since the given time, from minute rollups (null user means anonymous calls)
+     */
+    public long countCallsSince(String apiName, Long userId, LocalDateTime since) {
+        return rollupRepository.sumRequestCount(ApiUsageRollup.MINUTE, apiName,
+            userId != null ? userId : 0L, since.truncatedTo(ChronoUnit.MINUTES));
+    }
+
+    /**
+     * Minute rollups only serve rate limits and recent charts; hour rollups back longer dashboards
+     */
+    @Scheduled(cron = "${usage-rollup.cleanup-cron:0 17 * * * *}")
+    @Transactional
+    public void purgeExpiredRollups() {
+        int minutes = rollupRepository.deleteOlderThan(ApiUsageRollup.MINUTE,
+            LocalDateTime.now().minusHours(minuteRetentionHours));
+        int hours = rollupRepository.deleteOlderThan(ApiUsageRollup.HOUR,
+            LocalDateTime.now().minusDays(hourRetentionDays));
+        if (minutes > 0 || hours > 0) {
+            logger.info("Purged {} minute and {} hour usage rollups", minutes, hours);
+        }
+    }
+
+    private static String normalizeGranularity(String granularity) {
+        String normalized = granularity != null ? granularity.toUpperCase() : ApiUsageRollup.HOUR;
+        if (!normalized.equals(ApiUsageRollup.MINUTE) && !normalized.equals(ApiUsageRollup.HOUR)
+                && !normalized.equals(ApiUsageRollup.DAY)) {
+            throw new IllegalArgumentException("Unknown granularity: " + granularity);
+        }
+        return normalized;
+    }
+
+    static String statusClass(Integer responseStatus) {
+        if (responseStatus == null || responseStatus < 100 || responseStatus > 599) {
+            return "none";
+        }
+        return (responseStatus / 100) + "xx";
+    }
+
+    /**
+     * Tokens billed for one call and their estimated cost in millionths of a US dollar
+     */
+    public record TokenUsage(long promptTokens, long completionTokens, long costMicroUsd) {
+        public static final TokenUsage NONE = new TokenUsage(0, 0, 0);
+    }
+
+    /**
+     * Rollup deltas accumulated from one batch of raw log rows
+     */
+    public static class Batch {
+        private final Map<Key, Delta> deltas = new HashMap<>();
+
+        public void add(String apiName, Long userId, Integer responseStatus, int responseTimeMs, LocalDateTime at) {
+            add(apiName, userId, responseStatus, responseTimeMs, TokenUsage.NONE, at);
+        }
+
+        public void add(String apiName, Long userId, Integer responseStatus, int responseTimeMs, TokenUsage tokens,
+                        LocalDateTime at) {
+            String statusClass = statusClass(responseStatus);
+            boolean error = responseStatus == null || responseStatus >= 400;
+            long user = userId != null ? userId : 0L;
+            add(new Key(ApiUsageRollup.MINUTE, at.truncatedTo(ChronoUnit.MINUTES), apiName, user, statusClass), error, responseTimeMs, tokens);
+            add(new Key(ApiUsageRollup.HOUR, at.truncatedTo(ChronoUnit.HOURS), apiName, user, statusClass), error, responseTimeMs, tokens);
+            add(new Key(ApiUsageRollup.DAY, at.truncatedTo(ChronoUnit.DAYS), apiName, user, statusClass), error, responseTimeMs, tokens);
+        }
+
+        private void add(Key key, boolean error, int responseTimeMs, TokenUsage tokens) {
+            Delta delta = deltas.computeIfAbsent(key, Delta::new);
+            delta.requestCount++;
+            if (error) {
+                delta.errorCount++;
+            }
+            delta.latencySumMs += responseTimeMs;
+            delta.latencyMaxMs = Math.max(delta.latencyMaxMs, responseTimeMs);
+            delta.promptTokens += tokens.promptTokens();
+            delta.completionTokens += tokens.completionTokens();
+            delta.costMicroUsd += tokens.costMicroUsd();
+        }
+
+        public int size() {
+            return deltas.size();
+        }
+    }
+
+    private static class Delta {
+        private final Key key;
+        private long requestCount;
+        private long errorCount;
+        private long latencySumMs;
+        private int latencyMaxMs;
+        private long promptTokens;
+        private long completionTokens;
+        private long costMicroUsd;
+
+        private Delta(Key key) {
+            this.key = key;
+        }
+    }
+
+    private static class Key {
+        private final String granularity;
+        private final LocalDateTime bucketStart;
+        private final String apiName;
+        private final long userId;
+        private final String statusClass;
+
+        private Key(String granularity, LocalDateTime bucketStart, String apiName, long userId, String statusClass) {
+            this.granularity = granularity;
+            this.bucketStart = bucketStart;
+            this.apiName = apiName;
+            this.userId = userId;
+            this.statusClass = statusClass;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return userId == other.userId && granularity.equals(other.granularity)
+                && bucketStart.equals(other.bucketStart) && apiName.equals(other.apiName)
+                && statusClass.equals(other.statusClass);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(granularity, bucketStart, apiName, userId, statusClass);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.mealplanner.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.mealplanner.service.FoodRecognitionService.FoodItem;
+import com.mealplanner.util.RecognitionFallback;
+import com.mealplanner.util.UsageUser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Recognizes several photos from one request concurrently and hands each result over as soon as
+ * it is ready, in completion order.
+ *
+ * A batch runs at most food.batch.max-concurrent-per-request photos at a time, so one large batch
+ * cannot take the whole pool (food.batch.pool-size) that all batches share: it gets that many
+ * workers, each taking the next unstarted photo until none are left. At most food.batch.queue-capacity
+ * workers wait for a pool thread; a batch that cannot queue any worker is refused.
+ */
+@Service
+public class BatchRecognitionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchRecognitionService.class);
+
+    private final FoodRecognitionService foodRecognitionService;
+    private final MeterRegistry meterRegistry;
+    private final int maxConcurrentPerRequest;
+    private final int maxImages;
+    private final ExecutorService executor;
+
+    public BatchRecognitionService(FoodRecognitionService foodRecognitionService, MeterRegistry meterRegistry,
+                                   @Value("${food.batch.pool-size:16}") int poolSize,
+                                   @Value("${food.batch.queue-capacity:64}") int queueCapacity,
+                                   @Value("${food.batch.max-concurrent-per-request:4}") int maxConcurrentPerRequest,
+                                   @Value("${food.batch.max-images:20}") int maxImages) {
+        this.foodRecognitionService = foodRecognitionService;
+        this.meterRegistry = meterRegistry;
+        this.maxConcurrentPerRequest = maxConcurrentPerRequest;
+        this.maxImages = maxImages;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "recognition-batch-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Start recognizing the photos; onResult is called once per photo and onComplete once after the
+     * last, both from pool threads (possibly concurrently for onResult). Provider calls are billed
+     * to the caller's {@link UsageUser}.
+     *
+     * @throws IllegalArgumentException   when there are no photos or more than food.batch.max-images
+     * @throws RejectedExecutionException when the pool's queue is full; a batch that queued some of its
+     *                                    workers runs with those
+     */
+    public Batch start(List<MultipartFile> images, Consumer<ImageResult> onResult, Consumer<BatchSummary> onComplete) {
+        if (images == null || images.isEmpty()) {
+            throw new IllegalArgumentException("No images uploaded");
+        }
+        if (images.size() > maxImages) {
+            throw new IllegalArgumentException("At most " + maxImages + " images per batch, got " + images.size());
+        }
+
+        Batch batch = new Batch(images.size());
+        Long userId = UsageUser.current();
+        Runnable worker = () -> {
+            try (UsageUser.Scope scope = UsageUser.bind(userId)) {
+                int index;
+                while (!batch.cancelled && (index = batch.next.getAndIncrement()) < images.size()) {
+                    ImageResult result = analyze(index, images.get(index));
+                    if (result.status().equals("error")) {
+                        batch.failed.incrementAndGet();
+                    }
+                    onResult.accept(result);
+                    if (batch.remaining.decrementAndGet() == 0) {
+                        onComplete.accept(new BatchSummary(images.size(), batch.failed.get(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - batch.start)));
+                    }
+                }
+            }
+        };
+        int workers = Math.min(maxConcurrentPerRequest, images.size());
+        for (int i = 0; i < workers; i++) {
+            try {
+                batch.workers.add(executor.submit(worker));
+            } catch (RejectedExecutionException e) {
+                if (batch.workers.isEmpty()) {
+                    throw new RejectedExecutionException("Too many photos being analyzed, try again shortly");
+                }
+                // The queued workers take every photo between them, just fewer at a time
+                logger.warn("Batch of {} images runs with {} of {} workers, pool queue is full",
+                    images.size(), batch.workers.size(), workers);
+                break;
+            }
+        }
+        return batch;
+    }
+
+    public int getMaxImages() {
+        return maxImages;
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    private ImageResult analyze(int index, MultipartFile image) {
+        long start = System.nanoTime();
+        String outcome = "success";
+        RecognitionFallback.watch();
+        try {
+            List<FoodItem> items = foodRecognitionService.analyzeFoodImage(image);
+            boolean fallback = RecognitionFallback.end();
+            return new ImageResult(index, image.getOriginalFilename(), "ok", items, fallback, null,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            RecognitionFallback.end();
+            outcome = "error";
+            logger.error("Error analyzing batch image {} ({}): {}", index, image.getOriginalFilename(), e.getMessage());
+            return new ImageResult(index, image.getOriginalFilename(), "error", null, null, "Failed to analyze image",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            // Same meter as single-image requests, so batch photos show up per implementation
+            Timer.builder("food.recognition")
+                .tag("implementation", FoodRecognitionService.unwrap(foodRecognitionService).getClass().getSimpleName())
+                .tag("operation", "analyze-batch")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * One photo's outcome; index is its position in the upload
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record ImageResult(int index, String filename, String status, List<FoodItem> items, Boolean fallback,
+                              String error, long durationMs) {
+    }
+
+    public record BatchSummary(int images, int failed, long durationMs) {
+    }
+
+    /**
+     * A running batch; cancel it when the client goes away
+     */
+    public static class Batch {
+        private final long start = System.nanoTime();
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger remaining;
+        private final AtomicInteger failed = new AtomicInteger();
+        private final List<Future<?>> workers = new ArrayList<>();
+        private volatile boolean cancelled;
+
+        private Batch(int images) {
+            this.remaining = new AtomicInteger(images);
+        }
+
+        public void cancel() {
+            cancelled = true;
+            workers.forEach(worker -> worker.cancel(true));
+        }
+
+        public boolean isDone() {
+            return remaining.get() == 0;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.mealplanner.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+
+/**
+ * Answers repeat photos from {@link RecognitionResultCache} before calling the configured recognizer;
+ * name searches pass straight through.
+ */
+public class CachingFoodRecognitionService implements FoodRecognitionService {
+
+    private final FoodRecognitionService delegate;
+    private final RecognitionResultCache resultCache;
+
+    public CachingFoodRecognitionService(FoodRecognitionService delegate, RecognitionResultCache resultCache) {
+        this.delegate = delegate;
+        this.resultCache = resultCache;
+    }
+
+    @Override
+    public List<FoodItem> analyzeFoodImage(MultipartFile imageFile) {
+        return resultCache.analyze(imageFile, delegate);
+    }
+
+    @Override
+    public List<FoodItem> searchFoodByName(String query) {
+        return delegate.searchFoodByName(query);
+    }
+
+    public FoodRecognitionService getDelegate() {
+        return delegate;
+    }
+}
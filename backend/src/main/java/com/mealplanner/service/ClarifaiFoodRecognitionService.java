@@ -2,6 +2,9 @@ package com.mealplanner.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mealplanner.util.Base64ImageBody;
+import com.mealplanner.util.ProviderGuards;
+import com.mealplanner.util.RecognitionFallback;
 import okhttp3.*;
 import org.springframework.http.*;
 import org.springframework.web.client.RestTemplate;
@@ -11,7 +14,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.Base64;
 
 public class ClarifaiFoodRecognitionService implements FoodRecognitionService {
     
@@ -21,25 +23,38 @@ public class ClarifaiFoodRecognitionService implements FoodRecognitionService {
     private final String nutritionixAppId;
     private final String nutritionixAppKey;
     
-    private final OkHttpClient httpClient = new OkHttpClient();
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final ProviderGuards providerGuards;
+    private final NutritionBatchResolver nutritionResolver;
+    private final NutritionDictionary nutritionDictionary;
+    private final OkHttpClient httpClient;
+    private final RestTemplate restTemplate;
+    private final String clarifaiApiUrl;
+    private final String nutritionixSearchUrl;
     private final ObjectMapper objectMapper = new ObjectMapper();
     
     // Clarifai API configuration
-    private static final String CLARIFAI_API_URL = "https://api.clarifai.com/v2/models/food-item-recognition/outputs";
+    private static final String CLARIFAI_BASE_URL = "https://api.clarifai.com";
     private static final String USER_ID = "clarifai";
     private static final String APP_ID = "main";
     private static final String MODEL_ID = "food-item-recognition";
     private static final String MODEL_VERSION_ID = "1d5fd481e0cf4826aa72ec3ff049e044";
     
     // Nutritionix API endpoints
-    private static final String NUTRITIONIX_SEARCH_URL = "https://trackapi.nutritionix.com/v2/search/instant";
-    private static final String NUTRITIONIX_NATURAL_URL = "https://trackapi.nutritionix.com/v2/natural/nutrients";
+    private static final String NUTRITIONIX_BASE_URL = "https://trackapi.nutritionix.com";
     
-    public ClarifaiFoodRecognitionService(String clarifaiApiKey, String nutritionixAppId, String nutritionixAppKey) {
+    public ClarifaiFoodRecognitionService(String clarifaiApiKey, String nutritionixAppId, String nutritionixAppKey,
+                                          ProviderGuards providerGuards, NutritionBatchResolver nutritionResolver,
+                                          NutritionDictionary nutritionDictionary) {
         this.clarifaiApiKey = clarifaiApiKey;
         this.nutritionixAppId = nutritionixAppId;
         this.nutritionixAppKey = nutritionixAppKey;
+        this.providerGuards = providerGuards;
+        this.nutritionResolver = nutritionResolver;
+        this.nutritionDictionary = nutritionDictionary;
+        this.httpClient = providerGuards.httpClient();
+        this.restTemplate = providerGuards.restTemplate();
+        this.clarifaiApiUrl = providerGuards.baseUrl("clarifai", CLARIFAI_BASE_URL) + "/v2/models/food-item-recognition/outputs";
+        this.nutritionixSearchUrl = providerGuards.baseUrl("nutritionix", NUTRITIONIX_BASE_URL) + "/v2/search/instant";
     }
     
     @Override
@@ -47,29 +62,16 @@ public class ClarifaiFoodRecognitionService implements FoodRecognitionService {
         logger.info("Analyzing food image using Clarifai Food Model...");
         
         try {
-            // Convert image to base64
-            byte[] imageBytes = imageFile.getBytes();
-            String base64Image = Base64.getEncoder().encodeToString(imageBytes);
-            
             // Call Clarifai Food Model API
-            List<String> detectedFoods = callClarifaiFoodModel(base64Image);
+            Map<String, Double> detectedFoods = callClarifaiFoodModel(imageFile);
             
             if (detectedFoods.isEmpty()) {
                 logger.warn("No food items detected by Clarifai");
                 return getFallbackResults();
             }
             
-            // Get nutrition data for detected foods using Nutritionix
-            List<FoodItem> foodItems = new ArrayList<>();
-            for (String foodName : detectedFoods) {
-                List<FoodItem> nutritionData = searchFoodByName(foodName);
-                if (!nutritionData.isEmpty()) {
-                    // Use the first result and set confidence from Clarifai
-                    FoodItem item = nutritionData.get(0);
-                    // You could enhance this by mapping confidence scores
-                    foodItems.add(item);
-                }
-            }
+            // Nutrition dictionary first, then one batched Nutritionix lookup for the rest
+            List<FoodItem> foodItems = nutritionResolver.resolve(detectedFoods);
             
             logger.info("Food analysis completed. Found {} items.", foodItems.size());
             return foodItems.isEmpty() ? getFallbackResults() : foodItems;
@@ -84,6 +86,12 @@ public class ClarifaiFoodRecognitionService implements FoodRecognitionService {
     public List<FoodItem> searchFoodByName(String query) {
         logger.info("Searching for food: {}", query);
         
+        List<FoodItem> localFoods = nutritionDictionary.search(query);
+        if (!localFoods.isEmpty()) {
+            logger.info("Found {} local foods for query: {}", localFoods.size(), query);
+            return localFoods;
+        }
+        
         try {
             // Set up headers for Nutritionix API
             HttpHeaders headers = new HttpHeaders();
@@ -99,11 +107,13 @@ public class ClarifaiFoodRecognitionService implements FoodRecognitionService {
             HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
             
             // Make API call
-            ResponseEntity<String> response = restTemplate.exchange(
-                NUTRITIONIX_SEARCH_URL,
-                HttpMethod.POST,
-                request,
-                String.class
+            ResponseEntity<String> response = providerGuards.guard("nutritionix").callHedged(() ->
+                restTemplate.exchange(
+                    nutritionixSearchUrl,
+                    HttpMethod.POST,
+                    request,
+                    String.class
+                )
             );
             
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
@@ -119,49 +129,49 @@ public class ClarifaiFoodRecognitionService implements FoodRecognitionService {
         }
     }
     
-    private List<String> callClarifaiFoodModel(String base64Image) {
-        List<String> detectedFoods = new ArrayList<>();
+    private Map<String, Double> callClarifaiFoodModel(MultipartFile imageFile) {
+        Map<String, Double> detectedFoods = new LinkedHashMap<>();
         
         try {
-            // Create JSON request body for Clarifai using their API structure
-            String requestBody = String.format(
-                "{\"user_app_id\":{\"user_id\":\"%s\",\"app_id\":\"%s\"},\"inputs\":[{\"data\":{\"image\":{\"base64\":\"%s\"}}}]}",
-                USER_ID, APP_ID, base64Image
-            );
-            
-            RequestBody body = RequestBody.create(
-                okhttp3.MediaType.parse("application/json"),
-                requestBody
+            // Create JSON request body for Clarifai; the image is base64-encoded as the request is sent
+            RequestBody body = new Base64ImageBody(
+                String.format("{\"user_app_id\":{\"user_id\":\"%s\",\"app_id\":\"%s\"},\"inputs\":[{\"data\":{\"image\":{\"base64\":\"", USER_ID, APP_ID),
+                imageFile,
+                "\"}}}]}"
             );
             
             Request request = new Request.Builder()
-                .url(CLARIFAI_API_URL)
+                .url(clarifaiApiUrl)
                 .post(body)
                 .addHeader("Authorization", "Key " + clarifaiApiKey)
                 .addHeader("Content-Type", "application/json")
                 .build();
             
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (response.isSuccessful() && response.body() != null) {
-                    String responseBody = response.body().string();
-                    detectedFoods = parseClarifaiResponse(responseBody);
-                } else {
+            detectedFoods = providerGuards.guard("clarifai").call(() -> {
+                try (Response response = httpClient.newCall(request).execute()) {
+                    if (response.isSuccessful() && response.body() != null) {
+                        return parseClarifaiResponse(response.body().string());
+                    }
                     logger.error("Clarifai API error: {} - {}", response.code(), response.message());
                     if (response.body() != null) {
                         logger.error("Response body: {}", response.body().string());
                     }
+                    if (response.code() >= 500 || response.code() == 429) {
+                        throw new IOException("Clarifai API returned " + response.code());
+                    }
+                    return new LinkedHashMap<String, Double>();
                 }
-            }
+            });
             
-        } catch (IOException e) {
+        } catch (Exception e) {
             logger.error("Error calling Clarifai API: {}", e.getMessage());
         }
         
         return detectedFoods;
     }
     
-    private List<String> parseClarifaiResponse(String responseBody) {
-        List<String> detectedFoods = new ArrayList<>();
+    private Map<String, Double> parseClarifaiResponse(String responseBody) {
+        Map<String, Double> detectedFoods = new LinkedHashMap<>();
         
         try {
             JsonNode rootNode = objectMapper.readTree(responseBody);
@@ -191,7 +201,7 @@ public class ClarifaiFoodRecognitionService implements FoodRecognitionService {
                         
                         // Only include concepts with confidence > 0.5
                         if (value > 0.5) {
-                            detectedFoods.add(name);
+                            detectedFoods.merge(name, value, Math::max);
                             logger.info("Detected food: {} (confidence: {})", name, value);
                         }
                     }
@@ -287,6 +297,7 @@ public class ClarifaiFoodRecognitionService implements FoodRecognitionService {
     }
     
     private List<FoodItem> getFallbackResults() {
+        RecognitionFallback.mark();
         logger.info("Using fallback food data");
         return Arrays.asList(
             new FoodItem("Apple", 95, 0.5, 25, 0.3, 0.9),
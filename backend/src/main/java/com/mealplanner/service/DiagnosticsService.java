@@ -0,0 +1,305 @@
+package com.mealplanner.service;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadInfo;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Production diagnostics without restarting or attaching a profiler: Java Flight Recorder
+ * recordings written under diagnostics.dir, class histograms, per-thread allocation rates
+ * and heap/GC figures. One recording runs at a time; the newest diagnostics.jfr.keep files are kept.
+ */
+@Service
+public class DiagnosticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiagnosticsService.class);
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    // Events that capture environment variables, system properties and command lines, where credentials live
+    private static final List<String> SENSITIVE_EVENTS = List.of("jdk.InitialEnvironmentVariable",
+        "jdk.InitialSystemProperty", "jdk.JVMInformation", "jdk.SystemProcess");
+    private static final Pattern RECORDING_FILE = Pattern.compile("recording-\\d{8}-\\d{6}-[a-z]+\\.jfr");
+    // "   1:        123456       9876543  java.lang.String (java.base@17)"
+    private static final Pattern HISTOGRAM_LINE = Pattern.compile("\\s*\\d+:\\s+(\\d+)\\s+(\\d+)\\s+(\\S+).*");
+
+    private final Path directory;
+    private final Duration maxDuration;
+    private final int keep;
+
+    private Recording recording;
+    private Path recordingFile;
+
+    public DiagnosticsService(@Value("${diagnostics.dir:./diagnostics}") String directory,
+                              @Value("${diagnostics.jfr.max-duration-minutes:30}") long maxDurationMinutes,
+                              @Value("${diagnostics.jfr.keep:5}") int keep) {
+        this.directory = Paths.get(directory).toAbsolutePath().normalize();
+        this.maxDuration = Duration.ofMinutes(maxDurationMinutes);
+        this.keep = keep;
+    }
+
+    /**
+     * Start a recording with a JFR settings profile ("default" ~1% overhead, "profile" more detail)
+     * that stops itself after the given duration and is then written to disk
+     */
+    public synchronized Map<String, Object> startRecording(String profile, Duration duration)
+            throws IOException, ParseException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("A recording is already running: " + recordingFile.getFileName());
+        }
+        if (duration.isNegative() || duration.isZero() || duration.compareTo(maxDuration) > 0) {
+            throw new IllegalArgumentException("Duration must be between 1 second and " + maxDuration.toMinutes() + " minutes");
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(profile);
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("Unknown JFR profile '" + profile + "'");
+        }
+        if (recording != null) {
+            recording.close();
+        }
+
+        Files.createDirectories(directory);
+        pruneRecordings(keep - 1);
+        recordingFile = directory.resolve("recording-" + LocalDateTime.now().format(FILE_TIMESTAMP) + "-" + profile + ".jfr");
+        recording = new Recording(configuration);
+        recording.setName("diagnostics-" + profile);
+        recording.setToDisk(true);
+        recording.setDuration(duration);
+        recording.setDestination(recordingFile);
+        SENSITIVE_EVENTS.forEach(recording::disable);
+        recording.start();
+        logger.info("Started JFR recording {} ({} profile, {}s)", recordingFile.getFileName(), profile, duration.toSeconds());
+        return getRecordingStatus();
+    }
+
+    /**
+     * Stop the running recording early; its file is written on stop
+     */
+    public synchronized Map<String, Object> stopRecording() {
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            throw new IllegalStateException("No recording is running");
+        }
+        recording.stop();
+        recording.close();
+        logger.info("Stopped JFR recording {}", recordingFile.getFileName());
+        return getRecordingStatus();
+    }
+
+    public synchronized Map<String, Object> getRecordingStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (recording != null) {
+            status.put("state", recording.getState().name());
+            status.put("file", recordingFile.getFileName().toString());
+            status.put("startTime", recording.getStartTime());
+            status.put("durationSeconds", recording.getDuration() != null ? recording.getDuration().toSeconds() : null);
+        } else {
+            status.put("state", "NONE");
+        }
+        status.put("availableProfiles", Configuration.getConfigurations().stream().map(Configuration::getName).toList());
+        status.put("files", listRecordings());
+        return status;
+    }
+
+    /**
+     * Finished recording files, newest first
+     */
+    public List<Map<String, Object>> listRecordings() {
+        List<Map<String, Object>> files = new ArrayList<>();
+        for (Path file : recordingFiles()) {
+            if (isInProgress(file)) {
+                continue;
+            }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", file.getFileName().toString());
+            try {
+                entry.put("sizeBytes", Files.size(file));
+                entry.put("modified", Files.getLastModifiedTime(file).toInstant());
+            } catch (IOException e) {
+                continue;
+            }
+            files.add(entry);
+        }
+        return files;
+    }
+
+    /**
+     * A finished recording by file name, or null; names are matched against the directory listing
+     */
+    public synchronized Path getRecordingFile(String name) {
+        if (!RECORDING_FILE.matcher(name).matches()) {
+            return null;
+        }
+        Path file = directory.resolve(name);
+        return Files.isRegularFile(file) && !isInProgress(file) ? file : null;
+    }
+
+    /**
+     * The top classes by shallow size. live=true counts only reachable objects, which forces a full GC
+     */
+    public List<Map<String, Object>> classHistogram(int top, boolean live) throws Exception {
+        String output = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+            new ObjectName("com.sun.management:type=DiagnosticCommand"), "gcClassHistogram",
+            new Object[] { live ? new String[0] : new String[] { "-all" } }, new String[] { String[].class.getName() });
+
+        List<Map<String, Object>> classes = new ArrayList<>();
+        for (String line : output.split("\n")) {
+            Matcher matcher = HISTOGRAM_LINE.matcher(line);
+            if (!matcher.matches()) {
+                continue;
+            }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("className", matcher.group(3));
+            entry.put("instances", Long.parseLong(matcher.group(1)));
+            entry.put("bytes", Long.parseLong(matcher.group(2)));
+            classes.add(entry);
+            if (classes.size() >= top) {
+                break;
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Bytes allocated per second by each live thread, sampled over a short window, highest first
+     */
+    public Map<String, Object> allocationRates(Duration window, int top) throws InterruptedException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            throw new IllegalStateException("Thread allocation accounting is not available in this JVM");
+        }
+
+        long[] ids = threads.getAllThreadIds();
+        long[] before = threads.getThreadAllocatedBytes(ids);
+        long start = System.nanoTime();
+        Thread.sleep(window.toMillis());
+        long[] after = threads.getThreadAllocatedBytes(ids);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        Map<Long, String> names = new HashMap<>();
+        for (ThreadInfo info : threads.getThreadInfo(ids)) {
+            if (info != null) {
+                names.put(info.getThreadId(), info.getThreadName());
+            }
+        }
+
+        List<Map<String, Object>> rates = new ArrayList<>();
+        long totalBytes = 0;
+        for (int i = 0; i < ids.length; i++) {
+            // -1: the thread ended (or had not started) during the window
+            if (before[i] < 0 || after[i] < 0 || !names.containsKey(ids[i])) {
+                continue;
+            }
+            long allocated = after[i] - before[i];
+            totalBytes += allocated;
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("thread", names.get(ids[i]));
+            entry.put("bytesPerSecond", Math.round(allocated / seconds));
+            rates.add(entry);
+        }
+        rates.sort(Comparator.comparingLong((Map<String, Object> entry) -> (Long) entry.get("bytesPerSecond")).reversed());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("windowMs", Math.round(seconds * 1000));
+        result.put("totalBytesPerSecond", Math.round(totalBytes / seconds));
+        result.put("threads", rates.subList(0, Math.min(top, rates.size())));
+        return result;
+    }
+
+    /**
+     * Heap and memory pool usage plus collection counts/times per collector since startup
+     */
+    public Map<String, Object> heapSummary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("heap", usage(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage()));
+        summary.put("nonHeap", usage(ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage()));
+
+        Map<String, Object> pools = new LinkedHashMap<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pools.put(pool.getName(), usage(pool.getUsage()));
+        }
+        summary.put("pools", pools);
+
+        List<Map<String, Object>> collectors = new ArrayList<>();
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", collector.getName());
+            entry.put("collections", collector.getCollectionCount());
+            entry.put("timeMs", collector.getCollectionTime());
+            collectors.add(entry);
+        }
+        summary.put("collectors", collectors);
+        summary.put("uptimeSeconds", ManagementFactory.getRuntimeMXBean().getUptime() / 1000);
+        summary.put("timestamp", Instant.now());
+        return summary;
+    }
+
+    private boolean isInProgress(Path file) {
+        return recording != null && recording.getState() != RecordingState.CLOSED
+            && recording.getState() != RecordingState.STOPPED && file.equals(recordingFile);
+    }
+
+    private List<Path> recordingFiles() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(file -> RECORDING_FILE.matcher(file.getFileName().toString()).matches())
+                .sorted(Comparator.comparing((Path file) -> file.getFileName().toString()).reversed())
+                .toList();
+        } catch (IOException e) {
+            logger.warn("Could not list {}: {}", directory, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private void pruneRecordings(int retain) {
+        List<Path> files = recordingFiles();
+        for (Path file : files.subList(Math.min(Math.max(retain, 0), files.size()), files.size())) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("Could not delete old recording {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    private static Map<String, Object> usage(MemoryUsage usage) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("usedBytes", usage.getUsed());
+        entry.put("committedBytes", usage.getCommitted());
+        entry.put("maxBytes", usage.getMax());
+        return entry;
+    }
+}
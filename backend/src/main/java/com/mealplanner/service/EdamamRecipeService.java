@@ -1,12 +1,16 @@
 package com.mealplanner.service;
 
-import com.mealplanner.dto.EdamamRecipeResponseDto;
 import com.mealplanner.dto.MealDto;
+import com.mealplanner.util.EdamamRecipeParser;
+import com.mealplanner.util.ProviderGuards;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -20,11 +24,16 @@ public class EdamamRecipeService {
     @Value("${edamam.app.key}")
     private String appKey;
     
+    private final ProviderGuards providerGuards;
     private final RestTemplate restTemplate;
-    private final String BASE_URL = "https://api.edamam.com/api/recipes/v2";
+    private final EdamamRecipeParser recipeParser = new EdamamRecipeParser();
+    private final String baseUrl;
     
-    public EdamamRecipeService() {
-        this.restTemplate = new RestTemplate();
+    @Autowired
+    public EdamamRecipeService(ProviderGuards providerGuards) {
+        this.providerGuards = providerGuards;
+        this.restTemplate = providerGuards.restTemplate();
+        this.baseUrl = providerGuards.baseUrl("edamam", "https://api.edamam.com") + "/api/recipes/v2";
     }
     
     /**
@@ -34,19 +43,71 @@ public class EdamamRecipeService {
         try {
             String url = buildSearchUrl(mealType, dietType, maxResults);
             
-            EdamamRecipeResponseDto response = restTemplate.getForObject(url, EdamamRecipeResponseDto.class);
+            // Stream the response body straight into MealDtos instead of binding the whole payload
+            List<MealDto> meals = providerGuards.guard("edamam").callHedged(() ->
+                restTemplate.execute(url, HttpMethod.GET, null,
+                    response -> recipeParser.parse(response.getBody())));
             
-            if (response != null && response.getHits() != null) {
-                return convertToMealDtos(response.getHits());
-            }
-            
-            return new ArrayList<>();
+            return meals != null ? meals : new ArrayList<>();
         } catch (Exception e) {
             System.err.println("Error fetching recipes from Edamam: " + e.getMessage());
             return new ArrayList<>();
         }
     }
     
+    /**
+     * Search recipes matching free text, e.g. a dish name, for ingestion. The diet is sent as Edamam's
+     * health filter when it has one (see {@link #filtersDiet}). Errors are thrown so the caller can back off.
+     */
+    public List<MealDto> searchForIngestion(String query, String dietType, int maxResults) throws Exception {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(baseUrl)
+                .queryParam("type", "public")
+                .queryParam("app_id", appId)
+                .queryParam("app_key", appKey)
+                .queryParam("q", query)
+                .queryParam("to", maxResults);
+        addFilters(builder, null, dietType);
+        String url = builder.encode().toUriString();
+        
+        // Not hedged, like fetchRecipePage
+        List<MealDto> meals = providerGuards.guard("edamam").call(() ->
+            restTemplate.execute(URI.create(url), HttpMethod.GET, null,
+                response -> recipeParser.parse(response.getBody())));
+        return meals != null ? meals : new ArrayList<>();
+    }
+    
+    /**
+     * Whether searches for this diet type are filtered by Edamam, so every result fits the diet
+     */
+    public boolean filtersDiet(String dietType) {
+        return dietType != null && getDietFilter(dietType) != null;
+    }
+    
+    /**
+     * Fetch one page of a non-random search, for ingestion; pass the previous page's token to continue.
+     * Errors are thrown so the caller can keep its checkpoint and back off.
+     */
+    public EdamamRecipeParser.Page fetchRecipePage(String mealType, String dietType, String cuisineType,
+                                                   String pageToken) throws Exception {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(baseUrl)
+                .queryParam("type", "public")
+                .queryParam("app_id", appId)
+                .queryParam("app_key", appKey);
+        addFilters(builder, mealType, dietType);
+        if (cuisineType != null && !cuisineType.isEmpty()) {
+            builder.queryParam("cuisineType", cuisineType);
+        }
+        if (pageToken != null) {
+            builder.queryParam("_cont", pageToken);
+        }
+        String url = builder.encode().toUriString();
+        
+        // Not hedged: a duplicate ingestion request would only burn rate-limit quota
+        return providerGuards.guard("edamam").call(() ->
+            restTemplate.execute(URI.create(url), HttpMethod.GET, null,
+                response -> recipeParser.parsePage(response.getBody())));
+    }
+    
     /**
      * Get a random recipe for a specific meal type
      */
@@ -65,13 +126,21 @@ public class EdamamRecipeService {
      * Build the search URL for Edamam API
      */
     private String buildSearchUrl(String mealType, String dietType, int maxResults) {
-        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(BASE_URL)
+        return searchUrlBuilder(mealType, dietType, maxResults).toUriString();
+    }
+    
+    private UriComponentsBuilder searchUrlBuilder(String mealType, String dietType, int maxResults) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(baseUrl)
                 .queryParam("type", "public")
                 .queryParam("app_id", appId)
                 .queryParam("app_key", appKey)
                 .queryParam("random", "true")
                 .queryParam("to", maxResults);
-        
+        addFilters(builder, mealType, dietType);
+        return builder;
+    }
+    
+    private void addFilters(UriComponentsBuilder builder, String mealType, String dietType) {
         // Add meal type filter
         if (mealType != null && !mealType.isEmpty()) {
             String mealTypeFilter = getMealTypeFilter(mealType);
@@ -87,8 +156,6 @@ public class EdamamRecipeService {
                 builder.queryParam("health", dietFilter);
             }
         }
-        
-        return builder.toUriString();
     }
     
     /**
@@ -119,80 +186,4 @@ public class EdamamRecipeService {
             default -> null;
         };
     }
-    
-    /**
-     * Convert Edamam recipes to our MealDto format
-     */
-    private List<MealDto> convertToMealDtos(List<EdamamRecipeResponseDto.Hit> hits) {
-        List<MealDto> meals = new ArrayList<>();
-        
-        for (EdamamRecipeResponseDto.Hit hit : hits) {
-            EdamamRecipeResponseDto.Recipe recipe = hit.getRecipe();
-            MealDto meal = new MealDto();
-            
-            // Basic info
-            meal.setName(recipe.getLabel());
-            meal.setDescription(recipe.getSource());
-            meal.setImageUrl(recipe.getImage());
-            meal.setSourceApi("edamam");
-            meal.setExternalId(extractIdFromUri(recipe.getUri()));
-            
-            // Meal type
-            if (recipe.getMealType() != null && !recipe.getMealType().isEmpty()) {
-                meal.setMealType(recipe.getMealType().get(0).toUpperCase());
-            } else {
-                meal.setMealType("GENERAL");
-            }
-            
-            // Nutrition info
-            if (recipe.getCalories() != null) {
-                meal.setCalories(recipe.getCalories().intValue());
-            }
-            
-            // Note: Nutrition parsing is complex due to dynamic JSON structure
-            // For now, we'll rely on the basic calories field
-            // TODO: Implement proper nutrition parsing from totalNutrients object
-            
-            // Cooking time
-            if (recipe.getTotalTime() != null) {
-                meal.setCookTimeMinutes(recipe.getTotalTime().intValue());
-            }
-            
-            // Servings
-            if (recipe.getYield() != null) {
-                meal.setServings(recipe.getYield().intValue());
-            }
-            
-            // Ingredients
-            if (recipe.getIngredientLines() != null) {
-                meal.setIngredients(recipe.getIngredientLines());
-            }
-            
-            // Diet type
-            if (recipe.getDietLabels() != null && !recipe.getDietLabels().isEmpty()) {
-                meal.setDietType(recipe.getDietLabels().get(0).toUpperCase());
-            } else {
-                meal.setDietType("MIXED");
-            }
-            
-            // Cuisine type
-            if (recipe.getCuisineType() != null && !recipe.getCuisineType().isEmpty()) {
-                meal.setCuisineType(recipe.getCuisineType().get(0));
-            }
-            
-            meals.add(meal);
-        }
-        
-        return meals;
-    }
-    
-    /**
-     * Extract ID from Edamam URI
-     */
-    private String extractIdFromUri(String uri) {
-        if (uri != null && uri.contains("recipe_")) {
-            return uri.substring(uri.lastIndexOf("_") + 1);
-        }
-        return uri;
-    }
 }
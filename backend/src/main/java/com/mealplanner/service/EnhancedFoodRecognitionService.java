@@ -2,6 +2,9 @@ package com.mealplanner.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mealplanner.util.Base64ImageBody;
+import com.mealplanner.util.ProviderGuards;
+import com.mealplanner.util.RecognitionFallback;
 import okhttp3.*;
 import org.springframework.http.*;
 import org.springframework.web.client.RestTemplate;
@@ -11,7 +14,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.Base64;
 
 public class EnhancedFoodRecognitionService implements FoodRecognitionService {
     
@@ -21,25 +23,36 @@ public class EnhancedFoodRecognitionService implements FoodRecognitionService {
     private final String nutritionixAppId;
     private final String nutritionixAppKey;
     
-    private final OkHttpClient httpClient = new OkHttpClient();
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final ProviderGuards providerGuards;
+    private final NutritionBatchResolver nutritionResolver;
+    private final NutritionDictionary nutritionDictionary;
+    private final OkHttpClient httpClient;
+    private final RestTemplate restTemplate;
+    private final String clarifaiApiUrl;
+    private final String nutritionixSearchUrl;
     private final ObjectMapper objectMapper = new ObjectMapper();
     
     // Clarifai API configuration
-    private static final String CLARIFAI_API_URL = "https://api.clarifai.com/v2/models/food-item-recognition/outputs";
+    private static final String CLARIFAI_BASE_URL = "https://api.clarifai.com";
     private static final String USER_ID = "clarifai";
     private static final String APP_ID = "main";
     
     // Nutritionix API endpoints
-    private static final String NUTRITIONIX_SEARCH_URL = "https://trackapi.nutritionix.com/v2/search/instant";
+    private static final String NUTRITIONIX_BASE_URL = "https://trackapi.nutritionix.com";
     
-    // Indian food database with nutrition data
-    private static final Map<String, FoodItem> INDIAN_FOOD_DATABASE = createIndianFoodDatabase();
-    
-    public EnhancedFoodRecognitionService(String clarifaiApiKey, String nutritionixAppId, String nutritionixAppKey) {
+    public EnhancedFoodRecognitionService(String clarifaiApiKey, String nutritionixAppId, String nutritionixAppKey,
+                                          ProviderGuards providerGuards, NutritionBatchResolver nutritionResolver,
+                                          NutritionDictionary nutritionDictionary) {
         this.clarifaiApiKey = clarifaiApiKey;
         this.nutritionixAppId = nutritionixAppId;
         this.nutritionixAppKey = nutritionixAppKey;
+        this.providerGuards = providerGuards;
+        this.nutritionResolver = nutritionResolver;
+        this.nutritionDictionary = nutritionDictionary;
+        this.httpClient = providerGuards.httpClient();
+        this.restTemplate = providerGuards.restTemplate();
+        this.clarifaiApiUrl = providerGuards.baseUrl("clarifai", CLARIFAI_BASE_URL) + "/v2/models/food-item-recognition/outputs";
+        this.nutritionixSearchUrl = providerGuards.baseUrl("nutritionix", NUTRITIONIX_BASE_URL) + "/v2/search/instant";
     }
     
     @Override
@@ -47,23 +60,14 @@ public class EnhancedFoodRecognitionService implements FoodRecognitionService {
         logger.info("Analyzing food image using enhanced recognition service...");
         
         try {
-            // Convert image to base64
-            byte[] imageBytes = imageFile.getBytes();
-            String base64Image = Base64.getEncoder().encodeToString(imageBytes);
-            
             // First, try Clarifai for image recognition
-            List<String> detectedFoods = callClarifaiFoodModel(base64Image);
+            Map<String, Double> detectedFoods = callClarifaiFoodModel(imageFile);
             
             List<FoodItem> foodItems = new ArrayList<>();
             
             if (!detectedFoods.isEmpty()) {
-                // Process detected foods
-                for (String foodName : detectedFoods) {
-                    FoodItem item = findFoodItem(foodName);
-                    if (item != null) {
-                        foodItems.add(item);
-                    }
-                }
+                // Nutrition dictionary first, then one batched Nutritionix lookup for the rest
+                foodItems.addAll(nutritionResolver.resolve(detectedFoods));
             }
             
             // If no foods detected or only generic foods, suggest common Indian foods
@@ -85,11 +89,11 @@ public class EnhancedFoodRecognitionService implements FoodRecognitionService {
     public List<FoodItem> searchFoodByName(String query) {
         logger.info("Searching for food: {}", query);
         
-        // First, check our Indian food database
-        List<FoodItem> indianFoods = searchIndianFoodDatabase(query);
-        if (!indianFoods.isEmpty()) {
-            logger.info("Found {} Indian foods for query: {}", indianFoods.size(), query);
-            return indianFoods;
+        // First, check the local nutrition dictionary
+        List<FoodItem> localFoods = nutritionDictionary.search(query);
+        if (!localFoods.isEmpty()) {
+            logger.info("Found {} local foods for query: {}", localFoods.size(), query);
+            return localFoods;
         }
         
         // Then try Nutritionix for other foods
@@ -97,22 +101,8 @@ public class EnhancedFoodRecognitionService implements FoodRecognitionService {
             return searchNutritionix(query);
         } catch (Exception e) {
             logger.error("Error searching Nutritionix: {}", e.getMessage());
-            return indianFoods.isEmpty() ? getCommonIndianFoods() : indianFoods;
-        }
-    }
-    
-    private List<FoodItem> searchIndianFoodDatabase(String query) {
-        List<FoodItem> results = new ArrayList<>();
-        String lowerQuery = query.toLowerCase();
-        
-        for (Map.Entry<String, FoodItem> entry : INDIAN_FOOD_DATABASE.entrySet()) {
-            String foodName = entry.getKey().toLowerCase();
-            if (foodName.contains(lowerQuery) || lowerQuery.contains(foodName)) {
-                results.add(entry.getValue());
-            }
+            return getCommonIndianFoods();
         }
-        
-        return results;
     }
     
     private List<FoodItem> searchNutritionix(String query) {
@@ -128,11 +118,13 @@ public class EnhancedFoodRecognitionService implements FoodRecognitionService {
             
             HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
             
-            ResponseEntity<String> response = restTemplate.exchange(
-                NUTRITIONIX_SEARCH_URL,
-                HttpMethod.POST,
-                request,
-                String.class
+            ResponseEntity<String> response = providerGuards.guard("nutritionix").callHedged(() ->
+                restTemplate.exchange(
+                    nutritionixSearchUrl,
+                    HttpMethod.POST,
+                    request,
+                    String.class
+                )
             );
             
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
@@ -146,45 +138,46 @@ public class EnhancedFoodRecognitionService implements FoodRecognitionService {
         return new ArrayList<>();
     }
     
-    private List<String> callClarifaiFoodModel(String base64Image) {
-        List<String> detectedFoods = new ArrayList<>();
+    private Map<String, Double> callClarifaiFoodModel(MultipartFile imageFile) {
+        Map<String, Double> detectedFoods = new LinkedHashMap<>();
         
         try {
-            String requestBody = String.format(
-                "{\"user_app_id\":{\"user_id\":\"%s\",\"app_id\":\"%s\"},\"inputs\":[{\"data\":{\"image\":{\"base64\":\"%s\"}}}]}",
-                USER_ID, APP_ID, base64Image
-            );
-            
-            RequestBody body = RequestBody.create(
-                okhttp3.MediaType.parse("application/json"),
-                requestBody
+            // The image is base64-encoded straight into the outgoing request
+            RequestBody body = new Base64ImageBody(
+                String.format("{\"user_app_id\":{\"user_id\":\"%s\",\"app_id\":\"%s\"},\"inputs\":[{\"data\":{\"image\":{\"base64\":\"", USER_ID, APP_ID),
+                imageFile,
+                "\"}}}]}"
             );
             
             Request request = new Request.Builder()
-                .url(CLARIFAI_API_URL)
+                .url(clarifaiApiUrl)
                 .post(body)
                 .addHeader("Authorization", "Key " + clarifaiApiKey)
                 .addHeader("Content-Type", "application/json")
                 .build();
             
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (response.isSuccessful() && response.body() != null) {
-                    String responseBody = response.body().string();
-                    detectedFoods = parseClarifaiResponse(responseBody);
-                } else {
+            detectedFoods = providerGuards.guard("clarifai").call(() -> {
+                try (Response response = httpClient.newCall(request).execute()) {
+                    if (response.isSuccessful() && response.body() != null) {
+                        return parseClarifaiResponse(response.body().string());
+                    }
                     logger.error("Clarifai API error: {} - {}", response.code(), response.message());
+                    if (response.code() >= 500 || response.code() == 429) {
+                        throw new IOException("Clarifai API returned " + response.code());
+                    }
+                    return new LinkedHashMap<String, Double>();
                 }
-            }
+            });
             
-        } catch (IOException e) {
+        } catch (Exception e) {
             logger.error("Error calling Clarifai API: {}", e.getMessage());
         }
         
         return detectedFoods;
     }
     
-    private List<String> parseClarifaiResponse(String responseBody) {
-        List<String> detectedFoods = new ArrayList<>();
+    private Map<String, Double> parseClarifaiResponse(String responseBody) {
+        Map<String, Double> detectedFoods = new LinkedHashMap<>();
         
         try {
             JsonNode rootNode = objectMapper.readTree(responseBody);
@@ -212,7 +205,7 @@ public class EnhancedFoodRecognitionService implements FoodRecognitionService {
                         double value = concept.get("value").asDouble();
                         
                         if (value > 0.5) {
-                            detectedFoods.add(name);
+                            detectedFoods.merge(name, value, Math::max);
                             logger.info("Detected food: {} (confidence: {})", name, value);
                         }
                     }
@@ -226,22 +219,6 @@ public class EnhancedFoodRecognitionService implements FoodRecognitionService {
         return detectedFoods;
     }
     
-    private FoodItem findFoodItem(String foodName) {
-        // First check Indian food database
-        FoodItem indianFood = INDIAN_FOOD_DATABASE.get(foodName.toLowerCase());
-        if (indianFood != null) {
-            return indianFood;
-        }
-        
-        // Then try Nutritionix
-        List<FoodItem> nutritionixResults = searchNutritionix(foodName);
-        if (!nutritionixResults.isEmpty()) {
-            return nutritionixResults.get(0);
-        }
-        
-        return null;
-    }
-    
     private boolean isGenericFood(List<FoodItem> foods) {
         Set<String> genericTerms = Set.of("food", "meal", "dish", "plate", "bowl", "container");
         return foods.stream().anyMatch(food -> 
@@ -250,6 +227,7 @@ public class EnhancedFoodRecognitionService implements FoodRecognitionService {
     }
     
     private List<FoodItem> getCommonIndianFoods() {
+        RecognitionFallback.mark();
         return Arrays.asList(
             new FoodItem("Dosa", 120, 3.5, 20, 2.5, 0.9),
             new FoodItem("Idli", 80, 3.0, 15, 0.5, 0.9),
@@ -330,48 +308,4 @@ public class EnhancedFoodRecognitionService implements FoodRecognitionService {
             return null;
         }
     }
-    
-    private static Map<String, FoodItem> createIndianFoodDatabase() {
-        Map<String, FoodItem> database = new HashMap<>();
-        
-        // South Indian Foods
-        database.put("dosa", new FoodItem("Dosa", 120, 3.5, 20, 2.5, 0.95));
-        database.put("idli", new FoodItem("Idli", 80, 3.0, 15, 0.5, 0.95));
-        database.put("vada", new FoodItem("Vada", 150, 4.0, 18, 6.0, 0.95));
-        database.put("upma", new FoodItem("Upma", 180, 4.5, 25, 6.0, 0.95));
-        database.put("pongal", new FoodItem("Pongal", 200, 6.0, 30, 5.0, 0.95));
-        database.put("sambar", new FoodItem("Sambar", 100, 5.0, 15, 3.0, 0.95));
-        database.put("rasam", new FoodItem("Rasam", 80, 3.0, 12, 2.0, 0.95));
-        
-        // North Indian Foods
-        database.put("paratha", new FoodItem("Paratha", 180, 4.0, 25, 7.0, 0.95));
-        database.put("chapati", new FoodItem("Chapati", 70, 2.5, 12, 1.0, 0.95));
-        database.put("roti", new FoodItem("Roti", 70, 2.5, 12, 1.0, 0.95));
-        database.put("naan", new FoodItem("Naan", 150, 4.0, 25, 3.0, 0.95));
-        database.put("biryani", new FoodItem("Biryani", 350, 12.0, 45, 12.0, 0.95));
-        database.put("pulao", new FoodItem("Pulao", 250, 6.0, 40, 8.0, 0.95));
-        database.put("dal", new FoodItem("Dal", 100, 6.0, 18, 0.5, 0.95));
-        database.put("curry", new FoodItem("Curry", 150, 8.0, 12, 8.0, 0.95));
-        
-        // Snacks
-        database.put("samosa", new FoodItem("Samosa", 250, 5.0, 30, 12.0, 0.95));
-        database.put("pakora", new FoodItem("Pakora", 200, 4.0, 25, 8.0, 0.95));
-        database.put("vada pav", new FoodItem("Vada Pav", 300, 8.0, 35, 12.0, 0.95));
-        database.put("pav bhaji", new FoodItem("Pav Bhaji", 280, 6.0, 30, 10.0, 0.95));
-        database.put("bhel puri", new FoodItem("Bhel Puri", 180, 4.0, 25, 6.0, 0.95));
-        database.put("pani puri", new FoodItem("Pani Puri", 120, 3.0, 18, 4.0, 0.95));
-        
-        // Sweets
-        database.put("gulab jamun", new FoodItem("Gulab Jamun", 200, 2.0, 35, 5.0, 0.95));
-        database.put("rasgulla", new FoodItem("Rasgulla", 180, 2.5, 32, 4.0, 0.95));
-        database.put("jalebi", new FoodItem("Jalebi", 250, 2.0, 45, 6.0, 0.95));
-        database.put("laddu", new FoodItem("Laddu", 220, 3.0, 38, 5.0, 0.95));
-        
-        // Drinks
-        database.put("lassi", new FoodItem("Lassi", 150, 4.0, 20, 5.0, 0.95));
-        database.put("chai", new FoodItem("Chai", 80, 2.0, 12, 2.0, 0.95));
-        database.put("masala chai", new FoodItem("Masala Chai", 90, 2.0, 13, 2.5, 0.95));
-        
-        return database;
-    }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -10,6 +10,8 @@ import com.mealplanner.repository.UserMealPlanRepository;
 import com.mealplanner.repository.UserPreferencesRepository;
 import com.mealplanner.repository.UserRepository;
 import com.mealplanner.util.MealMapper;
+import com.mealplanner.util.RecipePreferenceFilter;
+import com.mealplanner.util.RequestTrace;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -40,9 +42,12 @@ public class EnhancedMealService {
     
     @Autowired
     private MealMapper mealMapper;
+
+    @Autowired
+    private RecipePreferenceFilter recipePreferenceFilter;
     
     @Autowired
-    private NutritionixService nutritionixService;
+    private RecipeIngestionService recipeIngestionService;
     
     /**
      * Get meals for a specific user and date range with preferences
@@ -97,17 +102,17 @@ public class EnhancedMealService {
         
         List<Recipe> recipes = getLocalRecipes(mealType, preferences);
         
-        if (recipes.isEmpty()) {
-            recipes = fetchRecipesFromNutritionix(mealType, preferences);
-        }
-        
         if (!recipes.isEmpty()) {
             Random random = new Random();
             Recipe randomRecipe = recipes.get(random.nextInt(recipes.size()));
             return mealMapper.toMealDto(randomRecipe);
         }
         
-        return null;
+        // Nothing cached for this combination yet: have ingestion fill it and serve any recipe of the category
+        recipeIngestionService.requestSegment(mealType, preferences != null ? preferences.getDietType() : null);
+        return recipeRepository.findRandomByCategory(mealType)
+            .map(mealMapper::toMealDto)
+            .orElse(null);
     }
     
     /**
@@ -120,10 +125,9 @@ public class EnhancedMealService {
         // Search local database first
         List<Recipe> localResults = searchLocalRecipes(query, filters, preferences);
         
-        // If insufficient results, search external APIs
+        // If insufficient results, have background ingestion fetch more for next time
         if (localResults.size() < 5) {
-            List<Recipe> externalResults = searchExternalRecipes(query, filters, preferences);
-            localResults.addAll(externalResults);
+            recipeIngestionService.requestSearch(query, preferences != null ? preferences.getDietType() : null);
         }
         
         // Remove duplicates and return
@@ -175,39 +179,6 @@ public class EnhancedMealService {
         return recipes;
     }
     
-    /**
-     * Fetch recipes from external APIs
-     */
-    private List<Recipe> fetchRecipesFromExternalAPIs(String mealType, UserPreferences preferences) {
-        List<Recipe> recipes = new ArrayList<>();
-        
-        // Try Edamam first
-        try {
-            List<MealDto> edamamRecipes = fetchFromEdamam(mealType, preferences);
-            for (MealDto mealDto : edamamRecipes) {
-                Recipe recipe = cacheRecipeFromExternal(mealDto, "edamam", mealDto.getExternalId());
-                recipes.add(recipe);
-            }
-        } catch (Exception e) {
-            System.err.println("Failed to fetch from Edamam: " + e.getMessage());
-        }
-        
-        // Try Spoonacular if needed
-        if (recipes.size() < 5) {
-            try {
-                List<MealDto> spoonacularRecipes = fetchFromSpoonacular(mealType, preferences);
-                for (MealDto mealDto : spoonacularRecipes) {
-                    Recipe recipe = cacheRecipeFromExternal(mealDto, "spoonacular", mealDto.getExternalId());
-                    recipes.add(recipe);
-                }
-            } catch (Exception e) {
-                System.err.println("Failed to fetch from Spoonacular: " + e.getMessage());
-            }
-        }
-        
-        return recipes;
-    }
-    
     /**
      * Search local recipes
      */
@@ -217,153 +188,13 @@ public class EnhancedMealService {
         return recipeRepository.findByNameContainingIgnoreCase(query);
     }
     
-    /**
-     * Search external recipes
-     */
-    private List<Recipe> searchExternalRecipes(String query, Map<String, Object> filters, UserPreferences preferences) {
-        List<Recipe> recipes = new ArrayList<>();
-        
-        try {
-            List<MealDto> externalRecipes = searchFromEdamam(query, filters);
-            for (MealDto mealDto : externalRecipes) {
-                Recipe recipe = cacheRecipeFromExternal(mealDto, "edamam", mealDto.getExternalId());
-                recipes.add(recipe);
-            }
-        } catch (Exception e) {
-            System.err.println("External search failed: " + e.getMessage());
-        }
-        
-        return recipes;
-    }
-    
     /**
      * Filter recipes based on user preferences
      */
     private List<Recipe> filterRecipesByPreferences(List<Recipe> recipes, UserPreferences preferences) {
-        if (preferences == null) {
-            return recipes;
-        }
-        
-        return recipes.stream()
-            .filter(recipe -> !hasAllergies(recipe, preferences))
-            .filter(recipe -> !hasDislikes(recipe, preferences))
-            .filter(recipe -> meetsCalorieTarget(recipe, preferences))
-            .filter(recipe -> matchesCookingSkill(recipe, preferences))
-            .sorted((r1, r2) -> {
-                // Sort by relevance to user preferences
-                return calculateRelevanceScore(r2, preferences) - calculateRelevanceScore(r1, preferences);
-            })
-            .collect(Collectors.toList());
-    }
-    
-    /**
-     * Check if recipe contains allergens
-     */
-    private boolean hasAllergies(Recipe recipe, UserPreferences preferences) {
-        if (preferences.getAllergies() == null || preferences.getAllergies().isEmpty()) {
-            return false;
-        }
-        
-        String ingredientsText = String.join(" ", recipe.getIngredients());
-        return preferences.getAllergies().stream()
-            .anyMatch(allergen -> ingredientsText.toLowerCase().contains(allergen.toLowerCase()));
-    }
-    
-    /**
-     * Check if recipe contains disliked foods
-     */
-    private boolean hasDislikes(Recipe recipe, UserPreferences preferences) {
-        if (preferences.getDislikes() == null || preferences.getDislikes().isEmpty()) {
-            return false;
-        }
-        
-        String recipeText = recipe.getName() + " " + String.join(" ", recipe.getIngredients());
-        return preferences.getDislikes().stream()
-            .anyMatch(dislike -> recipeText.toLowerCase().contains(dislike.toLowerCase()));
-    }
-    
-    /**
-     * Check if recipe meets calorie target
-     */
-    private boolean meetsCalorieTarget(Recipe recipe, UserPreferences preferences) {
-        if (preferences.getDailyCalorieTarget() == null || recipe.getCalories() == null) {
-            return true;
-        }
-        
-        int targetPerMeal = preferences.getDailyCalorieTarget() / 4; // Assuming 4 meals per day
-        return recipe.getCalories() <= targetPerMeal * 1.2; // Allow 20% variance
-    }
-    
-    /**
-     * Check if recipe matches cooking skill level
-     */
-    private boolean matchesCookingSkill(Recipe recipe, UserPreferences preferences) {
-        if (preferences.getCookingSkillLevel() == null) {
-            return true;
-        }
-        
-        String skillLevel = preferences.getCookingSkillLevel();
-        String difficulty = recipe.getDifficultyLevel();
-        
-        return switch (skillLevel) {
-            case "BEGINNER" -> "EASY".equals(difficulty);
-            case "INTERMEDIATE" -> !"HARD".equals(difficulty);
-            case "ADVANCED" -> true; // Advanced users can cook anything
-            default -> true;
-        };
-    }
-    
-    /**
-     * Calculate relevance score for recipe based on user preferences
-     */
-    private int calculateRelevanceScore(Recipe recipe, UserPreferences preferences) {
-        int score = 0;
-        
-        // Base score
-        score += 10;
-        
-        // Cuisine preference match
-        if (preferences.getPreferredCuisines() != null && 
-            preferences.getPreferredCuisines().contains(recipe.getCuisineType())) {
-            score += 20;
+        try (RequestTrace.Phase phase = RequestTrace.phase("filter")) {
+            return recipePreferenceFilter.filter(recipes, preferences);
         }
-        
-        // Diet type match
-        if (preferences.getDietType().equals(recipe.getDietType())) {
-            score += 15;
-        }
-        
-        // Cooking time preference (prefer shorter times)
-        if (recipe.getTotalTime() != null && recipe.getTotalTime() < 30) {
-            score += 10;
-        }
-        
-        return score;
-    }
-    
-    /**
-     * Fetch recipes from Edamam API
-     */
-    private List<MealDto> fetchFromEdamam(String mealType, UserPreferences preferences) {
-        // This would use the ProxyService to make the actual API call
-        // Implementation depends on the Edamam API response structure
-        return new ArrayList<>();
-    }
-    
-    /**
-     * Fetch recipes from Spoonacular API
-     */
-    private List<MealDto> fetchFromSpoonacular(String mealType, UserPreferences preferences) {
-        // Implementation for Spoonacular API
-        return new ArrayList<>();
-    }
-    
-    /**
-     * Search recipes from Edamam
-     */
-    private List<MealDto> searchFromEdamam(String query, Map<String, Object> filters) {
-        // Implementation for Edamam search
-        return new ArrayList<>();
     }
     
     /**
@@ -414,86 +245,6 @@ public class EnhancedMealService {
         recipe.setUpdatedAt(LocalDateTime.now());
     }
     
-    /**
-     * Fetch recipes from Nutritionix API
-     */
-    private List<Recipe> fetchRecipesFromNutritionix(String mealType, UserPreferences preferences) {
-        try {
-            // Build search query based on meal type
-            String query = buildNutritionixQuery(mealType, preferences);
-            Integer maxCalories = preferences != null ? preferences.getDailyCalorieTarget() / 4 : 500;
-            String diet = preferences != null ? preferences.getDietType() : null;
-            
-            // Search for recipes
-            List<MealDto> mealDtos = nutritionixService.searchRecipes(query, mealType, maxCalories, diet);
-            
-            // Convert and cache recipes
-            List<Recipe> recipes = new ArrayList<>();
-            for (MealDto mealDto : mealDtos) {
-                Recipe recipe = nutritionixService.cacheMealFromNutritionix(mealDto);
-                if (recipe != null) {
-                    recipes.add(recipe);
-                }
-            }
-            
-            return recipes;
-            
-        } catch (Exception e) {
-            System.err.println("Error fetching recipes from Nutritionix: " + e.getMessage());
-            e.printStackTrace();
-            return Collections.emptyList();
-        }
-    }
-    
-    /**
-     * Build search query for Nutritionix based on meal type and preferences
-     */
-    private String buildNutritionixQuery(String mealType, UserPreferences preferences) {
-        StringBuilder query = new StringBuilder();
-        
-        // Add meal type specific keywords
-        switch (mealType.toUpperCase()) {
-            case "BREAKFAST":
-                query.append("breakfast cereal eggs toast oatmeal");
-                break;
-            case "LUNCH":
-                query.append("lunch sandwich salad soup");
-                break;
-            case "DINNER":
-                query.append("dinner chicken beef fish pasta rice");
-                break;
-            case "SNACK":
-                query.append("snack nuts fruits yogurt");
-                break;
-            default:
-                query.append("food meal");
-        }
-        
-        // Add dietary preferences
-        if (preferences != null && preferences.getDietType() != null) {
-            String diet = preferences.getDietType().toLowerCase();
-            switch (diet) {
-                case "vegetarian":
-                    query.append(" vegetarian");
-                    break;
-                case "vegan":
-                    query.append(" vegan");
-                    break;
-                case "keto":
-                    query.append(" keto low-carb");
-                    break;
-                case "paleo":
-                    query.append(" paleo");
-                    break;
-                case "mediterranean":
-                    query.append(" mediterranean");
-                    break;
-            }
-        }
-        
-        return query.toString();
-    }
-    
     /**
      * Populate sample meal data for testing
      */
@@ -0,0 +1,221 @@
+package com.mealplanner.service;
+
+import com.mealplanner.util.RecognitionFallback;
+import com.mealplanner.util.RequestTrace;
+import com.mealplanner.util.UsageUser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends each photo to several recognizers at once and merges their answers by food name.
+ *
+ * Items whose names match once case, punctuation and spacing are ignored are combined: their
+ * confidences count as independent evidence, 1 - (1 - a)(1 - b), and the nutrition comes from the
+ * most confident of them. The call returns as soon as the best merged item reaches the confidence
+ * threshold, when every member has answered, or at the deadline, cancelling members still running.
+ * Answers a member flags as fallback data (see {@link RecognitionFallback}) only count when no
+ * member had a real one.
+ */
+public class EnsembleFoodRecognitionService implements FoodRecognitionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EnsembleFoodRecognitionService.class);
+
+    private final Map<String, FoodRecognitionService> members;
+    private final ExecutorService executor;
+    private final long deadlineMs;
+    private final double confidenceThreshold;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param members provider name -> recognizer, in order of preference for fallback data and name searches
+     */
+    public EnsembleFoodRecognitionService(Map<String, FoodRecognitionService> members, ExecutorService executor,
+                                          long deadlineMs, double confidenceThreshold, MeterRegistry meterRegistry) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("An ensemble needs at least one recognizer");
+        }
+        this.members = new LinkedHashMap<>(members);
+        this.executor = executor;
+        this.deadlineMs = deadlineMs;
+        this.confidenceThreshold = confidenceThreshold;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public List<FoodItem> analyzeFoodImage(MultipartFile imageFile) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        CompletionService<MemberResult> completion = new ExecutorCompletionService<>(executor);
+        Map<String, Future<MemberResult>> running = new LinkedHashMap<>();
+        Long userId = UsageUser.current();
+        members.forEach((name, member) -> running.put(name,
+            completion.submit(() -> analyze(name, member, imageFile, userId))));
+
+        Map<String, Candidate> merged = new LinkedHashMap<>();
+        Map<String, List<FoodItem>> fallbacks = new LinkedHashMap<>();
+        String outcome = "deadline";
+        // Members run on the ensemble pool; the request thread's wait is what the request trace sees
+        try (RequestTrace.Phase phase = RequestTrace.phase("ext.ensemble")) {
+            int pending = running.size();
+            while (pending > 0) {
+                long remaining = deadline - System.nanoTime();
+                Future<MemberResult> done = remaining > 0 ? completion.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (done == null) {
+                    break;
+                }
+                pending--;
+                MemberResult result = done.get();
+                memberCounter(result.name(), result.fallback() ? "fallback" : "answered").increment();
+                if (result.fallback()) {
+                    fallbacks.put(result.name(), result.items());
+                    continue;
+                }
+                merge(merged, result.items());
+                if (best(merged) >= confidenceThreshold) {
+                    outcome = "confident";
+                    break;
+                }
+            }
+            if (pending == 0 && !"confident".equals(outcome)) {
+                outcome = "complete";
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            outcome = "interrupted";
+        } catch (ExecutionException e) {
+            // analyze() catches everything, so this would be a bug rather than a provider failure
+            logger.error("Ensemble member failed unexpectedly", e);
+        } finally {
+            running.forEach((name, future) -> {
+                if (!future.isDone()) {
+                    future.cancel(true);
+                    memberCounter(name, "cancelled").increment();
+                }
+            });
+        }
+
+        List<FoodItem> result;
+        if (merged.isEmpty()) {
+            RecognitionFallback.mark();
+            outcome = "fallback";
+            // The most preferred member's canned answer, as if it had been configured alone
+            result = members.keySet().stream().filter(fallbacks::containsKey).findFirst()
+                .map(fallbacks::get).orElse(Collections.emptyList());
+        } else {
+            result = merged.values().stream()
+                .sorted(Comparator.comparingDouble(Candidate::confidence).reversed())
+                .map(Candidate::toFoodItem)
+                .toList();
+        }
+
+        Timer.builder("food.recognition.ensemble")
+            .description("Ensemble recognitions, by how they finished")
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        logger.debug("Ensemble finished ({}) with {} items from {} answers", outcome, result.size(),
+            running.values().stream().filter(f -> f.isDone() && !f.isCancelled()).count());
+        return result;
+    }
+
+    /**
+     * Name searches send no photo, so the most preferred member answers them alone
+     */
+    @Override
+    public List<FoodItem> searchFoodByName(String query) {
+        return members.values().iterator().next().searchFoodByName(query);
+    }
+
+    public Map<String, FoodRecognitionService> getMembers() {
+        return Collections.unmodifiableMap(members);
+    }
+
+    private MemberResult analyze(String name, FoodRecognitionService member, MultipartFile imageFile, Long userId) {
+        RecognitionFallback.watch();
+        try (UsageUser.Scope scope = UsageUser.bind(userId)) {
+            List<FoodItem> items = member.analyzeFoodImage(imageFile);
+            boolean fallback = RecognitionFallback.end() || items == null || items.isEmpty();
+            return new MemberResult(name, items != null ? items : Collections.emptyList(), fallback);
+        } catch (RuntimeException e) {
+            RecognitionFallback.end();
+            logger.warn("Ensemble member '{}' failed: {}", name, e.getMessage());
+            return new MemberResult(name, Collections.emptyList(), true);
+        }
+    }
+
+    private static void merge(Map<String, Candidate> merged, List<FoodItem> items) {
+        // One member naming the same food twice is not independent evidence
+        Map<String, FoodItem> distinct = new LinkedHashMap<>();
+        for (FoodItem item : items) {
+            if (item.getName() == null || item.getName().isBlank()) {
+                continue;
+            }
+            distinct.merge(normalize(item.getName()), item,
+                (a, b) -> a.getConfidence() >= b.getConfidence() ? a : b);
+        }
+        distinct.forEach((key, item) -> merged.merge(key, new Candidate(item, clamp(item.getConfidence())),
+            (existing, added) -> existing.combine(added)));
+    }
+
+    private static double best(Map<String, Candidate> merged) {
+        return merged.values().stream().mapToDouble(Candidate::confidence).max().orElse(0);
+    }
+
+    static String normalize(String name) {
+        String normalized = name.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+        return normalized.isEmpty() ? name.trim().toLowerCase(Locale.ROOT) : normalized;
+    }
+
+    private static double clamp(double confidence) {
+        return Math.max(0, Math.min(1, confidence));
+    }
+
+    private Counter memberCounter(String name, String outcome) {
+        return Counter.builder("food.recognition.ensemble.members")
+            .description("Ensemble member calls, by provider and how they ended")
+            .tag("provider", name)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private record MemberResult(String name, List<FoodItem> items, boolean fallback) {
+    }
+
+    /**
+     * A merged food: the most confident member's item and the combined confidence of all that named it
+     */
+    private record Candidate(FoodItem best, double confidence) {
+
+        Candidate combine(Candidate other) {
+            // An item with nutrition beats one whose nutrition is still pending, whatever the confidence
+            boolean preferOther = best.isPending() != other.best.isPending()
+                ? best.isPending() : other.best.getConfidence() > best.getConfidence();
+            return new Candidate(preferOther ? other.best : best, 1 - (1 - confidence) * (1 - other.confidence));
+        }
+
+        FoodItem toFoodItem() {
+            FoodItem item = new FoodItem(best.getName(), best.getCalories(), best.getProtein(), best.getCarbs(),
+                best.getFat(), confidence);
+            item.setPending(best.isPending());
+            return item;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.mealplanner.service;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Value;
@@ -17,6 +18,21 @@ public interface FoodRecognitionService {
     List<FoodItem> analyzeFoodImage(MultipartFile imageFile);
     List<FoodItem> searchFoodByName(String query);
     
+    /**
+     * The recognizer doing the actual work beneath the preprocessing and caching decorators
+     */
+    static FoodRecognitionService unwrap(FoodRecognitionService service) {
+        while (true) {
+            if (service instanceof PreprocessingFoodRecognitionService preprocessing) {
+                service = preprocessing.getDelegate();
+            } else if (service instanceof CachingFoodRecognitionService caching) {
+                service = caching.getDelegate();
+            } else {
+                return service;
+            }
+        }
+    }
+    
     class FoodItem {
         private String name;
         private double calories;
@@ -24,6 +40,8 @@ public interface FoodRecognitionService {
         private double carbs;
         private double fat;
         private double confidence;
+        // Nutrition still being looked up when the result was returned (values are zero)
+        private boolean pending;
         
         public FoodItem(String name, double calories, double protein, double carbs, double fat, double confidence) {
             this.name = name;
@@ -52,5 +70,9 @@ public interface FoodRecognitionService {
         
         public double getConfidence() { return confidence; }
         public void setConfidence(double confidence) { this.confidence = confidence; }
+        
+        @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+        public boolean isPending() { return pending; }
+        public void setPending(boolean pending) { this.pending = pending; }
     }
 } 
\ No newline at end of file
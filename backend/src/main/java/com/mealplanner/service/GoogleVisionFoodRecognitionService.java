@@ -2,6 +2,9 @@ package com.mealplanner.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mealplanner.util.Base64ImageBody;
+import com.mealplanner.util.ProviderGuards;
+import com.mealplanner.util.RecognitionFallback;
 import org.springframework.http.*;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
@@ -16,14 +19,23 @@ public class GoogleVisionFoodRecognitionService implements FoodRecognitionServic
     
     private final String googleVisionApiKey;
     
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final ProviderGuards providerGuards;
+    private final NutritionDictionary nutritionDictionary;
+    private final RestTemplate restTemplate;
+    private final String annotateUrl;
     private final ObjectMapper objectMapper = new ObjectMapper();
     
     // Google Cloud Vision API endpoint
-    private static final String GOOGLE_VISION_URL = "https://vision.googleapis.com/v1/images:annotate";
+    private static final String GOOGLE_VISION_BASE_URL = "https://vision.googleapis.com";
+    private static final String IMAGE_PLACEHOLDER = "__IMAGE_BASE64__";
     
-    public GoogleVisionFoodRecognitionService(String googleVisionApiKey) {
+    public GoogleVisionFoodRecognitionService(String googleVisionApiKey, ProviderGuards providerGuards,
+                                              NutritionDictionary nutritionDictionary) {
         this.googleVisionApiKey = googleVisionApiKey;
+        this.providerGuards = providerGuards;
+        this.nutritionDictionary = nutritionDictionary;
+        this.restTemplate = providerGuards.restTemplate();
+        this.annotateUrl = providerGuards.baseUrl("google-vision", GOOGLE_VISION_BASE_URL) + "/v1/images:annotate";
     }
     
     @Override
@@ -31,14 +43,10 @@ public class GoogleVisionFoodRecognitionService implements FoodRecognitionServic
         logger.info("Analyzing food image using Google Cloud Vision API...");
         
         try {
-            // Convert image to base64
-            byte[] imageBytes = imageFile.getBytes();
-            String base64Image = java.util.Base64.getEncoder().encodeToString(imageBytes);
-            
-            // Create request body for Google Vision API
+            // Create request body for Google Vision API; the image is base64-encoded as the request is sent
             Map<String, Object> requestBody = new HashMap<>();
             Map<String, Object> image = new HashMap<>();
-            image.put("content", base64Image);
+            image.put("content", IMAGE_PLACEHOLDER);
             
             Map<String, Object> feature = new HashMap<>();
             feature.put("type", "LABEL_DETECTION");
@@ -50,19 +58,18 @@ public class GoogleVisionFoodRecognitionService implements FoodRecognitionServic
             
             requestBody.put("requests", Arrays.asList(request));
             
-            // Set up headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            
-            HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(requestBody, headers);
+            Base64ImageBody body = Base64ImageBody.around(
+                objectMapper.writeValueAsString(requestBody), IMAGE_PLACEHOLDER, imageFile);
             
             // Make API call
-            String url = GOOGLE_VISION_URL + "?key=" + googleVisionApiKey;
-            ResponseEntity<String> response = restTemplate.exchange(
-                url,
-                HttpMethod.POST,
-                requestEntity,
-                String.class
+            String url = annotateUrl + "?key=" + googleVisionApiKey;
+            ResponseEntity<String> response = providerGuards.guard("google-vision").call(() ->
+                restTemplate.execute(
+                    url,
+                    HttpMethod.POST,
+                    body::writeTo,
+                    restTemplate.responseEntityExtractor(String.class)
+                )
             );
             
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
@@ -81,8 +88,9 @@ public class GoogleVisionFoodRecognitionService implements FoodRecognitionServic
     @Override
     public List<FoodItem> searchFoodByName(String query) {
         logger.info("Searching for food by name using Google Vision fallback: {}", query);
-        // Google Vision doesn't have text search, so we'll use fallback data
-        return getFallbackResults();
+        // Google Vision doesn't have text search, so only the nutrition dictionary can answer
+        List<FoodItem> localFoods = nutritionDictionary.search(query);
+        return localFoods.isEmpty() ? getFallbackResults() : localFoods;
     }
     
     private List<FoodItem> parseGoogleVisionResponse(String responseBody) {
@@ -101,8 +109,8 @@ public class GoogleVisionFoodRecognitionService implements FoodRecognitionServic
                         String description = label.get("description").asText().toLowerCase();
                         double score = label.get("score").asDouble();
                         
-                        // Filter for food-related labels
-                        if (isFoodRelated(description) && score > 0.7) {
+                        // Filter for food-related labels; any food the dictionary knows counts
+                        if ((isFoodRelated(description) || nutritionDictionary.lookup(description) != null) && score > 0.7) {
                             FoodItem foodItem = createFoodItemFromLabel(description, score);
                             foodItems.add(foodItem);
                         }
@@ -136,33 +144,25 @@ public class GoogleVisionFoodRecognitionService implements FoodRecognitionServic
     }
     
     private FoodItem createFoodItemFromLabel(String label, double confidence) {
-        // Map common food labels to nutrition data
-        Map<String, double[]> nutritionMap = new HashMap<>();
-        nutritionMap.put("apple", new double[]{95, 0.5, 25, 0.3});
-        nutritionMap.put("banana", new double[]{105, 1.3, 27, 0.4});
-        nutritionMap.put("chicken", new double[]{165, 31, 0, 3.6});
-        nutritionMap.put("rice", new double[]{130, 2.7, 28, 0.3});
-        nutritionMap.put("bread", new double[]{79, 3.1, 15, 1.0});
-        nutritionMap.put("pizza", new double[]{266, 11, 33, 10});
-        nutritionMap.put("salad", new double[]{45, 3, 8, 0.5});
-        nutritionMap.put("soup", new double[]{60, 4, 8, 2});
-        nutritionMap.put("pasta", new double[]{131, 5, 25, 1.1});
-        nutritionMap.put("fish", new double[]{206, 22, 0, 12});
-        
-        // Find best match
-        double[] nutrition = nutritionMap.getOrDefault(label, new double[]{150, 10, 20, 5});
+        // Nutrition from the dictionary; generic labels ("dish", "cuisine") get typical values
+        FoodItem known = nutritionDictionary.lookup(label);
+        if (known != null) {
+            known.setConfidence(confidence);
+            return known;
+        }
         
         return new FoodItem(
             label.substring(0, 1).toUpperCase() + label.substring(1),
-            nutrition[0], // calories
-            nutrition[1], // protein
-            nutrition[2], // carbs
-            nutrition[3], // fat
+            150, // calories
+            10,  // protein
+            20,  // carbs
+            5,   // fat
             confidence
         );
     }
     
     private List<FoodItem> getFallbackResults() {
+        RecognitionFallback.mark();
         logger.info("Using fallback food data for Google Vision");
         return Arrays.asList(
             new FoodItem("Food Item", 150, 10, 20, 5, 0.8),
@@ -0,0 +1,168 @@
+package com.mealplanner.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chooses the image detail GPT-4o is asked for. A low-detail image costs a flat 85 prompt tokens
+ * where the default bills every 512px tile, so photos are sent at low detail (and downscaled to
+ * gpt4o.detail.low-max-edge) once recent scans of similar size were recognized confidently.
+ *
+ * Scans are grouped by upload size in power-of-two buckets. A bucket goes low when at least
+ * gpt4o.detail.min-samples of its last gpt4o.detail.window-size answers are in and the share of
+ * confident ones (confidence at least gpt4o.detail.confidence-threshold) reaches
+ * gpt4o.detail.low-confident-ratio. Low-detail misses count against the bucket, so it goes back to
+ * gpt4o.detail.default when they pile up.
+ */
+@Service
+public class Gpt4oDetailPolicy {
+
+    public static final String LOW = "low";
+    public static final String AUTO = "auto";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean adaptive;
+    private final String defaultDetail;
+    private final int windowSize;
+    private final int minSamples;
+    private final double lowConfidentRatio;
+    private final double confidenceThreshold;
+    private final int lowMaxEdge;
+    private final boolean retryUnconfident;
+    private final Map<Integer, Window> buckets = new ConcurrentHashMap<>();
+
+    public Gpt4oDetailPolicy(MeterRegistry meterRegistry,
+                             @Value("${gpt4o.detail.adaptive:true}") boolean adaptive,
+                             @Value("${gpt4o.detail.default:auto}") String defaultDetail,
+                             @Value("${gpt4o.detail.window-size:20}") int windowSize,
+                             @Value("${gpt4o.detail.min-samples:10}") int minSamples,
+                             @Value("${gpt4o.detail.low-confident-ratio:0.9}") double lowConfidentRatio,
+                             @Value("${gpt4o.detail.confidence-threshold:0.8}") double confidenceThreshold,
+                             @Value("${gpt4o.detail.low-max-edge:512}") int lowMaxEdge,
+                             @Value("${gpt4o.detail.retry-unconfident:true}") boolean retryUnconfident) {
+        if (!defaultDetail.equals(AUTO) && !defaultDetail.equals("high") && !defaultDetail.equals(LOW)) {
+            throw new IllegalArgumentException("gpt4o.detail.default must be auto, high or low, got " + defaultDetail);
+        }
+        this.meterRegistry = meterRegistry;
+        this.adaptive = adaptive;
+        this.defaultDetail = defaultDetail;
+        this.windowSize = windowSize;
+        this.minSamples = Math.min(minSamples, windowSize);
+        this.lowConfidentRatio = lowConfidentRatio;
+        this.confidenceThreshold = confidenceThreshold;
+        this.lowMaxEdge = lowMaxEdge;
+        this.retryUnconfident = retryUnconfident;
+    }
+
+    /**
+     * The detail to request for an image of this many bytes
+     */
+    public String choose(long imageBytes) {
+        String detail = defaultDetail;
+        if (adaptive && !LOW.equals(defaultDetail)) {
+            Window window = buckets.get(bucket(imageBytes));
+            if (window != null && window.confidentEnough()) {
+                detail = LOW;
+            }
+        }
+        Counter.builder("gpt4o.detail")
+            .description("GPT-4o image detail requested")
+            .tag("detail", detail)
+            .register(meterRegistry)
+            .increment();
+        return detail;
+    }
+
+    /**
+     * Count an answer for an image of this many bytes; a null confidence is an unusable answer
+     */
+    public void record(long imageBytes, Double confidence) {
+        if (adaptive) {
+            buckets.computeIfAbsent(bucket(imageBytes), b -> new Window(windowSize)).add(isConfident(confidence));
+        }
+    }
+
+    public boolean isConfident(Double confidence) {
+        return confidence != null && confidence >= confidenceThreshold;
+    }
+
+    /**
+     * Whether an unconfident low-detail answer should be asked again at the default detail
+     */
+    public boolean isRetryUnconfident() {
+        return retryUnconfident && !LOW.equals(defaultDetail);
+    }
+
+    public String getDefaultDetail() {
+        return defaultDetail;
+    }
+
+    public int getLowMaxEdge() {
+        return lowMaxEdge;
+    }
+
+    /**
+     * Per size bucket ("64KB-128KB"): answers in the window, confident ones, and the detail chosen now
+     */
+    public Map<String, Map<String, Object>> getBuckets() {
+        Map<String, Map<String, Object>> view = new LinkedHashMap<>();
+        new TreeMap<>(buckets).forEach((bucket, window) -> {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            synchronized (window) {
+                stats.put("answers", window.count);
+                stats.put("confident", window.confident);
+            }
+            stats.put("detail", window.confidentEnough() ? LOW : defaultDetail);
+            view.put(formatBytes(1L << bucket) + "-" + formatBytes(1L << (bucket + 1)), stats);
+        });
+        return view;
+    }
+
+    private static int bucket(long imageBytes) {
+        return 63 - Long.numberOfLeadingZeros(Math.max(1, imageBytes));
+    }
+
+    private static String formatBytes(long bytes) {
+        return bytes >= 1 << 20 ? (bytes >> 20) + "MB" : bytes >= 1 << 10 ? (bytes >> 10) + "KB" : bytes + "B";
+    }
+
+    /**
+     * The last few answers in one size bucket, as a ring of confident/unconfident flags
+     */
+    private class Window {
+        private final boolean[] answers;
+        private int next;
+        private int count;
+        private int confident;
+
+        private Window(int size) {
+            this.answers = new boolean[size];
+        }
+
+        synchronized void add(boolean wasConfident) {
+            if (count == answers.length) {
+                if (answers[next]) {
+                    confident--;
+                }
+            } else {
+                count++;
+            }
+            answers[next] = wasConfident;
+            if (wasConfident) {
+                confident++;
+            }
+            next = (next + 1) % answers.length;
+        }
+
+        synchronized boolean confidentEnough() {
+            return count >= minSamples && confident >= lowConfidentRatio * count;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.mealplanner.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.mealplanner.util.UsageUser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Accounts for every GPT-4o call: prompt and completion tokens from the response's usage block,
+ * latency, and cost estimated from gpt4o.pricing.*-usd-per-million. Each call becomes an
+ * api_usage_logs row (apiName GPT4O) billed to the current {@link UsageUser}, so the usage rollups
+ * total tokens and cost per user and day; the same totals are counted as gpt4o.tokens and gpt4o.cost.
+ */
+@Service
+public class Gpt4oUsageRecorder {
+
+    public static final String API_NAME = "GPT4O";
+    private static final String ENDPOINT = "/v1/chat/completions";
+
+    private final ApiUsageLogWriter usageLogWriter;
+    private final MeterRegistry meterRegistry;
+    private final double inputUsdPerMillion;
+    private final double outputUsdPerMillion;
+
+    public Gpt4oUsageRecorder(ApiUsageLogWriter usageLogWriter, MeterRegistry meterRegistry,
+                              @Value("${gpt4o.pricing.input-usd-per-million:2.50}") double inputUsdPerMillion,
+                              @Value("${gpt4o.pricing.output-usd-per-million:10.00}") double outputUsdPerMillion) {
+        this.usageLogWriter = usageLogWriter;
+        this.meterRegistry = meterRegistry;
+        this.inputUsdPerMillion = inputUsdPerMillion;
+        this.outputUsdPerMillion = outputUsdPerMillion;
+    }
+
+    /**
+     * Record one call
+     *
+     * @param status HTTP status, or null when no response arrived
+     * @param usage  the response's "usage" object, or null/missing when there was none
+     */
+    public ApiUsageRollupService.TokenUsage record(String model, String detail, long imageBytes, Integer status,
+                                                   JsonNode usage, long latencyMs) {
+        long promptTokens = usage != null ? usage.path("prompt_tokens").asLong() : 0;
+        long completionTokens = usage != null ? usage.path("completion_tokens").asLong() : 0;
+        // USD per million tokens is micro-USD per token
+        long costMicroUsd = Math.round(promptTokens * inputUsdPerMillion + completionTokens * outputUsdPerMillion);
+        ApiUsageRollupService.TokenUsage tokens =
+            new ApiUsageRollupService.TokenUsage(promptTokens, completionTokens, costMicroUsd);
+
+        Map<String, Object> requestData = new LinkedHashMap<>();
+        requestData.put("model", model);
+        requestData.put("detail", detail);
+        requestData.put("imageBytes", imageBytes);
+        requestData.put("promptTokens", promptTokens);
+        requestData.put("completionTokens", completionTokens);
+        requestData.put("costUsd", costMicroUsd / 1_000_000.0);
+        usageLogWriter.record(API_NAME, ENDPOINT, UsageUser.current(), requestData, status, latencyMs, tokens);
+
+        tokenCounter("prompt", detail).increment(promptTokens);
+        tokenCounter("completion", detail).increment(completionTokens);
+        Counter.builder("gpt4o.cost")
+            .description("Estimated GPT-4o spend")
+            .baseUnit("usd")
+            .tag("detail", detail)
+            .register(meterRegistry)
+            .increment(costMicroUsd / 1_000_000.0);
+        return tokens;
+    }
+
+    private Counter tokenCounter(String type, String detail) {
+        return Counter.builder("gpt4o.tokens")
+            .description("GPT-4o tokens billed")
+            .tag("type", type)
+            .tag("detail", detail)
+            .register(meterRegistry);
+    }
+}
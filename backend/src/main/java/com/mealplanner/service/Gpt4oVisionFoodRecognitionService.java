@@ -4,6 +4,10 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mealplanner.util.Base64ImageBody;
+import com.mealplanner.util.CircuitBreaker;
+import com.mealplanner.util.ProviderGuards;
+import com.mealplanner.util.RecognitionFallback;
 import okhttp3.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,22 +15,46 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 public class Gpt4oVisionFoodRecognitionService implements FoodRecognitionService {
 
     private static final Logger logger = LoggerFactory.getLogger(Gpt4oVisionFoodRecognitionService.class);
 
-    private static final String OPENAI_API_URL = "https://api.openai.com/v1/chat/completions";
+    private static final String OPENAI_BASE_URL = "https://api.openai.com";
     private static final String MODEL = "gpt-4o";
+    // Stands in for the image's base64 in the serialized request; the body streams the real thing
+    private static final String IMAGE_PLACEHOLDER = "__IMAGE_BASE64__";
+    private static final String PROMPT = "You are a nutrition expert specializing in Indian cuisine. Analyze the food in this image and identify the specific Indian dish. " +
+            "If it's an Indian food, be very specific (e.g., 'Aloo Paratha', 'Masala Dosa', 'Butter Chicken', 'Dal Tadka'). " +
+            "If it's not Indian food, identify it accurately. " +
+            "Provide a JSON object with these exact fields: " +
+            "{\"name\": \"exact food name\", \"estimated_calories\": number, \"protein_g\": number, \"carbs_g\": number, \"fat_g\": number, " +
+            "\"confidence\": number from 0 to 1 for how sure you are of the dish, \"description\": \"brief description\"}. " +
+            "Respond ONLY with the JSON object, no other text.";
 
+    private final ProviderGuards providerGuards;
+    private final NutritionDictionary nutritionDictionary;
+    private final ImagePreprocessor imagePreprocessor;
+    private final Gpt4oDetailPolicy detailPolicy;
+    private final Gpt4oUsageRecorder usageRecorder;
     private final OkHttpClient httpClient;
     private final ObjectMapper objectMapper;
     private final String openAiApiKey;
+    private final String openAiApiUrl;
 
-    public Gpt4oVisionFoodRecognitionService(String apiKey) {
-        this.httpClient = new OkHttpClient();
+    public Gpt4oVisionFoodRecognitionService(String apiKey, ProviderGuards providerGuards,
+                                             NutritionDictionary nutritionDictionary, ImagePreprocessor imagePreprocessor,
+                                             Gpt4oDetailPolicy detailPolicy, Gpt4oUsageRecorder usageRecorder) {
+        this.providerGuards = providerGuards;
+        this.nutritionDictionary = nutritionDictionary;
+        this.imagePreprocessor = imagePreprocessor;
+        this.detailPolicy = detailPolicy;
+        this.usageRecorder = usageRecorder;
+        this.httpClient = providerGuards.httpClient();
         this.objectMapper = new ObjectMapper();
         this.openAiApiKey = apiKey;
+        this.openAiApiUrl = providerGuards.baseUrl("gpt4o", OPENAI_BASE_URL) + "/v1/chat/completions";
 
         if (openAiApiKey == null || openAiApiKey.isBlank()) {
             logger.warn("GPT4O_API_KEY not set! Food recognition will use fallback data.");
@@ -50,113 +78,183 @@ public class Gpt4oVisionFoodRecognitionService implements FoodRecognitionService
         logger.info("Using OpenAI API key (first 10 chars): {}", openAiApiKey.substring(0, Math.min(10, openAiApiKey.length())));
 
         try {
-            byte[] imageBytes = imageFile.getBytes();
-            String base64Image = Base64.getEncoder().encodeToString(imageBytes);
-            logger.info("Image converted to base64, size: {} bytes", base64Image.length());
-
-            String prompt = "You are a nutrition expert specializing in Indian cuisine. Analyze the food in this image and identify the specific Indian dish. " +
-                    "If it's an Indian food, be very specific (e.g., 'Aloo Paratha', 'Masala Dosa', 'Butter Chicken', 'Dal Tadka'). " +
-                    "If it's not Indian food, identify it accurately. " +
-                    "Provide a JSON object with these exact fields: " +
-                    "{\"name\": \"exact food name\", \"estimated_calories\": number, \"protein_g\": number, \"carbs_g\": number, \"fat_g\": number, \"description\": \"brief description\"}. " +
-                    "Respond ONLY with the JSON object, no other text.";
-
-            ObjectNode requestBody = objectMapper.createObjectNode();
-            requestBody.put("model", MODEL);
-            requestBody.put("max_tokens", 500);
-            requestBody.put("temperature", 0.1);
-
-            ArrayNode messages = requestBody.putArray("messages");
-            ObjectNode message = messages.addObject();
-            message.put("role", "user");
-
-            ArrayNode content = message.putArray("content");
-
-            ObjectNode textContent = content.addObject();
-            textContent.put("type", "text");
-            textContent.put("text", prompt);
-
-            ObjectNode imageContent = content.addObject();
-            imageContent.put("type", "image_url");
-            ObjectNode imageUrl = imageContent.putObject("image_url");
-            imageUrl.put("url", "data:image/jpeg;base64," + base64Image);
-
-            logger.info("Sending request to OpenAI API...");
-            Request request = new Request.Builder()
-                    .url(OPENAI_API_URL)
-                    .addHeader("Authorization", "Bearer " + openAiApiKey)
-                    .addHeader("Content-Type", "application/json")
-                    .post(RequestBody.create(requestBody.toString(), MediaType.parse("application/json")))
-                    .build();
-
-            logger.info("Making API call to: {}", OPENAI_API_URL);
-            try (Response response = httpClient.newCall(request).execute()) {
-                logger.info("Received response from OpenAI. Status code: {}", response.code());
-                if (!response.isSuccessful()) {
-                    String errorBody = response.body() != null ? response.body().string() : "No error body";
-                    logger.error("OpenAI API error: {} - {}", response.code(), errorBody);
-                    return getFallbackResults();
-                }
+            String detail = detailPolicy.choose(imageFile.getSize());
+            FoodItem item = recognize(imageFile, detail);
+            if (Gpt4oDetailPolicy.LOW.equals(detail) && detailPolicy.isRetryUnconfident()
+                    && !detailPolicy.isConfident(item != null ? item.getConfidence() : null)) {
+                logger.info("Low-detail answer {} was not confident, asking again at {} detail",
+                    item != null ? "'" + item.getName() + "' (" + item.getConfidence() + ")" : "(none)",
+                    detailPolicy.getDefaultDetail());
+                item = recognize(imageFile, detailPolicy.getDefaultDetail());
+            }
+            if (item == null) {
+                return getFallbackResults();
+            }
+
+            logger.info("Successfully analyzed food: {} ({} calories)", item.getName(), item.getCalories());
+            return Collections.singletonList(item);
+        } catch (CircuitBreaker.CallNotPermittedException e) {
+            logger.warn("{}; using fallback results", e.getMessage());
+            return getFallbackResults();
+        } catch (IOException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                // Cancelled by the caller, e.g. an ensemble that already has its answer
+                logger.debug("OpenAI call cancelled");
+            } else {
+                logger.error("Error calling OpenAI API", e);
+            }
+            return getFallbackResults();
+        } catch (Exception e) {
+            logger.error("Error processing GPT-4o Vision response", e);
+            return getFallbackResults();
+        }
+    }
 
-                String responseBody = response.body().string();
-                logger.debug("OpenAI response: {}", responseBody);
+    /**
+     * One chat completion at the given detail, accounted and fed back to the detail policy; null when
+     * the answer was unusable
+     */
+    private FoodItem recognize(MultipartFile imageFile, String detail) throws Exception {
+        long uploadBytes = imageFile.getSize();
+        // Low detail is downscaled to 512px by OpenAI anyway, so there is no point uploading more
+        MultipartFile image = Gpt4oDetailPolicy.LOW.equals(detail)
+            ? imagePreprocessor.prepare(imageFile, detailPolicy.getLowMaxEdge()) : imageFile;
+        String contentType = image.getContentType() != null ? image.getContentType() : "image/jpeg";
+        logger.info("Sending image, size: {} bytes ({}, {} detail)", image.getSize(), contentType, detail);
 
-                JsonNode root = objectMapper.readTree(responseBody);
-                String contentText = root.path("choices").get(0).path("message").path("content").asText();
+        ObjectNode requestBody = objectMapper.createObjectNode();
+        requestBody.put("model", MODEL);
+        requestBody.put("max_tokens", 500);
+        requestBody.put("temperature", 0.1);
 
-                int start = contentText.indexOf("{");
-                int end = contentText.lastIndexOf("}");
-                if (start == -1 || end == -1) {
-                    logger.error("No JSON object found in GPT response: {}", contentText);
-                    return getFallbackResults();
-                }
+        ArrayNode messages = requestBody.putArray("messages");
+        ObjectNode message = messages.addObject();
+        message.put("role", "user");
 
-                String json = contentText.substring(start, end + 1);
-                logger.info("Extracted JSON from GPT response: {}", json);
+        ArrayNode content = message.putArray("content");
 
-                JsonNode foodNode = objectMapper.readTree(json);
+        ObjectNode textContent = content.addObject();
+        textContent.put("type", "text");
+        textContent.put("text", PROMPT);
 
-                FoodItem item = new FoodItem(
-                        foodNode.path("name").asText(),
-                        foodNode.path("estimated_calories").asInt(),
-                        foodNode.path("protein_g").asDouble(),
-                        foodNode.path("carbs_g").asDouble(),
-                        foodNode.path("fat_g").asDouble(),
-                        0.95
-                );
+        ObjectNode imageContent = content.addObject();
+        imageContent.put("type", "image_url");
+        ObjectNode imageUrl = imageContent.putObject("image_url");
+        imageUrl.put("url", "data:" + contentType + ";base64," + IMAGE_PLACEHOLDER);
+        if (!Gpt4oDetailPolicy.AUTO.equals(detail)) {
+            imageUrl.put("detail", detail);
+        }
 
-                logger.info("Successfully analyzed food: {} ({} calories)", item.getName(), item.getCalories());
-                return Collections.singletonList(item);
+        logger.info("Sending request to OpenAI API...");
+        Request request = new Request.Builder()
+                .url(openAiApiUrl)
+                .addHeader("Authorization", "Bearer " + openAiApiKey)
+                .addHeader("Content-Type", "application/json")
+                .post(Base64ImageBody.around(requestBody.toString(), IMAGE_PLACEHOLDER, image))
+                .build();
 
-            }
-        } catch (IOException e) {
-            logger.error("Error calling OpenAI API", e);
-            return getFallbackResults();
+        logger.info("Making API call to: {}", openAiApiUrl);
+        long start = System.nanoTime();
+        int[] status = new int[1];
+        String responseBody;
+        try {
+            responseBody = providerGuards.guard("gpt4o").call(() -> {
+                try (Response response = httpClient.newCall(request).execute()) {
+                    logger.info("Received response from OpenAI. Status code: {}", response.code());
+                    status[0] = response.code();
+                    if (!response.isSuccessful()) {
+                        String errorBody = response.body() != null ? response.body().string() : "No error body";
+                        logger.error("OpenAI API error: {} - {}", response.code(), errorBody);
+                        if (response.code() >= 500 || response.code() == 429) {
+                            throw new IOException("OpenAI API returned " + response.code());
+                        }
+                        return null;
+                    }
+                    return response.body().string();
+                }
+            });
+        } catch (CircuitBreaker.CallNotPermittedException e) {
+            throw e;
         } catch (Exception e) {
-            logger.error("Error processing GPT-4o Vision response", e);
-            return getFallbackResults();
+            // Sent (or at least attempted), so it shows up in the usage log even without tokens
+            usageRecorder.record(MODEL, detail, image.getSize(), status[0] != 0 ? status[0] : null, null,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            throw e;
+        }
+        long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (responseBody == null) {
+            usageRecorder.record(MODEL, detail, image.getSize(), status[0], null, latencyMs);
+            return null;
+        }
+        logger.debug("OpenAI response: {}", responseBody);
+
+        JsonNode root = objectMapper.readTree(responseBody);
+        ApiUsageRollupService.TokenUsage tokens = usageRecorder.record(MODEL, detail, image.getSize(), status[0],
+            root.path("usage"), latencyMs);
+        logger.info("GPT-4o call used {} prompt + {} completion tokens at {} detail (~${})",
+            tokens.promptTokens(), tokens.completionTokens(), detail, tokens.costMicroUsd() / 1_000_000.0);
+
+        FoodItem item = parseFoodItem(root);
+        detailPolicy.record(uploadBytes, item != null ? item.getConfidence() : null);
+        return item;
+    }
+
+    private FoodItem parseFoodItem(JsonNode root) throws IOException {
+        String contentText = root.path("choices").path(0).path("message").path("content").asText();
+
+        int start = contentText.indexOf("{");
+        int end = contentText.lastIndexOf("}");
+        if (start == -1 || end == -1) {
+            logger.error("No JSON object found in GPT response: {}", contentText);
+            return null;
+        }
+
+        String json = contentText.substring(start, end + 1);
+        logger.info("Extracted JSON from GPT response: {}", json);
+
+        JsonNode foodNode = objectMapper.readTree(json);
+
+        return new FoodItem(
+                foodNode.path("name").asText(),
+                foodNode.path("estimated_calories").asInt(),
+                foodNode.path("protein_g").asDouble(),
+                foodNode.path("carbs_g").asDouble(),
+                foodNode.path("fat_g").asDouble(),
+                confidence(foodNode.path("confidence"))
+        );
+    }
+
+    /**
+     * The model's own confidence, 0-1. It is asked for a number but sometimes answers in words;
+     * without one the answer counts as confident, as before it was asked
+     */
+    private static double confidence(JsonNode node) {
+        if (node.isNumber()) {
+            return Math.max(0, Math.min(1, node.asDouble()));
+        }
+        switch (node.asText("").trim().toLowerCase(Locale.ROOT)) {
+            case "high":
+                return 0.9;
+            case "medium":
+                return 0.6;
+            case "low":
+                return 0.3;
+            default:
+                double parsed = node.asDouble(-1);
+                return parsed >= 0 && parsed <= 1 ? parsed : 0.95;
         }
     }
 
     @Override
     public List<FoodItem> searchFoodByName(String query) {
         logger.info("Searching for food by name: {}", query);
-        String lowerQuery = query.toLowerCase();
-
-        if (lowerQuery.contains("aloo") && lowerQuery.contains("paratha")) {
-            return Collections.singletonList(new FoodItem("Aloo Paratha", 250, 6.0, 35, 8.0, 0.95));
-        } else if (lowerQuery.contains("dosa")) {
-            return Collections.singletonList(new FoodItem("Masala Dosa", 180, 4.5, 28, 5.0, 0.95));
-        } else if (lowerQuery.contains("biryani")) {
-            return Collections.singletonList(new FoodItem("Biryani", 350, 12.0, 45, 12.0, 0.95));
-        } else if (lowerQuery.contains("curry")) {
-            return Collections.singletonList(new FoodItem("Curry", 200, 10.0, 15, 10.0, 0.95));
-        }
-
-        return getFallbackResults();
+        // Name searches are answered from the nutrition dictionary; GPT-4o is only used for photos
+        List<FoodItem> localFoods = nutritionDictionary.search(query);
+        return localFoods.isEmpty() ? getFallbackResults() : localFoods;
     }
 
     private List<FoodItem> getFallbackResults() {
+        RecognitionFallback.mark();
         logger.info("Using fallback food data");
         return Arrays.asList(
                 new FoodItem("Aloo Paratha", 250, 6.0, 35, 8.0, 0.9),
@@ -0,0 +1,392 @@
+package com.mealplanner.service;
+
+import com.mealplanner.util.PerceptualHash;
+import com.mealplanner.util.RequestTrace;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shrinks uploads before they are base64-encoded for a vision API: decodes, applies the EXIF
+ * orientation, downscales so the longest edge is at most image.preprocess.max-edge and re-encodes
+ * as JPEG at image.preprocess.jpeg-quality.
+ *
+ * Images that are already small, upright JPEGs are passed through untouched, as are formats ImageIO
+ * cannot decode (HEIC, WebP), labelled with their real type. Decoding is limited to
+ * image.preprocess.max-concurrent at a time since a 12 MP photo needs ~50 MB of pixels.
+ */
+@Service
+public class ImagePreprocessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImagePreprocessor.class);
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int maxEdge;
+    private final float jpegQuality;
+    private final Semaphore decodePermits;
+
+    public ImagePreprocessor(MeterRegistry meterRegistry,
+                             @Value("${image.preprocess.enabled:true}") boolean enabled,
+                             @Value("${image.preprocess.max-edge:1024}") int maxEdge,
+                             @Value("${image.preprocess.jpeg-quality:0.85}") float jpegQuality,
+                             @Value("${image.preprocess.max-concurrent:4}") int maxConcurrent) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxEdge = maxEdge;
+        this.jpegQuality = jpegQuality;
+        this.decodePermits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * The upload ready to send: downscaled JPEG, or the original bytes when they cannot or need not change
+     */
+    public MultipartFile prepare(MultipartFile upload) throws IOException {
+        return prepare(upload, maxEdge);
+    }
+
+    /**
+     * As {@link #prepare(MultipartFile)}, with a different longest edge, e.g. for a low-detail request
+     * that the provider would downscale anyway
+     */
+    public MultipartFile prepare(MultipartFile upload, int maxEdge) throws IOException {
+        if (!enabled) {
+            try (InputStream input = upload.getInputStream()) {
+                return new PreparedImage(upload, null, detectContentType(input.readNBytes(16), upload.getContentType()), null);
+            }
+        }
+
+        byte[] original = upload.getBytes();
+        String originalType = detectContentType(original, upload.getContentType());
+        long start = System.nanoTime();
+        String outcome = "passthrough";
+        // Null until re-encoded: a passed-through image is streamed from the upload, not kept in memory
+        byte[] prepared = null;
+        String preparedType = originalType;
+        PerceptualHash perceptualHash = null;
+        try (RequestTrace.Phase phase = RequestTrace.phase("image")) {
+            Reencoded reencoded = reencode(original, originalType, maxEdge);
+            if (reencoded != null) {
+                prepared = reencoded.bytes();
+                preparedType = "image/jpeg";
+                perceptualHash = reencoded.perceptualHash();
+                outcome = "reencoded";
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to decode image", e);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not preprocess {} ({} bytes), sending it unchanged: {}",
+                originalType, original.length, e.getMessage());
+            outcome = "failed";
+        }
+
+        long preparedSize = prepared != null ? prepared.length : original.length;
+        Timer.builder("image.preprocess")
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("image.preprocess.bytes").baseUnit("bytes").tag("stage", "in")
+            .register(meterRegistry).record(original.length);
+        DistributionSummary.builder("image.preprocess.bytes").baseUnit("bytes").tag("stage", "out")
+            .register(meterRegistry).record(preparedSize);
+        logger.debug("Image {} -> {} bytes ({})", original.length, preparedSize, outcome);
+        return new PreparedImage(upload, prepared, preparedType, perceptualHash);
+    }
+
+    /**
+     * A smaller upright JPEG, or null when the original should be sent as is
+     */
+    private Reencoded reencode(byte[] original, String contentType, int maxEdge) throws IOException, InterruptedException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(original))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            decodePermits.acquire();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int orientation = "image/jpeg".equals(contentType) ? exifOrientation(original) : 1;
+                if ("image/jpeg".equals(contentType) && orientation == 1 && Math.max(width, height) <= maxEdge) {
+                    return null;
+                }
+
+                // Subsample while decoding so a large photo never needs its full-size pixel buffer
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(width, height) / (maxEdge * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage image = reader.read(0, param);
+
+                BufferedImage result = orient(scale(image, maxEdge), orientation);
+                byte[] encoded = encodeJpeg(result);
+                // Re-encoding a small image can make it bigger; only worth it if we had to rotate or convert
+                if (encoded.length >= original.length && orientation == 1 && "image/jpeg".equals(contentType)) {
+                    return null;
+                }
+                // The pixels are already decoded, so the result cache's hash comes almost for free
+                return new Reencoded(encoded, PerceptualHash.of(result));
+            } finally {
+                decodePermits.release();
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage image, int maxEdge) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double factor = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * factor));
+        int targetHeight = Math.max(1, (int) Math.round(height * factor));
+
+        // Halve repeatedly, then one final bilinear step: close to area averaging at a fraction of the cost
+        BufferedImage current = image;
+        do {
+            int nextWidth = Math.max(targetWidth, current.getWidth() / 2);
+            int nextHeight = Math.max(targetHeight, current.getHeight() / 2);
+            if (current.getWidth() < targetWidth * 2) {
+                nextWidth = targetWidth;
+                nextHeight = targetHeight;
+            }
+            current = draw(current, nextWidth, nextHeight, new AffineTransform(
+                (double) nextWidth / current.getWidth(), 0, 0, (double) nextHeight / current.getHeight(), 0, 0));
+        } while (current.getWidth() != targetWidth || current.getHeight() != targetHeight);
+        return current;
+    }
+
+    /**
+     * Apply an EXIF orientation (1-8) so the pixels are upright
+     */
+    static BufferedImage orient(BufferedImage image, int orientation) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        AffineTransform transform;
+        switch (orientation) {
+            case 2: transform = new AffineTransform(-1, 0, 0, 1, width, 0); break;
+            case 3: transform = new AffineTransform(-1, 0, 0, -1, width, height); break;
+            case 4: transform = new AffineTransform(1, 0, 0, -1, 0, height); break;
+            case 5: transform = new AffineTransform(0, 1, 1, 0, 0, 0); break;
+            case 6: transform = new AffineTransform(0, 1, -1, 0, height, 0); break;
+            case 7: transform = new AffineTransform(0, -1, -1, 0, height, width); break;
+            case 8: transform = new AffineTransform(0, -1, 1, 0, 0, width); break;
+            default: return image;
+        }
+        boolean swap = orientation >= 5;
+        return draw(image, swap ? height : width, swap ? width : height, transform);
+    }
+
+    /**
+     * Draw onto a fresh opaque RGB canvas (JPEG has no alpha; transparent areas become white)
+     */
+    private static BufferedImage draw(BufferedImage source, int width, int height, AffineTransform transform) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * The EXIF orientation tag of a JPEG, 1 (upright) when absent or unreadable
+     */
+    static int exifOrientation(byte[] jpeg) {
+        int offset = 2;
+        while (offset + 4 <= jpeg.length && (jpeg[offset] & 0xFF) == 0xFF) {
+            int marker = jpeg[offset + 1] & 0xFF;
+            int length = ((jpeg[offset + 2] & 0xFF) << 8) | (jpeg[offset + 3] & 0xFF);
+            if (marker == 0xDA || marker == 0xD9) {
+                break;
+            }
+            if (marker == 0xE1 && length >= 8 && offset + 2 + length <= jpeg.length
+                    && jpeg[offset + 4] == 'E' && jpeg[offset + 5] == 'x' && jpeg[offset + 6] == 'i' && jpeg[offset + 7] == 'f') {
+                return tiffOrientation(jpeg, offset + 10, offset + 2 + length);
+            }
+            offset += 2 + length;
+        }
+        return 1;
+    }
+
+    private static int tiffOrientation(byte[] data, int tiff, int end) {
+        if (tiff + 8 > end) {
+            return 1;
+        }
+        boolean littleEndian = data[tiff] == 'I' && data[tiff + 1] == 'I';
+        int ifd = tiff + readInt(data, tiff + 4, 4, littleEndian);
+        if (ifd < tiff || ifd + 2 > end) {
+            return 1;
+        }
+        int entries = readInt(data, ifd, 2, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > end) {
+                break;
+            }
+            if (readInt(data, entry, 2, littleEndian) == 0x0112) {
+                int orientation = readInt(data, entry + 8, 2, littleEndian);
+                return orientation >= 1 && orientation <= 8 ? orientation : 1;
+            }
+        }
+        return 1;
+    }
+
+    private static int readInt(byte[] data, int offset, int bytes, boolean littleEndian) {
+        int value = 0;
+        for (int i = 0; i < bytes; i++) {
+            int b = data[offset + (littleEndian ? bytes - 1 - i : i)] & 0xFF;
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+
+    /**
+     * The image type from its leading bytes, falling back to the declared type, then JPEG
+     */
+    static String detectContentType(byte[] data, String declared) {
+        if (data.length >= 3 && (data[0] & 0xFF) == 0xFF && (data[1] & 0xFF) == 0xD8 && (data[2] & 0xFF) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (data.length >= 8 && (data[0] & 0xFF) == 0x89 && data[1] == 'P' && data[2] == 'N' && data[3] == 'G') {
+            return "image/png";
+        }
+        if (data.length >= 6 && data[0] == 'G' && data[1] == 'I' && data[2] == 'F') {
+            return "image/gif";
+        }
+        if (data.length >= 12 && data[0] == 'R' && data[1] == 'I' && data[2] == 'F' && data[3] == 'F'
+                && data[8] == 'W' && data[9] == 'E' && data[10] == 'B' && data[11] == 'P') {
+            return "image/webp";
+        }
+        if (data.length >= 12 && data[4] == 'f' && data[5] == 't' && data[6] == 'y' && data[7] == 'p') {
+            String brand = new String(data, 8, 4, StandardCharsets.US_ASCII);
+            if (brand.startsWith("hei") || brand.startsWith("mif") || brand.startsWith("hev")) {
+                return "image/heic";
+            }
+        }
+        return declared != null && declared.startsWith("image/") ? declared : "image/jpeg";
+    }
+
+    private record Reencoded(byte[] bytes, PerceptualHash perceptualHash) {
+    }
+
+    /**
+     * The bytes to send with their real content type; everything else as uploaded. Without
+     * re-encoded bytes the content is read from the upload itself.
+     */
+    static class PreparedImage implements MultipartFile {
+        private final MultipartFile upload;
+        private final byte[] bytes;
+        private final String contentType;
+        private final PerceptualHash perceptualHash;
+
+        PreparedImage(MultipartFile upload, byte[] bytes, String contentType, PerceptualHash perceptualHash) {
+            this.upload = upload;
+            this.bytes = bytes;
+            this.contentType = contentType;
+            this.perceptualHash = perceptualHash;
+        }
+
+        /**
+         * Hash of the re-encoded pixels, or null when the upload was passed through
+         */
+        PerceptualHash getPerceptualHash() {
+            return perceptualHash;
+        }
+
+        @Override
+        public String getName() {
+            return upload.getName();
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return upload.getOriginalFilename();
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return bytes != null ? bytes.length == 0 : upload.isEmpty();
+        }
+
+        @Override
+        public long getSize() {
+            return bytes != null ? bytes.length : upload.getSize();
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            return bytes != null ? bytes : upload.getBytes();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return bytes != null ? new ByteArrayInputStream(bytes) : upload.getInputStream();
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            if (bytes != null) {
+                Files.write(dest.toPath(), bytes);
+            } else {
+                upload.transferTo(dest);
+            }
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.mealplanner.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mealplanner.service.FoodRecognitionService.FoodItem;
+import com.mealplanner.util.NutritionixParser;
+import com.mealplanner.util.ProviderGuards;
+import com.mealplanner.util.RequestTrace;
+import com.mealplanner.util.TtlCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves nutrition for all food labels detected in one image.
+ *
+ * Labels are looked up in the {@link NutritionDictionary} and in a shared cache first; whatever is
+ * left goes to Nutritionix as a single natural/nutrients query. Labels the batch could not match
+ * (or all of them, if the batch call fails) are looked up in parallel with instant search.
+ *
+ * Both stages share one deadline (nutrition.batch.timeout-ms). Labels still being looked up when it
+ * passes come back as pending items rather than holding up the response; their lookups finish in
+ * the background and fill the cache for the next photo.
+ */
+@Service
+public class NutritionBatchResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(NutritionBatchResolver.class);
+
+    private static final String NUTRITIONIX_BASE_URL = "https://trackapi.nutritionix.com";
+
+    private final String nutritionixAppId;
+    private final String nutritionixAppKey;
+    private final long lookupTimeoutMs;
+    private final String naturalUrl;
+    private final String searchUrl;
+
+    private final ProviderGuards providerGuards;
+    private final NutritionDictionary nutritionDictionary;
+    private final MeterRegistry meterRegistry;
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final NutritionixParser nutritionixParser = new NutritionixParser(objectMapper);
+    private final ExecutorService lookupExecutor;
+
+    // normalized label -> resolved item, shared by all recognizers
+    private final TtlCache<String, FoodItem> nutritionCache;
+
+    @Autowired
+    public NutritionBatchResolver(ProviderGuards providerGuards, NutritionDictionary nutritionDictionary,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${nutritionix.app.id:}") String nutritionixAppId,
+                                  @Value("${nutritionix.app.key:}") String nutritionixAppKey,
+                                  @Value("${nutrition.batch.cache.max-entries:5000}") int cacheMaxEntries,
+                                  @Value("${nutrition.batch.cache.ttl-hours:24}") long cacheTtlHours,
+                                  @Value("${nutrition.batch.pool-size:8}") int poolSize,
+                                  @Value("${nutrition.batch.timeout-ms:8000}") long lookupTimeoutMs) {
+        this.providerGuards = providerGuards;
+        this.nutritionDictionary = nutritionDictionary;
+        this.meterRegistry = meterRegistry;
+        this.restTemplate = providerGuards.restTemplate();
+        this.nutritionixAppId = nutritionixAppId;
+        this.nutritionixAppKey = nutritionixAppKey;
+        this.lookupTimeoutMs = lookupTimeoutMs;
+        String baseUrl = providerGuards.baseUrl("nutritionix", NUTRITIONIX_BASE_URL);
+        this.naturalUrl = baseUrl + "/v2/natural/nutrients";
+        this.searchUrl = baseUrl + "/v2/search/instant";
+        this.nutritionCache = new TtlCache<>(cacheMaxEntries, TimeUnit.HOURS.toMillis(cacheTtlHours));
+        AtomicInteger counter = new AtomicInteger();
+        this.lookupExecutor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "nutrition-lookup-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lookupExecutor.shutdownNow();
+    }
+
+    /**
+     * Resolve every detected label, in detection order; labels with no nutrition data are left out, and
+     * labels not resolved by the deadline are included as {@link FoodItem#isPending() pending} items.
+     * Each item carries its label's detection confidence.
+     */
+    public List<FoodItem> resolve(Map<String, Double> detections) {
+        Map<String, Double> confidences = new HashMap<>();
+        detections.forEach((label, confidence) -> {
+            if (label != null && !label.isBlank()) {
+                confidences.merge(normalize(label), confidence, Math::max);
+            }
+        });
+        List<FoodItem> items = new ArrayList<>();
+        resolveByLabel(detections.keySet()).forEach((label, item) -> {
+            // Cached items are shared, so the confidence goes on a copy
+            FoodItem scored = new FoodItem(item.getName(), item.getCalories(), item.getProtein(), item.getCarbs(),
+                item.getFat(), confidences.getOrDefault(label, item.getConfidence()));
+            scored.setPending(item.isPending());
+            items.add(scored);
+        });
+        return items;
+    }
+
+    /**
+     * Normalized label -> resolved or pending item, in detection order
+     */
+    private Map<String, FoodItem> resolveByLabel(Collection<String> labels) {
+        long deadline = System.currentTimeMillis() + lookupTimeoutMs;
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String label : labels) {
+            if (label != null && !label.isBlank()) {
+                normalized.add(normalize(label));
+            }
+        }
+
+        Map<String, FoodItem> resolved = new HashMap<>();
+        List<String> unresolved = new ArrayList<>();
+        for (String label : normalized) {
+            FoodItem item = nutritionDictionary.lookup(label);
+            if (item != null) {
+                countLabel("dictionary");
+            } else if ((item = nutritionCache.get(label)) != null) {
+                countLabel("cache");
+            }
+            if (item != null) {
+                resolved.put(label, item);
+            } else {
+                unresolved.add(label);
+            }
+        }
+
+        Set<String> pending = Set.of();
+        if (!unresolved.isEmpty()) {
+            logger.info("Resolving nutrition for {} of {} labels via Nutritionix", unresolved.size(), normalized.size());
+            try (RequestTrace.Phase phase = RequestTrace.phase("ext.nutritionix")) {
+                pending = fetch(unresolved, deadline, resolved);
+            }
+            for (String label : unresolved) {
+                countLabel(resolved.containsKey(label) ? "nutritionix" : pending.contains(label) ? "pending" : "missing");
+            }
+        }
+
+        Map<String, FoodItem> items = new LinkedHashMap<>();
+        for (String label : normalized) {
+            FoodItem item = resolved.get(label);
+            if (item != null) {
+                items.put(label, item);
+            } else if (pending.contains(label)) {
+                items.put(label, pendingItem(label));
+            }
+        }
+        return items;
+    }
+
+    public TtlCache<String, FoodItem> getNutritionCache() {
+        return nutritionCache;
+    }
+
+    public ExecutorService getLookupExecutor() {
+        return lookupExecutor;
+    }
+
+    /**
+     * One natural/nutrients call for all labels; returns label -> item for the foods Nutritionix matched
+     */
+    private Map<String, FoodItem> fetchBatch(List<String> labels) {
+        try {
+            Map<String, Object> requestBody = new HashMap<>();
+            // One food per line so Nutritionix does not merge neighbouring labels into one food
+            requestBody.put("query", String.join("\n", labels));
+
+            HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, nutritionixHeaders());
+
+            String body = providerGuards.guard("nutritionix").callHedged(() -> {
+                try {
+                    ResponseEntity<String> response = restTemplate.exchange(
+                        naturalUrl, HttpMethod.POST, request, String.class);
+                    return response.getBody();
+                } catch (HttpClientErrorException.NotFound e) {
+                    // "We couldn't match any of your foods" - not a provider failure
+                    return null;
+                }
+            });
+
+            return body != null ? nutritionixParser.matchNaturalFoods(labels, body) : new HashMap<>();
+        } catch (Exception e) {
+            logger.warn("Batched Nutritionix lookup failed, falling back to per-label search: {}", e.getMessage());
+            return new HashMap<>();
+        }
+    }
+
+    /**
+     * The batch call, then instant search for the labels it missed, all within the deadline; adds what
+     * arrived in time to resolved and returns the labels still being looked up
+     */
+    private Set<String> fetch(List<String> labels, long deadline, Map<String, FoodItem> resolved) {
+        // Late answers are not wasted: whatever completes after the deadline still fills the cache
+        CompletableFuture<Map<String, FoodItem>> batch = CompletableFuture
+            .supplyAsync(() -> fetchBatch(labels), lookupExecutor)
+            .whenComplete((fetched, e) -> {
+                if (fetched != null) {
+                    fetched.forEach(nutritionCache::put);
+                }
+            });
+        Map<String, FoodItem> fetched = await(batch, deadline);
+        if (!batch.isDone()) {
+            logger.warn("Batched Nutritionix lookup still running at the deadline, {} labels pending", labels.size());
+            return new LinkedHashSet<>(labels);
+        }
+        if (fetched != null) {
+            resolved.putAll(fetched);
+        }
+
+        Map<String, CompletableFuture<FoodItem>> lookups = new LinkedHashMap<>();
+        for (String label : labels) {
+            if (!resolved.containsKey(label)) {
+                lookups.put(label, CompletableFuture.supplyAsync(() -> searchInstant(label), lookupExecutor)
+                    .whenComplete((item, e) -> {
+                        if (item != null) {
+                            nutritionCache.put(label, item);
+                        }
+                    }));
+            }
+        }
+
+        Set<String> pending = new LinkedHashSet<>();
+        for (Map.Entry<String, CompletableFuture<FoodItem>> lookup : lookups.entrySet()) {
+            FoodItem item = await(lookup.getValue(), deadline);
+            if (item != null) {
+                resolved.put(lookup.getKey(), item);
+            } else if (!lookup.getValue().isDone()) {
+                pending.add(lookup.getKey());
+            }
+        }
+        if (!pending.isEmpty()) {
+            logger.warn("Nutrition lookup still running at the deadline for: {}", pending);
+        }
+        return pending;
+    }
+
+    /**
+     * The future's value, or null if it failed or is still running at the deadline
+     */
+    private static <T> T await(CompletableFuture<T> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            logger.error("Nutrition lookup failed: {}", e.getCause().getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stands in for a label whose nutrition is still being looked up
+     */
+    private static FoodItem pendingItem(String label) {
+        FoodItem item = new FoodItem(label.substring(0, 1).toUpperCase() + label.substring(1), 0, 0, 0, 0, 0.95);
+        item.setPending(true);
+        return item;
+    }
+
+    private void countLabel(String source) {
+        Counter.builder("nutrition.labels")
+            .description("Detected food labels by where their nutrition came from")
+            .tag("source", source)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private FoodItem searchInstant(String label) {
+        try {
+            Map<String, Object> requestBody = new HashMap<>();
+            requestBody.put("query", label);
+            requestBody.put("detailed", true);
+
+            HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, nutritionixHeaders());
+
+            ResponseEntity<String> response = providerGuards.guard("nutritionix").callHedged(() ->
+                restTemplate.exchange(searchUrl, HttpMethod.POST, request, String.class)
+            );
+            if (response.getBody() == null) {
+                return null;
+            }
+
+            JsonNode root = objectMapper.readTree(response.getBody());
+            for (String section : List.of("common", "branded")) {
+                JsonNode items = root.path(section);
+                if (items.isArray() && items.size() > 0) {
+                    return nutritionixParser.parseInstantItem(items.get(0), "branded".equals(section));
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error searching Nutritionix for {}: {}", label, e.getMessage());
+        }
+        return null;
+    }
+
+    private HttpHeaders nutritionixHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("x-app-id", nutritionixAppId);
+        headers.set("x-app-key", nutritionixAppKey);
+        return headers;
+    }
+
+    private static String normalize(String label) {
+        return label.trim().toLowerCase().replaceAll("\\s+", " ");
+    }
+}
@@ -0,0 +1,274 @@
+package com.mealplanner.service;
+
+import com.mealplanner.service.FoodRecognitionService.FoodItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Nutrition per typical serving for the foods in a bundled data file (nutrition.dictionary.location),
+ * shared by every recognizer so known foods are answered locally before a provider is paid for.
+ *
+ * Names and aliases are normalized (lower case, punctuation and spacing collapsed) into one sorted
+ * key array, so exact lookups and prefix searches are binary searches, and a token index maps each
+ * word to the keys containing it. Nutrients sit in a single float array, four per food.
+ */
+@Service
+public class NutritionDictionary {
+
+    private static final Logger logger = LoggerFactory.getLogger(NutritionDictionary.class);
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int NUTRIENTS = 4; // calories, protein, carbs, fat
+    private static final double CONFIDENCE = 0.95;
+
+    private final int searchLimit;
+    // Per food
+    private final String[] names;
+    private final float[] nutrients;
+    // Per key (normalized name or alias), sorted
+    private final String[] keys;
+    private final int[] keyFood;
+    private final byte[] keyWords;
+    // word -> indexes of the keys containing it, ascending
+    private final Map<String, int[]> tokenIndex;
+
+    public NutritionDictionary(@Value("${nutrition.dictionary.location:classpath:nutrition/foods.txt}") Resource location,
+                               @Value("${nutrition.dictionary.search-limit:10}") int searchLimit) {
+        this.searchLimit = searchLimit;
+        long start = System.nanoTime();
+
+        List<String> foodNames = new ArrayList<>();
+        float[] values = new float[NUTRIENTS * 512];
+        TreeMap<String, Integer> sortedKeys = new TreeMap<>();
+        int duplicates = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(location.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\|", -1);
+                if (fields.length < 5 || fields[0].isBlank()) {
+                    logger.warn("Skipping malformed nutrition dictionary line {}: {}", lineNumber, line);
+                    continue;
+                }
+                float[] parsed = new float[NUTRIENTS];
+                try {
+                    for (int i = 0; i < NUTRIENTS; i++) {
+                        parsed[i] = Float.parseFloat(fields[i + 1].trim());
+                    }
+                } catch (NumberFormatException e) {
+                    logger.warn("Skipping nutrition dictionary line {} with a bad number: {}", lineNumber, line);
+                    continue;
+                }
+
+                int food = foodNames.size();
+                foodNames.add(fields[0].trim());
+                if ((food + 1) * NUTRIENTS > values.length) {
+                    values = Arrays.copyOf(values, values.length * 2);
+                }
+                System.arraycopy(parsed, 0, values, food * NUTRIENTS, NUTRIENTS);
+
+                List<String> aliases = new ArrayList<>();
+                aliases.add(fields[0]);
+                if (fields.length > 5) {
+                    aliases.addAll(Arrays.asList(fields[5].split(",")));
+                }
+                for (String alias : aliases) {
+                    String key = normalize(alias);
+                    if (key.isEmpty()) {
+                        continue;
+                    }
+                    // The first food to claim a name keeps it
+                    if (sortedKeys.putIfAbsent(key, food) != null && sortedKeys.get(key) != food) {
+                        duplicates++;
+                        logger.debug("Nutrition dictionary name '{}' on line {} is already taken", key, lineNumber);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not load the nutrition dictionary from " + location, e);
+        }
+
+        this.names = foodNames.toArray(new String[0]);
+        this.nutrients = Arrays.copyOf(values, names.length * NUTRIENTS);
+        this.keys = sortedKeys.keySet().toArray(new String[0]);
+        this.keyFood = sortedKeys.values().stream().mapToInt(Integer::intValue).toArray();
+
+        this.keyWords = new byte[keys.length];
+        Map<String, List<Integer>> postings = new HashMap<>();
+        for (int k = 0; k < keys.length; k++) {
+            Set<String> words = new LinkedHashSet<>(Arrays.asList(keys[k].split(" ")));
+            keyWords[k] = (byte) Math.min(words.size(), Byte.MAX_VALUE);
+            for (String token : words) {
+                postings.computeIfAbsent(token, t -> new ArrayList<>()).add(k);
+            }
+        }
+        this.tokenIndex = new HashMap<>(postings.size() * 4 / 3 + 1);
+        postings.forEach((token, list) -> tokenIndex.put(token, list.stream().mapToInt(Integer::intValue).toArray()));
+
+        logger.info("Loaded nutrition dictionary: {} foods, {} names, {} words in {} ms{}", names.length, keys.length,
+            tokenIndex.size(), (System.nanoTime() - start) / 1_000_000,
+            duplicates > 0 ? " (" + duplicates + " duplicate names ignored)" : "");
+    }
+
+    /**
+     * The food with exactly this name or alias (ignoring case and punctuation), or null
+     */
+    public FoodItem lookup(String name) {
+        if (name == null) {
+            return null;
+        }
+        int k = Arrays.binarySearch(keys, normalize(name));
+        return k >= 0 ? toFoodItem(keyFood[k]) : null;
+    }
+
+    /**
+     * Foods matching a free-text query, best first, at most nutrition.dictionary.search-limit:
+     * an exact name, then names starting with the query, then names containing every word of it,
+     * then foods named within the query ("chicken biryani with raita" finds both)
+     */
+    public List<FoodItem> search(String query) {
+        if (query == null) {
+            return List.of();
+        }
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        Set<Integer> foods = new LinkedHashSet<>();
+
+        int k = Arrays.binarySearch(keys, normalized);
+        if (k >= 0) {
+            foods.add(keyFood[k]);
+        }
+
+        List<Integer> prefixed = new ArrayList<>();
+        for (int i = k >= 0 ? k + 1 : -k - 1; i < keys.length && keys[i].startsWith(normalized); i++) {
+            prefixed.add(i);
+        }
+        addKeys(foods, prefixed, Comparator.comparingInt(i -> keys[i].length()));
+
+        String[] words = normalized.split(" ");
+        Set<String> queryWords = new HashSet<>(Arrays.asList(words));
+        addKeys(foods, containingAll(queryWords), Comparator.comparingInt(i -> keys[i].length()));
+
+        // Keys all of whose words are in the query: counted across the query words' postings; longest (most specific) first
+        Map<Integer, Integer> shared = new HashMap<>();
+        for (String word : queryWords) {
+            for (int posting : tokenIndex.getOrDefault(word, new int[0])) {
+                shared.merge(posting, 1, Integer::sum);
+            }
+        }
+        List<Integer> within = new ArrayList<>();
+        shared.forEach((key, count) -> {
+            if (count == keyWords[key]) {
+                within.add(key);
+            }
+        });
+        addKeys(foods, within, Comparator.comparingInt((Integer i) -> keys[i].length()).reversed()
+            .thenComparing(i -> keys[i]));
+
+        return foods.stream().limit(searchLimit).map(this::toFoodItem).toList();
+    }
+
+    public int getFoodCount() {
+        return names.length;
+    }
+
+    public int getNameCount() {
+        return keys.length;
+    }
+
+    /**
+     * Lower case with runs of punctuation and whitespace collapsed to one space
+     */
+    public static String normalize(String name) {
+        return NON_WORD.matcher(name.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private void addKeys(Set<Integer> foods, List<Integer> keyIndexes, Comparator<Integer> order) {
+        if (foods.size() >= searchLimit) {
+            return;
+        }
+        keyIndexes.sort(order);
+        for (int i : keyIndexes) {
+            foods.add(keyFood[i]);
+        }
+    }
+
+    /**
+     * Keys containing every word, by intersecting the words' postings from the rarest up
+     */
+    private List<Integer> containingAll(Set<String> words) {
+        List<int[]> lists = new ArrayList<>();
+        for (String word : words) {
+            int[] posting = tokenIndex.get(word);
+            if (posting == null) {
+                return new ArrayList<>();
+            }
+            lists.add(posting);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.length));
+        int[] result = lists.get(0);
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, lists.get(i));
+        }
+        List<Integer> keyIndexes = new ArrayList<>(result.length);
+        for (int key : result) {
+            keyIndexes.add(key);
+        }
+        return keyIndexes;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int n = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private FoodItem toFoodItem(int food) {
+        int offset = food * NUTRIENTS;
+        return new FoodItem(names[food], nutrient(offset), nutrient(offset + 1), nutrient(offset + 2),
+            nutrient(offset + 3), CONFIDENCE);
+    }
+
+    private double nutrient(int index) {
+        // Back to the file's precision, so 0.3 is not served as 0.30000001
+        return Math.round(nutrients[index] * 100) / 100.0;
+    }
+}
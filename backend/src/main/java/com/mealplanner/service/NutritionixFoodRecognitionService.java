@@ -2,6 +2,7 @@ package com.mealplanner.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mealplanner.util.ProviderGuards;
 import org.springframework.http.*;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
@@ -17,16 +18,23 @@ public class NutritionixFoodRecognitionService implements FoodRecognitionService
     private final String nutritionixAppId;
     private final String nutritionixAppKey;
     
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final ProviderGuards providerGuards;
+    private final NutritionDictionary nutritionDictionary;
+    private final RestTemplate restTemplate;
+    private final String nutritionixSearchUrl;
     private final ObjectMapper objectMapper = new ObjectMapper();
     
     // Nutritionix API endpoints
-    private static final String NUTRITIONIX_SEARCH_URL = "https://trackapi.nutritionix.com/v2/search/instant";
-    private static final String NUTRITIONIX_NATURAL_URL = "https://trackapi.nutritionix.com/v2/natural/nutrients";
+    private static final String NUTRITIONIX_BASE_URL = "https://trackapi.nutritionix.com";
     
-    public NutritionixFoodRecognitionService(String nutritionixAppId, String nutritionixAppKey) {
+    public NutritionixFoodRecognitionService(String nutritionixAppId, String nutritionixAppKey,
+                                             ProviderGuards providerGuards, NutritionDictionary nutritionDictionary) {
         this.nutritionixAppId = nutritionixAppId;
         this.nutritionixAppKey = nutritionixAppKey;
+        this.providerGuards = providerGuards;
+        this.nutritionDictionary = nutritionDictionary;
+        this.restTemplate = providerGuards.restTemplate();
+        this.nutritionixSearchUrl = providerGuards.baseUrl("nutritionix", NUTRITIONIX_BASE_URL) + "/v2/search/instant";
     }
     
     @Override
@@ -48,6 +56,12 @@ public class NutritionixFoodRecognitionService implements FoodRecognitionService
     public List<FoodItem> searchFoodByName(String query) {
         logger.info("Searching for food: {}", query);
         
+        List<FoodItem> localFoods = nutritionDictionary.search(query);
+        if (!localFoods.isEmpty()) {
+            logger.info("Found {} local foods for query: {}", localFoods.size(), query);
+            return localFoods;
+        }
+        
         try {
             // Set up headers for Nutritionix API
             HttpHeaders headers = new HttpHeaders();
@@ -63,11 +77,13 @@ public class NutritionixFoodRecognitionService implements FoodRecognitionService
             HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
             
             // Make API call
-            ResponseEntity<String> response = restTemplate.exchange(
-                NUTRITIONIX_SEARCH_URL,
-                HttpMethod.POST,
-                request,
-                String.class
+            ResponseEntity<String> response = providerGuards.guard("nutritionix").callHedged(() ->
+                restTemplate.exchange(
+                    nutritionixSearchUrl,
+                    HttpMethod.POST,
+                    request,
+                    String.class
+                )
             );
             
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
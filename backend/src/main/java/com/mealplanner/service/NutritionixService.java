@@ -5,8 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mealplanner.dto.MealDto;
 import com.mealplanner.entity.Recipe;
 import com.mealplanner.repository.RecipeRepository;
-import com.mealplanner.repository.ApiUsageLogRepository;
-import com.mealplanner.entity.ApiUsageLog;
+import com.mealplanner.util.ProviderGuards;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -15,7 +14,6 @@ import org.springframework.http.*;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
-import java.time.LocalDateTime;
 import java.util.*;
 
 @Service
@@ -25,7 +23,7 @@ public class NutritionixService {
     private RecipeRepository recipeRepository;
     
     @Autowired
-    private ApiUsageLogRepository apiUsageLogRepository;
+    private ApiUsageLogWriter usageLogWriter;
     
     @Value("${nutritionix.app.id}")
     private String appId;
@@ -33,11 +31,14 @@ public class NutritionixService {
     @Value("${nutritionix.app.key}")
     private String appKey;
     
+    private final ProviderGuards providerGuards;
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
     
-    public NutritionixService() {
-        this.restTemplate = new RestTemplate();
+    @Autowired
+    public NutritionixService(ProviderGuards providerGuards) {
+        this.providerGuards = providerGuards;
+        this.restTemplate = providerGuards.restTemplate();
         this.objectMapper = new ObjectMapper();
     }
     
@@ -46,19 +47,12 @@ public class NutritionixService {
      */
     public List<MealDto> searchRecipes(String query, String mealType, Integer maxCalories, String diet) {
         try {
-            // Log API usage
-            ApiUsageLog log = new ApiUsageLog();
-            log.setApiName("NUTRITIONIX");
-            log.setEndpoint("/v2/search/instant");
+            // Request data for the usage log; serialized to JSON by the log writer
             Map<String, Object> requestDataMap = new HashMap<>();
             requestDataMap.put("query", query);
             requestDataMap.put("mealType", mealType);
             requestDataMap.put("maxCalories", maxCalories);
             requestDataMap.put("diet", diet);
-            // Convert Map to JSON string for JSONB column
-            String requestDataJson = objectMapper.writeValueAsString(requestDataMap);
-            log.setRequestData(requestDataJson);
-            log.setCreatedAt(LocalDateTime.now());
             
             long startTime = System.currentTimeMillis();
             
@@ -77,13 +71,12 @@ public class NutritionixService {
             
             // Make API call
             String url = "https://trackapi.nutritionix.com/v2/search/instant";
-            ResponseEntity<String> response = restTemplate.exchange(
-                url, HttpMethod.POST, entity, String.class);
+            ResponseEntity<String> response = providerGuards.guard("nutritionix").callHedged(() ->
+                restTemplate.exchange(url, HttpMethod.POST, entity, String.class));
             
             // Log response
-            log.setResponseStatus(response.getStatusCode().value());
-            log.setResponseTimeMs((int) (System.currentTimeMillis() - startTime));
-            apiUsageLogRepository.save(log);
+            usageLogWriter.record("NUTRITIONIX", "/v2/search/instant", null, requestDataMap,
+                response.getStatusCode().value(), System.currentTimeMillis() - startTime);
             
             if (response.getStatusCode().is2xxSuccessful()) {
                 return parseNutritionixResponse(response.getBody(), mealType);
@@ -104,18 +97,11 @@ public class NutritionixService {
      */
     public MealDto getDetailedNutrition(String foodName, Integer quantity, String unit) {
         try {
-            // Log API usage
-            ApiUsageLog log = new ApiUsageLog();
-            log.setApiName("NUTRITIONIX");
-            log.setEndpoint("/v2/natural/nutrients");
+            // Request data for the usage log; serialized to JSON by the log writer
             Map<String, Object> requestDataMap = new HashMap<>();
             requestDataMap.put("foodName", foodName);
             requestDataMap.put("quantity", quantity);
             requestDataMap.put("unit", unit);
-            // Convert Map to JSON string for JSONB column
-            String requestDataJson = objectMapper.writeValueAsString(requestDataMap);
-            log.setRequestData(requestDataJson);
-            log.setCreatedAt(LocalDateTime.now());
             
             long startTime = System.currentTimeMillis();
             
@@ -134,13 +120,12 @@ public class NutritionixService {
             
             // Make API call
             String url = "https://trackapi.nutritionix.com/v2/natural/nutrients";
-            ResponseEntity<String> response = restTemplate.exchange(
-                url, HttpMethod.POST, entity, String.class);
+            ResponseEntity<String> response = providerGuards.guard("nutritionix").callHedged(() ->
+                restTemplate.exchange(url, HttpMethod.POST, entity, String.class));
             
             // Log response
-            log.setResponseStatus(response.getStatusCode().value());
-            log.setResponseTimeMs((int) (System.currentTimeMillis() - startTime));
-            apiUsageLogRepository.save(log);
+            usageLogWriter.record("NUTRITIONIX", "/v2/natural/nutrients", null, requestDataMap,
+                response.getStatusCode().value(), System.currentTimeMillis() - startTime);
             
             if (response.getStatusCode().is2xxSuccessful()) {
                 return parseNutritionixNutrientsResponse(response.getBody());
@@ -0,0 +1,148 @@
+package com.mealplanner.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of api_usage_logs and ai_conversations in step with the calendar.
+ *
+ * Partitions for the current month and the next few are created ahead of time so inserts never
+ * hit a missing range; months older than each table's retention are dropped, or detached and moved
+ * to the archive schema. Tables that have not been converted (see database/partitioning.sql) are skipped.
+ */
+@Service
+public class PartitionMaintenanceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionMaintenanceService.class);
+
+    private static final String PARTITIONED_SQL =
+        "SELECT count(*) FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid " +
+        "WHERE c.relname = ? AND c.relnamespace = to_regnamespace(current_schema())";
+
+    private static final String PARTITIONS_SQL =
+        "SELECT child.relname FROM pg_inherits i " +
+        "JOIN pg_class parent ON parent.oid = i.inhparent " +
+        "JOIN pg_class child ON child.oid = i.inhrelid " +
+        "WHERE parent.relname = ? AND parent.relnamespace = to_regnamespace(current_schema())";
+
+    public enum ExpiredAction {
+        /** Drop expired partitions */
+        DROP,
+        /** Detach expired partitions and move them to the archive schema */
+        ARCHIVE
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${partitions.enabled:true}")
+    private boolean enabled;
+
+    @Value("${partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${partitions.expired-action:DROP}")
+    private ExpiredAction expiredAction;
+
+    @Value("${partitions.archive-schema:archive}")
+    private String archiveSchema;
+
+    @Value("${partitions.api-usage-logs.retention-months:6}")
+    private int apiUsageLogsRetentionMonths;
+
+    @Value("${partitions.ai-conversations.retention-months:12}")
+    private int aiConversationsRetentionMonths;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        scheduledMaintenance();
+    }
+
+    @Scheduled(cron = "${partitions.maintenance-cron:0 5 0 * * *}")
+    public void scheduledMaintenance() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            maintain(YearMonth.now());
+        } catch (Exception e) {
+            logger.error("Partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Create upcoming partitions and expire old ones; returns table -> actions taken
+     */
+    public Map<String, List<String>> maintain(YearMonth currentMonth) {
+        Map<String, List<String>> report = new LinkedHashMap<>();
+        report.put("api_usage_logs", maintainTable("api_usage_logs", apiUsageLogsRetentionMonths, currentMonth));
+        report.put("ai_conversations", maintainTable("ai_conversations", aiConversationsRetentionMonths, currentMonth));
+        return report;
+    }
+
+    private List<String> maintainTable(String table, int retentionMonths, YearMonth currentMonth) {
+        List<String> actions = new ArrayList<>();
+        Integer partitioned = jdbcTemplate.queryForObject(PARTITIONED_SQL, Integer.class, table);
+        if (partitioned == null || partitioned == 0) {
+            logger.warn("{} is not partitioned; run database/partitioning.sql to enable monthly partitions", table);
+            return actions;
+        }
+
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = currentMonth.plusMonths(i);
+            String partition = partitionName(table, month);
+            jdbcTemplate.execute(String.format(
+                "CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')",
+                partition, table, month.atDay(1), month.plusMonths(1).atDay(1)));
+        }
+
+        // Keep the current month plus retentionMonths full months before it
+        YearMonth oldestKept = currentMonth.minusMonths(retentionMonths);
+        Pattern pattern = Pattern.compile("^" + table + "_p(\\d{4})_(\\d{2})$");
+        for (String partition : jdbcTemplate.queryForList(PARTITIONS_SQL, String.class, table)) {
+            Matcher matcher = pattern.matcher(partition);
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            if (month.isBefore(oldestKept)) {
+                expire(table, partition);
+                actions.add((expiredAction == ExpiredAction.DROP ? "dropped " : "archived ") + partition);
+            }
+        }
+
+        if (!actions.isEmpty()) {
+            logger.info("Partition maintenance for {}: {}", table, actions);
+        }
+        return actions;
+    }
+
+    private void expire(String table, String partition) {
+        if (expiredAction == ExpiredAction.ARCHIVE) {
+            jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + archiveSchema);
+            jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition);
+            jdbcTemplate.execute("ALTER TABLE " + partition + " SET SCHEMA " + archiveSchema);
+        } else {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+        }
+    }
+
+    static String partitionName(String table, YearMonth month) {
+        return String.format("%s_p%04d_%02d", table, month.getYear(), month.getMonthValue());
+    }
+}
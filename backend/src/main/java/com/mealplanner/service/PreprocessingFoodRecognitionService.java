@@ -0,0 +1,43 @@
+package com.mealplanner.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Runs every uploaded image through {@link ImagePreprocessor} before the configured recognizer
+ * sees it; name searches pass straight through.
+ */
+public class PreprocessingFoodRecognitionService implements FoodRecognitionService {
+
+    private final FoodRecognitionService delegate;
+    private final ImagePreprocessor imagePreprocessor;
+
+    public PreprocessingFoodRecognitionService(FoodRecognitionService delegate, ImagePreprocessor imagePreprocessor) {
+        this.delegate = delegate;
+        this.imagePreprocessor = imagePreprocessor;
+    }
+
+    @Override
+    public List<FoodItem> analyzeFoodImage(MultipartFile imageFile) {
+        try {
+            return delegate.analyzeFoodImage(imagePreprocessor.prepare(imageFile));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read uploaded image", e);
+        }
+    }
+
+    @Override
+    public List<FoodItem> searchFoodByName(String query) {
+        return delegate.searchFoodByName(query);
+    }
+
+    /**
+     * The recognizer doing the actual work, e.g. for per-implementation metrics
+     */
+    public FoodRecognitionService getDelegate() {
+        return delegate;
+    }
+}
@@ -1,8 +1,7 @@
 package com.mealplanner.service;
 
 import com.mealplanner.entity.User;
-import com.mealplanner.repository.ApiUsageLogRepository;
-import com.mealplanner.entity.ApiUsageLog;
+import com.mealplanner.util.ProviderGuards;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
@@ -11,13 +10,20 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.Map;
 
 @Service
 public class ProxyService {
     
     @Autowired
-    private ApiUsageLogRepository apiUsageLogRepository;
+    private ApiUsageRollupService usageRollupService;
+    
+    @Autowired
+    private ApiUsageLogWriter usageLogWriter;
+    
+    @Autowired
+    private ProviderGuards providerGuards;
     
     private final RestTemplate restTemplate;
     
@@ -36,39 +42,33 @@ public class ProxyService {
             HttpMethod method) {
         
         long startTime = System.currentTimeMillis();
-        ApiUsageLog log = new ApiUsageLog();
-        log.setApiName(apiName);
-        log.setEndpoint(endpoint);
-        log.setUser(user);
-               log.setRequestData(requestData.toString());
-        log.setCreatedAt(LocalDateTime.now());
+        // Copy before the call adds provider credentials to requestData; serialized later on the writer thread
+        Map<String, Object> loggedRequest = new HashMap<>(requestData);
         
         try {
             // Check rate limits before making the call
             if (!isWithinRateLimit(apiName, user)) {
-                log.setResponseStatus(429);
-                log.setResponseTimeMs((int) (System.currentTimeMillis() - startTime));
-                apiUsageLogRepository.save(log);
+                usageLogWriter.record(apiName, endpoint, user, loggedRequest, 429,
+                    System.currentTimeMillis() - startTime);
                 
                 return ResponseEntity.status(429)
                     .body("{\"error\": \"Rate limit exceeded for " + apiName + "\"}");
             }
             
-            // Make the actual API call
-            ResponseEntity<String> response = makeApiCall(apiName, endpoint, requestData, method);
+            // Make the actual API call (timed and circuit-broken per provider)
+            ResponseEntity<String> response = providerGuards.guard(apiName).call(() ->
+                makeApiCall(apiName, endpoint, requestData, method));
             
             // Log successful response
-            log.setResponseStatus(response.getStatusCode().value());
-            log.setResponseTimeMs((int) (System.currentTimeMillis() - startTime));
-            apiUsageLogRepository.save(log);
+            usageLogWriter.record(apiName, endpoint, user, loggedRequest, response.getStatusCode().value(),
+                System.currentTimeMillis() - startTime);
             
             return response;
             
         } catch (Exception e) {
             // Log error
-            log.setResponseStatus(500);
-            log.setResponseTimeMs((int) (System.currentTimeMillis() - startTime));
-            apiUsageLogRepository.save(log);
+            usageLogWriter.record(apiName, endpoint, user, loggedRequest, 500,
+                System.currentTimeMillis() - startTime);
             
             return ResponseEntity.status(500)
                 .body("{\"error\": \"External API call failed: " + e.getMessage() + "\"}");
@@ -79,10 +79,10 @@ public class ProxyService {
      * Check if user is within rate limits for the API
      */
     private boolean isWithinRateLimit(String apiName, User user) {
-        // Get usage count for the last hour
+        // Get usage count for the last hour from the per-minute rollups
         LocalDateTime oneHourAgo = LocalDateTime.now().minusHours(1);
-        long usageCount = apiUsageLogRepository.countByApiNameAndUserAndCreatedAtAfter(
-            apiName, user, oneHourAgo);
+        long usageCount = usageRollupService.countCallsSince(
+            apiName, user != null ? user.getId() : null, oneHourAgo);
         
         // Define rate limits per API
         int rateLimit = getRateLimitForApi(apiName);
@@ -0,0 +1,435 @@
+package com.mealplanner.service;
+
+import com.mealplanner.dto.MealDto;
+import com.mealplanner.entity.Recipe;
+import com.mealplanner.entity.RecipeIngestionCheckpoint;
+import com.mealplanner.repository.RecipeIngestionCheckpointRepository;
+import com.mealplanner.repository.RecipeRepository;
+import com.mealplanner.util.EdamamRecipeParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Background ingestion that keeps the local recipes table populated, so user requests never wait on
+ * Edamam or Spoonacular.
+ *
+ * Every (source, category, diet type, cuisine) segment is paged through until it holds
+ * {@code recipes.ingestion.target-per-segment} recipes; progress is checkpointed after each page, so a
+ * restart continues where the last run stopped. Calls are spaced to each provider's per-minute limit and
+ * capped per run. Searches and segments that came up empty for users are fetched first on the next run.
+ */
+@Service
+public class RecipeIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecipeIngestionService.class);
+
+    private static final String EDAMAM = "edamam";
+    private static final String SPOONACULAR = "spoonacular";
+    private static final int MAX_PENDING_SEARCHES = 100;
+
+    @Value("${recipes.ingestion.enabled:false}")
+    private boolean enabled;
+
+    @Value("${recipes.ingestion.categories:BREAKFAST,LUNCH,DINNER,SNACK}")
+    private List<String> categories;
+
+    @Value("${recipes.ingestion.diet-types:VEG,NON_VEG,VEGAN,KETO,PALEO,MIXED}")
+    private List<String> dietTypes;
+
+    @Value("${recipes.ingestion.cuisines:indian,italian,mexican,chinese,american,mediterranean}")
+    private List<String> cuisines;
+
+    @Value("${recipes.ingestion.target-per-segment:40}")
+    private int targetPerSegment;
+
+    @Value("${recipes.ingestion.max-requests-per-run:40}")
+    private int maxRequestsPerRun;
+
+    @Value("${recipes.ingestion.refresh-days:30}")
+    private int refreshDays;
+
+    @Value("${recipes.ingestion.spoonacular.page-size:20}")
+    private int spoonacularPageSize;
+
+    @Value("${recipes.ingestion.edamam.requests-per-minute:8}")
+    private int edamamRequestsPerMinute;
+
+    @Value("${recipes.ingestion.spoonacular.requests-per-minute:30}")
+    private int spoonacularRequestsPerMinute;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private RecipeIngestionCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private EdamamRecipeService edamamRecipeService;
+
+    @Autowired
+    private SpoonacularRecipeService spoonacularRecipeService;
+
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Map<String, Long> nextCallAt = new ConcurrentHashMap<>();
+
+    // Demand signals from user requests that could not be served well from the local table
+    private final Queue<PendingSearch> pendingSearches = new ConcurrentLinkedQueue<>();
+    private final Set<String> pendingSearchKeys = ConcurrentHashMap.newKeySet();
+    private final Set<String> prioritySegments = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public RecipeIngestionService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(initialDelayString = "${recipes.ingestion.initial-delay-ms:60000}",
+               fixedDelayString = "${recipes.ingestion.interval-ms:3600000}")
+    public void scheduledRun() {
+        if (enabled) {
+            runOnce();
+        }
+    }
+
+    /**
+     * Run one ingestion pass; returns the number of recipes inserted or updated (0 if a pass is already running)
+     */
+    public int runOnce() {
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Recipe ingestion already running, skipping");
+            return 0;
+        }
+        try {
+            RunBudget budget = new RunBudget(maxRequestsPerRun);
+            int upserted = ingestPendingSearches(budget);
+            upserted += ingestSegments(budget);
+            logger.info("Recipe ingestion finished: {} recipes upserted using {} provider requests",
+                upserted, budget.used);
+            return upserted;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Ask the next run to fetch recipes for a free-text search that had few local results
+     */
+    public void requestSearch(String query, String dietType) {
+        if (query == null || query.isBlank()) {
+            return;
+        }
+        String normalizedQuery = query.trim().toLowerCase();
+        String diet = dietType != null ? dietType.toUpperCase() : "MIXED";
+        if (pendingSearchKeys.size() < MAX_PENDING_SEARCHES && pendingSearchKeys.add(normalizedQuery + "|" + diet)) {
+            pendingSearches.add(new PendingSearch(normalizedQuery, diet));
+        }
+    }
+
+    /**
+     * Ask the next run to fill a (category, diet type) combination that had no local recipes
+     */
+    public void requestSegment(String category, String dietType) {
+        if (category != null) {
+            prioritySegments.add(category.toUpperCase() + "|" + (dietType != null ? dietType.toUpperCase() : "MIXED"));
+        }
+    }
+
+    public List<RecipeIngestionCheckpoint> getCheckpoints() {
+        return checkpointRepository.findAll();
+    }
+
+    private int ingestPendingSearches(RunBudget budget) {
+        int upserted = 0;
+        PendingSearch search;
+        while (!budget.isSpent(EDAMAM) && (search = pendingSearches.poll()) != null) {
+            pendingSearchKeys.remove(search.query + "|" + search.dietType);
+            try {
+                awaitRateLimit(EDAMAM);
+                budget.used++;
+                List<MealDto> meals = edamamRecipeService.searchForIngestion(search.query, search.dietType, 20);
+                // Results only carry the requester's diet when Edamam filtered by it; otherwise each keeps its own label
+                String dietType = edamamRecipeService.filtersDiet(search.dietType) ? search.dietType : null;
+                upserted += transactionTemplate.execute(status -> upsert(meals, EDAMAM, null, dietType, null));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.warn("Recipe search ingestion failed for '{}': {}", search.query, e.getMessage());
+                budget.block(EDAMAM);
+            }
+        }
+        return upserted;
+    }
+
+    private int ingestSegments(RunBudget budget) {
+        Map<String, RecipeIngestionCheckpoint> checkpoints = new HashMap<>();
+        for (RecipeIngestionCheckpoint checkpoint : checkpointRepository.findAll()) {
+            checkpoints.put(segmentKey(checkpoint.getSource(), checkpoint.getCategory(),
+                checkpoint.getDietType(), checkpoint.getCuisineType()), checkpoint);
+        }
+
+        List<String> sources = new ArrayList<>(List.of(EDAMAM));
+        if (spoonacularRecipeService.isConfigured()) {
+            sources.add(SPOONACULAR);
+        }
+
+        List<RecipeIngestionCheckpoint> plan = new ArrayList<>();
+        for (String source : sources) {
+            for (String category : categories) {
+                for (String dietType : dietTypes) {
+                    for (String cuisine : cuisines) {
+                        plan.add(checkpoints.computeIfAbsent(segmentKey(source, category, dietType, cuisine),
+                            key -> new RecipeIngestionCheckpoint(source, category, dietType, cuisine)));
+                    }
+                }
+            }
+        }
+
+        // Requested segments first, then the ones that have waited longest
+        plan.sort(Comparator
+            .comparing((RecipeIngestionCheckpoint c) -> !prioritySegments.contains(c.getCategory() + "|" + c.getDietType()))
+            .thenComparing(RecipeIngestionCheckpoint::getLastRunAt, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        LocalDateTime refreshBefore = LocalDateTime.now().minusDays(refreshDays);
+        int upserted = 0;
+        for (RecipeIngestionCheckpoint checkpoint : plan) {
+            String source = checkpoint.getSource();
+            if (budget.isSpent(source)) {
+                continue;
+            }
+            boolean complete = checkpoint.getExhausted() || checkpoint.getIngestedCount() >= targetPerSegment;
+            if (complete) {
+                if (checkpoint.getStartedAt() == null || checkpoint.getStartedAt().isAfter(refreshBefore)) {
+                    continue;
+                }
+                checkpoint.restart();
+            }
+
+            try {
+                awaitRateLimit(source);
+                budget.used++;
+                upserted += ingestPage(checkpoint);
+                prioritySegments.remove(checkpoint.getCategory() + "|" + checkpoint.getDietType());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                // Keep the checkpoint where it was and leave this provider alone until the next run
+                logger.warn("Recipe ingestion from {} failed for {}/{}/{}: {}", source, checkpoint.getCategory(),
+                    checkpoint.getDietType(), checkpoint.getCuisineType(), e.getMessage());
+                checkpoint.setLastError(truncate(e.getMessage(), 500));
+                checkpoint.setLastRunAt(LocalDateTime.now());
+                checkpointRepository.save(checkpoint);
+                budget.block(source);
+            }
+        }
+        return upserted;
+    }
+
+    /**
+     * Fetch the checkpoint's next page and upsert it together with the advanced checkpoint in one transaction
+     */
+    private int ingestPage(RecipeIngestionCheckpoint checkpoint) throws Exception {
+        List<MealDto> meals;
+        String nextPage;
+        if (EDAMAM.equals(checkpoint.getSource())) {
+            EdamamRecipeParser.Page page = edamamRecipeService.fetchRecipePage(checkpoint.getCategory(),
+                checkpoint.getDietType(), checkpoint.getCuisineType(), checkpoint.getNextPage());
+            meals = page.getMeals();
+            nextPage = page.getNextPageToken();
+        } else {
+            int offset = checkpoint.getNextPage() != null ? Integer.parseInt(checkpoint.getNextPage()) : 0;
+            meals = spoonacularRecipeService.searchRecipes(checkpoint.getCategory(), checkpoint.getDietType(),
+                checkpoint.getCuisineType(), null, offset, spoonacularPageSize);
+            nextPage = meals.size() < spoonacularPageSize ? null : String.valueOf(offset + meals.size());
+        }
+
+        return transactionTemplate.execute(status -> {
+            int count = upsert(meals, checkpoint.getSource(), checkpoint.getCategory(),
+                checkpoint.getDietType(), checkpoint.getCuisineType());
+            checkpoint.setNextPage(nextPage);
+            checkpoint.setExhausted(nextPage == null);
+            checkpoint.setIngestedCount(checkpoint.getIngestedCount() + count);
+            checkpoint.setLastRunAt(LocalDateTime.now());
+            checkpoint.setLastError(null);
+            checkpointRepository.save(checkpoint);
+            return count;
+        });
+    }
+
+    /**
+     * Insert new recipes and refresh existing ones from one page, looking up existing rows in a single query.
+     * A null dietType keeps the diet label each recipe came with.
+     */
+    private int upsert(List<MealDto> meals, String source, String category, String dietType, String cuisine) {
+        Map<String, MealDto> byExternalId = new LinkedHashMap<>();
+        for (MealDto meal : meals) {
+            if (meal.getExternalId() != null && meal.getName() != null) {
+                byExternalId.putIfAbsent(meal.getExternalId(), meal);
+            }
+        }
+        if (byExternalId.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, Recipe> existing = new HashMap<>();
+        for (Recipe recipe : recipeRepository.findBySourceAndExternalIdIn(source, byExternalId.keySet())) {
+            existing.put(recipe.getExternalId(), recipe);
+        }
+
+        List<Recipe> batch = new ArrayList<>();
+        for (Map.Entry<String, MealDto> entry : byExternalId.entrySet()) {
+            MealDto meal = entry.getValue();
+            Recipe recipe = existing.get(entry.getKey());
+            if (recipe == null) {
+                recipe = new Recipe();
+                recipe.setSource(source);
+                recipe.setExternalId(entry.getKey());
+                recipe.setName(truncate(meal.getName(), 255));
+                recipe.setDescription(meal.getDescription());
+                recipe.setCategory(category != null ? category : categoryOf(meal));
+                recipe.setDietType(dietType != null ? dietType : meal.getDietType());
+                recipe.setType(recipe.getDietType());
+                recipe.setCuisineType(cuisine != null ? cuisine : meal.getCuisineType());
+                recipe.setIngredients(meal.getIngredients());
+                recipe.setInstructions(meal.getInstructions());
+                recipe.setServings(meal.getServings());
+                recipe.setPrepTime(meal.getPrepTimeMinutes());
+                recipe.setCookTime(meal.getCookTimeMinutes());
+                recipe.setTotalTime(meal.getCookTimeMinutes());
+                recipe.setDifficultyLevel(difficultyOf(meal.getCookTimeMinutes()));
+            }
+            applyNutrition(recipe, meal, source);
+            recipe.setImageUrl(fitsColumn(meal.getImageUrl(), 500));
+            recipe.setExternalUrl(fitsColumn(meal.getSourceUrl(), 500));
+            recipe.setLastUpdated(LocalDateTime.now());
+            recipe.setUpdatedAt(LocalDateTime.now());
+            batch.add(recipe);
+        }
+        recipeRepository.saveAll(batch);
+        return batch.size();
+    }
+
+    /**
+     * Edamam reports totals for the whole recipe; store per-serving values like the rest of the table
+     */
+    private void applyNutrition(Recipe recipe, MealDto meal, String source) {
+        double servings = EDAMAM.equals(source) && meal.getServings() != null && meal.getServings() > 0
+            ? meal.getServings() : 1;
+        recipe.setCalories(meal.getCalories() != null ? (int) Math.round(meal.getCalories() / servings) : null);
+        recipe.setProtein(perServing(meal.getProteinGrams(), servings));
+        recipe.setCarbs(perServing(meal.getCarbsGrams(), servings));
+        recipe.setFat(perServing(meal.getFatGrams(), servings));
+        recipe.setFiber(perServing(meal.getFiberGrams(), servings));
+        recipe.setSugar(perServing(meal.getSugarGrams(), servings));
+        recipe.setSodium(perServing(meal.getSodiumMilliGrams(), servings));
+    }
+
+    /**
+     * Nutrient columns are DECIMAL(5,2); values that do not fit are left empty rather than failing the batch
+     */
+    private static Double perServing(Double total, double servings) {
+        if (total == null) {
+            return null;
+        }
+        double value = Math.round(total / servings * 100) / 100.0;
+        return value < 1000 ? value : null;
+    }
+
+    /**
+     * Map Edamam meal types such as "LUNCH/DINNER" or "TEATIME" onto the table's categories
+     */
+    private static String categoryOf(MealDto meal) {
+        String mealType = meal.getMealType() != null ? meal.getMealType().toUpperCase() : "";
+        if (mealType.startsWith("BREAKFAST") || mealType.startsWith("BRUNCH")) return "BREAKFAST";
+        if (mealType.startsWith("SNACK") || mealType.startsWith("TEATIME")) return "SNACK";
+        if (mealType.startsWith("DINNER")) return "DINNER";
+        return "LUNCH";
+    }
+
+    private static String difficultyOf(Integer cookTimeMinutes) {
+        if (cookTimeMinutes == null || cookTimeMinutes <= 0) return "MEDIUM";
+        if (cookTimeMinutes <= 20) return "EASY";
+        if (cookTimeMinutes <= 60) return "MEDIUM";
+        return "HARD";
+    }
+
+    /**
+     * Space calls to a provider evenly according to its per-minute limit
+     */
+    private void awaitRateLimit(String source) throws InterruptedException {
+        int perMinute = Math.max(1, SPOONACULAR.equals(source) ? spoonacularRequestsPerMinute : edamamRequestsPerMinute);
+        long now = System.currentTimeMillis();
+        long allowedAt = nextCallAt.getOrDefault(source, 0L);
+        if (allowedAt > now) {
+            Thread.sleep(allowedAt - now);
+        }
+        nextCallAt.put(source, Math.max(now, allowedAt) + 60_000L / perMinute);
+    }
+
+    private static String segmentKey(String source, String category, String dietType, String cuisine) {
+        return source + "|" + category + "|" + dietType + "|" + cuisine;
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+
+    /**
+     * Links cannot be shortened without breaking them, so over-long ones are dropped
+     */
+    private static String fitsColumn(String value, int maxLength) {
+        return value != null && value.length() <= maxLength ? value : null;
+    }
+
+    private static class PendingSearch {
+        private final String query;
+        private final String dietType;
+
+        private PendingSearch(String query, String dietType) {
+            this.query = query;
+            this.dietType = dietType;
+        }
+    }
+
+    /**
+     * Provider requests left in this run; a provider that failed is skipped for the rest of the run
+     */
+    private static class RunBudget {
+        private final int maxRequests;
+        private final Set<String> blockedSources = new HashSet<>();
+        private int used;
+
+        private RunBudget(int maxRequests) {
+            this.maxRequests = maxRequests;
+        }
+
+        private boolean isSpent(String source) {
+            return used >= maxRequests || blockedSources.contains(source);
+        }
+
+        private void block(String source) {
+            blockedSources.add(source);
+        }
+    }
+}
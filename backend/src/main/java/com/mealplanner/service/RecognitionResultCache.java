@@ -0,0 +1,100 @@
+package com.mealplanner.service;
+
+import com.mealplanner.service.FoodRecognitionService.FoodItem;
+import com.mealplanner.util.PerceptualHash;
+import com.mealplanner.util.PerceptualHashCache;
+import com.mealplanner.util.RecognitionFallback;
+import com.mealplanner.util.RequestTrace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Remembers recognition results by perceptual hash of the (preprocessed) photo, so re-scanning the
+ * same plate or re-uploading the same picture does not cost another vision API call.
+ *
+ * A photo matches a cached one when their dHashes differ in at most recognition.cache.max-hash-distance
+ * bits and their average colours by at most max-color-distance per channel. Fallback results
+ * (provider down, unparseable answer) are never cached; see {@link RecognitionFallback}.
+ */
+@Service
+public class RecognitionResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecognitionResultCache.class);
+
+    private final boolean enabled;
+    private final int maxHashDistance;
+    private final int maxColorDistance;
+    private final PerceptualHashCache<List<FoodItem>> cache;
+
+    public RecognitionResultCache(@Value("${recognition.cache.enabled:true}") boolean enabled,
+                                  @Value("${recognition.cache.max-entries:5000}") int maxEntries,
+                                  @Value("${recognition.cache.ttl-hours:24}") long ttlHours,
+                                  @Value("${recognition.cache.max-hash-distance:5}") int maxHashDistance,
+                                  @Value("${recognition.cache.max-color-distance:24}") int maxColorDistance) {
+        this.enabled = enabled;
+        this.maxHashDistance = maxHashDistance;
+        this.maxColorDistance = maxColorDistance;
+        this.cache = new PerceptualHashCache<>(maxEntries, ttlHours * 3_600_000L);
+    }
+
+    /**
+     * The cached result for this photo or a near-duplicate, else the recognizer's (cached unless a
+     * fallback or still missing some nutrition)
+     */
+    public List<FoodItem> analyze(MultipartFile imageFile, FoodRecognitionService recognizer) {
+        if (!enabled) {
+            return recognizer.analyzeFoodImage(imageFile);
+        }
+
+        PerceptualHash hash = null;
+        try (RequestTrace.Phase phase = RequestTrace.phase("cache")) {
+            hash = imageFile instanceof ImagePreprocessor.PreparedImage prepared && prepared.getPerceptualHash() != null
+                ? prepared.getPerceptualHash() : PerceptualHash.of(imageFile.getBytes());
+            if (hash != null) {
+                List<FoodItem> cached = cache.get(hash, maxHashDistance, maxColorDistance);
+                if (cached != null) {
+                    logger.debug("Recognition cache hit for {}", hash);
+                    return copy(cached);
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Could not hash image, skipping the recognition cache: {}", e.getMessage());
+        }
+
+        RecognitionFallback.watch();
+        List<FoodItem> result;
+        boolean fallback;
+        try {
+            result = recognizer.analyzeFoodImage(imageFile);
+        } finally {
+            fallback = RecognitionFallback.end();
+        }
+        if (fallback) {
+            // Let an enclosing watch (e.g. a batch reporting per-photo fallbacks) see it too
+            RecognitionFallback.mark();
+        } else if (hash != null && result != null && !result.isEmpty() && result.stream().noneMatch(FoodItem::isPending)) {
+            cache.put(hash, copy(result));
+        }
+        return result;
+    }
+
+    public PerceptualHashCache<List<FoodItem>> getCache() {
+        return cache;
+    }
+
+    // FoodItem is mutable; neither the cache nor callers should see each other's changes
+    private static List<FoodItem> copy(List<FoodItem> items) {
+        List<FoodItem> copies = new ArrayList<>(items.size());
+        for (FoodItem item : items) {
+            copies.add(new FoodItem(item.getName(), item.getCalories(), item.getProtein(), item.getCarbs(),
+                item.getFat(), item.getConfidence()));
+        }
+        return copies;
+    }
+}
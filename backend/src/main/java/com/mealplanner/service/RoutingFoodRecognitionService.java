@@ -0,0 +1,270 @@
+package com.mealplanner.service;
+
+import com.mealplanner.util.RecognitionFallback;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends each photo to the healthiest recognizer in an ordered chain, falling through the rest of
+ * the chain when it fails or answers with fallback data (see {@link RecognitionFallback}).
+ *
+ * Health is scored from each provider's last window-size calls within window-ms:
+ * (1 - error rate) * min(1, latency target / mean latency), so a provider with no recent calls
+ * scores 1 and gets tried again. Providers keep their chain order while they score within
+ * score-margin of the best; the rest follow by score. The chain and margin can be changed at
+ * runtime (see RecognitionRoutingController); changes last until restart.
+ */
+public class RoutingFoodRecognitionService implements FoodRecognitionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoutingFoodRecognitionService.class);
+
+    private final Map<String, FoodRecognitionService> providers;
+    private final Map<String, ProviderHealth> health = new LinkedHashMap<>();
+    private final long latencyTargetMs;
+    private final MeterRegistry meterRegistry;
+    private volatile List<String> chain;
+    private volatile double scoreMargin;
+
+    /**
+     * @param providers every recognizer that may be routed to, by provider name
+     * @param chain     the providers to use, in order of preference
+     */
+    public RoutingFoodRecognitionService(Map<String, FoodRecognitionService> providers, List<String> chain,
+                                         int windowSize, long windowMs, long latencyTargetMs, double scoreMargin,
+                                         MeterRegistry meterRegistry) {
+        this.providers = new LinkedHashMap<>(providers);
+        this.latencyTargetMs = latencyTargetMs;
+        this.meterRegistry = meterRegistry;
+        for (String name : providers.keySet()) {
+            ProviderHealth providerHealth = new ProviderHealth(windowSize, windowMs);
+            health.put(name, providerHealth);
+            Gauge.builder("food.recognition.routing.score", providerHealth, h -> h.score(latencyTargetMs))
+                .description("Routing health score per recognizer, 0 (failing) to 1 (healthy)")
+                .tag("provider", name)
+                .register(meterRegistry);
+        }
+        setChain(chain);
+        setScoreMargin(scoreMargin);
+    }
+
+    @Override
+    public List<FoodItem> analyzeFoodImage(MultipartFile imageFile) {
+        List<FoodItem> firstFallback = null;
+        for (String name : routeOrder()) {
+            ProviderHealth providerHealth = health.get(name);
+            long start = System.nanoTime();
+            RecognitionFallback.watch();
+            String outcome;
+            List<FoodItem> items;
+            try {
+                items = providers.get(name).analyzeFoodImage(imageFile);
+                outcome = RecognitionFallback.end() || items == null || items.isEmpty() ? "fallback" : "success";
+            } catch (RuntimeException e) {
+                RecognitionFallback.end();
+                logger.warn("Recognizer '{}' failed: {}", name, e.getMessage());
+                items = null;
+                outcome = "error";
+            }
+            providerHealth.record(!"success".equals(outcome), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            Counter.builder("food.recognition.routing")
+                .description("Routed recognition attempts, by provider and outcome")
+                .tag("provider", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+
+            if ("success".equals(outcome)) {
+                return items;
+            }
+            logger.info("Recognizer '{}' gave no real answer ({}), trying the next in the chain", name, outcome);
+            if (firstFallback == null && items != null) {
+                firstFallback = items;
+            }
+        }
+        RecognitionFallback.mark();
+        return firstFallback != null ? firstFallback : Collections.emptyList();
+    }
+
+    /**
+     * Name searches send no photo and do not affect health; they use the same order and fall through
+     * on fallback data
+     */
+    @Override
+    public List<FoodItem> searchFoodByName(String query) {
+        List<FoodItem> firstFallback = null;
+        for (String name : routeOrder()) {
+            RecognitionFallback.watch();
+            List<FoodItem> items;
+            boolean fallback;
+            try {
+                items = providers.get(name).searchFoodByName(query);
+                fallback = RecognitionFallback.end() || items == null || items.isEmpty();
+            } catch (RuntimeException e) {
+                RecognitionFallback.end();
+                logger.warn("Recognizer '{}' failed to search: {}", name, e.getMessage());
+                continue;
+            }
+            if (!fallback) {
+                return items;
+            }
+            if (firstFallback == null && items != null) {
+                firstFallback = items;
+            }
+        }
+        return firstFallback != null ? firstFallback : Collections.emptyList();
+    }
+
+    /**
+     * The chain as it will be tried now: healthy providers in chain order, then the rest by score
+     */
+    public List<String> routeOrder() {
+        List<String> current = chain;
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (String name : current) {
+            scores.put(name, health.get(name).score(latencyTargetMs));
+        }
+        double best = Collections.max(scores.values());
+        List<String> order = new ArrayList<>();
+        List<String> demoted = new ArrayList<>();
+        for (String name : current) {
+            (scores.get(name) >= best - scoreMargin ? order : demoted).add(name);
+        }
+        demoted.sort(Comparator.comparingDouble(scores::get).reversed());
+        order.addAll(demoted);
+        return order;
+    }
+
+    public List<String> getChain() {
+        return chain;
+    }
+
+    /**
+     * Replace the chain; every name must be a known provider, listed once
+     */
+    public void setChain(List<String> chain) {
+        if (chain == null || chain.isEmpty()) {
+            throw new IllegalArgumentException("The routing chain needs at least one provider");
+        }
+        Set<String> seen = new HashSet<>();
+        for (String name : chain) {
+            if (!providers.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown recognizer '" + name + "'; expected one of " + providers.keySet());
+            }
+            if (!seen.add(name)) {
+                throw new IllegalArgumentException("Recognizer '" + name + "' is listed twice");
+            }
+        }
+        this.chain = List.copyOf(chain);
+        logger.info("Recognition routing chain set to {}", this.chain);
+    }
+
+    public double getScoreMargin() {
+        return scoreMargin;
+    }
+
+    public void setScoreMargin(double scoreMargin) {
+        if (scoreMargin < 0 || scoreMargin > 1) {
+            throw new IllegalArgumentException("scoreMargin must be between 0 and 1");
+        }
+        this.scoreMargin = scoreMargin;
+    }
+
+    public long getLatencyTargetMs() {
+        return latencyTargetMs;
+    }
+
+    public Set<String> getProviders() {
+        return Collections.unmodifiableSet(providers.keySet());
+    }
+
+    /**
+     * Score, error rate, mean latency and sample count per provider
+     */
+    public Map<String, Map<String, Object>> getHealth() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        health.forEach((name, providerHealth) -> result.put(name, providerHealth.snapshot(latencyTargetMs)));
+        return result;
+    }
+
+    public void resetHealth() {
+        health.values().forEach(ProviderHealth::clear);
+    }
+
+    /**
+     * The outcomes of a provider's recent calls
+     */
+    private static class ProviderHealth {
+        private final int windowSize;
+        private final long windowMs;
+        // {timestamp millis, failed ? 1 : 0, latency millis}, oldest first
+        private final Deque<long[]> samples = new ArrayDeque<>();
+
+        ProviderHealth(int windowSize, long windowMs) {
+            this.windowSize = windowSize;
+            this.windowMs = windowMs;
+        }
+
+        synchronized void record(boolean failed, long latencyMs) {
+            samples.addLast(new long[] {System.currentTimeMillis(), failed ? 1 : 0, latencyMs});
+            while (samples.size() > windowSize) {
+                samples.removeFirst();
+            }
+        }
+
+        synchronized void clear() {
+            samples.clear();
+        }
+
+        synchronized double score(long latencyTargetMs) {
+            expire();
+            if (samples.isEmpty()) {
+                return 1.0;
+            }
+            double errorRate = errorRate();
+            double meanLatency = meanLatency();
+            double latencyFactor = meanLatency <= 0 ? 1.0 : Math.min(1.0, latencyTargetMs / meanLatency);
+            return (1 - errorRate) * latencyFactor;
+        }
+
+        synchronized Map<String, Object> snapshot(long latencyTargetMs) {
+            double score = score(latencyTargetMs);
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("score", Math.round(score * 1000) / 1000.0);
+            snapshot.put("samples", samples.size());
+            snapshot.put("errorRate", samples.isEmpty() ? 0.0 : Math.round(errorRate() * 1000) / 1000.0);
+            snapshot.put("meanLatencyMs", Math.round(meanLatency()));
+            return snapshot;
+        }
+
+        private void expire() {
+            long cutoff = System.currentTimeMillis() - windowMs;
+            while (!samples.isEmpty() && samples.peekFirst()[0] < cutoff) {
+                samples.removeFirst();
+            }
+        }
+
+        private double errorRate() {
+            return samples.stream().mapToLong(sample -> sample[1]).sum() / (double) samples.size();
+        }
+
+        private double meanLatency() {
+            return samples.stream().mapToLong(sample -> sample[2]).average().orElse(0);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.mealplanner.service;
+
+import com.mealplanner.service.FoodRecognitionService.FoodItem;
+import com.mealplanner.util.RecognitionFallback;
+import com.mealplanner.util.UsageUser;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Food scans that run in the background: the upload is spooled to a temp file and the request
+ * returns a scan ID at once, while recognition runs on a bounded pool (food.scan.pool-size threads,
+ * food.scan.queue-capacity waiting). Clients poll the scan or subscribe to hear when it finishes.
+ *
+ * Finished scans are kept for food.scan.retention-ms; when the pool's queue is full or
+ * food.scan.max-jobs scans are held, new scans are refused rather than queued without bound.
+ */
+@Service
+public class ScanJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScanJobService.class);
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    private final FoodRecognitionService foodRecognitionService;
+    private final MeterRegistry meterRegistry;
+    private final long retentionMs;
+    private final int maxJobs;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, ScanJob> jobs = new ConcurrentHashMap<>();
+
+    public ScanJobService(FoodRecognitionService foodRecognitionService, MeterRegistry meterRegistry,
+                          @Value("${food.scan.pool-size:8}") int poolSize,
+                          @Value("${food.scan.queue-capacity:100}") int queueCapacity,
+                          @Value("${food.scan.max-jobs:1000}") int maxJobs,
+                          @Value("${food.scan.retention-ms:600000}") long retentionMs) {
+        this.foodRecognitionService = foodRecognitionService;
+        this.meterRegistry = meterRegistry;
+        this.retentionMs = retentionMs;
+        this.maxJobs = maxJobs;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "food-scan-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("food.scan.jobs", jobs, Map::size)
+            .description("Scans held, running or finished and not yet expired")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        jobs.values().forEach(ScanJob::deleteUpload);
+    }
+
+    /**
+     * Queue a scan of the uploaded photo; its provider calls are billed to the caller's {@link UsageUser}
+     *
+     * @throws RejectedExecutionException when too many scans are queued or held
+     * @throws IOException                when the upload cannot be spooled
+     */
+    public ScanJob submit(MultipartFile image) throws IOException {
+        if (jobs.size() >= maxJobs) {
+            throw new RejectedExecutionException("Too many scans in progress, try again shortly");
+        }
+        // The request's multipart data is deleted once it returns, so the job keeps its own copy
+        Path spooled = Files.createTempFile("food-scan-", ".img");
+        try (InputStream input = image.getInputStream()) {
+            Files.copy(input, spooled, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(spooled);
+            throw e;
+        }
+
+        ScanJob job = new ScanJob(UUID.randomUUID().toString(), UsageUser.current(),
+            new SpooledUpload(image.getName(), image.getOriginalFilename(), image.getContentType(), spooled));
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            job.deleteUpload();
+            throw new RejectedExecutionException("Too many scans in progress, try again shortly", e);
+        }
+        return job;
+    }
+
+    public ScanJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * Drop finished scans older than food.scan.retention-ms
+     */
+    @Scheduled(fixedDelayString = "${food.scan.cleanup-interval-ms:60000}")
+    public void expireFinishedJobs() {
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        jobs.values().removeIf(job -> job.completedAt != null && job.completedAt.toEpochMilli() < cutoff);
+    }
+
+    public ThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    private void run(ScanJob job) {
+        job.startedAt = Instant.now();
+        job.status = Status.RUNNING;
+        long start = System.nanoTime();
+        String outcome = "success";
+        RecognitionFallback.watch();
+        try (UsageUser.Scope scope = UsageUser.bind(job.userId)) {
+            job.items = foodRecognitionService.analyzeFoodImage(job.upload);
+            job.fallback = RecognitionFallback.end();
+            job.finish(Status.DONE, null);
+        } catch (RuntimeException e) {
+            RecognitionFallback.end();
+            outcome = "error";
+            logger.error("Error analyzing food scan {}: {}", job.id, e.getMessage());
+            job.finish(Status.FAILED, "Failed to analyze image");
+        } finally {
+            job.deleteUpload();
+            Timer.builder("food.recognition")
+                .tag("implementation", FoodRecognitionService.unwrap(foodRecognitionService).getClass().getSimpleName())
+                .tag("operation", "scan")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * One scan; fields are written by the pool thread running it and read by pollers and subscribers
+     */
+    public static class ScanJob {
+        private final String id;
+        private final Long userId;
+        private final SpooledUpload upload;
+        private final Instant createdAt = Instant.now();
+        private final List<Consumer<ScanJob>> listeners = new CopyOnWriteArrayList<>();
+        private volatile Status status = Status.QUEUED;
+        private volatile Instant startedAt;
+        private volatile Instant completedAt;
+        private volatile List<FoodItem> items;
+        private volatile boolean fallback;
+        private volatile String error;
+
+        private ScanJob(String id, Long userId, SpooledUpload upload) {
+            this.id = id;
+            this.userId = userId;
+            this.upload = upload;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public boolean isFinished() {
+            return status == Status.DONE || status == Status.FAILED;
+        }
+
+        /**
+         * Call back once the scan has finished, straight away if it already has
+         */
+        public void onFinished(Consumer<ScanJob> listener) {
+            listeners.add(listener);
+            // Finishing may have raced the add; removing first makes sure only one side calls it
+            if (isFinished() && listeners.remove(listener)) {
+                listener.accept(this);
+            }
+        }
+
+        public void removeListener(Consumer<ScanJob> listener) {
+            listeners.remove(listener);
+        }
+
+        /**
+         * The scan as the API shows it
+         */
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("scanId", id);
+            map.put("status", status);
+            map.put("createdAt", createdAt.toString());
+            if (startedAt != null) {
+                map.put("queuedMs", startedAt.toEpochMilli() - createdAt.toEpochMilli());
+            }
+            if (completedAt != null) {
+                map.put("durationMs", completedAt.toEpochMilli() - startedAt.toEpochMilli());
+            }
+            if (status == Status.DONE) {
+                map.put("items", items);
+                map.put("fallback", fallback);
+            }
+            if (error != null) {
+                map.put("error", error);
+            }
+            return map;
+        }
+
+        private void finish(Status finalStatus, String failure) {
+            error = failure;
+            completedAt = Instant.now();
+            status = finalStatus;
+            for (Consumer<ScanJob> listener : listeners) {
+                if (listeners.remove(listener)) {
+                    listener.accept(this);
+                }
+            }
+        }
+
+        private void deleteUpload() {
+            try {
+                Files.deleteIfExists(upload.path);
+            } catch (IOException e) {
+                logger.warn("Could not delete spooled scan upload {}: {}", upload.path, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * An upload copied to a temp file, readable after its request has gone
+     */
+    private static class SpooledUpload implements MultipartFile {
+        private final String name;
+        private final String originalFilename;
+        private final String contentType;
+        private final Path path;
+
+        private SpooledUpload(String name, String originalFilename, String contentType, Path path) {
+            this.name = name;
+            this.originalFilename = originalFilename;
+            this.contentType = contentType;
+            this.path = path;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return originalFilename;
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return getSize() == 0;
+        }
+
+        @Override
+        public long getSize() {
+            try {
+                return Files.size(path);
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            return Files.readAllBytes(path);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(path);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            Files.copy(path, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.mealplanner.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The most recent JDBC statements that took longer than slow-query.threshold-ms, with bound
+ * parameters, call site and duration, in a bounded ring (oldest dropped first).
+ *
+ * Statements reach it through the DataSource wrapper installed by
+ * {@link com.mealplanner.config.SlowQueryConfig}. When slow-query.explain.enabled=true, a slow
+ * SELECT is re-run once under EXPLAIN ANALYZE on a background thread, read-only and rolled back,
+ * at most once per distinct SQL every explain.min-interval-seconds.
+ */
+@Service
+public class SlowQueryLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private static final int MAX_PARAMETER_LENGTH = 200;
+    private static final int MAX_EXPLAINED_SQL = 1000;
+
+    private final MeterRegistry meterRegistry;
+    private final long thresholdNanos;
+    private final int capacity;
+    private final boolean explainEnabled;
+    private final long explainIntervalNanos;
+
+    private final Deque<Entry> entries = new ArrayDeque<>();
+    private final AtomicLong captured = new AtomicLong();
+    private final Map<String, Long> lastExplained = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor explainExecutor;
+
+    public SlowQueryLog(MeterRegistry meterRegistry,
+                        @Value("${slow-query.threshold-ms:200}") long thresholdMs,
+                        @Value("${slow-query.capacity:200}") int capacity,
+                        @Value("${slow-query.explain.enabled:false}") boolean explainEnabled,
+                        @Value("${slow-query.explain.min-interval-seconds:300}") long explainIntervalSeconds) {
+        this.meterRegistry = meterRegistry;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+        this.capacity = capacity;
+        this.explainEnabled = explainEnabled;
+        this.explainIntervalNanos = TimeUnit.SECONDS.toNanos(explainIntervalSeconds);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        // One EXPLAIN at a time; a burst of slow queries beyond the queue is not explained
+        this.explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(10),
+            runnable -> {
+                Thread thread = new Thread(runnable, "slow-query-explain-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    public boolean isSlow(long durationNanos) {
+        return durationNanos >= thresholdNanos;
+    }
+
+    /**
+     * Keep a statement that took at least the threshold
+     *
+     * @param parameters bound parameters by 1-based index (index 0 unused), as bound
+     * @param batchSize statements executed as one batch, 0 when not batched
+     * @param dataSource the unwrapped pool, used for EXPLAIN
+     */
+    public void record(String sql, Object[] parameters, int batchSize, long durationNanos, String callSite,
+                       DataSource dataSource) {
+        Entry entry = new Entry(sql, render(parameters), batchSize, durationNanos, callSite);
+        captured.incrementAndGet();
+        synchronized (entries) {
+            if (entries.size() >= capacity) {
+                entries.removeFirst();
+            }
+            entries.addLast(entry);
+        }
+        Counter.builder("db.slow.queries")
+            .description("JDBC statements slower than slow-query.threshold-ms")
+            .tag("call_site", callSite)
+            .register(meterRegistry)
+            .increment();
+        logger.warn("Slow query ({} ms) from {}: {}", entry.durationMs, callSite, sql);
+
+        if (explainEnabled && batchSize == 0 && isQuery(sql) && claimExplain(sql)) {
+            Object[] bound = parameters.clone();
+            explainExecutor.execute(() -> explain(entry, bound, dataSource));
+        }
+    }
+
+    /**
+     * Captured statements, newest first
+     */
+    public List<Map<String, Object>> getEntries(int limit) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        synchronized (entries) {
+            Iterator<Entry> newestFirst = entries.descendingIterator();
+            while (newestFirst.hasNext() && result.size() < limit) {
+                result.add(newestFirst.next().toMap());
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        lastExplained.clear();
+    }
+
+    public long getCapturedCount() {
+        return captured.get();
+    }
+
+    public long getThresholdMs() {
+        return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean isExplainEnabled() {
+        return explainEnabled;
+    }
+
+    private boolean claimExplain(String sql) {
+        long now = System.nanoTime();
+        if (lastExplained.size() >= MAX_EXPLAINED_SQL) {
+            lastExplained.entrySet().removeIf(explained -> now - explained.getValue() >= explainIntervalNanos);
+            if (lastExplained.size() >= MAX_EXPLAINED_SQL) {
+                return false;
+            }
+        }
+        boolean[] claimed = new boolean[1];
+        lastExplained.compute(sql, (key, last) -> {
+            if (last != null && now - last < explainIntervalNanos) {
+                return last;
+            }
+            claimed[0] = true;
+            return now;
+        });
+        return claimed[0];
+    }
+
+    private void explain(Entry entry, Object[] parameters, DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            String prefix = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("postgres")
+                ? "EXPLAIN (ANALYZE, BUFFERS) " : "EXPLAIN ANALYZE ";
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (PreparedStatement statement = connection.prepareStatement(prefix + entry.sql)) {
+                for (int i = 1; i < parameters.length; i++) {
+                    statement.setObject(i, parameters[i]);
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        plan.append(rows.getString(1)).append('\n');
+                    }
+                }
+                entry.explain = plan.toString().stripTrailing();
+            } finally {
+                connection.rollback();
+                connection.setReadOnly(false);
+                connection.setAutoCommit(true);
+            }
+        } catch (Exception e) {
+            entry.explain = "EXPLAIN failed: " + e.getMessage();
+            logger.debug("EXPLAIN failed for {}: {}", entry.sql, e.getMessage());
+        }
+    }
+
+    private static boolean isQuery(String sql) {
+        String start = sql.stripLeading().toLowerCase(Locale.ROOT);
+        return start.startsWith("select") || start.startsWith("with");
+    }
+
+    private static List<String> render(Object[] parameters) {
+        List<String> rendered = new ArrayList<>();
+        for (int i = 1; i < parameters.length; i++) {
+            Object value = parameters[i];
+            if (value == null) {
+                rendered.add(null);
+            } else if (value instanceof byte[] bytes) {
+                rendered.add("<" + bytes.length + " bytes>");
+            } else {
+                String text = value.toString();
+                rendered.add(text.length() > MAX_PARAMETER_LENGTH ? text.substring(0, MAX_PARAMETER_LENGTH) + "..." : text);
+            }
+        }
+        return rendered;
+    }
+
+    private static class Entry {
+        final Instant timestamp = Instant.now();
+        final String sql;
+        final List<String> parameters;
+        final int batchSize;
+        final double durationMs;
+        final String callSite;
+        volatile String explain;
+
+        Entry(String sql, List<String> parameters, int batchSize, long durationNanos, String callSite) {
+            this.sql = sql;
+            this.parameters = parameters;
+            this.batchSize = batchSize;
+            this.durationMs = Math.round(durationNanos / 10_000.0) / 100.0;
+            this.callSite = callSite;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("timestamp", timestamp);
+            map.put("durationMs", durationMs);
+            map.put("callSite", callSite);
+            map.put("sql", sql);
+            map.put("parameters", parameters);
+            if (batchSize > 0) {
+                map.put("batchSize", batchSize);
+            }
+            if (explain != null) {
+                map.put("explain", explain);
+            }
+            return map;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.mealplanner.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mealplanner.dto.MealDto;
+import com.mealplanner.util.ProviderGuards;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class SpoonacularRecipeService {
+
+    private static final String SPOONACULAR_BASE_URL = "https://api.spoonacular.com";
+
+    @Value("${spoonacular.api.key:}")
+    private String apiKey;
+
+    private final ProviderGuards providerGuards;
+    private final RestTemplate restTemplate;
+    private final String complexSearchUrl;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    public SpoonacularRecipeService(ProviderGuards providerGuards) {
+        this.providerGuards = providerGuards;
+        this.restTemplate = providerGuards.restTemplate();
+        this.complexSearchUrl = providerGuards.baseUrl("spoonacular", SPOONACULAR_BASE_URL) + "/recipes/complexSearch";
+    }
+
+    public boolean isConfigured() {
+        return apiKey != null && !apiKey.isBlank();
+    }
+
+    /**
+     * Fetch one page of complexSearch results with nutrition, ingredients and steps filled in.
+     * Errors are thrown so ingestion can keep its checkpoint and back off.
+     */
+    public List<MealDto> searchRecipes(String mealType, String dietType, String cuisineType, String query,
+                                       int offset, int number) throws Exception {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(complexSearchUrl)
+                .queryParam("apiKey", apiKey)
+                .queryParam("addRecipeInformation", "true")
+                .queryParam("addRecipeNutrition", "true")
+                .queryParam("fillIngredients", "true")
+                .queryParam("instructionsRequired", "true")
+                .queryParam("offset", offset)
+                .queryParam("number", number);
+
+        String type = getTypeFilter(mealType);
+        if (type != null) {
+            builder.queryParam("type", type);
+        }
+        String diet = getDietFilter(dietType);
+        if (diet != null) {
+            builder.queryParam("diet", diet);
+        }
+        if (cuisineType != null && !cuisineType.isEmpty()) {
+            builder.queryParam("cuisine", cuisineType);
+        }
+        if (query != null && !query.isEmpty()) {
+            builder.queryParam("query", query);
+        }
+        URI uri = builder.encode().build().toUri();
+
+        String body = providerGuards.guard("spoonacular").call(() -> restTemplate.getForObject(uri, String.class));
+        return body != null ? parseResults(body) : new ArrayList<>();
+    }
+
+    private List<MealDto> parseResults(String body) throws Exception {
+        List<MealDto> meals = new ArrayList<>();
+        for (JsonNode result : objectMapper.readTree(body).path("results")) {
+            MealDto meal = new MealDto();
+            meal.setExternalId(result.path("id").asText());
+            meal.setSourceApi("spoonacular");
+            meal.setName(result.path("title").asText());
+            meal.setDescription(result.path("sourceName").asText(null));
+            meal.setImageUrl(result.path("image").asText(null));
+            meal.setSourceUrl(result.path("sourceUrl").asText(null));
+            meal.setServings(result.path("servings").isNumber() ? result.path("servings").asInt() : null);
+            meal.setCookTimeMinutes(result.path("readyInMinutes").isNumber() ? result.path("readyInMinutes").asInt() : null);
+            meal.setCuisineType(result.path("cuisines").path(0).asText(null));
+
+            List<String> ingredients = new ArrayList<>();
+            for (JsonNode ingredient : result.path("extendedIngredients")) {
+                ingredients.add(ingredient.path("original").asText());
+            }
+            meal.setIngredients(ingredients);
+
+            List<String> instructions = new ArrayList<>();
+            for (JsonNode step : result.path("analyzedInstructions").path(0).path("steps")) {
+                instructions.add(step.path("step").asText());
+            }
+            meal.setInstructions(instructions);
+
+            for (JsonNode nutrient : result.path("nutrition").path("nutrients")) {
+                double amount = Math.round(nutrient.path("amount").asDouble() * 100) / 100.0;
+                switch (nutrient.path("name").asText()) {
+                    case "Calories" -> meal.setCalories((int) amount);
+                    case "Protein" -> meal.setProteinGrams(amount);
+                    case "Carbohydrates" -> meal.setCarbsGrams(amount);
+                    case "Fat" -> meal.setFatGrams(amount);
+                    case "Fiber" -> meal.setFiberGrams(amount);
+                    case "Sugar" -> meal.setSugarGrams(amount);
+                    case "Sodium" -> meal.setSodiumMilliGrams(amount);
+                    default -> { }
+                }
+            }
+            meals.add(meal);
+        }
+        return meals;
+    }
+
+    /**
+     * Convert meal type to Spoonacular dish type
+     */
+    private String getTypeFilter(String mealType) {
+        if (mealType == null) {
+            return null;
+        }
+        return switch (mealType.toUpperCase()) {
+            case "BREAKFAST" -> "breakfast";
+            case "LUNCH", "DINNER" -> "main course";
+            case "SNACK" -> "snack";
+            default -> null;
+        };
+    }
+
+    /**
+     * Convert diet type to Spoonacular diet
+     */
+    private String getDietFilter(String dietType) {
+        if (dietType == null) {
+            return null;
+        }
+        return switch (dietType.toUpperCase()) {
+            case "VEG" -> "vegetarian";
+            case "VEGAN" -> "vegan";
+            case "KETO" -> "ketogenic";
+            case "PALEO" -> "paleo";
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,211 @@
+package com.mealplanner.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mealplanner.util.RequestTrace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exports finished request traces as OpenTelemetry spans in OTLP/JSON.
+ *
+ * With exporter=file each batch is appended as one ExportTraceServiceRequest per line (the format
+ * the collector's otlpjsonfile receiver reads); with exporter=otlp it is POSTed to an OTLP/HTTP
+ * endpoint such as a local collector. Traces are queued and sent from a background thread; when
+ * the queue is full new traces are dropped rather than slowing requests down.
+ */
+@Service
+public class TraceSpanExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TraceSpanExporter.class);
+
+    private static final int SPAN_KIND_INTERNAL = 1;
+    private static final int SPAN_KIND_SERVER = 2;
+    private static final int SPAN_KIND_CLIENT = 3;
+
+    public enum Exporter { NONE, FILE, OTLP }
+
+    private final Exporter exporter;
+    private final String serviceName;
+    private final Path file;
+    private final String otlpEndpoint;
+    private final BlockingQueue<RequestTrace> queue;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RestTemplate restTemplate;
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread exporterThread;
+
+    public TraceSpanExporter(@Value("${tracing.spans.exporter:NONE}") Exporter exporter,
+                             @Value("${tracing.service-name:smart-meal-planner}") String serviceName,
+                             @Value("${tracing.spans.file:logs/spans.jsonl}") String file,
+                             @Value("${tracing.spans.otlp-endpoint:http://localhost:4318/v1/traces}") String otlpEndpoint,
+                             @Value("${tracing.spans.queue-size:1000}") int queueSize) {
+        this.exporter = exporter;
+        this.serviceName = serviceName;
+        this.file = Paths.get(file);
+        this.otlpEndpoint = otlpEndpoint;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(2000);
+        requestFactory.setReadTimeout(5000);
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        running = true;
+        exporterThread = new Thread(this::exportLoop, "span-exporter");
+        exporterThread.setDaemon(true);
+        exporterThread.start();
+        logger.info("Exporting request spans via {} to {}", exporter,
+            exporter == Exporter.FILE ? file.toAbsolutePath() : otlpEndpoint);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (exporterThread != null) {
+            try {
+                exporterThread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return exporter != Exporter.NONE;
+    }
+
+    /**
+     * Queue a finished trace for export; never blocks
+     */
+    public void export(RequestTrace trace) {
+        if (isEnabled() && !queue.offer(trace)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private void exportLoop() {
+        List<RequestTrace> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                RequestTrace first = running ? queue.poll(1, TimeUnit.SECONDS) : queue.poll();
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, 99);
+                send(toOtlpJson(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (Exception e) {
+                logger.warn("Failed to export {} traces: {}", batch.size(), e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(String json) throws IOException {
+        if (exporter == Exporter.FILE) {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.writeString(file, json + "\n", StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } else {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            restTemplate.postForEntity(otlpEndpoint, new HttpEntity<>(json, headers), String.class);
+        }
+    }
+
+    /**
+     * One ExportTraceServiceRequest holding every span of the batch
+     */
+    String toOtlpJson(List<RequestTrace> traces) throws IOException {
+        ObjectNode request = objectMapper.createObjectNode();
+        ObjectNode resourceSpans = request.putArray("resourceSpans").addObject();
+        addAttribute(resourceSpans.putObject("resource").putArray("attributes"), "service.name", serviceName);
+        ObjectNode scopeSpans = resourceSpans.putArray("scopeSpans").addObject();
+        scopeSpans.putObject("scope").put("name", "com.mealplanner");
+        ArrayNode spans = scopeSpans.putArray("spans");
+
+        for (RequestTrace trace : traces) {
+            ObjectNode root = spans.addObject();
+            root.put("traceId", trace.getTraceId());
+            root.put("spanId", trace.getSpanId());
+            if (trace.getParentSpanId() != null) {
+                root.put("parentSpanId", trace.getParentSpanId());
+            }
+            root.put("name", trace.getName());
+            root.put("kind", SPAN_KIND_SERVER);
+            root.put("startTimeUnixNano", String.valueOf(trace.getStartEpochNanos()));
+            root.put("endTimeUnixNano", String.valueOf(trace.getEndEpochNanos()));
+            ArrayNode attributes = root.putArray("attributes");
+            for (Map.Entry<String, Object> attribute : trace.getAttributes().entrySet()) {
+                addAttribute(attributes, attribute.getKey(), attribute.getValue());
+            }
+
+            for (RequestTrace.Span span : trace.getSpans()) {
+                ObjectNode child = spans.addObject();
+                child.put("traceId", trace.getTraceId());
+                child.put("spanId", span.getSpanId());
+                child.put("parentSpanId", span.getParentSpanId());
+                child.put("name", span.getName());
+                child.put("kind", span.getName().startsWith("ext.") ? SPAN_KIND_CLIENT : SPAN_KIND_INTERNAL);
+                child.put("startTimeUnixNano", String.valueOf(span.getStartEpochNanos()));
+                child.put("endTimeUnixNano", String.valueOf(span.getEndEpochNanos()));
+            }
+        }
+        return objectMapper.writeValueAsString(request);
+    }
+
+    private static void addAttribute(ArrayNode attributes, String key, Object value) {
+        ObjectNode attribute = attributes.addObject();
+        attribute.put("key", key);
+        ObjectNode anyValue = attribute.putObject("value");
+        if (value instanceof Number) {
+            // OTLP/JSON encodes 64-bit integers as strings
+            anyValue.put("intValue", String.valueOf(((Number) value).longValue()));
+        } else {
+            anyValue.put("stringValue", String.valueOf(value));
+        }
+    }
+}
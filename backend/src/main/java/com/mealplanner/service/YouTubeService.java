@@ -1,5 +1,9 @@
 package com.mealplanner.service;
 
+import com.mealplanner.util.ProviderGuards;
+import com.mealplanner.util.RequestTrace;
+import com.mealplanner.util.TtlCache;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
@@ -8,87 +12,252 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import java.util.Random;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class YouTubeService {
 
     private static final Logger logger = LoggerFactory.getLogger(YouTubeService.class);
-    private final Random random = new Random();
+
+    // Search strategies, in order of preference; they run concurrently and the first hit wins
+    private static final List<String> SEARCH_SUFFIXES = List.of("recipe", "cooking", "how to make");
 
     @Value("${youtube.api.key}")
     private String apiKey;
 
+    @Value("${youtube.search.timeout-ms:10000}")
+    private long searchTimeoutMs;
+
+    @Value("${youtube.batch.max-queries:50}")
+    private int maxBatchQueries;
+
+    private final ProviderGuards providerGuards;
+    private final RestTemplate restTemplate;
+    private final String searchUrl;
+    private final ExecutorService searchExecutor;
+
+    // search term -> embed URL; negative results are cached separately for a shorter time
+    private final TtlCache<String, String> videoCache;
+    private final TtlCache<String, Boolean> notFoundCache;
+
+    @Autowired
+    public YouTubeService(ProviderGuards providerGuards,
+                          @Value("${youtube.cache.max-entries:5000}") int cacheMaxEntries,
+                          @Value("${youtube.cache.ttl-hours:168}") long cacheTtlHours,
+                          @Value("${youtube.cache.not-found-ttl-minutes:60}") long notFoundTtlMinutes,
+                          @Value("${youtube.search.pool-size:6}") int poolSize) {
+        this.providerGuards = providerGuards;
+        this.restTemplate = providerGuards.restTemplate();
+        this.searchUrl = providerGuards.baseUrl("youtube", "https://www.googleapis.com") + "/youtube/v3/search";
+        this.videoCache = new TtlCache<>(cacheMaxEntries, TimeUnit.HOURS.toMillis(cacheTtlHours));
+        this.notFoundCache = new TtlCache<>(cacheMaxEntries, TimeUnit.MINUTES.toMillis(notFoundTtlMinutes));
+        AtomicInteger counter = new AtomicInteger();
+        this.searchExecutor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "youtube-search-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        searchExecutor.shutdownNow();
+    }
+
     public String searchRecipeVideo(String query) {
         try {
             // Extract the main ingredient or dish type from the query
-            String searchTerm = extractSearchTerm(query);
-            
-            // Try different search strategies for better results
-            String embedUrl = trySearchStrategy(searchTerm, "recipe");
-            if (embedUrl.isEmpty()) {
-                embedUrl = trySearchStrategy(searchTerm, "cooking");
-            }
-            if (embedUrl.isEmpty()) {
-                embedUrl = trySearchStrategy(searchTerm, "how to make");
+            String searchTerm = normalize(extractSearchTerm(query));
+
+            String cached = cachedVideo(searchTerm);
+            if (cached != null) {
+                return cached;
             }
-            
-            return embedUrl;
+
+            return resolveAsync(searchTerm).get(searchTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("YouTube search timed out for query: {}", query);
         } catch (Exception e) {
             logger.error("Error searching YouTube for query: {}", query, e);
         }
         return "";
     }
 
-    private String trySearchStrategy(String searchTerm, String suffix) {
-        try {
-            String fullQuery = searchTerm + " " + suffix;
-            
-            String url = UriComponentsBuilder.fromHttpUrl("https://www.googleapis.com/youtube/v3/search")
-                    .queryParam("part", "snippet")
-                    .queryParam("q", fullQuery)
-                    .queryParam("type", "video")
-                    .queryParam("maxResults", "5") // Get more results for variety
-                    .queryParam("key", apiKey)
-                    .build()
-                    .toUriString();
-
-            logger.info("YouTube API URL: {}", url);
-
-            RestTemplate restTemplate = new RestTemplate();
-            String response = restTemplate.getForObject(url, String.class);
-
-            logger.info("YouTube API Response: {}", response);
-
-            if (response != null) {
-                JSONObject jsonResponse = new JSONObject(response);
-                JSONArray items = jsonResponse.getJSONArray("items");
-
-                if (items.length() > 0) {
-                    // Randomly select from top 3 results for variety
-                    int randomIndex = Math.min(random.nextInt(3), items.length() - 1);
-                    JSONObject selectedItem = items.getJSONObject(randomIndex);
-                    JSONObject id = selectedItem.getJSONObject("id");
-                    String videoId = id.getString("videoId");
-                    String embedUrl = "https://www.youtube.com/embed/" + videoId;
-                    
-                    logger.info("Found video ID: {}, Embed URL: {}", videoId, embedUrl);
-                    return embedUrl;
-                } else {
-                    logger.warn("No videos found for query: {}", fullQuery);
-                    return "";
+    /**
+     * Resolve videos for many dishes at once; dishes sharing a search term share one lookup
+     */
+    public Map<String, String> searchRecipeVideos(Collection<String> queries) {
+        Map<String, String> termsByQuery = new LinkedHashMap<>();
+        Map<String, CompletableFuture<String>> pending = new LinkedHashMap<>();
+
+        for (String query : queries) {
+            if (query == null || query.isBlank() || termsByQuery.containsKey(query)) {
+                continue;
+            }
+            String searchTerm = normalize(extractSearchTerm(query));
+            termsByQuery.put(query, searchTerm);
+            if (!pending.containsKey(searchTerm)) {
+                String cached = cachedVideo(searchTerm);
+                pending.put(searchTerm, cached != null
+                    ? CompletableFuture.completedFuture(cached)
+                    : resolveAsync(searchTerm));
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + searchTimeoutMs;
+        Map<String, String> videosByTerm = new LinkedHashMap<>();
+        try (RequestTrace.Phase phase = RequestTrace.phase("ext.youtube")) {
+            for (Map.Entry<String, CompletableFuture<String>> entry : pending.entrySet()) {
+                String embedUrl = "";
+                try {
+                    long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                    embedUrl = entry.getValue().get(remaining, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // The lookup keeps running and caches its answer for the next request
+                    logger.warn("YouTube search timed out for term: {}", entry.getKey());
+                } catch (Exception e) {
+                    logger.error("Error searching YouTube for term: {}", entry.getKey(), e);
                 }
+                videosByTerm.put(entry.getKey(), embedUrl);
             }
-        } catch (Exception e) {
-            logger.error("Error in search strategy for: {}", searchTerm + " " + suffix, e);
         }
-        return "";
+
+        Map<String, String> result = new LinkedHashMap<>();
+        termsByQuery.forEach((query, term) -> result.put(query, videosByTerm.getOrDefault(term, "")));
+        return result;
+    }
+
+    /**
+     * The most dish names one batch request may ask for
+     */
+    public int getMaxBatchQueries() {
+        return maxBatchQueries;
+    }
+
+    public TtlCache<String, String> getVideoCache() {
+        return videoCache;
+    }
+
+    public TtlCache<String, Boolean> getNotFoundCache() {
+        return notFoundCache;
+    }
+
+    public ExecutorService getSearchExecutor() {
+        return searchExecutor;
+    }
+
+    /**
+     * Start all search strategies concurrently; completes with the first non-empty embed URL, or "" if none match.
+     * A hit is cached when it arrives, even if the caller has stopped waiting for it. "No video" is cached only
+     * when every strategy got an empty result; an error (open breaker, timeout, quota) is not an answer.
+     */
+    private CompletableFuture<String> resolveAsync(String searchTerm) {
+        List<CompletableFuture<String>> attempts = new ArrayList<>();
+        for (String suffix : SEARCH_SUFFIXES) {
+            attempts.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return trySearchStrategy(searchTerm, suffix);
+                } catch (Exception e) {
+                    logger.error("Error in search strategy for: {} - {}", searchTerm + " " + suffix, e.getMessage());
+                    throw new CompletionException(e);
+                }
+            }, searchExecutor));
+        }
+
+        CompletableFuture<String> result = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(attempts.size());
+        AtomicBoolean errored = new AtomicBoolean();
+        for (CompletableFuture<String> attempt : attempts) {
+            attempt.whenComplete((embedUrl, error) -> {
+                if (embedUrl != null && !embedUrl.isEmpty()) {
+                    if (result.complete(embedUrl)) {
+                        // Strategies that have not started yet are skipped, saving quota
+                        attempts.forEach(other -> other.cancel(false));
+                    }
+                    return;
+                }
+                if (error != null) {
+                    errored.set(true);
+                }
+                if (remaining.decrementAndGet() == 0 && result.complete("") && !errored.get()) {
+                    notFoundCache.put(searchTerm, Boolean.TRUE);
+                }
+            });
+        }
+        result.thenAccept(embedUrl -> {
+            if (!embedUrl.isEmpty()) {
+                videoCache.put(searchTerm, embedUrl);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * The top video for one strategy, or "" when YouTube returned no items; throws when there was no usable answer
+     */
+    private String trySearchStrategy(String searchTerm, String suffix) throws Exception {
+        String fullQuery = searchTerm + " " + suffix;
+
+        String url = UriComponentsBuilder.fromHttpUrl(searchUrl)
+                .queryParam("part", "snippet")
+                .queryParam("q", fullQuery)
+                .queryParam("type", "video")
+                .queryParam("maxResults", "1")
+                .queryParam("fields", "items(id/videoId)")
+                .queryParam("key", apiKey)
+                .build()
+                .toUriString();
+
+        logger.debug("Searching YouTube for: {}", fullQuery);
+
+        String response = providerGuards.guard("youtube").call(() -> restTemplate.getForObject(url, String.class));
+
+        JSONArray items = response != null ? new JSONObject(response).optJSONArray("items") : null;
+        if (items == null) {
+            throw new IllegalStateException("YouTube returned no items array");
+        }
+        if (items.length() == 0) {
+            logger.warn("No videos found for query: {}", fullQuery);
+            return "";
+        }
+        // Take the top-ranked result so the choice is stable and cacheable
+        String videoId = items.getJSONObject(0).getJSONObject("id").getString("videoId");
+        String embedUrl = "https://www.youtube.com/embed/" + videoId;
+
+        logger.info("Found video ID: {} for query: {}", videoId, fullQuery);
+        return embedUrl;
+    }
+
+    private String cachedVideo(String searchTerm) {
+        String cached = videoCache.get(searchTerm);
+        if (cached != null) {
+            return cached;
+        }
+        return notFoundCache.get(searchTerm) != null ? "" : null;
+    }
+
+    private static String normalize(String searchTerm) {
+        return searchTerm.trim().toLowerCase().replaceAll("\\s+", " ");
     }
 
     private String extractSearchTerm(String query) {
         // Map specific dish names to more searchable terms
         String lowerQuery = query.toLowerCase();
-        
+
         // Breakfast items
         if (lowerQuery.contains("poha")) return "poha";
         if (lowerQuery.contains("upma")) return "upma";
@@ -96,7 +265,7 @@ public class YouTubeService {
         if (lowerQuery.contains("idli")) return "idli sambar";
         if (lowerQuery.contains("paratha")) return "aloo paratha";
         if (lowerQuery.contains("dosa")) return "masala dosa";
-        
+
         // Main dishes
         if (lowerQuery.contains("chicken curry")) return "chicken curry";
         if (lowerQuery.contains("fish curry")) return "fish curry";
@@ -104,7 +273,7 @@ public class YouTubeService {
         if (lowerQuery.contains("butter chicken")) return "butter chicken";
         if (lowerQuery.contains("chicken keema")) return "chicken keema";
         if (lowerQuery.contains("fish fry")) return "fish fry";
-        
+
         // Vegetarian dishes
         if (lowerQuery.contains("paneer")) return "paneer tikka";
         if (lowerQuery.contains("biryani")) return "vegetable biryani";
@@ -115,12 +284,12 @@ public class YouTubeService {
         if (lowerQuery.contains("khichdi")) return "khichdi";
         if (lowerQuery.contains("kadhi")) return "kadhi chawal";
         if (lowerQuery.contains("mixed vegetable")) return "mixed vegetable curry";
-        
+
         // Generic fallbacks
         if (lowerQuery.contains("curry")) return "curry";
         if (lowerQuery.contains("vegetable")) return "vegetable curry";
-        
+
         // If no specific match, use the original query
         return query;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,98 @@
+package com.mealplanner.util;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * A JSON request body with an image embedded as a base64 string, encoded while it is written:
+ * the JSON before the image, the image streamed through a base64 encoder, then the JSON after it.
+ *
+ * The image is never held as a base64 String or inside a JSON String, and a disk-backed upload
+ * is never read into memory. The body re-reads the image on every write, so retries and hedged
+ * attempts can send it again.
+ */
+public class Base64ImageBody extends RequestBody {
+
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    private final byte[] prefix;
+    private final MultipartFile image;
+    private final byte[] suffix;
+
+    public Base64ImageBody(String prefix, MultipartFile image, String suffix) {
+        this.prefix = prefix.getBytes(StandardCharsets.UTF_8);
+        this.image = image;
+        this.suffix = suffix.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Split serialized JSON around a placeholder string value that stands for the image's base64
+     */
+    public static Base64ImageBody around(String json, String placeholder, MultipartFile image) {
+        int index = json.indexOf(placeholder);
+        if (index < 0 || json.indexOf(placeholder, index + 1) >= 0) {
+            throw new IllegalArgumentException("Placeholder must appear exactly once in the request JSON");
+        }
+        return new Base64ImageBody(json.substring(0, index), image, json.substring(index + placeholder.length()));
+    }
+
+    @Override
+    public MediaType contentType() {
+        return JSON;
+    }
+
+    @Override
+    public long contentLength() {
+        return prefix.length + 4 * ((image.getSize() + 2) / 3) + suffix.length;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        writeTo(sink.outputStream());
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(prefix);
+        // Closing the encoder writes the final padded quantum; the shield keeps the request stream open
+        try (InputStream input = image.getInputStream();
+             OutputStream encoder = Base64.getEncoder().wrap(new FilterOutputStream(out) {
+                 @Override
+                 public void write(byte[] b, int off, int len) throws IOException {
+                     out.write(b, off, len);
+                 }
+
+                 @Override
+                 public void close() throws IOException {
+                     flush();
+                 }
+             })) {
+            input.transferTo(encoder);
+        }
+        out.write(suffix);
+    }
+
+    /**
+     * Write this body to a RestTemplate request, streamed with a fixed Content-Length when the
+     * request factory supports it
+     */
+    public void writeTo(ClientHttpRequest request) throws IOException {
+        request.getHeaders().setContentType(org.springframework.http.MediaType.APPLICATION_JSON);
+        request.getHeaders().setContentLength(contentLength());
+        if (request instanceof StreamingHttpOutputMessage streaming) {
+            streaming.setBody(this::writeTo);
+        } else {
+            writeTo(request.getBody());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.mealplanner.util;
+
+/**
+ * Counters an in-memory cache keeps so {@link TtlCacheMetrics} can publish them.
+ */
+public interface CacheStats {
+
+    int size();
+
+    long getHits();
+
+    long getMisses();
+
+    long getPuts();
+
+    /**
+     * Entries removed because they expired or the cache was full
+     */
+    long getEvictions();
+
+    default double hitRatio() {
+        long total = getHits() + getMisses();
+        return total == 0 ? 0 : (double) getHits() / total;
+    }
+}
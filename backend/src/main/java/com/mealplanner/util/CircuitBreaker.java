@@ -0,0 +1,249 @@
+package com.mealplanner.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+/**
+ * Count-based circuit breaker for a single external provider.
+ *
+ * Keeps the outcome and duration of the last {@code windowSize} calls. The breaker opens when
+ * either the failure rate or the slow-call rate crosses its threshold, rejects calls while open,
+ * and after {@code openDurationMs} lets a few probe calls through (half-open) to decide whether
+ * to close again.
+ *
+ * A 4xx answer other than 408 and 429 is the caller's mistake (a food name Nutritionix cannot
+ * match, a bad proxied request), so it is recorded as a successful call rather than a failure.
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallDurationMs;
+    private final double slowCallRateThreshold;
+    private final long openDurationMs;
+    private final int halfOpenPermittedCalls;
+
+    // Ring buffer of recent call outcomes
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private final long[] durations;
+    private int next;
+    private int recorded;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSucceeded;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                          long slowCallDurationMs, double slowCallRateThreshold,
+                          long openDurationMs, int halfOpenPermittedCalls) {
+        this.name = name;
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallDurationMs = slowCallDurationMs;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openDurationMs = openDurationMs;
+        this.halfOpenPermittedCalls = Math.max(1, halfOpenPermittedCalls);
+        this.failed = new boolean[this.windowSize];
+        this.slow = new boolean[this.windowSize];
+        this.durations = new long[this.windowSize];
+    }
+
+    /**
+     * Run the call through the breaker, recording its outcome and duration
+     */
+    public <T> T execute(Callable<T> call) throws Exception {
+        acquirePermission();
+        long start = System.nanoTime();
+        try {
+            T result = call.call();
+            onResult(false, elapsedMs(start));
+            return result;
+        } catch (Exception e) {
+            if (isCancellation(e)) {
+                // Cancelled by the caller (e.g. a losing hedged attempt), not a provider failure
+                onCancelled();
+            } else {
+                onResult(!isClientError(e), elapsedMs(start));
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Whether the call failed because its thread was interrupted; InterruptedException clears the flag
+     */
+    public static boolean isCancellation(Exception e) {
+        return e instanceof InterruptedException || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Whether the provider rejected the request itself: a 4xx other than 408 (timeout) and 429 (rate limit)
+     */
+    public static boolean isClientError(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof RestClientResponseException response) {
+                int status = response.getStatusCode().value();
+                return status >= 400 && status < 500 && status != 408 && status != 429;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Throws {@link CallNotPermittedException} when the breaker is open or the half-open probes are used up
+     */
+    public synchronized void acquirePermission() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openDurationMs) {
+                throw new CallNotPermittedException(name);
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenInFlight >= halfOpenPermittedCalls) {
+                throw new CallNotPermittedException(name);
+            }
+            halfOpenInFlight++;
+        }
+    }
+
+    /**
+     * Record the outcome of a call that was admitted by {@link #acquirePermission()}
+     */
+    public synchronized void onResult(boolean failure, long durationMs) {
+        boolean slowCall = durationMs >= slowCallDurationMs;
+
+        if (state == State.HALF_OPEN) {
+            if (failure || slowCall) {
+                transitionTo(State.OPEN);
+                return;
+            }
+            halfOpenSucceeded++;
+            if (halfOpenSucceeded >= halfOpenPermittedCalls) {
+                transitionTo(State.CLOSED);
+            }
+            record(false, false, durationMs);
+            return;
+        }
+
+        record(failure, slowCall, durationMs);
+
+        if (state == State.CLOSED && recorded >= minimumCalls) {
+            if (failureRate() >= failureRateThreshold || slowCallRate() >= slowCallRateThreshold) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    /**
+     * Release a permission without recording an outcome
+     */
+    public synchronized void onCancelled() {
+        if (state == State.HALF_OPEN && halfOpenInFlight > 0) {
+            halfOpenInFlight--;
+        }
+    }
+
+    /**
+     * Latency percentile (0-100) of recent successful calls, or -1 if there is no data yet
+     */
+    public synchronized long latencyPercentile(double percentile) {
+        long[] samples = new long[recorded];
+        int count = 0;
+        for (int i = 0; i < recorded; i++) {
+            if (!failed[i]) {
+                samples[count++] = durations[i];
+            }
+        }
+        if (count == 0) {
+            return -1;
+        }
+        Arrays.sort(samples, 0, count);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return samples[Math.max(0, Math.min(index, count - 1))];
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDurationMs) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    public synchronized double failureRate() {
+        return rate(failed);
+    }
+
+    public synchronized double slowCallRate() {
+        return rate(slow);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private void record(boolean failure, boolean slowCall, long durationMs) {
+        failed[next] = failure;
+        slow[next] = slowCall;
+        durations[next] = durationMs;
+        next = (next + 1) % windowSize;
+        if (recorded < windowSize) {
+            recorded++;
+        }
+    }
+
+    private double rate(boolean[] flags) {
+        if (recorded == 0) {
+            return 0;
+        }
+        int hits = 0;
+        for (int i = 0; i < recorded; i++) {
+            if (flags[i]) {
+                hits++;
+            }
+        }
+        return hits * 100.0 / recorded;
+    }
+
+    private void transitionTo(State newState) {
+        logger.warn("Circuit breaker '{}' changed state {} -> {} (failure rate {}%, slow rate {}%)",
+            name, state, newState, Math.round(rate(failed)), Math.round(rate(slow)));
+        state = newState;
+        halfOpenInFlight = 0;
+        halfOpenSucceeded = 0;
+        if (newState == State.OPEN) {
+            openedAt = System.currentTimeMillis();
+        } else if (newState == State.CLOSED) {
+            Arrays.fill(failed, false);
+            Arrays.fill(slow, false);
+            next = 0;
+            recorded = 0;
+        }
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * Thrown instead of calling the provider while the breaker is open
+     */
+    public static class CallNotPermittedException extends RuntimeException {
+        public CallNotPermittedException(String name) {
+            super("Circuit breaker '" + name + "' is open; call not permitted");
+        }
+    }
+}
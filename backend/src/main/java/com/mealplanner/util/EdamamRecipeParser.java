@@ -0,0 +1,291 @@
+package com.mealplanner.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.mealplanner.dto.MealDto;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming parser for Edamam recipe search responses.
+ *
+ * Walks the token stream once and copies only the fields we map into {@link MealDto},
+ * including protein/carbs/fat/fiber/sugar/sodium from {@code totalNutrients}. Everything
+ * else (digest, images map, health labels, ...) is skipped without being materialized.
+ * The continuation token of the next page is kept so callers can page through results.
+ */
+public class EdamamRecipeParser {
+
+    private final JsonFactory jsonFactory;
+
+    public EdamamRecipeParser() {
+        this(new JsonFactory());
+    }
+
+    public EdamamRecipeParser(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    public List<MealDto> parse(InputStream body) throws IOException {
+        return parsePage(body).getMeals();
+    }
+
+    public List<MealDto> parse(byte[] body) throws IOException {
+        return parsePage(body).getMeals();
+    }
+
+    public Page parsePage(InputStream body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            return parsePage(parser);
+        }
+    }
+
+    public Page parsePage(byte[] body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            return parsePage(parser);
+        }
+    }
+
+    private Page parsePage(JsonParser parser) throws IOException {
+        List<MealDto> meals = new ArrayList<>();
+        String nextPageToken = null;
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return new Page(meals, null);
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("hits".equals(field) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    MealDto meal = parseHit(parser);
+                    if (meal != null) {
+                        meals.add(meal);
+                    }
+                }
+            } else if ("_links".equals(field) && value == JsonToken.START_OBJECT) {
+                nextPageToken = parseNextPageToken(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new Page(meals, nextPageToken);
+    }
+
+    /**
+     * _links is {"next": {"href": "...&_cont=TOKEN...", "title": "Next page"}}; only the _cont token is kept,
+     * since the href also carries the app credentials
+     */
+    private String parseNextPageToken(JsonParser parser) throws IOException {
+        String token = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (!"next".equals(field) || value != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String linkField = parser.currentName();
+                JsonToken linkValue = parser.nextToken();
+                if ("href".equals(linkField) && linkValue == JsonToken.VALUE_STRING) {
+                    String encoded = UriComponentsBuilder.fromUriString(parser.getText())
+                        .build().getQueryParams().getFirst("_cont");
+                    token = encoded != null ? UriUtils.decode(encoded, StandardCharsets.UTF_8) : null;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return token;
+    }
+
+    private MealDto parseHit(JsonParser parser) throws IOException {
+        MealDto meal = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("recipe".equals(field) && value == JsonToken.START_OBJECT) {
+                meal = parseRecipe(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return meal;
+    }
+
+    private MealDto parseRecipe(JsonParser parser) throws IOException {
+        MealDto meal = new MealDto();
+        meal.setSourceApi("edamam");
+        meal.setMealType("GENERAL");
+        meal.setDietType("MIXED");
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "uri" -> meal.setExternalId(extractIdFromUri(parser.getText()));
+                case "label" -> meal.setName(parser.getText());
+                case "image" -> meal.setImageUrl(parser.getText());
+                case "source" -> meal.setDescription(parser.getText());
+                case "url" -> meal.setSourceUrl(parser.getText());
+                case "yield" -> meal.setServings((int) parser.getValueAsDouble());
+                case "calories" -> meal.setCalories((int) parser.getValueAsDouble());
+                case "totalTime" -> meal.setCookTimeMinutes((int) parser.getValueAsDouble());
+                case "ingredientLines" -> meal.setIngredients(readStrings(parser));
+                case "mealType" -> {
+                    String first = readFirstString(parser);
+                    if (first != null) {
+                        meal.setMealType(first.toUpperCase());
+                    }
+                }
+                case "dietLabels" -> {
+                    String first = readFirstString(parser);
+                    if (first != null) {
+                        meal.setDietType(first.toUpperCase());
+                    }
+                }
+                case "cuisineType" -> {
+                    String first = readFirstString(parser);
+                    if (first != null) {
+                        meal.setCuisineType(first);
+                    }
+                }
+                case "totalNutrients" -> parseNutrients(parser, meal);
+                default -> parser.skipChildren();
+            }
+        }
+        return meal;
+    }
+
+    /**
+     * totalNutrients is an object keyed by nutrient code, e.g. "PROCNT": {"label": "Protein", "quantity": 12.3, "unit": "g"}
+     */
+    private void parseNutrients(JsonParser parser, MealDto meal) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String code = parser.currentName();
+            parser.nextToken();
+            if (!isMappedNutrient(code)) {
+                parser.skipChildren();
+                continue;
+            }
+            Double quantity = readQuantity(parser);
+            if (quantity == null) {
+                continue;
+            }
+            switch (code) {
+                case "PROCNT" -> meal.setProteinGrams(quantity);
+                case "CHOCDF" -> meal.setCarbsGrams(quantity);
+                case "FAT" -> meal.setFatGrams(quantity);
+                case "FIBTG" -> meal.setFiberGrams(quantity);
+                case "SUGAR" -> meal.setSugarGrams(quantity);
+                case "NA" -> meal.setSodiumMilliGrams(quantity);
+                default -> { }
+            }
+        }
+    }
+
+    private static boolean isMappedNutrient(String code) {
+        return switch (code) {
+            case "PROCNT", "CHOCDF", "FAT", "FIBTG", "SUGAR", "NA" -> true;
+            default -> false;
+        };
+    }
+
+    private Double readQuantity(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        Double quantity = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("quantity".equals(field) && value.isNumeric()) {
+                quantity = Math.round(parser.getDoubleValue() * 100) / 100.0;
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return quantity;
+    }
+
+    private List<String> readStrings(JsonParser parser) throws IOException {
+        List<String> values = new ArrayList<>();
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return values;
+        }
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.VALUE_STRING) {
+                values.add(parser.getText());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return values;
+    }
+
+    private String readFirstString(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        String first = null;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (first == null && token == JsonToken.VALUE_STRING) {
+                first = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Extract ID from Edamam URI
+     */
+    private static String extractIdFromUri(String uri) {
+        if (uri != null && uri.contains("recipe_")) {
+            return uri.substring(uri.lastIndexOf("_") + 1);
+        }
+        return uri;
+    }
+
+    /**
+     * One page of search results plus the token for the following page (null on the last page)
+     */
+    public static class Page {
+        private final List<MealDto> meals;
+        private final String nextPageToken;
+
+        public Page(List<MealDto> meals, String nextPageToken) {
+            this.meals = meals;
+            this.nextPageToken = nextPageToken;
+        }
+
+        public List<MealDto> getMeals() {
+            return meals;
+        }
+
+        public String getNextPageToken() {
+            return nextPageToken;
+        }
+    }
+}
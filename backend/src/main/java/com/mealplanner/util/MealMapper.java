@@ -25,6 +25,12 @@ public class MealMapper {
     public MealDto toMealDto(Recipe recipe) {
         if (recipe == null) return null;
 
+        try (RequestTrace.Phase phase = RequestTrace.phase("map")) {
+            return mapRecipe(recipe);
+        }
+    }
+
+    private MealDto mapRecipe(Recipe recipe) {
         MealDto dto = new MealDto();
         dto.setId(recipe.getId());
         dto.setExternalId(recipe.getExternalId());
@@ -0,0 +1,99 @@
+package com.mealplanner.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mealplanner.service.FoodRecognitionService.FoodItem;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads Nutritionix responses into {@link FoodItem}s: natural/nutrients answers paired back with the
+ * labels that were asked for, and single items from instant search (calories and macros from
+ * full_nutrients, branded items prefixed with their brand).
+ */
+public class NutritionixParser {
+
+    private final ObjectMapper objectMapper;
+
+    public NutritionixParser() {
+        this(new ObjectMapper());
+    }
+
+    public NutritionixParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Pair foods from a natural/nutrients response with the (normalized) labels that produced them
+     */
+    public Map<String, FoodItem> matchNaturalFoods(List<String> labels, String body) throws IOException {
+        JsonNode foods = objectMapper.readTree(body).path("foods");
+        Map<String, FoodItem> matched = new HashMap<>();
+        if (!foods.isArray()) {
+            return matched;
+        }
+
+        List<JsonNode> unmatched = new ArrayList<>();
+        for (JsonNode food : foods) {
+            String item = normalize(food.path("tags").path("item").asText(""));
+            String foodName = normalize(food.path("food_name").asText(""));
+            if (labels.contains(item) && !matched.containsKey(item)) {
+                matched.put(item, toFoodItem(food));
+            } else if (labels.contains(foodName) && !matched.containsKey(foodName)) {
+                matched.put(foodName, toFoodItem(food));
+            } else {
+                unmatched.add(food);
+            }
+        }
+
+        // Nutritionix rewrites some names ("fries" -> "french fries"); with one food per label the order still lines up
+        if (!unmatched.isEmpty() && foods.size() == labels.size()) {
+            for (int i = 0; i < labels.size(); i++) {
+                matched.putIfAbsent(labels.get(i), toFoodItem(foods.get(i)));
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * One item from an instant search response's common or branded section
+     */
+    public FoodItem parseInstantItem(JsonNode item, boolean isBranded) {
+        String name = item.path("food_name").asText();
+        String fullName = isBranded ? item.path("brand_name").asText() + " " + name : name;
+
+        double calories = 0;
+        double protein = 0;
+        double carbs = 0;
+        double fat = 0;
+        for (JsonNode nutrient : item.path("full_nutrients")) {
+            double value = nutrient.path("value").asDouble();
+            switch (nutrient.path("attr_id").asInt()) {
+                case 208: calories = value; break;
+                case 203: protein = value; break;
+                case 205: carbs = value; break;
+                case 204: fat = value; break;
+            }
+        }
+        return new FoodItem(fullName, calories, protein, carbs, fat, 0.95);
+    }
+
+    private static FoodItem toFoodItem(JsonNode food) {
+        return new FoodItem(
+            food.path("food_name").asText(),
+            food.path("nf_calories").asDouble(),
+            food.path("nf_protein").asDouble(),
+            food.path("nf_total_carbohydrate").asDouble(),
+            food.path("nf_total_fat").asDouble(),
+            0.95
+        );
+    }
+
+    private static String normalize(String label) {
+        return label.trim().toLowerCase().replaceAll("\\s+", " ");
+    }
+}
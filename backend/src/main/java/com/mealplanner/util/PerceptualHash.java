@@ -0,0 +1,116 @@
+package com.mealplanner.util;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Difference hash (dHash) of an image plus its average colour, for spotting re-uploads of the same photo.
+ *
+ * The image is shrunk to 9x8 grey pixels and each bit says whether a pixel is brighter than its right
+ * neighbour, so re-encoding, resizing and small crops flip only a few of the 64 bits. dHash ignores
+ * colour, which is what mostly tells one curry from another, hence the separate colour check.
+ */
+public final class PerceptualHash {
+
+    private final long hash;
+    private final int averageRgb;
+
+    private PerceptualHash(long hash, int averageRgb) {
+        this.hash = hash;
+        this.averageRgb = averageRgb;
+    }
+
+    /**
+     * Hash an encoded image, or null when ImageIO cannot decode it
+     */
+    public static PerceptualHash of(byte[] encoded) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(encoded))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // Only 9x8 pixels are needed; subsampling while decoding skips most of the work
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.min(reader.getWidth(0) / 36, reader.getHeight(0) / 32));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return of(reader.read(0, param));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    public static PerceptualHash of(BufferedImage image) {
+        BufferedImage small = new BufferedImage(9, 8, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = small.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, 9, 8, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        long hash = 0;
+        long red = 0;
+        long green = 0;
+        long blue = 0;
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                int left = small.getRGB(x, y);
+                int right = small.getRGB(x + 1, y);
+                hash = (hash << 1) | (luma(left) > luma(right) ? 1 : 0);
+                red += (left >> 16) & 0xFF;
+                green += (left >> 8) & 0xFF;
+                blue += left & 0xFF;
+            }
+        }
+        int averageRgb = (int) (red / 64) << 16 | (int) (green / 64) << 8 | (int) (blue / 64);
+        return new PerceptualHash(hash, averageRgb);
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    public int getAverageRgb() {
+        return averageRgb;
+    }
+
+    /**
+     * Differing hash bits (0-64)
+     */
+    public int hashDistance(PerceptualHash other) {
+        return Long.bitCount(hash ^ other.hash);
+    }
+
+    /**
+     * Largest per-channel difference of the average colours (0-255)
+     */
+    public int colorDistance(PerceptualHash other) {
+        int distance = 0;
+        for (int shift = 0; shift <= 16; shift += 8) {
+            distance = Math.max(distance, Math.abs(((averageRgb >> shift) & 0xFF) - ((other.averageRgb >> shift) & 0xFF)));
+        }
+        return distance;
+    }
+
+    private static int luma(int rgb) {
+        return (299 * ((rgb >> 16) & 0xFF) + 587 * ((rgb >> 8) & 0xFF) + 114 * (rgb & 0xFF)) / 1000;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x/%06x", hash, averageRgb);
+    }
+}
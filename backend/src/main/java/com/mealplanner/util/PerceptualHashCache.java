@@ -0,0 +1,138 @@
+package com.mealplanner.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache with a time-to-live, keyed by {@link PerceptualHash} and answering near-duplicate lookups:
+ * an entry matches when its hash is within a Hamming distance and its average colour within a
+ * per-channel distance of the probe.
+ *
+ * Exact hashes are found by map lookup; otherwise every entry is compared, which for a few thousand
+ * 64-bit hashes is a few microseconds of XOR/popcount and cheaper than maintaining a metric tree.
+ */
+public class PerceptualHashCache<V> implements CacheStats {
+
+    private final long ttlMillis;
+    private final LinkedHashMap<Long, Entry<V>> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong nearHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong puts = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public PerceptualHashCache(int maxEntries, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry<V>> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * The value of the closest live entry within both distances, or null
+     */
+    public V get(PerceptualHash probe, int maxHashDistance, int maxColorDistance) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry<V> exact = entries.get(probe.getHash());
+            if (exact != null && exact.expiresAt > now && probe.colorDistance(exact.hash) <= maxColorDistance) {
+                hits.incrementAndGet();
+                return exact.value;
+            }
+
+            Entry<V> best = null;
+            int bestDistance = Integer.MAX_VALUE;
+            for (Iterator<Entry<V>> it = entries.values().iterator(); it.hasNext(); ) {
+                Entry<V> entry = it.next();
+                if (entry.expiresAt <= now) {
+                    it.remove();
+                    evictions.incrementAndGet();
+                    continue;
+                }
+                int distance = probe.hashDistance(entry.hash);
+                if (distance <= maxHashDistance && distance < bestDistance
+                        && probe.colorDistance(entry.hash) <= maxColorDistance) {
+                    best = entry;
+                    bestDistance = distance;
+                }
+            }
+            if (best != null) {
+                // Refresh its LRU position
+                entries.get(best.hash.getHash());
+                hits.incrementAndGet();
+                nearHits.incrementAndGet();
+                return best.value;
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(PerceptualHash hash, V value) {
+        synchronized (entries) {
+            entries.put(hash.getHash(), new Entry<>(hash, value, System.currentTimeMillis() + ttlMillis));
+        }
+        puts.incrementAndGet();
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    @Override
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Hits that matched a similar rather than identical hash (included in {@link #getHits()})
+     */
+    public long getNearHits() {
+        return nearHits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public long getPuts() {
+        return puts.get();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private static class Entry<V> {
+        private final PerceptualHash hash;
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(PerceptualHash hash, V value, long expiresAt) {
+            this.hash = hash;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.mealplanner.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps calls to one external provider with a {@link CircuitBreaker} and, for idempotent
+ * lookups, optional request hedging: if the first attempt has not answered after the
+ * provider's recent p95 latency, a second identical attempt is started and whichever
+ * finishes first wins.
+ *
+ * Every attempt is timed as {@code provider.calls}, tagged with the provider and its outcome
+ * (success, error, client_error, rejected or cancelled).
+ */
+public class ProviderGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProviderGuard.class);
+
+    private final CircuitBreaker circuitBreaker;
+    private final ExecutorService hedgeExecutor;
+    private final boolean hedgingEnabled;
+    private final long minHedgeDelayMs;
+    private final long defaultHedgeDelayMs;
+    private final MeterRegistry meterRegistry;
+    private final Counter hedges;
+    private final String tracePhase;
+
+    public ProviderGuard(CircuitBreaker circuitBreaker, ExecutorService hedgeExecutor,
+                         boolean hedgingEnabled, long minHedgeDelayMs, long defaultHedgeDelayMs,
+                         MeterRegistry meterRegistry) {
+        this.circuitBreaker = circuitBreaker;
+        this.hedgeExecutor = hedgeExecutor;
+        this.hedgingEnabled = hedgingEnabled;
+        this.minHedgeDelayMs = minHedgeDelayMs;
+        this.defaultHedgeDelayMs = defaultHedgeDelayMs;
+        this.meterRegistry = meterRegistry;
+        this.hedges = Counter.builder("provider.hedges")
+            .description("Second attempts started for slow provider calls")
+            .tag("provider", circuitBreaker.getName())
+            .register(meterRegistry);
+        this.tracePhase = "ext." + circuitBreaker.getName();
+    }
+
+    /**
+     * Call the provider through the circuit breaker
+     */
+    public <T> T call(Callable<T> call) throws Exception {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try (RequestTrace.Phase phase = RequestTrace.phase(tracePhase)) {
+            T result = circuitBreaker.execute(call);
+            outcome = "success";
+            return result;
+        } catch (CircuitBreaker.CallNotPermittedException e) {
+            outcome = "rejected";
+            throw e;
+        } catch (Exception e) {
+            if (CircuitBreaker.isCancellation(e)) {
+                outcome = "cancelled";
+            } else if (CircuitBreaker.isClientError(e)) {
+                outcome = "client_error";
+            }
+            throw e;
+        } finally {
+            Timer.builder("provider.calls")
+                .description("External provider calls, including hedged attempts")
+                .tag("provider", circuitBreaker.getName())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Call an idempotent provider lookup, hedging it with a second attempt after the p95 delay
+     */
+    public <T> T callHedged(Callable<T> call) throws Exception {
+        if (!hedgingEnabled || hedgeExecutor == null) {
+            return call(call);
+        }
+
+        CompletionService<T> completion = new ExecutorCompletionService<>(hedgeExecutor);
+        Future<T> primary = completion.submit(() -> call(call));
+        Future<T> hedge = null;
+        // Attempts run on the hedge pool; the request thread's wait is what the request trace sees
+        try (RequestTrace.Phase phase = RequestTrace.phase(tracePhase)) {
+            Future<T> done = completion.poll(hedgeDelayMs(), TimeUnit.MILLISECONDS);
+            if (done == null) {
+                hedge = completion.submit(() -> call(call));
+                hedges.increment();
+                logger.debug("Hedging slow call to '{}'", circuitBreaker.getName());
+                done = completion.take();
+            }
+
+            int pending = hedge != null ? 2 : 1;
+            ExecutionException lastFailure = null;
+            while (pending-- > 0) {
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    lastFailure = e;
+                    if (pending > 0) {
+                        done = completion.take();
+                    }
+                }
+            }
+            throw unwrap(lastFailure);
+        } finally {
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    private long hedgeDelayMs() {
+        long p95 = circuitBreaker.latencyPercentile(95);
+        return p95 < 0 ? defaultHedgeDelayMs : Math.max(minHedgeDelayMs, p95);
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Exception) {
+            return (Exception) cause;
+        }
+        return e;
+    }
+}
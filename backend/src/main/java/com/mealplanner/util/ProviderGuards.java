@@ -0,0 +1,132 @@
+package com.mealplanner.util;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.OkHttpClient;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Registry of per-provider {@link ProviderGuard}s plus shared HTTP clients with bounded timeouts.
+ *
+ * Settings are read from {@code resilience.circuit-breaker.*} and {@code resilience.hedging.*}
+ * and can be overridden per provider, e.g.
+ * {@code resilience.circuit-breaker.gpt4o.slow-call-duration-ms=20000}. Hedging is off unless enabled,
+ * globally or per provider ({@code resilience.hedging.nutritionix.enabled=true}).
+ * Provider base URLs can be redirected with {@code providers.base-url.<provider>}, e.g. to a stub server.
+ */
+public class ProviderGuards {
+
+    private static final String BREAKER_PREFIX = "resilience.circuit-breaker.";
+    private static final String HEDGING_PREFIX = "resilience.hedging.";
+    private static final String BASE_URL_PREFIX = "providers.base-url.";
+
+    private final Environment env;
+    private final ExecutorService hedgeExecutor;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ProviderGuard> guards = new ConcurrentHashMap<>();
+    private final OkHttpClient httpClient;
+    private final RestTemplate restTemplate;
+
+    public ProviderGuards(Environment env, ExecutorService hedgeExecutor, MeterRegistry meterRegistry) {
+        this.env = env;
+        this.hedgeExecutor = hedgeExecutor;
+        this.meterRegistry = meterRegistry;
+
+        long connectTimeoutMs = env.getProperty("resilience.http.connect-timeout-ms", Long.class, 3000L);
+        long readTimeoutMs = env.getProperty("resilience.http.read-timeout-ms", Long.class, 30000L);
+
+        this.httpClient = new OkHttpClient.Builder()
+            .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+            .readTimeout(Duration.ofMillis(readTimeoutMs))
+            .writeTimeout(Duration.ofMillis(readTimeoutMs))
+            .build();
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout((int) connectTimeoutMs);
+        requestFactory.setReadTimeout((int) readTimeoutMs);
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
+
+    /**
+     * Get (or lazily create) the guard for a provider such as "clarifai" or "nutritionix"
+     */
+    public ProviderGuard guard(String provider) {
+        return guards.computeIfAbsent(provider.toLowerCase(), this::createGuard);
+    }
+
+    /**
+     * Shared OkHttp client with connect/read timeouts; shares one connection pool across providers
+     */
+    public OkHttpClient httpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Shared RestTemplate with connect/read timeouts
+     */
+    public RestTemplate restTemplate() {
+        return restTemplate;
+    }
+
+    /**
+     * Base URL for a provider's API: providers.base-url.{provider} if set, otherwise the given default
+     */
+    public String baseUrl(String provider, String defaultBaseUrl) {
+        String baseUrl = env.getProperty(BASE_URL_PREFIX + provider.toLowerCase(), defaultBaseUrl);
+        return baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    public Map<String, ProviderGuard> getGuards() {
+        return guards;
+    }
+
+    private ProviderGuard createGuard(String provider) {
+        CircuitBreaker breaker = new CircuitBreaker(
+            provider,
+            breakerInt(provider, "window-size", 20),
+            breakerInt(provider, "minimum-calls", 10),
+            breakerDouble(provider, "failure-rate-threshold", 50),
+            breakerLong(provider, "slow-call-duration-ms", 5000),
+            breakerDouble(provider, "slow-call-rate-threshold", 80),
+            breakerLong(provider, "open-duration-ms", 30000),
+            breakerInt(provider, "half-open-calls", 3)
+        );
+        // 0 = closed, 1 = open, 2 = half-open
+        Gauge.builder("provider.circuit.state", breaker, b -> b.getState().ordinal())
+            .description("Circuit breaker state per provider")
+            .tag("provider", provider)
+            .register(meterRegistry);
+        return new ProviderGuard(
+            breaker,
+            hedgeExecutor,
+            property(HEDGING_PREFIX, provider, "enabled", Boolean.class, false),
+            property(HEDGING_PREFIX, provider, "min-delay-ms", Long.class, 50L),
+            property(HEDGING_PREFIX, provider, "default-delay-ms", Long.class, 1000L),
+            meterRegistry
+        );
+    }
+
+    private int breakerInt(String provider, String key, int defaultValue) {
+        return property(BREAKER_PREFIX, provider, key, Integer.class, defaultValue);
+    }
+
+    private long breakerLong(String provider, String key, long defaultValue) {
+        return property(BREAKER_PREFIX, provider, key, Long.class, defaultValue);
+    }
+
+    private double breakerDouble(String provider, String key, double defaultValue) {
+        return property(BREAKER_PREFIX, provider, key, Double.class, defaultValue);
+    }
+
+    private <T> T property(String prefix, String provider, String key, Class<T> type, T defaultValue) {
+        T global = env.getProperty(prefix + key, type, defaultValue);
+        return env.getProperty(prefix + provider + "." + key, type, global);
+    }
+}
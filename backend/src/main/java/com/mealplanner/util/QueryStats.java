@@ -0,0 +1,84 @@
+package com.mealplanner.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * SQL statements Hibernate prepared for the current request, bound to the request thread.
+ *
+ * Filled by the statement inspector installed in {@link com.mealplanner.config.QueryStatsConfig};
+ * outside a counted request {@link #record} is a ThreadLocal lookup and nothing else. The same
+ * SELECT prepared many times in one request is the signature of an N+1 (a lazy association
+ * loaded once per row of a list).
+ */
+public final class QueryStats {
+
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, Integer> statements = new LinkedHashMap<>();
+    private int total;
+
+    private QueryStats() {
+    }
+
+    /**
+     * Start counting the current thread's statements
+     */
+    public static QueryStats begin() {
+        QueryStats stats = new QueryStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    /**
+     * Stop counting the current thread; the returned stats are complete
+     */
+    public static QueryStats end() {
+        QueryStats stats = CURRENT.get();
+        CURRENT.remove();
+        return stats;
+    }
+
+    public static QueryStats current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Count one prepared statement against the current request, if any
+     */
+    public static void record(String sql) {
+        QueryStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.total++;
+            stats.statements.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Distinct SQL strings and how often each was prepared, in first-seen order
+     */
+    public Map<String, Integer> getStatements() {
+        return Collections.unmodifiableMap(statements);
+    }
+
+    /**
+     * The most repeated SELECT, or null when no SELECT ran at least {@code threshold} times
+     */
+    public Map.Entry<String, Integer> repeatedSelect(int threshold) {
+        Map.Entry<String, Integer> worst = null;
+        for (Map.Entry<String, Integer> entry : statements.entrySet()) {
+            if (entry.getValue() >= threshold
+                    && entry.getKey().stripLeading().toLowerCase(Locale.ROOT).startsWith("select")
+                    && (worst == null || entry.getValue() > worst.getValue())) {
+                worst = entry;
+            }
+        }
+        return worst;
+    }
+}
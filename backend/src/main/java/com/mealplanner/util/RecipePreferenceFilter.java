@@ -0,0 +1,121 @@
+package com.mealplanner.util;
+
+import com.mealplanner.entity.Recipe;
+import com.mealplanner.entity.UserPreferences;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Narrows recipes to those a user can eat and would want to cook (allergies, dislikes, calories
+ * per meal, cooking skill), most relevant first.
+ */
+@Component
+public class RecipePreferenceFilter {
+
+    /**
+     * Filter recipes based on user preferences; the recipes unchanged when there are none
+     */
+    public List<Recipe> filter(List<Recipe> recipes, UserPreferences preferences) {
+        if (preferences == null) {
+            return recipes;
+        }
+        
+        return recipes.stream()
+            .filter(recipe -> !hasAllergies(recipe, preferences))
+            .filter(recipe -> !hasDislikes(recipe, preferences))
+            .filter(recipe -> meetsCalorieTarget(recipe, preferences))
+            .filter(recipe -> matchesCookingSkill(recipe, preferences))
+            .sorted((r1, r2) -> {
+                // Sort by relevance to user preferences
+                return calculateRelevanceScore(r2, preferences) - calculateRelevanceScore(r1, preferences);
+            })
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Check if recipe contains allergens
+     */
+    private boolean hasAllergies(Recipe recipe, UserPreferences preferences) {
+        if (preferences.getAllergies() == null || preferences.getAllergies().isEmpty()) {
+            return false;
+        }
+        
+        String ingredientsText = String.join(" ", recipe.getIngredients());
+        return preferences.getAllergies().stream()
+            .anyMatch(allergen -> ingredientsText.toLowerCase().contains(allergen.toLowerCase()));
+    }
+    
+    /**
+     * Check if recipe contains disliked foods
+     */
+    private boolean hasDislikes(Recipe recipe, UserPreferences preferences) {
+        if (preferences.getDislikes() == null || preferences.getDislikes().isEmpty()) {
+            return false;
+        }
+        
+        String recipeText = recipe.getName() + " " + String.join(" ", recipe.getIngredients());
+        return preferences.getDislikes().stream()
+            .anyMatch(dislike -> recipeText.toLowerCase().contains(dislike.toLowerCase()));
+    }
+    
+    /**
+     * Check if recipe meets calorie target
+     */
+    private boolean meetsCalorieTarget(Recipe recipe, UserPreferences preferences) {
+        if (preferences.getDailyCalorieTarget() == null || recipe.getCalories() == null) {
+            return true;
+        }
+        
+        int targetPerMeal = preferences.getDailyCalorieTarget() / 4; // Assuming 4 meals per day
+        return recipe.getCalories() <= targetPerMeal * 1.2; // Allow 20% variance
+    }
+    
+    /**
+     * Check if recipe matches cooking skill level
+     */
+    private boolean matchesCookingSkill(Recipe recipe, UserPreferences preferences) {
+        if (preferences.getCookingSkillLevel() == null) {
+            return true;
+        }
+        
+        String skillLevel = preferences.getCookingSkillLevel();
+        String difficulty = recipe.getDifficultyLevel();
+        
+        return switch (skillLevel) {
+            case "BEGINNER" -> "EASY".equals(difficulty);
+            case "INTERMEDIATE" -> !"HARD".equals(difficulty);
+            case "ADVANCED" -> true; // Advanced users can cook anything
+            default -> true;
+        };
+    }
+    
+    /**
+     * Calculate relevance score for recipe based on user preferences
+     */
+    private int calculateRelevanceScore(Recipe recipe, UserPreferences preferences) {
+        int score = 0;
+        
+        // Base score
+        score += 10;
+        
+        // Cuisine preference match
+        if (preferences.getPreferredCuisines() != null && 
+            preferences.getPreferredCuisines().contains(recipe.getCuisineType())) {
+            score += 20;
+        }
+        
+        // Diet type match
+        if (preferences.getDietType().equals(recipe.getDietType())) {
+            score += 15;
+        }
+        
+        // Cooking time preference (prefer shorter times)
+        if (recipe.getTotalTime() != null && recipe.getTotalTime() < 30) {
+            score += 10;
+        }
+        
+        return score;
+    }
+}
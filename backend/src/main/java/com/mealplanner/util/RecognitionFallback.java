@@ -0,0 +1,53 @@
+package com.mealplanner.util;
+
+/**
+ * Lets a recognizer flag that what it is about to return is canned fallback data (provider down,
+ * unparseable answer) rather than a real result, so callers such as the result cache do not keep it.
+ *
+ * Bound to the calling thread between {@link #watch()} and {@link #end()}; {@link #mark()} outside
+ * a watched call does nothing. Watches nest: {@link #end()} returns to the enclosing watch without
+ * marking it, so a wrapper that passes a fallback on to its own caller calls {@link #mark()} again.
+ */
+public final class RecognitionFallback {
+
+    private static final ThreadLocal<Watch> CURRENT = new ThreadLocal<>();
+
+    private RecognitionFallback() {
+    }
+
+    public static void watch() {
+        CURRENT.set(new Watch(CURRENT.get()));
+    }
+
+    public static void mark() {
+        Watch watch = CURRENT.get();
+        if (watch != null) {
+            watch.marked = true;
+        }
+    }
+
+    /**
+     * Stop watching; true if a fallback was marked since {@link #watch()}
+     */
+    public static boolean end() {
+        Watch watch = CURRENT.get();
+        if (watch == null) {
+            return false;
+        }
+        if (watch.enclosing != null) {
+            CURRENT.set(watch.enclosing);
+        } else {
+            CURRENT.remove();
+        }
+        return watch.marked;
+    }
+
+    private static class Watch {
+        private final Watch enclosing;
+        private boolean marked;
+
+        private Watch(Watch enclosing) {
+            this.enclosing = enclosing;
+        }
+    }
+}
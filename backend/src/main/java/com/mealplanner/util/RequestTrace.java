@@ -0,0 +1,281 @@
+package com.mealplanner.util;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per-request phase timing, bound to the request thread.
+ *
+ * Code wraps interesting work in {@code try (RequestTrace.Phase p = RequestTrace.phase("map")) { ... }}.
+ * Time is attributed exclusively: a repository call made while mapping counts as "db", not "map".
+ * Totals feed the Server-Timing header; when span recording is on, every phase also becomes a
+ * child span of the request for export. Outside a traced request {@link #phase} returns a shared
+ * no-op, so instrumented code costs one ThreadLocal lookup when tracing is disabled.
+ */
+public final class RequestTrace {
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+    private static final Phase NOOP = () -> { };
+
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private String name;
+    private final long startEpochNanos;
+    private final long startNanos;
+    private final boolean recordSpans;
+    private final int maxSpans;
+
+    private final Map<String, long[]> totals = new LinkedHashMap<>();
+    private final Map<String, Object> attributes = new LinkedHashMap<>();
+    private final Deque<OpenPhase> open = new ArrayDeque<>();
+    private final List<Span> spans;
+    private long endNanos;
+
+    private RequestTrace(String name, String traceparent, boolean recordSpans, int maxSpans) {
+        String[] parent = parseTraceparent(traceparent);
+        this.traceId = parent != null ? parent[0] : randomHex(16);
+        this.parentSpanId = parent != null ? parent[1] : null;
+        this.spanId = randomHex(8);
+        this.name = name;
+        this.startEpochNanos = epochNanos();
+        this.startNanos = System.nanoTime();
+        this.recordSpans = recordSpans;
+        this.maxSpans = maxSpans;
+        this.spans = recordSpans ? new ArrayList<>() : Collections.emptyList();
+    }
+
+    /**
+     * Start tracing the current thread's request
+     *
+     * @param traceparent incoming W3C traceparent header (may be null); spans join that trace when valid
+     */
+    public static RequestTrace begin(String name, String traceparent, boolean recordSpans, int maxSpans) {
+        RequestTrace trace = new RequestTrace(name, traceparent, recordSpans, maxSpans);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /**
+     * Stop tracing the current thread; the returned trace is complete
+     */
+    public static RequestTrace end() {
+        RequestTrace trace = CURRENT.get();
+        CURRENT.remove();
+        if (trace != null) {
+            trace.endNanos = System.nanoTime();
+        }
+        return trace;
+    }
+
+    public static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Time a block of work on the current request; a no-op outside a traced request
+     */
+    public static Phase phase(String name) {
+        RequestTrace trace = CURRENT.get();
+        if (trace == null) {
+            return NOOP;
+        }
+        OpenPhase phase = trace.new OpenPhase(name);
+        trace.open.push(phase);
+        return phase;
+    }
+
+    /**
+     * Record work that has just finished and was measured by someone else (e.g. a repository listener)
+     */
+    public static void record(String name, long durationNanos) {
+        RequestTrace trace = CURRENT.get();
+        if (trace == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        OpenPhase parent = trace.open.peek();
+        if (parent != null) {
+            parent.childNanos += durationNanos;
+        }
+        trace.add(name, durationNanos);
+        trace.addSpan(name, trace.recordSpans ? randomHex(8) : null, parent, now - durationNanos, now);
+    }
+
+    /**
+     * Server-Timing header value: one entry per phase plus the request total, in milliseconds
+     */
+    public String toServerTiming() {
+        StringBuilder header = new StringBuilder();
+        totals.forEach((phase, total) -> header.append(phase)
+            .append(";dur=").append(formatMillis(total[0]))
+            .append(";desc=\"").append(total[1]).append(total[1] == 1 ? " call\"" : " calls\"")
+            .append(", "));
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        header.append("total;dur=").append(formatMillis(end - startNanos));
+        return header.toString();
+    }
+
+    /**
+     * Attribute for the request span, e.g. http.response.status_code
+     */
+    public void setAttribute(String key, Object value) {
+        attributes.put(key, value);
+    }
+
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    public Map<String, long[]> getTotals() {
+        return totals;
+    }
+
+    public List<Span> getSpans() {
+        return spans;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    public String getParentSpanId() {
+        return parentSpanId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getStartEpochNanos() {
+        return startEpochNanos;
+    }
+
+    public long getEndEpochNanos() {
+        return toEpochNanos(endNanos != 0 ? endNanos : System.nanoTime());
+    }
+
+    private void add(String phase, long nanos) {
+        long[] total = totals.computeIfAbsent(phase, key -> new long[2]);
+        total[0] += nanos;
+        total[1]++;
+    }
+
+    private void addSpan(String phase, String phaseSpanId, OpenPhase parent, long startNanos, long endNanos) {
+        if (recordSpans && spans.size() < maxSpans) {
+            spans.add(new Span(phase, phaseSpanId, parent != null ? parent.spanId : spanId,
+                toEpochNanos(startNanos), toEpochNanos(endNanos)));
+        }
+    }
+
+    private long toEpochNanos(long nanoTime) {
+        return startEpochNanos + (nanoTime - startNanos);
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format("%.1f", nanos / 1_000_000.0);
+    }
+
+    private static long epochNanos() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+
+    private static String randomHex(int bytes) {
+        byte[] buffer = new byte[bytes];
+        ThreadLocalRandom.current().nextBytes(buffer);
+        StringBuilder hex = new StringBuilder(bytes * 2);
+        for (byte b : buffer) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * "00-{traceId}-{parentId}-{flags}" -> {traceId, parentId}, or null if absent or malformed
+     */
+    private static String[] parseTraceparent(String traceparent) {
+        if (traceparent == null) {
+            return null;
+        }
+        String[] parts = traceparent.trim().split("-");
+        if (parts.length != 4 || !parts[1].matches("[0-9a-f]{32}") || !parts[2].matches("[0-9a-f]{16}")
+                || parts[1].matches("0+") || parts[2].matches("0+")) {
+            return null;
+        }
+        return new String[] {parts[1], parts[2]};
+    }
+
+    /**
+     * An open phase; close it exactly once, on the thread that opened it
+     */
+    @FunctionalInterface
+    public interface Phase extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private class OpenPhase implements Phase {
+        private final String phase;
+        private final String spanId = recordSpans ? randomHex(8) : null;
+        private final long start = System.nanoTime();
+        private long childNanos;
+
+        private OpenPhase(String phase) {
+            this.phase = phase;
+        }
+
+        @Override
+        public void close() {
+            long end = System.nanoTime();
+            long elapsed = end - start;
+            open.remove(this);
+            OpenPhase parent = open.peek();
+            if (parent != null) {
+                parent.childNanos += elapsed;
+            }
+            add(phase, elapsed - childNanos);
+            addSpan(phase, spanId, parent, start, end);
+        }
+    }
+
+    /**
+     * A finished phase, in the shape OpenTelemetry spans need
+     */
+    public static class Span {
+        private String name;
+        private final String spanId;
+        private final String parentSpanId;
+        private final long startEpochNanos;
+        private final long endEpochNanos;
+
+        private Span(String name, String spanId, String parentSpanId, long startEpochNanos, long endEpochNanos) {
+            this.name = name;
+            this.spanId = spanId;
+            this.parentSpanId = parentSpanId;
+            this.startEpochNanos = startEpochNanos;
+            this.endEpochNanos = endEpochNanos;
+        }
+
+        public String getName() { return name; }
+        public String getSpanId() { return spanId; }
+        public String getParentSpanId() { return parentSpanId; }
+        public long getStartEpochNanos() { return startEpochNanos; }
+        public long getEndEpochNanos() { return endEpochNanos; }
+    }
+}
@@ -0,0 +1,205 @@
+package com.mealplanner.util;
+
+import com.mealplanner.service.SlowQueryLog;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Times every statement executed through the wrapped pool and hands those over the threshold to
+ * {@link SlowQueryLog} with their bound parameters and call site.
+ *
+ * Connections and statements are JDK proxies around the pool's own objects; parameters are only
+ * remembered (not rendered) until a statement turns out to be slow. The call site is the repository
+ * method entered on this thread (see {@link #enterCallSite}), else the nearest application frame.
+ */
+public class SlowQueryDataSource extends DelegatingDataSource {
+
+    private static final ThreadLocal<String> CALL_SITE = new ThreadLocal<>();
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private final ObjectProvider<SlowQueryLog> slowQueryLog;
+
+    public SlowQueryDataSource(DataSource targetDataSource, ObjectProvider<SlowQueryLog> slowQueryLog) {
+        super(targetDataSource);
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    /**
+     * Attribute statements on this thread to a call site until {@link #exitCallSite}; returns the previous one
+     */
+    public static String enterCallSite(String callSite) {
+        String previous = CALL_SITE.get();
+        CALL_SITE.set(callSite);
+        return previous;
+    }
+
+    public static void exitCallSite(String previous) {
+        if (previous == null) {
+            CALL_SITE.remove();
+        } else {
+            CALL_SITE.set(previous);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+            new ConnectionHandler(connection));
+    }
+
+    private void statementExecuted(String sql, Object[] parameters, int parameterCount, int batchSize,
+                                   long durationNanos) {
+        SlowQueryLog log = slowQueryLog.getIfAvailable();
+        if (log != null && log.isSlow(durationNanos)) {
+            log.record(sql, Arrays.copyOf(parameters, parameterCount + 1), batchSize, durationNanos, callSite(),
+                getTargetDataSource());
+        }
+    }
+
+    /**
+     * equals/hashCode by proxy identity, so pools and Hibernate can key maps by the wrapped objects
+     */
+    private static Object identity(Object proxy, Method method, Object[] args) {
+        return method.getName().equals("equals") ? Boolean.valueOf(proxy == args[0]) : System.identityHashCode(proxy);
+    }
+
+    private static boolean isIdentityMethod(Method method) {
+        return (method.getName().equals("equals") && method.getParameterCount() == 1)
+            || (method.getName().equals("hashCode") && method.getParameterCount() == 0);
+    }
+
+    private static String callSite() {
+        String callSite = CALL_SITE.get();
+        if (callSite != null) {
+            return callSite;
+        }
+        Optional<StackWalker.StackFrame> frame = STACK_WALKER.walk(frames -> frames
+            .filter(f -> f.getClassName().startsWith("com.mealplanner.")
+                && !f.getClassName().startsWith(SlowQueryDataSource.class.getName()))
+            .findFirst());
+        return frame.map(f -> f.getClassName().substring(f.getClassName().lastIndexOf('.') + 1)
+            + "." + f.getMethodName() + ":" + f.getLineNumber()).orElse("unknown");
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isIdentityMethod(method)) {
+                return identity(proxy, method, args);
+            }
+            Object result = SlowQueryDataSource.invoke(connection, method, args);
+            if (result instanceof CallableStatement statement) {
+                return wrapStatement(statement, CallableStatement.class, (String) args[0]);
+            }
+            if (result instanceof PreparedStatement statement) {
+                return wrapStatement(statement, PreparedStatement.class, (String) args[0]);
+            }
+            if (result instanceof Statement statement) {
+                return wrapStatement(statement, Statement.class, null);
+            }
+            return result;
+        }
+
+        private Object wrapStatement(Statement statement, Class<?> type, String sql) {
+            return Proxy.newProxyInstance(SlowQueryDataSource.class.getClassLoader(), new Class<?>[] { type },
+                new StatementHandler(statement, sql));
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String preparedSql;
+        private Object[] parameters = new Object[8];
+        private int parameterCount;
+        private String batchSql;
+        private int batchSize;
+
+        StatementHandler(Statement statement, String preparedSql) {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isIdentityMethod(method)) {
+                return identity(proxy, method, args);
+            }
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                bind(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                Arrays.fill(parameters, null);
+                parameterCount = 0;
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+                if (args != null) {
+                    batchSql = (String) args[0];
+                }
+            } else if (name.equals("clearBatch")) {
+                batchSize = 0;
+                batchSql = null;
+            } else if (name.startsWith("execute")) {
+                long start = System.nanoTime();
+                try {
+                    return SlowQueryDataSource.invoke(statement, method, args);
+                } finally {
+                    long durationNanos = System.nanoTime() - start;
+                    boolean batch = name.equals("executeBatch") || name.equals("executeLargeBatch");
+                    String sql = args != null && args.length > 0 && args[0] instanceof String text ? text
+                        : preparedSql != null ? preparedSql : batchSql;
+                    statementExecuted(sql != null ? sql : "?", parameters, parameterCount, batch ? Math.max(batchSize, 1) : 0,
+                        durationNanos);
+                    if (batch) {
+                        batchSize = 0;
+                        batchSql = null;
+                    }
+                }
+            }
+            return SlowQueryDataSource.invoke(statement, method, args);
+        }
+
+        private void bind(int index, Object value) {
+            if (index >= parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(index + 1, parameters.length * 2));
+            }
+            parameters[index] = value;
+            parameterCount = Math.max(parameterCount, index);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.mealplanner.util;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+/**
+ * Publishes a {@link TtlCache}'s (or any {@link CacheStats}') counters as the standard
+ * cache.gets/puts/evictions/size meters, plus a cache.hit.ratio gauge, tagged with the cache name.
+ */
+public class TtlCacheMetrics extends CacheMeterBinder<CacheStats> {
+
+    public TtlCacheMetrics(CacheStats cache, String cacheName) {
+        super(cache, cacheName, Tags.empty());
+    }
+
+    @Override
+    protected Long size() {
+        CacheStats cache = getCache();
+        return cache != null ? (long) cache.size() : null;
+    }
+
+    @Override
+    protected long hitCount() {
+        CacheStats cache = getCache();
+        return cache != null ? cache.getHits() : 0;
+    }
+
+    @Override
+    protected Long missCount() {
+        CacheStats cache = getCache();
+        return cache != null ? cache.getMisses() : null;
+    }
+
+    @Override
+    protected Long evictionCount() {
+        CacheStats cache = getCache();
+        return cache != null ? cache.getEvictions() : null;
+    }
+
+    @Override
+    protected long putCount() {
+        CacheStats cache = getCache();
+        return cache != null ? cache.getPuts() : 0;
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        Gauge.builder("cache.hit.ratio", getCache(), CacheStats::hitRatio)
+            .description("Share of lookups served from the cache")
+            .tags(getTagsWithCacheName())
+            .register(registry);
+    }
+}
@@ -0,0 +1,45 @@
+package com.mealplanner.util;
+
+/**
+ * The user that outbound API calls made on this thread are billed to in the usage log, for calls
+ * made deep inside code that has no user parameter (e.g. GPT-4o behind the recognizer decorators).
+ *
+ * Bound with {@code try (UsageUser.Scope s = UsageUser.bind(userId)) { ... }}, which restores the
+ * previous user on close. Work handed to a pool thread must capture {@link #current()} and bind it there.
+ */
+public final class UsageUser {
+
+    private static final ThreadLocal<Long> CURRENT = new ThreadLocal<>();
+
+    private UsageUser() {
+    }
+
+    /**
+     * Bill calls on this thread to the user (null for calls made without one) until the scope is closed
+     */
+    public static Scope bind(Long userId) {
+        Long previous = CURRENT.get();
+        set(userId);
+        return () -> set(previous);
+    }
+
+    /**
+     * The bound user's ID, or null
+     */
+    public static Long current() {
+        return CURRENT.get();
+    }
+
+    private static void set(Long userId) {
+        if (userId != null) {
+            CURRENT.set(userId);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
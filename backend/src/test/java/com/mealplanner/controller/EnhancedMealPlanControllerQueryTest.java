@@ -0,0 +1,116 @@
+package com.mealplanner.controller;
+
+import com.mealplanner.config.QueryBudgetFilter;
+import com.mealplanner.entity.Recipe;
+import com.mealplanner.entity.User;
+import com.mealplanner.entity.UserFavorite;
+import com.mealplanner.entity.UserMealPlan;
+import com.mealplanner.repository.RecipeRepository;
+import com.mealplanner.repository.UserFavoriteRepository;
+import com.mealplanner.repository.UserMealPlanRepository;
+import com.mealplanner.repository.UserRepository;
+import com.mealplanner.support.QueryCountAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Query counts for endpoints that list a user's recipes; loading each plan's or favorite's recipe
+ * lazily would add one SELECT per row.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EnhancedMealPlanControllerQueryTest {
+
+    private static final int ROWS = 8;
+    private static final LocalDate DATE = LocalDate.of(2026, 3, 2);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private QueryBudgetFilter queryBudgetFilter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private UserMealPlanRepository userMealPlanRepository;
+
+    @Autowired
+    private UserFavoriteRepository userFavoriteRepository;
+
+    private QueryCountAssertions queries;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        queries = new QueryCountAssertions(queryBudgetFilter);
+        user = userRepository.save(new User("Query Test", UUID.randomUUID() + "@example.com", "hash"));
+
+        List<UserMealPlan> plans = new ArrayList<>();
+        List<UserFavorite> favorites = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            Recipe recipe = new Recipe();
+            recipe.setName("Recipe " + i);
+            recipe.setCategory("LUNCH");
+            recipe.setType("VEG");
+            recipe.setDietType("VEG");
+            recipe.setCalories(400 + i);
+            recipe = recipeRepository.save(recipe);
+
+            UserMealPlan plan = new UserMealPlan();
+            plan.setUser(user);
+            plan.setDate(DATE);
+            plan.setYear(DATE.getYear());
+            plan.setMealType("MEAL_" + i);
+            plan.setRecipe(recipe);
+            plans.add(plan);
+
+            UserFavorite favorite = new UserFavorite();
+            favorite.setUser(user);
+            favorite.setRecipe(recipe);
+            favorites.add(favorite);
+        }
+        userMealPlanRepository.saveAll(plans);
+        userFavoriteRepository.saveAll(favorites);
+        queries.reset();
+    }
+
+    @Test
+    void userPlanLoadsRecipesWithThePlans() throws Exception {
+        mockMvc.perform(get("/api/meal-plan/user-plan/{userId}", user.getId()).param("date", DATE.toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.meals.length()").value(ROWS));
+
+        queries.assertNoNPlusOne("GET /api/meal-plan/user-plan/{userId}");
+        queries.assertMaxQueries("GET /api/meal-plan/user-plan/{userId}", 2);
+    }
+
+    @Test
+    void favoritesLoadRecipesWithTheFavorites() throws Exception {
+        mockMvc.perform(get("/api/meal-plan/favorites/{userId}", user.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.totalFavorites").value(ROWS));
+
+        queries.assertNoNPlusOne("GET /api/meal-plan/favorites/{userId}");
+        queries.assertMaxQueries("GET /api/meal-plan/favorites/{userId}", 2);
+    }
+}
@@ -0,0 +1,57 @@
+package com.mealplanner.support;
+
+import com.mealplanner.config.QueryBudgetFilter;
+
+import java.util.Map;
+
+/**
+ * Per-endpoint query-count assertions for integration tests, read from the statements
+ * {@link QueryBudgetFilter} counted while the test drove requests through MockMvc. Tests need
+ * query-stats.enabled=true (the test profile sets it).
+ *
+ * Call {@link #reset()} before exercising the endpoints, then assert on each endpoint by the
+ * "METHOD route" key the filter uses, e.g. {@code GET /api/meal-plan/favorites/{userId}}.
+ */
+public class QueryCountAssertions {
+
+    private final QueryBudgetFilter queryBudgetFilter;
+
+    public QueryCountAssertions(QueryBudgetFilter queryBudgetFilter) {
+        this.queryBudgetFilter = queryBudgetFilter;
+    }
+
+    public void reset() {
+        queryBudgetFilter.reset();
+    }
+
+    /**
+     * Fail unless every counted request to the endpoint ran at most {@code max} statements
+     */
+    public void assertMaxQueries(String endpoint, int max) {
+        Map<String, Object> stats = statsFor(endpoint);
+        int worst = (Integer) stats.get("maxStatements");
+        if (worst > max) {
+            throw new AssertionError(endpoint + " ran " + worst + " SQL statements, expected at most " + max
+                + (stats.containsKey("repeatedSql") ? "; repeated SELECT: " + stats.get("repeatedSql") : ""));
+        }
+    }
+
+    /**
+     * Fail if any counted request to the endpoint repeated the same SELECT n-plus-one-threshold times
+     */
+    public void assertNoNPlusOne(String endpoint) {
+        Map<String, Object> stats = statsFor(endpoint);
+        if ((Long) stats.get("nPlusOne") > 0) {
+            throw new AssertionError("N+1 in " + endpoint + ": " + stats.get("repeatedSql"));
+        }
+    }
+
+    private Map<String, Object> statsFor(String endpoint) {
+        Map<String, Object> stats = queryBudgetFilter.getRouteStats().get(endpoint);
+        if (stats == null) {
+            throw new AssertionError("No requests to " + endpoint + " were counted; counted: "
+                + queryBudgetFilter.getRouteStats().keySet());
+        }
+        return stats;
+    }
+}
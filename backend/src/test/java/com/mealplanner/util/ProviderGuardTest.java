@@ -0,0 +1,243 @@
+package com.mealplanner.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Circuit breaker and hedging behaviour against a local HTTP stub that answers with the status and
+ * latency asked for in the query string, e.g. {@code /call?status=500&delay=300}.
+ */
+class ProviderGuardTest {
+
+    private static final long OPEN_MS = 300;
+    private static final long SLOW_MS = 200;
+
+    private HttpServer stub;
+    private ExecutorService stubExecutor;
+    private ExecutorService hedgeExecutor;
+    private SimpleMeterRegistry meterRegistry;
+    private final RestTemplate restTemplate = new RestTemplate();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final List<Long> hedgeArrivals = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stub.createContext("/call", exchange -> {
+            requests.incrementAndGet();
+            Map<String, String> params = query(exchange);
+            sleep(Long.parseLong(params.getOrDefault("delay", "0")));
+            respond(exchange, Integer.parseInt(params.getOrDefault("status", "200")));
+        });
+        // Only the first request is slow, so a hedged second attempt wins
+        stub.createContext("/hedge", exchange -> {
+            hedgeArrivals.add(System.nanoTime());
+            sleep(hedgeArrivals.size() == 1 ? 3000 : 0);
+            respond(exchange, 200);
+        });
+        stubExecutor = Executors.newCachedThreadPool();
+        stub.setExecutor(stubExecutor);
+        stub.start();
+        hedgeExecutor = Executors.newCachedThreadPool();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.stop(0);
+        stubExecutor.shutdownNow();
+        hedgeExecutor.shutdownNow();
+    }
+
+    @Test
+    void opensOnFailureRateAndFailsFastWhileOpen() {
+        ProviderGuard guard = guard(breaker(), false);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(HttpServerErrorException.class, () -> guard.call(() -> get("status=500")));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, guard.getCircuitBreaker().getState());
+
+        int before = requests.get();
+        assertThrows(CircuitBreaker.CallNotPermittedException.class, () -> guard.call(() -> get("status=200")));
+        assertEquals(before, requests.get(), "an open breaker must not reach the provider");
+        assertEquals(1, meterRegistry.get("provider.calls").tag("outcome", "rejected").timer().count());
+    }
+
+    @Test
+    void opensOnSlowCallRate() throws Exception {
+        ProviderGuard guard = guard(breaker(), false);
+        for (int i = 0; i < 4; i++) {
+            guard.call(() -> get("delay=" + (SLOW_MS + 50)));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, guard.getCircuitBreaker().getState());
+        assertEquals(0, guard.getCircuitBreaker().failureRate());
+    }
+
+    @Test
+    void clientErrorsDoNotOpenTheBreaker() {
+        ProviderGuard guard = guard(breaker(), false);
+        for (int i = 0; i < 10; i++) {
+            assertThrows(HttpClientErrorException.NotFound.class, () -> guard.call(() -> get("status=404")));
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getCircuitBreaker().getState());
+        assertEquals(10, meterRegistry.get("provider.calls").tag("outcome", "client_error").timer().count());
+
+        // Timeouts and rate limits are still the provider's problem
+        for (int i = 0; i < 2; i++) {
+            assertThrows(HttpClientErrorException.TooManyRequests.class, () -> guard.call(() -> get("status=429")));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, guard.getCircuitBreaker().getState());
+    }
+
+    @Test
+    void halfOpenProbeClosesOnSuccess() throws Exception {
+        ProviderGuard guard = openGuard();
+        Thread.sleep(OPEN_MS + 50);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, guard.getCircuitBreaker().getState());
+
+        assertEquals("ok", guard.call(() -> get("status=200")));
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getCircuitBreaker().getState());
+        assertEquals(0, guard.getCircuitBreaker().failureRate());
+    }
+
+    @Test
+    void halfOpenProbeReopensOnFailure() throws Exception {
+        ProviderGuard guard = openGuard();
+        Thread.sleep(OPEN_MS + 50);
+
+        assertThrows(HttpServerErrorException.class, () -> guard.call(() -> get("status=503")));
+        assertEquals(CircuitBreaker.State.OPEN, guard.getCircuitBreaker().getState());
+        assertThrows(CircuitBreaker.CallNotPermittedException.class, () -> guard.call(() -> get("status=200")));
+    }
+
+    @Test
+    void hedgesAfterTheP95DelayAndDoesNotCountTheCancelledAttempt() throws Exception {
+        CircuitBreaker breaker = breaker();
+        // Default delay is far longer than the test allows, so only the recorded p95 can trigger the hedge
+        ProviderGuard guard = guard(breaker, true);
+        for (int i = 0; i < 5; i++) {
+            guard.call(() -> get("delay=100"));
+        }
+        long p95 = breaker.latencyPercentile(95);
+        assertTrue(p95 >= 100 && p95 < SLOW_MS, "p95 was " + p95);
+
+        List<Long> attemptStarts = new CopyOnWriteArrayList<>();
+        long start = System.nanoTime();
+        String body = guard.callHedged(() -> {
+            attemptStarts.add(System.nanoTime());
+            return send("/hedge");
+        });
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals("ok", body);
+        assertEquals(2, attemptStarts.size());
+        assertEquals(2, hedgeArrivals.size());
+        long hedgeDelayMs = TimeUnit.NANOSECONDS.toMillis(attemptStarts.get(1) - attemptStarts.get(0));
+        assertTrue(hedgeDelayMs >= p95 - 20, "hedged after " + hedgeDelayMs + " ms, p95 " + p95 + " ms");
+        assertTrue(elapsedMs < 1500, "hedged call took " + elapsedMs + " ms");
+        assertEquals(1, meterRegistry.get("provider.hedges").counter().count());
+
+        // The slow primary is cancelled once the hedge wins; that must not count against the provider
+        long deadline = System.currentTimeMillis() + 2000;
+        while (meterRegistry.find("provider.calls").tag("outcome", "cancelled").timer() == null
+            && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, meterRegistry.get("provider.calls").tag("outcome", "cancelled").timer().count());
+        assertEquals(0, breaker.failureRate());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    // Window of 4 calls, open at 50% failures or 50% slow calls, one half-open probe
+    private CircuitBreaker breaker() {
+        return new CircuitBreaker("stub", 4, 4, 50, SLOW_MS, 50, OPEN_MS, 1);
+    }
+
+    private ProviderGuard guard(CircuitBreaker breaker, boolean hedging) {
+        return new ProviderGuard(breaker, hedgeExecutor, hedging, 0, 60_000, meterRegistry);
+    }
+
+    private ProviderGuard openGuard() {
+        ProviderGuard guard = guard(breaker(), false);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(HttpServerErrorException.class, () -> guard.call(() -> get("status=500")));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, guard.getCircuitBreaker().getState());
+        return guard;
+    }
+
+    private String get(String query) {
+        return restTemplate.getForObject(url("/call?" + query), String.class);
+    }
+
+    // java.net.http requests are interruptible, so a cancelled hedge attempt really stops
+    private String send(String path) throws Exception {
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(URI.create(url(path))).build(),
+            HttpResponse.BodyHandlers.ofString());
+        return response.body();
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + stub.getAddress().getPort() + path;
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getQuery();
+        Map<String, String> params = new HashMap<>();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                String[] kv = pair.split("=", 2);
+                params.put(kv[0], kv.length > 1 ? kv[1] : "");
+            }
+        }
+        return params;
+    }
+
+    private static void respond(HttpExchange exchange, int status) throws IOException {
+        byte[] body = (status < 400 ? "ok" : "{\"error\": \"stub " + status + "\"}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        } catch (IOException e) {
+            // The client gave up (a cancelled hedge attempt)
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
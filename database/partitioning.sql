@@ -0,0 +1,101 @@
+-- Convert api_usage_logs and ai_conversations to monthly range partitions on created_at.
+--
+-- Run once, in a maintenance window, against a database created by the old schema:
+--   psql -d meal_planner -f database/partitioning.sql
+-- Each table is renamed, recreated as a partitioned table, copied month by month and the old copy dropped.
+-- Rows with no created_at are stamped with the migration time. After this the backend
+-- (PartitionMaintenanceService) creates upcoming partitions and expires old ones on its own.
+
+BEGIN;
+
+-- Monthly partitions named <table>_pYYYY_MM covering [from_month, to_month]
+CREATE OR REPLACE FUNCTION pg_temp.create_monthly_partitions(parent TEXT, from_month DATE, to_month DATE)
+RETURNS VOID AS $$
+DECLARE
+    month DATE := date_trunc('month', from_month);
+BEGIN
+    WHILE month <= to_month LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+            parent || '_p' || to_char(month, 'YYYY_MM'), parent, month, month + INTERVAL '1 month');
+        month := month + INTERVAL '1 month';
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- api_usage_logs
+ALTER TABLE api_usage_logs RENAME TO api_usage_logs_unpartitioned;
+ALTER INDEX IF EXISTS idx_api_usage_logs_api_name RENAME TO idx_api_usage_logs_unpartitioned_api_name;
+ALTER INDEX IF EXISTS idx_api_usage_logs_created_at RENAME TO idx_api_usage_logs_unpartitioned_created_at;
+
+-- The old id sequence belongs to the old table (and may be an identity sequence), so start a new one after it
+CREATE SEQUENCE api_usage_logs_partitioned_id_seq;
+SELECT setval('api_usage_logs_partitioned_id_seq', COALESCE((SELECT MAX(id) FROM api_usage_logs_unpartitioned), 0) + 1, false);
+
+CREATE TABLE api_usage_logs (
+    id BIGINT NOT NULL DEFAULT nextval('api_usage_logs_partitioned_id_seq'),
+    api_name VARCHAR(50) NOT NULL,
+    endpoint VARCHAR(255),
+    user_id BIGINT REFERENCES users(id) ON DELETE SET NULL,
+    request_data JSONB,
+    response_status INTEGER,
+    response_time_ms INTEGER,
+
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+SELECT pg_temp.create_monthly_partitions('api_usage_logs',
+    COALESCE((SELECT MIN(created_at) FROM api_usage_logs_unpartitioned), CURRENT_DATE)::DATE,
+    (CURRENT_DATE + INTERVAL '3 months')::DATE);
+
+INSERT INTO api_usage_logs (id, api_name, endpoint, user_id, request_data, response_status, response_time_ms, created_at)
+SELECT id, api_name, endpoint, user_id, request_data, response_status, response_time_ms,
+       COALESCE(created_at, CURRENT_TIMESTAMP)
+FROM api_usage_logs_unpartitioned;
+
+DROP TABLE api_usage_logs_unpartitioned;
+ALTER SEQUENCE api_usage_logs_partitioned_id_seq RENAME TO api_usage_logs_id_seq;
+ALTER SEQUENCE api_usage_logs_id_seq OWNED BY api_usage_logs.id;
+
+CREATE INDEX idx_api_usage_logs_api_name ON api_usage_logs(api_name, created_at);
+CREATE INDEX idx_api_usage_logs_user_id ON api_usage_logs(user_id, created_at);
+CREATE INDEX idx_api_usage_logs_created_at ON api_usage_logs(created_at);
+
+-- ai_conversations
+ALTER TABLE ai_conversations RENAME TO ai_conversations_unpartitioned;
+ALTER INDEX IF EXISTS idx_ai_conversations_user_session RENAME TO idx_ai_conversations_unpartitioned_user_session;
+
+CREATE SEQUENCE ai_conversations_partitioned_id_seq;
+SELECT setval('ai_conversations_partitioned_id_seq', COALESCE((SELECT MAX(id) FROM ai_conversations_unpartitioned), 0) + 1, false);
+
+CREATE TABLE ai_conversations (
+    id BIGINT NOT NULL DEFAULT nextval('ai_conversations_partitioned_id_seq'),
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    session_id VARCHAR(255) NOT NULL,
+    message_type VARCHAR(20) NOT NULL CHECK (message_type IN ('USER', 'AI')),
+    content TEXT NOT NULL,
+    context JSONB,
+
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+SELECT pg_temp.create_monthly_partitions('ai_conversations',
+    COALESCE((SELECT MIN(created_at) FROM ai_conversations_unpartitioned), CURRENT_DATE)::DATE,
+    (CURRENT_DATE + INTERVAL '3 months')::DATE);
+
+INSERT INTO ai_conversations (id, user_id, session_id, message_type, content, context, created_at)
+SELECT id, user_id, session_id, message_type, content, context, COALESCE(created_at, CURRENT_TIMESTAMP)
+FROM ai_conversations_unpartitioned;
+
+DROP TABLE ai_conversations_unpartitioned;
+ALTER SEQUENCE ai_conversations_partitioned_id_seq RENAME TO ai_conversations_id_seq;
+ALTER SEQUENCE ai_conversations_id_seq OWNED BY ai_conversations.id;
+
+CREATE INDEX idx_ai_conversations_user_session ON ai_conversations(user_id, session_id, created_at);
+
+COMMIT;
+
+-- Partitions left behind by the copy that are already past retention are removed by the backend's next maintenance run.
@@ -125,21 +125,24 @@ CREATE TABLE IF NOT EXISTS user_meal_history (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
--- AI conversation history table
+-- AI conversation history table, partitioned by month
+-- (monthly partitions are created and expired by the backend; see database/partitioning.sql to convert an existing table)
 CREATE TABLE IF NOT EXISTS ai_conversations (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGSERIAL,
     user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
     session_id VARCHAR(255) NOT NULL,
     message_type VARCHAR(20) NOT NULL CHECK (message_type IN ('USER', 'AI')),
     content TEXT NOT NULL,
     context JSONB, -- Store any relevant context
     
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-);
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
 
--- API usage tracking table
+-- API usage tracking table, partitioned by month
 CREATE TABLE IF NOT EXISTS api_usage_logs (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGSERIAL,
     api_name VARCHAR(50) NOT NULL, -- 'edamam', 'spoonacular', 'openai'
     endpoint VARCHAR(255),
     user_id BIGINT REFERENCES users(id) ON DELETE SET NULL,
@@ -147,7 +150,50 @@ CREATE TABLE IF NOT EXISTS api_usage_logs (
     response_status INTEGER,
     response_time_ms INTEGER,
     
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Pre-aggregated API usage, maintained by the usage log writer in the same transaction as api_usage_logs
+CREATE TABLE IF NOT EXISTS api_usage_rollups (
+    id BIGSERIAL PRIMARY KEY,
+    granularity VARCHAR(10) NOT NULL, -- 'MINUTE', 'HOUR', 'DAY'
+    bucket_start TIMESTAMP NOT NULL,
+    api_name VARCHAR(255) NOT NULL,
+    user_id BIGINT NOT NULL DEFAULT 0, -- 0 for calls made without a user
+    status_class VARCHAR(10) NOT NULL, -- '2xx'..'5xx', or 'none' when no response was received
+    request_count BIGINT NOT NULL DEFAULT 0,
+    error_count BIGINT NOT NULL DEFAULT 0,
+    latency_sum_ms BIGINT NOT NULL DEFAULT 0,
+    latency_max_ms INTEGER NOT NULL DEFAULT 0,
+    prompt_tokens BIGINT NOT NULL DEFAULT 0, -- token-billed APIs (e.g. GPT-4o) only
+    completion_tokens BIGINT NOT NULL DEFAULT 0,
+    cost_micro_usd BIGINT NOT NULL DEFAULT 0, -- estimated from the configured per-token prices
+    
+    UNIQUE(granularity, bucket_start, api_name, user_id, status_class)
+);
+
+-- Token columns for rollup tables created before they existed
+ALTER TABLE api_usage_rollups ADD COLUMN IF NOT EXISTS prompt_tokens BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE api_usage_rollups ADD COLUMN IF NOT EXISTS completion_tokens BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE api_usage_rollups ADD COLUMN IF NOT EXISTS cost_micro_usd BIGINT NOT NULL DEFAULT 0;
+
+-- Background recipe ingestion progress, one row per (source, category, diet type, cuisine) segment
+CREATE TABLE IF NOT EXISTS recipe_ingestion_checkpoints (
+    id BIGSERIAL PRIMARY KEY,
+    source VARCHAR(50) NOT NULL,
+    category VARCHAR(50) NOT NULL,
+    diet_type VARCHAR(20) NOT NULL,
+    cuisine_type VARCHAR(50) NOT NULL,
+    next_page VARCHAR(1000), -- Edamam continuation token or Spoonacular offset
+    ingested_count INTEGER NOT NULL DEFAULT 0,
+    exhausted BOOLEAN NOT NULL DEFAULT false,
+    last_run_at TIMESTAMP,
+    last_error VARCHAR(500),
+    started_at TIMESTAMP,
+    
+    UNIQUE(source, category, diet_type, cuisine_type)
 );
 
 -- Indexes for performance
@@ -155,12 +201,15 @@ CREATE INDEX IF NOT EXISTS idx_user_preferences_user_id ON user_preferences(user
 CREATE INDEX IF NOT EXISTS idx_recipes_category ON recipes(category);
 CREATE INDEX IF NOT EXISTS idx_recipes_diet_type ON recipes(diet_type);
 CREATE INDEX IF NOT EXISTS idx_recipes_source ON recipes(source);
+CREATE INDEX IF NOT EXISTS idx_recipes_source_external_id ON recipes(source, external_id);
 CREATE INDEX IF NOT EXISTS idx_user_meal_plans_user_date ON user_meal_plans(user_id, date);
 CREATE INDEX IF NOT EXISTS idx_user_favorites_user_id ON user_favorites(user_id);
 CREATE INDEX IF NOT EXISTS idx_user_meal_history_user_id ON user_meal_history(user_id);
-CREATE INDEX IF NOT EXISTS idx_ai_conversations_user_session ON ai_conversations(user_id, session_id);
-CREATE INDEX IF NOT EXISTS idx_api_usage_logs_api_name ON api_usage_logs(api_name);
+CREATE INDEX IF NOT EXISTS idx_ai_conversations_user_session ON ai_conversations(user_id, session_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_api_usage_logs_api_name ON api_usage_logs(api_name, created_at);
+CREATE INDEX IF NOT EXISTS idx_api_usage_logs_user_id ON api_usage_logs(user_id, created_at);
 CREATE INDEX IF NOT EXISTS idx_api_usage_logs_created_at ON api_usage_logs(created_at);
+CREATE INDEX IF NOT EXISTS idx_api_usage_rollups_api_bucket ON api_usage_rollups(api_name, granularity, bucket_start);
 
 -- Functions for updating timestamps
 CREATE OR REPLACE FUNCTION update_updated_at_column()